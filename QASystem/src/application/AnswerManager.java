@@ -5,13 +5,20 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import application.obj.Answer;
+import application.search.SearchIndex;
+import application.util.IdentityMap;
+import application.util.Page;
 import application.util.LogUtil;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import databasePart1.WriteBehindQueue;
 
 /**
  * Acts as a manager class for dealing with Answer objects. This use of data
@@ -22,6 +29,7 @@ public class AnswerManager {
 
 	private final DatabaseHelper database;
 	private final Set<Answer> answerSet = new HashSet<>();
+	private final IdentityMap<Answer> answerMap = new IdentityMap<>();
 
 	public AnswerManager(DatabaseHelper database) {
 		this.database = database;
@@ -33,22 +41,22 @@ public class AnswerManager {
 	 */
 	public void fetchAnswers() {
 		String query = "SELECT * FROM Answers";
-		try (ResultSet rs = this.database.getStatement().executeQuery(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 
 			answerSet.clear();
+			Set<Integer> seenIds = new HashSet<>();
 
 			while (rs.next()) {
-				// Collect required information to construct Answer object
-				int id = rs.getInt("id");
-				String userName = rs.getString("userName");
-				LocalDateTime creationDate = LocalDateTime.parse(rs.getString("creationDate"));
-				String content = rs.getString("content");
-				// List<String> tags = Arrays.asList(rs.getString("tags").split(","));
-
-				// Construct answer and add it into local cache
-				Answer a = new Answer(id, userName, creationDate, content, null);
+				// Reuse the canonical answer if one exists so references held elsewhere stay valid
+				Answer a = this.canonicalize(this.readAnswer(rs));
 				this.answerSet.add(a);
+				seenIds.add(a.getId());
 			}
+			this.answerMap.retainAll(seenIds);
+			// Drop answers deleted since the search index was last saved
+			StartCSE360.getSearchIndex().retainAll(SearchIndex.Kind.ANSWER, seenIds);
 		} catch (SQLException e) {
 			System.err.println("Failed to fetch all answers from the database.");
 			e.printStackTrace();
@@ -56,35 +64,169 @@ public class AnswerManager {
 	}
 
 	/**
-	 * Fetches a particular answer from the database given the answer's ID.
+	 * Constructs an Answer from the current row of a result set over the Answers
+	 * table.
+	 */
+	Answer readAnswer(ResultSet rs) throws SQLException {
+		int id = rs.getInt("id");
+		String userName = rs.getString("userName");
+		LocalDateTime creationDate = rs.getObject("creationDate", LocalDateTime.class);
+		String content = rs.getString("content");
+		return new Answer(id, userName, creationDate, content, null);
+	}
+
+	/**
+	 * Maps a freshly constructed answer to the canonical instance for its ID. If
+	 * one already exists, it is refreshed with the fresh data and returned.
+	 * 
+	 * @param fresh Answer constructed from database data
+	 * @return Canonical Answer object for the ID
+	 */
+	private Answer canonicalize(Answer fresh) {
+		Answer canonical = this.answerMap.canonicalize(fresh.getId(), fresh);
+		if (canonical != fresh)
+			canonical.setContent(fresh.getContent());
+		StartCSE360.getSearchIndex().put(SearchIndex.Kind.ANSWER, canonical.getId(), canonical.getContent());
+		return canonical;
+	}
+
+	/**
+	 * Fetches a particular answer from the database given the answer's ID. The
+	 * returned object is the same instance held in the local cache.
 	 * 
 	 * @param id ID of answer whose data will be fetched
 	 * @return Answer object constructed from database data
 	 */
 	public Answer fetchAnswer(int id) {
-		Answer result = null;
+		try {
+			Answer fresh = this.loadAnswer(id);
+			return fresh != null ? this.cacheAnswer(fresh) : null;
+		} catch (SQLException e) {
+			System.err.println("Failed to fetch answer from database.");
+			e.printStackTrace();
+			return null;
+		}
+	}
 
+	/**
+	 * Reads an answer from the database without touching the local cache, so it
+	 * can be called from a background thread.
+	 * 
+	 * @param id ID of answer to read
+	 * @return Answer constructed from database data, or null if it does not exist
+	 * @throws SQLException if the answer could not be read
+	 */
+	Answer loadAnswer(int id) throws SQLException {
 		String query = "SELECT * FROM Answers WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setInt(1, id);
 			ResultSet rs = stmt.executeQuery();
-			if (rs.next()) {
-				int i = rs.getInt("id");
-				String userName = rs.getString("userName");
-				LocalDateTime creationTime = LocalDateTime.parse(rs.getString("creationDate"));
-				String content = rs.getString("content");
-				// List<String> tags = Arrays.asList(rs.getString("tags").split(","));
-
-				result = new Answer(i, userName, creationTime, content, null);
-			}
+			return rs.next() ? this.readAnswer(rs) : null;
+		}
+	}
+
+	/**
+	 * Adds an answer read by {@link #loadAnswer(int)} to the local cache,
+	 * refreshing the cached copy if there is one.
+	 * 
+	 * @param fresh Answer constructed from database data
+	 * @return Canonical Answer object for the ID
+	 */
+	Answer cacheAnswer(Answer fresh) {
+		Answer result = this.canonicalize(fresh);
+		this.answerSet.add(result);
+		return result;
+	}
+
+	/**
+	 * Gets an answer by ID from the local cache, only falling back to the database
+	 * if the answer has not been loaded yet.
+	 * 
+	 * @param id ID of answer to get
+	 * @return Answer object, or null if no such answer exists
+	 */
+	public Answer getAnswer(int id) {
+		Answer result = this.answerMap.get(id);
+		if (result == null)
+			result = this.fetchAnswer(id);
+		return result;
+	}
+
+	/**
+	 * Fetches one page of answers, using the ID of the last answer on the previous
+	 * page as the starting point.
+	 * 
+	 * @param afterId ID of the last answer on the previous page, or 0 for the
+	 *                first page
+	 * @param limit   Maximum number of answers on the page
+	 * @param sort    Order to page in
+	 * @return Page of canonical Answer objects
+	 */
+	public Page<Answer> page(int afterId, int limit, Page.Sort sort) {
+		this.database.awaitQueuedWrites(); // Include answers this client just posted
+		List<Answer> result = new ArrayList<>();
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(Page.sql("Answers", afterId, sort))) {
+			Page.bind(stmt, afterId, limit);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next())
+				result.add(this.canonicalize(this.readAnswer(rs)));
 		} catch (SQLException e) {
-			System.err.println("Failed to fetch answer from database.");
+			System.err.println("Failed to fetch a page of answers.");
+			e.printStackTrace();
+		}
+		return Page.of(result, limit, Answer::getId);
+	}
+
+	/**
+	 * Gets the answers created within a time range, newest first. The range is
+	 * evaluated by the database against the indexed creationDate column, and the
+	 * matching answers are resolved through the local cache.
+	 * 
+	 * @param from Earliest creation time to include
+	 * @param to   Creation time to stop before
+	 * @return List of answers created in [from, to)
+	 */
+	public List<Answer> getAnswersCreatedBetween(LocalDateTime from, LocalDateTime to) {
+		this.database.awaitQueuedWrites(); // Include answers this client just posted
+		List<Integer> ids = new ArrayList<>();
+		String query = "SELECT id FROM Answers WHERE creationDate >= ? AND creationDate < ? ORDER BY creationDate DESC";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setObject(1, from);
+			stmt.setObject(2, to);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next())
+				ids.add(rs.getInt(1));
+		} catch (SQLException e) {
+			System.err.println("Failed to fetch answers by creation date.");
 			e.printStackTrace();
 		}
 
+		// Resolved once the connection is returned, since cache misses borrow their own
+		List<Answer> result = new ArrayList<>();
+		for (int id : ids) {
+			Answer a = this.getAnswer(id);
+			if (a != null)
+				result.add(a);
+		}
 		return result;
 	}
 
+	/**
+	 * Drops an answer from the local cache without touching the database. Used
+	 * when another client has deleted it.
+	 * 
+	 * @param id ID of answer to drop
+	 */
+	public void evictAnswer(int id) {
+		Answer a = this.answerMap.remove(id);
+		if (a != null)
+			this.answerSet.remove(a);
+		StartCSE360.getSearchIndex().remove(SearchIndex.Kind.ANSWER, id);
+	}
+
 	/**
 	 * Gets an unmodifiable reference to the set of answers stored in the local
 	 * cache.
@@ -105,24 +247,50 @@ public class AnswerManager {
 	 * @return new Answer object
 	 */
 	public Answer createNewAnswer(String userName, LocalDateTime creationDate, String content) {
-		String query = "INSERT INTO Answers (userName, creationDate, content) VALUES (?, ?, ?)";
-		int id = -1;
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query,
-				Statement.RETURN_GENERATED_KEYS)) {
+		WriteBehindQueue.Binder binder = stmt -> {
 			stmt.setString(1, userName);
-			stmt.setString(2, creationDate.toString());
+			stmt.setObject(2, creationDate);
 			stmt.setString(3, content);
-			stmt.executeUpdate();
-			ResultSet results = stmt.getGeneratedKeys();
-			if (results.next())
-				id = results.getInt(1);
-		} catch (SQLException e) {
-			System.err.println("Failed to create a new answer.");
-			e.printStackTrace();
+		};
+
+		int id = -1;
+		WriteBehindQueue writer = this.database.getWriteBehindQueue();
+		if (writer != null) {
+			// Cache the answer now and insert it in the background under a reserved ID
+			try {
+				int reserved = writer.reserveId("Answers");
+				String query = "INSERT INTO Answers (userName, creationDate, content, id) VALUES (?, ?, ?, ?)";
+				writer.enqueue(WriteBehindQueue.key("Answers", reserved), query, stmt -> {
+					binder.bind(stmt);
+					stmt.setInt(4, reserved);
+				}, () -> {
+					this.evictAnswer(reserved);
+					StartCSE360.getQuestionManager().evictQuestionOf(reserved);
+				});
+				id = reserved;
+			} catch (SQLException e) {
+				System.err.println("Failed to reserve an ID for a new answer.");
+				e.printStackTrace();
+			}
+		} else {
+			String query = "INSERT INTO Answers (userName, creationDate, content) VALUES (?, ?, ?)";
+			try (PooledConnection conn = this.database.borrowConnection();
+					PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+				binder.bind(stmt);
+				stmt.executeUpdate();
+				ResultSet results = stmt.getGeneratedKeys();
+				if (results.next())
+					id = results.getInt(1);
+			} catch (SQLException e) {
+				System.err.println("Failed to create a new answer.");
+				e.printStackTrace();
+			}
 		}
 
 		Answer a = new Answer(id, userName, creationDate, content, null);
 		this.answerSet.add(a);
+		this.answerMap.put(id, a);
+		StartCSE360.getSearchIndex().put(SearchIndex.Kind.ANSWER, id, content);
 		return a;
 	}
 
@@ -0,0 +1,308 @@
+package application;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import application.obj.Answer;
+import application.obj.InviteCode;
+import application.obj.Message;
+import application.obj.ReviewerProfile;
+import application.util.LogUtil;
+import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+
+/**
+ * Keeps the managers' local caches up to date with changes made by other
+ * clients sharing the database. Database triggers append every change to the
+ * ChangeLog table (see {@link databasePart1.ChangeLogTrigger}). This class
+ * polls the log on a background thread and reloads only the rows that changed,
+ * instead of rebuilding whole caches with the fetch methods.
+ *
+ * <p>
+ * Changes made by this client are skipped, since the managers already applied
+ * them to the cache. Changed rows are read on the polling thread, and only the
+ * finished objects are handed to the executor given to the constructor, which
+ * should be the thread that owns the caches (the JavaFX application thread in
+ * the running program).
+ *
+ * <p>
+ * Sequence numbers are taken when a change is made but only become visible when
+ * its transaction commits, so a change can appear after later ones have already
+ * been read. Every number skipped over is remembered as a gap and looked up
+ * again on later polls, until its change appears or {@link #GAP_TIMEOUT_MILLIS}
+ * passes (a rolled back change never appears).
+ */
+public class ChangeFeedConsumer {
+
+	public static final long POLL_INTERVAL_MILLIS = 50;
+	public static final int MAX_CHANGES_PER_POLL = 500;
+	public static final long RETENTION_MINUTES = 10;
+	public static final long PRUNE_INTERVAL_MILLIS = 60_000;
+	public static final long GAP_TIMEOUT_MILLIS = 30_000;
+	public static final int MAX_GAPS = 1_000;
+
+	private final DatabaseHelper database;
+	private final QuestionManager questionManager;
+	private final AnswerManager answerManager;
+	private final ReviewManager reviewManager;
+	private final MessageManager messageManager;
+	private final CommentManager commentManager;
+	private final ReviewerProfileManager profileManager;
+	private final UserManager userManager;
+	private final InviteCodeManager inviteCodeManager;
+	private final Executor applier;
+	private final ScheduledExecutorService poller;
+
+	// Only used by the polling thread
+	private long lastSeq;
+	// Sequence numbers below lastSeq not seen yet, mapped to when they were skipped
+	private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+	/**
+	 * Creates a consumer positioned at the current end of the ChangeLog. Create it
+	 * before the managers load their caches, so no change can fall between the
+	 * load and the first poll.
+	 *
+	 * @param database          Database to read the ChangeLog from
+	 * @param questionManager   Cache to apply question changes to
+	 * @param answerManager     Cache to apply answer changes to
+	 * @param reviewManager     Cache to apply review changes to
+	 * @param messageManager    Cache to apply message changes to
+	 * @param commentManager    Cache to apply comment changes to
+	 * @param profileManager    Cache to apply reviewer profile changes to
+	 * @param userManager       Cache to apply user changes to
+	 * @param inviteCodeManager Cache to apply invitation code changes to
+	 * @param applier           Runs the cache updates for each batch of changes
+	 * @throws SQLException if the ChangeLog cannot be read
+	 */
+	public ChangeFeedConsumer(DatabaseHelper database, QuestionManager questionManager, AnswerManager answerManager,
+			ReviewManager reviewManager, MessageManager messageManager, CommentManager commentManager,
+			ReviewerProfileManager profileManager, UserManager userManager, InviteCodeManager inviteCodeManager,
+			Executor applier) throws SQLException {
+		this.database = database;
+		this.questionManager = questionManager;
+		this.answerManager = answerManager;
+		this.reviewManager = reviewManager;
+		this.messageManager = messageManager;
+		this.commentManager = commentManager;
+		this.profileManager = profileManager;
+		this.userManager = userManager;
+		this.inviteCodeManager = inviteCodeManager;
+		this.applier = applier;
+		this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ChangeFeed-Poller");
+			t.setDaemon(true);
+			return t;
+		});
+
+		try (PooledConnection conn = database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(seq), 0) FROM ChangeLog");
+				ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			this.lastSeq = rs.getLong(1);
+		}
+	}
+
+	/**
+	 * Starts polling the ChangeLog in the background.
+	 */
+	public void start() {
+		this.poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS,
+				TimeUnit.MILLISECONDS);
+		this.poller.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL_MILLIS, PRUNE_INTERVAL_MILLIS,
+				TimeUnit.MILLISECONDS);
+		LogUtil.debug("Started change feed after ChangeLog entry " + this.lastSeq);
+	}
+
+	/**
+	 * Stops polling. Changes that have already been read are still applied.
+	 */
+	public void stop() {
+		this.poller.shutdownNow();
+	}
+
+	/**
+	 * Reads the changes logged since the last poll, loads the rows they touch and
+	 * hands the results to the applier. Several changes to one row collapse into
+	 * the latest one, since applying a change reloads the whole row anyway. Runs
+	 * on the polling thread once started; must not be called concurrently.
+	 */
+	public void poll() {
+		Map<String, Change> changes = new LinkedHashMap<>();
+		try (PooledConnection conn = this.database.borrowConnection()) {
+			// Late changes are older than anything after lastSeq, so read them first
+			this.readGaps(conn, changes);
+			this.readNew(conn, changes);
+		} catch (SQLException e) {
+			LogUtil.error("Failed to read the ChangeLog: " + e.getMessage());
+			return;
+		}
+		if (changes.isEmpty())
+			return;
+
+		// Load the rows here, so the applier only has to update the caches
+		List<Runnable> updates = new ArrayList<>(changes.size());
+		for (Change c : changes.values()) {
+			try {
+				updates.add(this.load(c));
+			} catch (SQLException e) {
+				LogUtil.error("Failed to load " + c.table + " " + (c.rowKey != null ? c.rowKey : c.rowId) + ": "
+						+ e.getMessage());
+			}
+		}
+		this.applier.execute(() -> {
+			for (Runnable update : updates)
+				update.run();
+			// Runs on the FX thread after every poll, so only build the message if it is written
+			LogUtil.debug(() -> "Applied " + updates.size() + " change(s) from other clients.");
+		});
+	}
+
+	/**
+	 * Looks up the changes whose sequence numbers were skipped by earlier polls,
+	 * and gives up on those that have been missing too long.
+	 */
+	private void readGaps(PooledConnection conn, Map<String, Change> changes) throws SQLException {
+		long expired = System.currentTimeMillis() - GAP_TIMEOUT_MILLIS;
+		this.gaps.values().removeIf(skippedAt -> skippedAt < expired);
+		if (this.gaps.isEmpty())
+			return;
+
+		String query = "SELECT seq, tableName, rowId, rowKey, operation, origin FROM ChangeLog WHERE seq = ANY(?) ORDER BY seq";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setObject(1, this.gaps.keySet().toArray(new Long[0]));
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				this.gaps.remove(rs.getLong("seq"));
+				this.collect(rs, changes);
+			}
+		}
+	}
+
+	/**
+	 * Reads the changes after {@link #lastSeq}, remembering any sequence numbers
+	 * skipped over as gaps.
+	 */
+	private void readNew(PooledConnection conn, Map<String, Change> changes) throws SQLException {
+		// This client's own changes are filtered here, not in SQL, so they leave no gaps
+		String query = "SELECT seq, tableName, rowId, rowKey, operation, origin FROM ChangeLog WHERE seq > ? ORDER BY seq LIMIT ?";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setLong(1, this.lastSeq);
+			stmt.setInt(2, MAX_CHANGES_PER_POLL);
+			ResultSet rs = stmt.executeQuery();
+			long now = System.currentTimeMillis();
+			while (rs.next()) {
+				long seq = rs.getLong("seq");
+				for (long missing = Math.max(this.lastSeq + 1, seq - MAX_GAPS); missing < seq; missing++)
+					this.gaps.put(missing, now);
+				this.lastSeq = seq;
+				this.collect(rs, changes);
+			}
+		}
+		while (this.gaps.size() > MAX_GAPS)
+			this.gaps.pollFirstEntry();
+	}
+
+	/**
+	 * Adds the change in the current row of a ChangeLog result set, unless this
+	 * client made it.
+	 */
+	private void collect(ResultSet rs, Map<String, Change> changes) throws SQLException {
+		if (this.database.getClientId().equals(rs.getString("origin")))
+			return;
+		Change c = new Change(rs.getString("tableName"), rs.getInt("rowId"), rs.getString("rowKey"),
+				rs.getString("operation").charAt(0));
+		String key = c.table + ':' + (c.rowKey != null ? c.rowKey : String.valueOf(c.rowId));
+		changes.remove(key); // Re-insert so the map stays in order of latest change
+		changes.put(key, c);
+	}
+
+	/**
+	 * Reads the row a change touched and returns the cache update to run on the
+	 * applier. A row that no longer exists is evicted.
+	 */
+	private Runnable load(Change c) throws SQLException {
+		int id = c.rowId;
+		String rowKey = c.rowKey;
+		boolean deleted = c.operation == 'D';
+		switch (c.table) {
+		case "Questions":
+			QuestionManager.LoadedQuestion question = deleted ? null : this.questionManager.loadQuestion(id);
+			if (question == null)
+				return () -> this.questionManager.evictQuestion(id);
+			return () -> this.questionManager.cacheQuestion(question);
+		case "Answers":
+			Answer answer = deleted ? null : this.answerManager.loadAnswer(id);
+			if (answer == null)
+				return () -> this.answerManager.evictAnswer(id);
+			return () -> this.answerManager.cacheAnswer(answer);
+		case "Reviews":
+			ReviewManager.ReviewRow review = deleted ? null : this.reviewManager.loadReview(id);
+			return () -> this.reviewManager.cacheReview(id, review);
+		case "Messages":
+			// Messages are never deleted, so there is nothing to evict
+			Message message = this.messageManager.loadMessage(id);
+			return () -> {
+				if (message != null)
+					this.messageManager.cacheMessage(message);
+			};
+		case "Comments":
+			CommentManager.CommentRow comment = deleted ? null : this.commentManager.loadComment(id);
+			return () -> this.commentManager.cacheComment(id, comment);
+		case "ReviewerProfiles":
+			ReviewerProfile profile = deleted ? null : this.profileManager.loadProfile(rowKey);
+			return () -> this.profileManager.cacheProfile(rowKey, profile);
+		case "cse360users":
+			User user = deleted ? null : this.userManager.loadUser(id);
+			return () -> this.userManager.cacheUser(id, user);
+		case "InvitationCodes":
+			InviteCode inviteCode = deleted ? null : this.inviteCodeManager.loadInviteCode(rowKey);
+			return () -> this.inviteCodeManager.cacheInviteCode(rowKey, inviteCode);
+		default:
+			return () -> LogUtil.debug(() -> "Ignoring ChangeLog entry for table " + c.table);
+		}
+	}
+
+	/**
+	 * Deletes ChangeLog entries older than {@link #RETENTION_MINUTES}. A client
+	 * that falls further behind than that should reload with the fetch methods.
+	 */
+	private void prune() {
+		String delete = "DELETE FROM ChangeLog WHERE changedAt < ?";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(delete)) {
+			stmt.setObject(1, LocalDateTime.now().minusMinutes(RETENTION_MINUTES));
+			int pruned = stmt.executeUpdate();
+			if (pruned > 0)
+				LogUtil.debug("Pruned " + pruned + " old ChangeLog entries.");
+		} catch (SQLException e) {
+			LogUtil.error("Failed to prune the ChangeLog: " + e.getMessage());
+		}
+	}
+
+	private static class Change {
+		final String table;
+		final int rowId;
+		// Key the row is cached by, for tables not cached by ID
+		final String rowKey;
+		final char operation;
+
+		Change(String table, int rowId, String rowKey, char operation) {
+			this.table = table;
+			this.rowId = rowId;
+			this.rowKey = rowKey;
+			this.operation = operation;
+		}
+	}
+}
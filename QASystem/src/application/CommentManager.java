@@ -1,5 +1,6 @@
 package application;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
@@ -11,6 +12,7 @@ import application.obj.Comment;
 import application.obj.Question;
 import application.util.LogUtil;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
 
 /**
  * Acts as a manager class for dealing with Comment objects. This use of data
@@ -32,19 +34,12 @@ public class CommentManager {
 	 */
 	public void fetchComments() {
 		String query = "SELECT * FROM Comments";
-		try (ResultSet rs = this.database.getStatement().executeQuery(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 			while (rs.next()) {
-				// Collect required information to construct Comment object
-				int id = rs.getInt("id");
-				String userName = rs.getString("userName");
-				LocalDateTime creationDate = LocalDateTime.parse(rs.getString("creationDate"));
-				String content = rs.getString("content");
-				// Sadly, fetching questions is a bit more complicated
-				Question q = StartCSE360.getQuestionManager().fetchQuestion(rs.getInt("parent"));
-
 				// Construct comment and add it into local cache
-				Comment c = new Comment(id, userName, creationDate, content, q);
-				this.commentSet.add(c);
+				this.commentSet.add(new CommentRow(rs).toComment());
 			}
 		} catch (SQLException e) {
 			System.err.println("Failed to fetch all answers from the database.");
@@ -52,6 +47,65 @@ public class CommentManager {
 		}
 	}
 
+	/**
+	 * Reads a comment's row from the database without touching the local cache,
+	 * so it can be called from a background thread.
+	 * 
+	 * @param id ID of comment to read
+	 * @return Row of the comment, or null if it does not exist
+	 * @throws SQLException if the comment could not be read
+	 */
+	CommentRow loadComment(int id) throws SQLException {
+		String query = "SELECT * FROM Comments WHERE id = ?";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, id);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? new CommentRow(rs) : null;
+		}
+	}
+
+	/**
+	 * Replaces the cached copy of a comment with a row read by
+	 * {@link #loadComment(int)}, or drops it if the row is null.
+	 * 
+	 * @param id  ID of the comment
+	 * @param row Row of the comment, or null if it does not exist
+	 */
+	void cacheComment(int id, CommentRow row) {
+		this.commentSet.removeIf(c -> c.getId() == id);
+		if (row != null)
+			this.commentSet.add(row.toComment());
+	}
+
+	/**
+	 * A row of the Comments table whose parent question has not been resolved.
+	 */
+	static class CommentRow {
+		final int id;
+		final String userName;
+		final LocalDateTime creationDate;
+		final String content;
+		final int parentId;
+
+		CommentRow(ResultSet rs) throws SQLException {
+			this.id = rs.getInt("id");
+			this.userName = rs.getString("userName");
+			this.creationDate = rs.getObject("creationDate", LocalDateTime.class);
+			this.content = rs.getString("content");
+			this.parentId = rs.getInt("parentId");
+		}
+
+		/**
+		 * Resolves the parent question through the question cache, so must run on
+		 * the thread that owns the caches.
+		 */
+		Comment toComment() {
+			Question q = StartCSE360.getQuestionManager().getQuestion(this.parentId);
+			return new Comment(this.id, this.userName, this.creationDate, this.content, q);
+		}
+	}
+
 	/**
 	 * Gets an unmodifiable reference to the set of comments stored in the local
 	 * cache.
@@ -1,16 +1,25 @@
 package application;
 
+import java.security.SecureRandom;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import application.obj.InviteCode;
 import application.util.LogUtil;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
 
 /**
  * Acts as a manager class for dealing with InviteCode objects. This use of data
@@ -19,8 +28,21 @@ import databasePart1.DatabaseHelper;
  */
 public class InviteCodeManager {
 
+	// Characters codes are made of; look-alikes such as 0/o and 1/l are left out
+	private static final String ALPHABET = "abcdefghjkmnpqrstuvwxyz23456789";
+	public static final int DEFAULT_CODE_LENGTH = 6;
+	public static final int MIN_CODE_LENGTH = 4;
+	// Width of the code column
+	public static final int MAX_CODE_LENGTH = 10;
+	// How long a code stays redeemable unless told otherwise
+	public static final Duration DEFAULT_VALIDITY = Duration.ofDays(14);
+	// Times a batch is regenerated if another client inserts one of its codes first
+	private static final int MAX_ATTEMPTS = 5;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
 	private final DatabaseHelper database;
-	private Set<InviteCode> cache = new HashSet<>();
+	private final Map<String, InviteCode> cache = new ConcurrentHashMap<>();
 
 	public InviteCodeManager(DatabaseHelper database) {
 		this.database = database;
@@ -33,12 +55,12 @@ public class InviteCodeManager {
 	public void fetchInviteCodes() {
 		this.cache.clear(); // Clear the cache before adding content from query
 		String query = "SELECT * FROM InvitationCodes";
-		try (ResultSet rs = this.database.getStatement().executeQuery(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 			while (rs.next()) {
-				String code = rs.getString("code");
-				boolean isUsed = rs.getBoolean("isUsed");
-				InviteCode invCode = new InviteCode(code, isUsed);
-				this.cache.add(invCode);
+				InviteCode invCode = readInviteCode(rs);
+				this.cache.put(invCode.getCode(), invCode);
 			}
 		} catch (SQLException e) {
 			LogUtil.error(
@@ -48,66 +70,262 @@ public class InviteCodeManager {
 	}
 
 	/**
-	 * Gets an unmodifiable {@link Set} containing {@link InviteCode} objects.
-	 * 
-	 * @return unmodifiable Set
+	 * Reads an invitation code from the database without touching the local
+	 * cache, so it can be called from a background thread.
+	 *
+	 * @param code Code to read
+	 * @return InviteCode constructed from database data, or null if it does not
+	 *         exist
+	 * @throws SQLException if the code could not be read
+	 */
+	InviteCode loadInviteCode(String code) throws SQLException {
+		String query = "SELECT * FROM InvitationCodes WHERE code = ?";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setString(1, code);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? readInviteCode(rs) : null;
+		}
+	}
+
+	/**
+	 * Applies a code read by {@link #loadInviteCode(String)} to the local cache.
+	 * A cached code is marked used in place, so pages holding it see the change.
+	 *
+	 * @param code  Code that changed
+	 * @param fresh InviteCode constructed from database data, or null if it no
+	 *              longer exists
+	 */
+	void cacheInviteCode(String code, InviteCode fresh) {
+		if (fresh == null) {
+			this.cache.remove(code);
+			return;
+		}
+		InviteCode cached = this.cache.putIfAbsent(code, fresh);
+		if (cached != null)
+			cached.setUsed(fresh.isUsed());
+	}
+
+	/**
+	 * Constructs an InviteCode from the current row of a result set over the
+	 * InvitationCodes table.
 	 */
-	public Set<InviteCode> getInviteCodes() {
-		return Collections.unmodifiableSet(this.cache);
+	private static InviteCode readInviteCode(ResultSet rs) throws SQLException {
+		String code = rs.getString("code");
+		boolean isUsed = rs.getBoolean("isUsed");
+		UserRole role = UserRole.valueOf(rs.getString("role").toUpperCase());
+		Timestamp expiresAt = rs.getTimestamp("expiresAt");
+		return new InviteCode(code, isUsed, role, expiresAt == null ? null : expiresAt.toLocalDateTime());
+	}
+
+	/**
+	 * Gets an unmodifiable {@link Collection} containing {@link InviteCode}
+	 * objects.
+	 *
+	 * @return unmodifiable Collection
+	 */
+	public Collection<InviteCode> getInviteCodes() {
+		return Collections.unmodifiableCollection(this.cache.values());
+	}
+
+	/**
+	 * Drops codes from the cache, for example once InviteCodeSweeper has removed
+	 * them from the database. Safe to call from any thread.
+	 *
+	 * @param codes Codes to drop
+	 */
+	public void evict(Collection<String> codes) {
+		for (String code : codes)
+			this.cache.remove(code);
 	}
 
 	public InviteCode createInviteCode() {
-		String code = UUID.randomUUID().toString().substring(0, 4);
-		boolean isUsed = false;
-
-		String query = "INSERT INTO InvitationCodes (code, isUsed) VALUES (?, ?)";
-		try (PreparedStatement pstmt = this.database.getConnection().prepareStatement(query)) {
-			pstmt.setString(1, code);
-			pstmt.setBoolean(2, isUsed);
-			pstmt.executeUpdate();
-		} catch (SQLException e) {
-			LogUtil.error("Caught SQLException when trying to create a new invitation code. Printing stacktrace.");
-			e.printStackTrace();
+		return this.createInviteCode(UserRole.STUDENT);
+	}
+
+	/**
+	 * Creates one invitation code that gives the new account a role and is valid
+	 * for {@link #DEFAULT_VALIDITY}.
+	 *
+	 * @return The new code, or null if it could not be saved
+	 */
+	public InviteCode createInviteCode(UserRole role) {
+		List<InviteCode> codes = this.generateBatch(1, DEFAULT_CODE_LENGTH, role, DEFAULT_VALIDITY);
+		return codes.isEmpty() ? null : codes.get(0);
+	}
+
+	/**
+	 * Creates student invitation codes of {@link #DEFAULT_CODE_LENGTH} characters.
+	 *
+	 * @see #generateBatch(int, int, UserRole, Duration)
+	 */
+	public List<InviteCode> generateBatch(int count) {
+		return this.generateBatch(count, DEFAULT_CODE_LENGTH);
+	}
+
+	/**
+	 * Creates student invitation codes valid for {@link #DEFAULT_VALIDITY}.
+	 *
+	 * @see #generateBatch(int, int, UserRole, Duration)
+	 */
+	public List<InviteCode> generateBatch(int count, int length) {
+		return this.generateBatch(count, length, UserRole.STUDENT, DEFAULT_VALIDITY);
+	}
+
+	/**
+	 * Returns the most codes {@link #generateBatch(int, int, UserRole, Duration)}
+	 * will create at once. Batches are kept to half of the possible codes, so
+	 * random draws still find unused ones quickly.
+	 *
+	 * @param length Characters per code
+	 * @return Largest accepted count for codes of that length
+	 */
+	public static long maxBatchSize(int length) {
+		return (long) (Math.pow(ALPHABET.length(), length) / 2);
+	}
+
+	/**
+	 * Creates many unused invitation codes at once, for example one per seat of a
+	 * lecture. Codes are drawn at random, checked against existing codes with one
+	 * query, and inserted as one JDBC batch in a single transaction, so either the
+	 * whole batch is created or none of it is.
+	 *
+	 * @param count    Number of codes to create
+	 * @param length   Characters per code, from {@link #MIN_CODE_LENGTH} to
+	 *                 {@link #MAX_CODE_LENGTH}
+	 * @param role     Role given to each account created with one of the codes
+	 * @param validFor How long the codes can be redeemed for
+	 * @return The new codes, in no particular order, or an empty list if they
+	 *         could not be saved
+	 */
+	public List<InviteCode> generateBatch(int count, int length, UserRole role, Duration validFor) {
+		if (length < MIN_CODE_LENGTH || length > MAX_CODE_LENGTH)
+			throw new IllegalArgumentException(
+					"Code length must be between " + MIN_CODE_LENGTH + " and " + MAX_CODE_LENGTH);
+		if (count < 0 || count > maxBatchSize(length))
+			throw new IllegalArgumentException("Cannot create " + count + " codes of length " + length);
+
+		LocalDateTime expiresAt = LocalDateTime.now().plus(validFor);
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			Set<String> codes = this.drawUnusedCodes(count, length);
+			if (codes == null)
+				return Collections.emptyList();
+			try {
+				this.insertCodes(codes, role, expiresAt);
+			} catch (SQLException e) {
+				// Most likely another client took one of the codes since they were checked
+				LogUtil.error("Failed to insert a batch of " + count + " invitation code(s); retrying.");
+				continue;
+			}
+
+			List<InviteCode> result = new ArrayList<>(codes.size());
+			for (String code : codes) {
+				InviteCode invCode = new InviteCode(code, false, role, expiresAt);
+				this.cache.put(code, invCode);
+				result.add(invCode);
+			}
+			return result;
 		}
+		LogUtil.error("Gave up creating a batch of " + count + " invitation code(s).");
+		return Collections.emptyList();
+	}
 
-		InviteCode invCode = new InviteCode(code, isUsed);
-		this.cache.add(invCode);
-		return invCode;
-	}
-
-	public boolean validateCode(InviteCode invCode) {
-		String code = invCode.getCode();
-		String query = "SELECT * FROM InvitationCodes WHERE code = ? AND isUsed = FALSE";
-		try (PreparedStatement pstmt = this.database.getConnection().prepareStatement(query)) {
-			pstmt.setString(1, code);
-			ResultSet rs = pstmt.executeQuery();
-			if (rs.next())
-				return true;
-			else
-				return false;
-		} catch (SQLException e) {
-			LogUtil.error("Caught SQLException when trying to validate an invitation code. Printing stacktrace.");
-			e.printStackTrace();
+	/**
+	 * Draws distinct random codes, replacing any that already exist in the
+	 * database until none do.
+	 *
+	 * @return The codes, or null if the database could not be checked
+	 */
+	private Set<String> drawUnusedCodes(int count, int length) {
+		Set<String> codes = new LinkedHashSet<>();
+		Set<String> pending = new LinkedHashSet<>();
+		while (codes.size() < count) {
+			pending.clear();
+			while (codes.size() + pending.size() < count) {
+				String code = randomCode(length);
+				if (!codes.contains(code))
+					pending.add(code);
+			}
+
+			String query = "SELECT code FROM InvitationCodes WHERE code = ANY(?)";
+			try (PooledConnection conn = this.database.borrowConnection();
+					PreparedStatement stmt = conn.prepareStatement(query)) {
+				stmt.setObject(1, pending.toArray(new String[0]));
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next())
+						pending.remove(rs.getString(1));
+				}
+			} catch (SQLException e) {
+				LogUtil.error("Caught SQLException when trying to check new invitation codes. Printing stacktrace.");
+				e.printStackTrace();
+				return null;
+			}
+			codes.addAll(pending);
 		}
-		return false;
+		return codes;
 	}
 
-	public void markAsUsed(InviteCode invCode) {
-		String code = invCode.getCode();
-		String query = "UPDATE InvitationCodes SET isUsed = TRUE WHERE code = ?";
-		try (PreparedStatement pstmt = this.database.getConnection().prepareStatement(query)) {
-			pstmt.setString(1, code);
-			pstmt.executeUpdate();
-		} catch (SQLException e) {
-			LogUtil.error("Caught SQLException when trying to use an invitation code. Printing stacktrace.");
-			e.printStackTrace();
+	private static String randomCode(int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = ALPHABET.charAt(RANDOM.nextInt(ALPHABET.length()));
+		return new String(chars);
+	}
+
+	private void insertCodes(Set<String> codes, UserRole role, LocalDateTime expiresAt) throws SQLException {
+		String query = "INSERT INTO InvitationCodes (code, isUsed, role, createdAt, expiresAt) "
+				+ "VALUES (?, FALSE, ?, ?, ?)";
+		LocalDateTime now = LocalDateTime.now();
+		try (PooledConnection conn = this.database.borrowConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+				for (String code : codes) {
+					pstmt.setString(1, code);
+					pstmt.setString(2, role.toString());
+					pstmt.setObject(3, now);
+					pstmt.setObject(4, expiresAt);
+					pstmt.addBatch();
+				}
+				pstmt.executeBatch();
+				conn.commit();
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			}
 		}
+	}
 
+	/**
+	 * Redeems an invitation code if it exists, has not been used and has not
+	 * expired. Checking and marking the code happen in one conditional UPDATE, so
+	 * two signups racing for the same code cannot both succeed.
+	 *
+	 * @param code Code to redeem
+	 * @return Role the code grants, or null if it could not be redeemed
+	 */
+	public UserRole redeem(String code) {
+		UserRole role = this.database.redeemInvitationCode(code);
+		if (role != null) {
+			InviteCode invCode = this.cache.get(code);
+			if (invCode != null)
+				invCode.setUsed(true);
+		}
+		return role;
+	}
+
+	/**
+	 * @return Whether the code was valid and is now used
+	 * @see #redeem(String)
+	 */
+	public boolean redeemCode(String code) {
+		return this.redeem(code) != null;
 	}
 
-	public void useCode(InviteCode invCode) {
-		if (!this.validateCode(invCode))
-			return; // Ignore invalid invite codes
-		this.markAsUsed(invCode);
+	/**
+	 * @return Whether the code was valid and is now used
+	 * @see #redeemCode(String)
+	 */
+	public boolean useCode(InviteCode invCode) {
+		return this.redeemCode(invCode.getCode());
 	}
 }
@@ -0,0 +1,157 @@
+package application;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import application.util.LogUtil;
+import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+
+/**
+ * Keeps the InvitationCodes table and the {@link InviteCodeManager} cache small
+ * by removing codes that can no longer be redeemed. Runs on a background thread
+ * every {@link #SWEEP_INTERVAL_MINUTES} minutes.
+ *
+ * <p>
+ * Codes that expired without being used are deleted. Codes that were used are
+ * kept for {@link #USED_RETENTION} and then moved to InvitationCodesArchive, so
+ * there is still a record of which code created which account. Both are done
+ * {@link #BATCH_SIZE} codes at a time, so a large backlog never holds a long
+ * transaction. Every client sharing the database runs a sweeper; a code is only
+ * archived by the client whose delete removed it, so two sweepers never archive
+ * the same code twice.
+ */
+public class InviteCodeSweeper {
+
+	public static final long SWEEP_INTERVAL_MINUTES = 10;
+	public static final int BATCH_SIZE = 500;
+	public static final Duration USED_RETENTION = Duration.ofDays(1);
+	public static final long STOP_TIMEOUT_SECONDS = 10;
+
+	private final DatabaseHelper database;
+	private final InviteCodeManager manager;
+	private final ScheduledExecutorService sweeper;
+
+	/**
+	 * @param database Database holding the InvitationCodes table
+	 * @param manager  Manager whose cache swept codes are evicted from
+	 */
+	public InviteCodeSweeper(DatabaseHelper database, InviteCodeManager manager) {
+		this.database = database;
+		this.manager = manager;
+		this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "InviteCode-Sweeper");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Starts sweeping in the background. The first sweep runs right away, so codes
+	 * that expired while the program was closed are removed promptly.
+	 */
+	public void start() {
+		this.sweeper.scheduleWithFixedDelay(this::sweepQuietly, 0, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+		LogUtil.debug("Started invitation code sweeper");
+	}
+
+	/**
+	 * Stops sweeping and waits up to {@link #STOP_TIMEOUT_SECONDS} for a sweep in
+	 * progress to end, so it is not cut off by the database closing. A batch that
+	 * is in progress is rolled back if it has not been committed.
+	 */
+	public void stop() {
+		this.sweeper.shutdownNow();
+		try {
+			if (!this.sweeper.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+				LogUtil.error("Invitation code sweep did not stop within " + STOP_TIMEOUT_SECONDS + "s");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void sweepQuietly() {
+		try {
+			int swept = this.sweep();
+			if (swept > 0)
+				LogUtil.debug("Swept " + swept + " invitation code(s)");
+		} catch (SQLException e) {
+			LogUtil.error("Failed to sweep invitation codes: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes every code that is expired and unused, or was used more than
+	 * {@link #USED_RETENTION} ago.
+	 *
+	 * @return Number of codes removed
+	 * @throws SQLException if a batch could not be removed; batches removed before
+	 *                      it stay removed
+	 */
+	public int sweep() throws SQLException {
+		LocalDateTime now = LocalDateTime.now();
+		int swept = 0;
+		List<String> batch;
+		while (!(batch = this.selectBatch("isUsed = FALSE AND expiresAt <= ?", now)).isEmpty())
+			swept += this.purge(batch);
+		LocalDateTime usedBefore = now.minus(USED_RETENTION);
+		while (!(batch = this.selectBatch("isUsed = TRUE AND usedAt <= ?", usedBefore)).isEmpty())
+			swept += this.archive(batch);
+		return swept;
+	}
+
+	private List<String> selectBatch(String condition, LocalDateTime time) throws SQLException {
+		List<String> codes = new ArrayList<>();
+		String query = "SELECT code FROM InvitationCodes WHERE " + condition + " LIMIT ?";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setObject(1, time);
+			stmt.setInt(2, BATCH_SIZE);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next())
+					codes.add(rs.getString(1));
+			}
+		}
+		return codes;
+	}
+
+	private int purge(List<String> codes) throws SQLException {
+		int deleted;
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement("DELETE FROM InvitationCodes WHERE code = ANY(?)")) {
+			stmt.setObject(1, codes.toArray(new String[0]));
+			deleted = stmt.executeUpdate();
+		}
+		this.manager.evict(codes);
+		return deleted;
+	}
+
+	/**
+	 * Moves codes to the archive. Only the rows this statement's delete actually
+	 * removed are copied, so if another client's sweeper took some of the codes
+	 * first (its delete holds their row locks until it commits), they are
+	 * archived by that client alone. The delete and the copy are one statement,
+	 * so a code is never in both tables or in neither.
+	 */
+	private int archive(List<String> codes) throws SQLException {
+		String move = "INSERT INTO InvitationCodesArchive (code, role, createdAt, expiresAt, usedAt) "
+				+ "SELECT code, role, createdAt, expiresAt, usedAt "
+				+ "FROM OLD TABLE (DELETE FROM InvitationCodes WHERE code = ANY(?))";
+		int archived;
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(move)) {
+			stmt.setObject(1, codes.toArray(new String[0]));
+			archived = stmt.executeUpdate();
+		}
+		this.manager.evict(codes);
+		return archived;
+	}
+}
@@ -5,15 +5,20 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import application.obj.Message;
 import application.util.LogUtil;
+import application.util.Page;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import databasePart1.WriteBehindQueue;
 
 /**
  * Manages private messages between users (students and reviewers). Handles
@@ -23,6 +28,13 @@ public class MessageManager {
 	private final DatabaseHelper database;
 	private final Set<Message> messageSet = new HashSet<>();
 
+	// Indexes over messageSet, kept in sync by addToCache
+	private final Map<Integer, Message> messagesById = new HashMap<>();
+	private final Map<String, List<Message>> inboxes = new HashMap<>();
+	private final Map<String, List<Message>> outboxes = new HashMap<>();
+	private final Map<String, List<Message>> conversations = new HashMap<>();
+	private final Map<String, Integer> unreadCounts = new HashMap<>();
+
 	public MessageManager(DatabaseHelper database) {
 		this.database = database;
 		LogUtil.debug("Initialized MessageManager");
@@ -33,19 +45,18 @@ public class MessageManager {
 	 */
 	public void fetchMessages() {
 		String query = "SELECT * FROM Messages";
-		try (ResultSet rs = this.database.getStatement().executeQuery(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 			messageSet.clear();
+			messagesById.clear();
+			inboxes.clear();
+			outboxes.clear();
+			conversations.clear();
+			unreadCounts.clear();
 
 			while (rs.next()) {
-				int id = rs.getInt("id");
-				String senderName = rs.getString("senderName");
-				String receiverName = rs.getString("receiverName");
-				String content = rs.getString("content");
-				LocalDateTime sentTime = LocalDateTime.parse(rs.getString("sentTime"));
-				boolean isRead = rs.getBoolean("isRead");
-
-				Message m = new Message(id, senderName, receiverName, content, sentTime, isRead);
-				this.messageSet.add(m);
+				this.addToCache(this.readMessage(rs));
 			}
 		} catch (SQLException e) {
 			System.err.println("Failed to fetch messages from database.");
@@ -53,6 +64,49 @@ public class MessageManager {
 		}
 	}
 
+	/**
+	 * Constructs a Message from the current row of a result set over the Messages
+	 * table.
+	 */
+	private Message readMessage(ResultSet rs) throws SQLException {
+		int id = rs.getInt("id");
+		String senderName = rs.getString("senderName");
+		String receiverName = rs.getString("receiverName");
+		String content = rs.getString("content");
+		LocalDateTime sentTime = rs.getObject("sentTime", LocalDateTime.class);
+		boolean isRead = rs.getBoolean("isRead");
+		return new Message(id, senderName, receiverName, content, sentTime, isRead);
+	}
+
+	/**
+	 * Fetches one page of messages, using the ID of the last message on the
+	 * previous page as the starting point. Messages already in the local cache
+	 * are returned as the cached instance.
+	 * 
+	 * @param afterId ID of the last message on the previous page, or 0 for the
+	 *                first page
+	 * @param limit   Maximum number of messages on the page
+	 * @param sort    Order to page in
+	 * @return Page of Message objects
+	 */
+	public Page<Message> page(int afterId, int limit, Page.Sort sort) {
+		this.database.awaitQueuedWrites(); // Include messages this client just sent
+		List<Message> result = new ArrayList<>();
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(Page.sql("Messages", afterId, sort))) {
+			Page.bind(stmt, afterId, limit);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				Message m = this.messagesById.get(rs.getInt("id"));
+				result.add(m != null ? m : this.readMessage(rs));
+			}
+		} catch (SQLException e) {
+			System.err.println("Failed to fetch a page of messages.");
+			e.printStackTrace();
+		}
+		return Page.of(result, limit, Message::getId);
+	}
+
 	/**
 	 * Sends a new message and persists it to the database.
 	 * 
@@ -62,31 +116,102 @@ public class MessageManager {
 	 * @return Message object
 	 */
 	public Message sendMessage(String senderName, String receiverName, String content) {
-		String query = "INSERT INTO Messages (senderName, receiverName, content, sentTime, isRead) VALUES (?, ?, ?, ?, ?)";
-		int id = -1;
-
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query,
-				Statement.RETURN_GENERATED_KEYS)) {
+		LocalDateTime sentTime = LocalDateTime.now();
+		WriteBehindQueue.Binder binder = stmt -> {
 			stmt.setString(1, senderName);
 			stmt.setString(2, receiverName);
 			stmt.setString(3, content);
-			stmt.setString(4, LocalDateTime.now().toString());
+			stmt.setObject(4, sentTime);
 			stmt.setBoolean(5, false);
-			stmt.executeUpdate();
+		};
 
-			ResultSet results = stmt.getGeneratedKeys();
-			if (results.next())
-				id = results.getInt(1);
-		} catch (SQLException e) {
-			System.err.println("Failed to send message.");
-			e.printStackTrace();
+		int id = -1;
+		WriteBehindQueue writer = this.database.getWriteBehindQueue();
+		if (writer != null) {
+			// Cache the message now and insert it in the background under a reserved ID
+			try {
+				int reserved = writer.reserveId("Messages");
+				String query = "INSERT INTO Messages (senderName, receiverName, content, sentTime, isRead, id) VALUES (?, ?, ?, ?, ?, ?)";
+				writer.enqueue(WriteBehindQueue.key("Messages", reserved), query, stmt -> {
+					binder.bind(stmt);
+					stmt.setInt(6, reserved);
+				}, () -> this.removeFromCache(reserved));
+				id = reserved;
+			} catch (SQLException e) {
+				System.err.println("Failed to reserve an ID for a new message.");
+				e.printStackTrace();
+			}
+		} else {
+			String query = "INSERT INTO Messages (senderName, receiverName, content, sentTime, isRead) VALUES (?, ?, ?, ?, ?)";
+			try (PooledConnection conn = this.database.borrowConnection();
+					PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+				binder.bind(stmt);
+				stmt.executeUpdate();
+
+				ResultSet results = stmt.getGeneratedKeys();
+				if (results.next())
+					id = results.getInt(1);
+			} catch (SQLException e) {
+				System.err.println("Failed to send message.");
+				e.printStackTrace();
+			}
 		}
 
-		Message m = new Message(id, senderName, receiverName, content, LocalDateTime.now(), false);
-		this.messageSet.add(m);
+		Message m = new Message(id, senderName, receiverName, content, sentTime, false);
+		this.addToCache(m);
 		return m;
 	}
 
+	/**
+	 * Adds a message to the local cache and every index.
+	 */
+	private void addToCache(Message m) {
+		if (!this.messageSet.add(m))
+			return;
+		this.messagesById.put(m.getId(), m);
+		this.inboxes.computeIfAbsent(m.getReceiverName(), k -> new ArrayList<>()).add(m);
+		this.outboxes.computeIfAbsent(m.getSenderName(), k -> new ArrayList<>()).add(m);
+		insertByTime(this.conversations.computeIfAbsent(conversationKey(m.getSenderName(), m.getReceiverName()),
+				k -> new ArrayList<>()), m);
+		if (!m.isRead())
+			this.unreadCounts.merge(m.getReceiverName(), 1, Integer::sum);
+	}
+
+	/**
+	 * Removes a message from the local cache and every index. Used when a queued
+	 * message could not be saved.
+	 */
+	private void removeFromCache(int id) {
+		Message m = this.messagesById.remove(id);
+		if (m == null || !this.messageSet.remove(m))
+			return;
+		this.inboxes.getOrDefault(m.getReceiverName(), Collections.emptyList()).remove(m);
+		this.outboxes.getOrDefault(m.getSenderName(), Collections.emptyList()).remove(m);
+		this.conversations.getOrDefault(conversationKey(m.getSenderName(), m.getReceiverName()), Collections.emptyList())
+				.remove(m);
+		if (!m.isRead())
+			this.unreadCounts.computeIfPresent(m.getReceiverName(), (k, v) -> v > 1 ? v - 1 : null);
+	}
+
+	/**
+	 * Inserts a message into a list kept in order of sent time. New messages are
+	 * almost always the latest, so this is usually an append.
+	 */
+	private static void insertByTime(List<Message> log, Message m) {
+		int i = log.size();
+		while (i > 0 && log.get(i - 1).getSentTime().isAfter(m.getSentTime()))
+			i--;
+		log.add(i, m);
+	}
+
+	/**
+	 * Builds a key that identifies the conversation between two users, regardless
+	 * of which of them sent a message.
+	 */
+	private static String conversationKey(String user1, String user2) {
+		return user1.compareTo(user2) <= 0 ? user1 + '\0' + user2 : user2 + '\0' + user1;
+	}
+
 	/**
 	 * Gets all messages for a specific user (both sent and received).
 	 * 
@@ -94,9 +219,16 @@ public class MessageManager {
 	 * @return List of messages involving this user
 	 */
 	public List<Message> getMessagesFor(String userName) {
-		return messageSet.stream()
-				.filter(m -> m.getReceiverName().equals(userName) || m.getSenderName().equals(userName))
-				.collect(Collectors.toList());
+		List<Message> received = this.inboxes.getOrDefault(userName, Collections.emptyList());
+		List<Message> sent = this.outboxes.getOrDefault(userName, Collections.emptyList());
+		List<Message> result = new ArrayList<>(received.size() + sent.size());
+		result.addAll(received);
+		for (Message m : sent) {
+			// Messages to oneself are already in the inbox
+			if (!m.getReceiverName().equals(userName))
+				result.add(m);
+		}
+		return result;
 	}
 
 	/**
@@ -106,8 +238,24 @@ public class MessageManager {
 	 * @return List of unread messages
 	 */
 	public List<Message> getUnreadMessagesFor(String userName) {
-		return messageSet.stream().filter(m -> m.getReceiverName().equals(userName) && !m.isRead())
-				.collect(Collectors.toList());
+		List<Message> result = new ArrayList<>();
+		if (this.getUnreadCountFor(userName) == 0)
+			return result;
+		for (Message m : this.inboxes.getOrDefault(userName, Collections.emptyList())) {
+			if (!m.isRead())
+				result.add(m);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of unread messages received by a user.
+	 * 
+	 * @param userName Recipient user
+	 * @return Number of unread messages
+	 */
+	public int getUnreadCountFor(String userName) {
+		return this.unreadCounts.getOrDefault(userName, 0);
 	}
 
 	/**
@@ -115,13 +263,10 @@ public class MessageManager {
 	 * 
 	 * @param user1 First user
 	 * @param user2 Second user
-	 * @return List of messages between the two users
+	 * @return List of messages between the two users, oldest first
 	 */
 	public List<Message> getConversation(String user1, String user2) {
-		return messageSet.stream()
-				.filter(m -> (m.getSenderName().equals(user1) && m.getReceiverName().equals(user2))
-						|| (m.getSenderName().equals(user2) && m.getReceiverName().equals(user1)))
-				.sorted((a, b) -> a.getSentTime().compareTo(b.getSentTime())).collect(Collectors.toList());
+		return new ArrayList<>(this.conversations.getOrDefault(conversationKey(user1, user2), Collections.emptyList()));
 	}
 
 	/**
@@ -130,24 +275,83 @@ public class MessageManager {
 	 * @param messageId ID of message to mark as read
 	 */
 	public void markMessageAsRead(int messageId) {
+		this.database.awaitQueuedWrite("Messages", messageId); // The row may still be queued
 		String query = "UPDATE Messages SET isRead = TRUE WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setInt(1, messageId);
 			stmt.executeUpdate();
 
 			// Update local cache
-			for (Message m : messageSet) {
-				if (m.getId() == messageId) {
-					m.setRead(true);
-					break;
-				}
-			}
+			Message m = this.messagesById.get(messageId);
+			if (m != null)
+				this.markCachedAsRead(m);
 		} catch (SQLException e) {
 			System.err.println("Failed to mark message as read.");
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Marks a cached message as read and updates the recipient's unread count.
+	 */
+	private void markCachedAsRead(Message m) {
+		if (m.isRead())
+			return;
+		m.setRead(true);
+		this.unreadCounts.computeIfPresent(m.getReceiverName(), (k, v) -> v > 1 ? v - 1 : null);
+	}
+
+	/**
+	 * Reloads a message from the database into the local cache. Used to pick up
+	 * messages sent, or marked as read, by other clients.
+	 * 
+	 * @param id ID of message to reload
+	 */
+	public void refreshMessage(int id) {
+		try {
+			Message fresh = this.loadMessage(id);
+			if (fresh != null)
+				this.cacheMessage(fresh);
+		} catch (SQLException e) {
+			System.err.println("Failed to refresh message " + id + ".");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads a message from the database without touching the local cache, so it
+	 * can be called from a background thread.
+	 * 
+	 * @param id ID of message to read
+	 * @return Message constructed from database data, or null if it does not exist
+	 * @throws SQLException if the message could not be read
+	 */
+	Message loadMessage(int id) throws SQLException {
+		String query = "SELECT * FROM Messages WHERE id = ?";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, id);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? this.readMessage(rs) : null;
+		}
+	}
+
+	/**
+	 * Adds a message read by {@link #loadMessage(int)} to the local cache, or
+	 * updates the cached copy.
+	 * 
+	 * @param fresh Message constructed from database data
+	 */
+	void cacheMessage(Message fresh) {
+		// Only the read flag of a message ever changes
+		Message cached = this.messagesById.get(fresh.getId());
+		if (cached == null)
+			this.addToCache(fresh);
+		else if (fresh.isRead())
+			this.markCachedAsRead(cached);
+	}
+
 	/**
 	 * Gets an unmodifiable reference to all messages.
 	 * 
@@ -7,15 +7,37 @@ import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiPredicate;
 
 import application.obj.Answer;
 import application.obj.Question;
+import application.obj.Review;
+import application.search.DuplicateClusterer;
+import application.search.DuplicateIndex;
+import application.search.QuestionQuery;
+import application.search.SearchHit;
+import application.search.SearchIndex;
+import application.search.TitleIndex;
+import application.util.DateIndex;
+import application.util.IdentityMap;
+import application.util.Page;
 import application.util.LogUtil;
+import application.util.StringUtil;
+import application.util.TagIndex;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import databasePart1.WriteBehindQueue;
 
 /**
  * Acts as a manager class for dealing with Question objects. This use of data
@@ -24,10 +46,24 @@ import databasePart1.DatabaseHelper;
  */
 public class QuestionManager {
 
+	// Posts fetched per question wanted on a first search attempt
+	private static final int SEARCH_OVERFETCH = 4;
+
 	// For database access
 	private final DatabaseHelper database;
 
 	private final Set<Question> questionSet = new HashSet<>();
+	private final IdentityMap<Question> questionMap = new IdentityMap<>();
+	private final TagIndex tagIndex = new TagIndex();
+	// ID sets for structured search; see searchQuestions
+	private final TagIndex authorIndex = new TagIndex();
+	private final DateIndex dateIndex = new DateIndex();
+	private final BitSet questionIds = new BitSet();
+	private final BitSet answeredIds = new BitSet();
+	private final DuplicateIndex duplicateIndex = new DuplicateIndex();
+	private final TitleIndex titleIndex = new TitleIndex();
+	// Answer ID -> ID of the question it answers, for resolving search hits
+	private final Map<Integer, Integer> questionIdByAnswer = new HashMap<>();
 
 	public QuestionManager(DatabaseHelper database) {
 		this.database = database;
@@ -39,38 +75,44 @@ public class QuestionManager {
 	 */
 	public void fetchQuestions() {
 		String query = "SELECT * FROM Questions";
-		try (ResultSet rs = this.database.getStatement().executeQuery(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
+
+			// Load every question-answer link in one query rather than one per question
+			Map<Integer, List<Integer>> answerIdsByQuestion = this.fetchAllAnswerIds(conn);
+			AnswerManager answerManager = StartCSE360.getAnswerManager();
 
 			questionSet.clear();
+			this.tagIndex.clear();
+			this.authorIndex.clear();
+			this.dateIndex.clear();
+			this.questionIds.clear();
+			this.answeredIds.clear();
+			this.duplicateIndex.clear();
+			this.titleIndex.clear();
+			this.questionIdByAnswer.clear();
+			Set<Integer> seenIds = new HashSet<>();
 
 			while (rs.next()) {
-				// Collect required information to construct Question object
-				int id = rs.getInt("id");
-				String userName = rs.getString("userName");
-				LocalDateTime creationDate = LocalDateTime.parse(rs.getString("creationDate"));
-				String title = rs.getString("title");
-				String content = rs.getString("content");
-				// Sadly, fetching answers is a bit more complicated
-				String answerIds = rs.getString("answers");
+				Question fresh = this.readQuestion(rs);
+				int id = fresh.getId();
+				// Answers were already loaded by AnswerManager, so resolve them from its cache
 				List<Answer> answers = new ArrayList<>();
-				for (String s : answerIds.split(",")) {
-					if (!s.isEmpty()) {
-						int answerID = Integer.parseInt(s);
-						Answer a = StartCSE360.getAnswerManager().fetchAnswer(answerID);
+				for (int answerID : answerIdsByQuestion.getOrDefault(id, Collections.emptyList())) {
+					Answer a = answerManager.getAnswer(answerID);
+					if (a != null)
 						answers.add(a);
-					}
-
 				}
 
-				List<String> tags = Arrays.asList(rs.getString("tags").split(","));
-
-				// Construct question and add it into local cache
-				Question q = new Question(id, userName, creationDate, title, content, answers, tags);
+				// Construct question (or refresh the canonical one) and add it into local cache
+				Question q = this.canonicalize(fresh, answers);
 				this.questionSet.add(q);
-				// Add answers to question
-				for (Answer a : answers)
-					q.addAnswers(a);
+				seenIds.add(id);
 			}
+			this.questionMap.retainAll(seenIds);
+			// Drop questions deleted since the search index was last saved
+			StartCSE360.getSearchIndex().retainAll(SearchIndex.Kind.QUESTION, seenIds);
 		} catch (SQLException e) {
 			System.err.println("Failed to fetch all questions from the database.");
 			e.printStackTrace();
@@ -78,46 +120,312 @@ public class QuestionManager {
 	}
 
 	/**
-	 * Fetches a particular question from the Questions table.
+	 * Constructs a Question from the current row of a result set over the
+	 * Questions table. Its answers are not loaded.
+	 */
+	private Question readQuestion(ResultSet rs) throws SQLException {
+		int id = rs.getInt("id");
+		String userName = rs.getString("userName");
+		LocalDateTime creationDate = rs.getObject("creationDate", LocalDateTime.class);
+		String title = rs.getString("title");
+		String content = rs.getString("content");
+		List<String> tags = Arrays.asList(rs.getString("tags").split(","));
+		return new Question(id, userName, creationDate, title, content, null, tags);
+	}
+
+	/**
+	 * Maps a freshly constructed question to the canonical instance for its ID. If
+	 * one already exists, it is refreshed with the fresh data and returned.
+	 * 
+	 * @param fresh   Question constructed from database data
+	 * @param answers Answers the question should have
+	 * @return Canonical Question object for the ID
+	 */
+	private Question canonicalize(Question fresh, List<Answer> answers) {
+		Question canonical = this.questionMap.canonicalize(fresh.getId(), fresh);
+		if (canonical != fresh) {
+			canonical.setTitle(fresh.getTitle());
+			canonical.setContent(fresh.getContent());
+			canonical.setTags(new ArrayList<>(fresh.getTags()));
+		}
+		for (Answer a : answers) {
+			canonical.addAnswers(a);
+			this.questionIdByAnswer.put(a.getId(), canonical.getId());
+		}
+		this.indexQuestion(canonical);
+		return canonical;
+	}
+
+	/**
+	 * Adds a cached question to every search index, replacing what was indexed
+	 * for its ID before.
+	 */
+	private void indexQuestion(Question q) {
+		int id = q.getId();
+		this.tagIndex.put(id, q.getTags());
+		this.authorIndex.put(id, List.of(q.getUserName()));
+		this.dateIndex.put(id, q.getCreationDate());
+		this.questionIds.set(id);
+		this.answeredIds.set(id, !q.getAnswers().isEmpty());
+		this.duplicateIndex.put(id, searchableText(q));
+		this.titleIndex.put(id, q.getTitle());
+		StartCSE360.getSearchIndex().put(SearchIndex.Kind.QUESTION, id, searchableText(q));
+	}
+
+	/**
+	 * Removes a question from every search index.
+	 */
+	private void unindexQuestion(int id) {
+		this.tagIndex.remove(id);
+		this.authorIndex.remove(id);
+		this.dateIndex.remove(id);
+		this.questionIds.clear(id);
+		this.answeredIds.clear(id);
+		this.duplicateIndex.remove(id);
+		this.titleIndex.remove(id);
+		StartCSE360.getSearchIndex().remove(SearchIndex.Kind.QUESTION, id);
+	}
+
+	/**
+	 * Fetches a particular question from the Questions table. The returned object
+	 * is the same instance held in the local cache.
 	 * 
 	 * @param id id of question to fetch
 	 * @return Question object
 	 */
 	public Question fetchQuestion(int id) {
-		Question result = null;
+		try {
+			LoadedQuestion loaded = this.loadQuestion(id);
+			return loaded != null ? this.cacheQuestion(loaded) : null;
+		} catch (SQLException e) {
+			System.err.println("Failed to fetch question from database.");
+			e.printStackTrace();
+			return null;
+		}
+	}
 
+	/**
+	 * Reads a question and its answers from the database without touching the
+	 * local caches, so it can be called from a background thread.
+	 * 
+	 * @param id ID of question to read
+	 * @return Question and answers constructed from database data, or null if the
+	 *         question does not exist
+	 * @throws SQLException if the question could not be read
+	 */
+	LoadedQuestion loadQuestion(int id) throws SQLException {
 		String query = "SELECT * FROM Questions WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
-			stmt.setInt(0, id);
+		// Look up the answers through the QuestionAnswers relation
+		String answerQuery = "SELECT a.* FROM QuestionAnswers qa JOIN Answers a ON a.id = qa.answerId "
+				+ "WHERE qa.questionId = ? ORDER BY qa.answerId";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				PreparedStatement answerStmt = conn.prepareStatement(answerQuery)) {
+			stmt.setInt(1, id);
 			ResultSet rs = stmt.executeQuery();
-			if (rs.next()) {
-				int i = rs.getInt("id");
-				String userName = rs.getString("userName");
-				LocalDateTime creationTime = LocalDateTime.parse(rs.getString("creationDate"));
-				String title = rs.getString("title");
-				String content = rs.getString("content");
-				// Do the over-complicated way of fetching the answers
-				String answerIds = rs.getString("answers");
-				List<Answer> answers = new ArrayList<>();
-				for (String s : answerIds.split(",")) {
-					if (!s.isEmpty()) {
-						Answer a = StartCSE360.getAnswerManager().fetchAnswer(Integer.parseInt(s));
-						answers.add(a);
-					}
-				}
-				List<String> tags = Arrays.asList(rs.getString("tags").split(","));
+			if (!rs.next())
+				return null;
+			Question fresh = this.readQuestion(rs);
+
+			AnswerManager answerManager = StartCSE360.getAnswerManager();
+			List<Answer> answers = new ArrayList<>();
+			answerStmt.setInt(1, id);
+			ResultSet answerRs = answerStmt.executeQuery();
+			while (answerRs.next())
+				answers.add(answerManager.readAnswer(answerRs));
+			return new LoadedQuestion(fresh, answers);
+		}
+	}
+
+	/**
+	 * Adds a question read by {@link #loadQuestion(int)} to the local cache,
+	 * refreshing the cached copies of it and its answers.
+	 * 
+	 * @param loaded Question and answers constructed from database data
+	 * @return Canonical Question object for the ID
+	 */
+	Question cacheQuestion(LoadedQuestion loaded) {
+		AnswerManager answerManager = StartCSE360.getAnswerManager();
+		List<Answer> answers = new ArrayList<>(loaded.answers.size());
+		for (Answer a : loaded.answers)
+			answers.add(answerManager.cacheAnswer(a));
+		Question result = this.canonicalize(loaded.question, answers);
+		this.questionSet.add(result);
+		return result;
+	}
+
+	/**
+	 * A question and its answers read from the database, not yet in the cache.
+	 */
+	static class LoadedQuestion {
+		final Question question;
+		final List<Answer> answers;
+
+		LoadedQuestion(Question question, List<Answer> answers) {
+			this.question = question;
+			this.answers = answers;
+		}
+	}
+
+	/**
+	 * Gets a question by ID from the local cache, only falling back to the
+	 * database if the question has not been loaded yet.
+	 * 
+	 * @param id ID of question to get
+	 * @return Question object, or null if no such question exists
+	 */
+	public Question getQuestion(int id) {
+		Question result = this.questionMap.get(id);
+		if (result == null)
+			result = this.fetchQuestion(id);
+		return result;
+	}
+
+	/**
+	 * Gets the questions created within a time range, newest first. The range is
+	 * evaluated by the database against the indexed creationDate column, and the
+	 * matching questions are resolved through the local cache.
+	 * 
+	 * @param from Earliest creation time to include
+	 * @param to   Creation time to stop before
+	 * @return List of questions created in [from, to)
+	 */
+	public List<Question> getQuestionsCreatedBetween(LocalDateTime from, LocalDateTime to) {
+		this.database.awaitQueuedWrites(); // Include questions this client just posted
+		List<Integer> ids = new ArrayList<>();
+		String query = "SELECT id FROM Questions WHERE creationDate >= ? AND creationDate < ? ORDER BY creationDate DESC";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setObject(1, from);
+			stmt.setObject(2, to);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next())
+				ids.add(rs.getInt(1));
+		} catch (SQLException e) {
+			System.err.println("Failed to fetch questions by creation date.");
+			e.printStackTrace();
+		}
+
+		// Resolved once the connection is returned, since cache misses borrow their own
+		List<Question> result = new ArrayList<>();
+		for (int id : ids) {
+			Question q = this.getQuestion(id);
+			if (q != null)
+				result.add(q);
+		}
+		return result;
+	}
 
-				// Construct the Question object from the retrieved & processed data
-				result = new Question(i, userName, creationTime, title, content, answers, tags);
-				// Add the fetched question to the local cache if necessary
-				if (!this.questionSet.contains(result))
-					this.questionSet.add(result);
+	/**
+	 * Fetches one page of questions, using the ID of the last question on the
+	 * previous page as the starting point. Only the rows on the page are read, so
+	 * list views can show large tables without loading them whole.
+	 * 
+	 * @param afterId ID of the last question on the previous page, or 0 for the
+	 *                first page
+	 * @param limit   Maximum number of questions on the page
+	 * @param sort    Order to page in
+	 * @return Page of canonical Question objects
+	 */
+	public Page<Question> page(int afterId, int limit, Page.Sort sort) {
+		this.database.awaitQueuedWrites(); // Include questions this client just posted
+		List<Question> rows = new ArrayList<>();
+		Map<Integer, List<Integer>> answerIdsByQuestion = new HashMap<>();
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(Page.sql("Questions", afterId, sort))) {
+			Page.bind(stmt, afterId, limit);
+			ResultSet rs = stmt.executeQuery();
+			List<Integer> ids = new ArrayList<>();
+			while (rs.next()) {
+				Question fresh = this.readQuestion(rs);
+				rows.add(fresh);
+				ids.add(fresh.getId());
 			}
+			answerIdsByQuestion = this.fetchAnswerIds(conn, ids);
 		} catch (SQLException e) {
-			System.err.println("Failed to fetch answer from database.");
+			System.err.println("Failed to fetch a page of questions.");
 			e.printStackTrace();
 		}
 
+		// Resolved once the connection is returned, since cache misses borrow their own
+		List<Question> result = new ArrayList<>(rows.size());
+		for (Question fresh : rows) {
+			List<Answer> answers = new ArrayList<>();
+			for (int answerID : answerIdsByQuestion.getOrDefault(fresh.getId(), Collections.emptyList())) {
+				Answer a = StartCSE360.getAnswerManager().getAnswer(answerID);
+				if (a != null)
+					answers.add(a);
+			}
+			Question q = this.canonicalize(fresh, answers);
+			this.questionSet.add(q);
+			result.add(q);
+		}
+		return Page.of(result, limit, Question::getId);
+	}
+
+	/**
+	 * Drops a question from the local cache without touching the database. Used
+	 * when another client has deleted it.
+	 * 
+	 * @param id ID of question to drop
+	 */
+	public void evictQuestion(int id) {
+		Question q = this.questionMap.remove(id);
+		if (q != null)
+			this.questionSet.remove(q);
+		this.unindexQuestion(id);
+	}
+
+	/**
+	 * Drops the question an answer belongs to from the local cache, so that it is
+	 * reloaded from the database the next time it is needed. Used when the answer
+	 * could not be saved.
+	 * 
+	 * @param answerId ID of the answer
+	 */
+	public void evictQuestionOf(int answerId) {
+		Integer questionId = this.questionIdByAnswer.remove(answerId);
+		if (questionId != null)
+			this.evictQuestion(questionId);
+	}
+
+	/**
+	 * Fetches every row of the QuestionAnswers table, grouped by question.
+	 * 
+	 * @param conn Connection to query with
+	 * @return Map of question ID to the IDs of its answers, in posting order
+	 * @throws SQLException
+	 */
+	private Map<Integer, List<Integer>> fetchAllAnswerIds(PooledConnection conn) throws SQLException {
+		Map<Integer, List<Integer>> result = new HashMap<>();
+		String query = "SELECT questionId, answerId FROM QuestionAnswers ORDER BY questionId, answerId";
+		try (PreparedStatement stmt = conn.prepareStatement(query); ResultSet rs = stmt.executeQuery()) {
+			while (rs.next())
+				result.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>()).add(rs.getInt(2));
+		}
+		return result;
+	}
+
+	/**
+	 * Fetches the IDs of the answers to several questions in one query.
+	 * 
+	 * @param conn        Connection to query with
+	 * @param questionIds IDs of the questions
+	 * @return Map of question ID to the IDs of its answers, in posting order
+	 * @throws SQLException
+	 */
+	private Map<Integer, List<Integer>> fetchAnswerIds(PooledConnection conn, List<Integer> questionIds)
+			throws SQLException {
+		Map<Integer, List<Integer>> result = new HashMap<>();
+		if (questionIds.isEmpty())
+			return result;
+		String query = "SELECT questionId, answerId FROM QuestionAnswers WHERE questionId = ANY(?) ORDER BY questionId, answerId";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setObject(1, questionIds.toArray(new Integer[0]));
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next())
+				result.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>()).add(rs.getInt(2));
+		}
 		return result;
 	}
 
@@ -157,27 +465,50 @@ public class QuestionManager {
 			}
 		}
 
-		String query = "INSERT INTO Questions (userName, creationDate, title, content, answers, tags) VALUES (?, ?, ?, ?, ?, ?)";
-		int id = -1;
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query,
-				Statement.RETURN_GENERATED_KEYS)) {
+		String tagList = String.join(",", tags);
+		WriteBehindQueue.Binder binder = stmt -> {
 			stmt.setString(1, userName);
-			stmt.setString(2, creationDate.toString());
+			stmt.setObject(2, creationDate);
 			stmt.setString(3, title);
 			stmt.setString(4, content);
-			stmt.setString(5, "");
-			stmt.setString(6, String.join(",", tags));
-			stmt.executeUpdate();
-			ResultSet results = stmt.getGeneratedKeys();
-			if (results.next())
-				id = results.getInt(1);
-		} catch (SQLException e) {
-			System.err.println("Failed to create a new question.");
-			e.printStackTrace();
+			stmt.setString(5, tagList);
+		};
+
+		int id = -1;
+		WriteBehindQueue writer = this.database.getWriteBehindQueue();
+		if (writer != null) {
+			// Cache the question now and insert it in the background under a reserved ID
+			try {
+				int reserved = writer.reserveId("Questions");
+				String query = "INSERT INTO Questions (userName, creationDate, title, content, tags, id) VALUES (?, ?, ?, ?, ?, ?)";
+				writer.enqueue(WriteBehindQueue.key("Questions", reserved), query, stmt -> {
+					binder.bind(stmt);
+					stmt.setInt(6, reserved);
+				}, () -> this.evictQuestion(reserved));
+				id = reserved;
+			} catch (SQLException e) {
+				System.err.println("Failed to reserve an ID for a new question.");
+				e.printStackTrace();
+			}
+		} else {
+			String query = "INSERT INTO Questions (userName, creationDate, title, content, tags) VALUES (?, ?, ?, ?, ?)";
+			try (PooledConnection conn = this.database.borrowConnection();
+					PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+				binder.bind(stmt);
+				stmt.executeUpdate();
+				ResultSet results = stmt.getGeneratedKeys();
+				if (results.next())
+					id = results.getInt(1);
+			} catch (SQLException e) {
+				System.err.println("Failed to create a new question.");
+				e.printStackTrace();
+			}
 		}
 
 		Question q = new Question(id, userName, creationDate, title, content, null, tags);
 		this.questionSet.add(q);
+		this.questionMap.put(id, q);
+		this.indexQuestion(q);
 		return q;
 	}
 
@@ -187,13 +518,17 @@ public class QuestionManager {
 	 * @param q Question to delete
 	 */
 	public void deleteQuestion(Question q) {
+		this.database.awaitQueuedWrite("Questions", q.getId()); // The row may still be queued
 		String query = "DELETE FROM Questions WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setInt(1, q.getId());
 			stmt.executeUpdate();
 			questionSet.remove(q);
+			questionMap.remove(q.getId());
+			this.unindexQuestion(q.getId());
 		} catch (SQLException e) {
-			System.out.println("Failed to delete a question from the database.");
+			LogUtil.error("Failed to delete a question from the database.");
 			e.printStackTrace();
 		}
 	}
@@ -207,29 +542,29 @@ public class QuestionManager {
 	public void addAnswerToQuestion(Question q, Answer a) {
 		// Update the question
 		q.addAnswers(a);
+		this.questionIdByAnswer.put(a.getId(), q.getId());
+		if (this.questionIds.get(q.getId()))
+			this.answeredIds.set(q.getId());
 
-		// Fetch the current CSV string from the database
-		String query = "SELECT answers FROM Questions WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
+		// A single insert into the relation; no read-modify-write needed
+		String query = "MERGE INTO QuestionAnswers (questionId, answerId) KEY (questionId, answerId) VALUES (?, ?)";
+		WriteBehindQueue.Binder binder = stmt -> {
 			stmt.setInt(1, q.getId());
-			ResultSet rs = stmt.executeQuery();
-			String answerIds = "";
-			if (rs.next()) {
-				answerIds = rs.getString("answers");
-			}
-
-			// Append the new answer ID
-			String updatedCsv = (answerIds == null || answerIds.isEmpty()) ? String.valueOf(a.getId())
-					: answerIds + "," + a.getId();
-
-			// Update the database
-			String updateQuery = "UPDATE Questions SET answers = ? WHERE id = ?";
-			try (PreparedStatement updateStmt = this.database.getConnection().prepareStatement(updateQuery)) {
-				updateStmt.setString(1, updatedCsv);
-				updateStmt.setInt(2, q.getId());
-				updateStmt.executeUpdate();
-			}
+			stmt.setInt(2, a.getId());
+		};
 
+		WriteBehindQueue writer = this.database.getWriteBehindQueue();
+		if (writer != null) {
+			// Queued behind the answer's own insert, so the link never precedes it. If it
+			// fails, the question is reloaded with the answers the database really has
+			writer.enqueue(WriteBehindQueue.key("Questions", q.getId()), query, binder,
+					() -> this.evictQuestion(q.getId()));
+			return;
+		}
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			binder.bind(stmt);
+			stmt.executeUpdate();
 		} catch (SQLException e) {
 			System.err.println("Failed to update question answers in the database.");
 			e.printStackTrace();
@@ -237,24 +572,298 @@ public class QuestionManager {
 	}
 
 	/**
-	 * Searches all locally cached questions by tag. This also checks tags of
-	 * answers belonging to the question.
+	 * Searches all locally cached questions by tag. A question matches if any of
+	 * its tags contains the query as a substring, ignoring case.
 	 *
 	 * @param queryTag The tag string to search for
 	 * @return A set of Question objects that contain the tag
 	 */
 	public Set<Question> searchByTag(String queryTag) {
-		Set<Question> results = new HashSet<>();
-		String tagLower = queryTag.toLowerCase();
+		// Every string contains the empty string
+		if (queryTag.isEmpty())
+			return new HashSet<>(this.questionSet);
+		return this.toQuestions(this.tagIndex.containing(queryTag));
+	}
 
-		for (Question q : questionSet) {
-			for (String tag : q.getTags()) {
-				if (tag.toLowerCase().contains(tagLower)) {
-					results.add(q);
-					break;
-				}
+	/**
+	 * Searches all locally cached questions with a boolean combination of tags.
+	 * Each term matches the same way as in {@link #searchByTag(String)}; blank
+	 * terms are ignored.
+	 *
+	 * @param allOf  Terms a question must all match
+	 * @param anyOf  Terms of which a question must match at least one, if any are
+	 *               given
+	 * @param noneOf Terms a question must not match
+	 * @return A set of matching Question objects
+	 */
+	public Set<Question> searchByTags(Collection<String> allOf, Collection<String> anyOf, Collection<String> noneOf) {
+		return this.toQuestions(this.tagIndex.query(nonBlank(allOf), nonBlank(anyOf), nonBlank(noneOf)));
+	}
+
+	/**
+	 * Runs a ranked full-text search over questions, answers and reviews, and
+	 * maps each hit to the question it belongs to. A question appears once, with
+	 * its best-scoring hit, in order of relevance.
+	 *
+	 * @param query Query text; see {@link SearchIndex#search(String, int)}
+	 * @param limit Maximum number of questions to return
+	 * @return Ordered map of question to its best hit
+	 */
+	public Map<Question, SearchHit> searchFullText(String query, int limit) {
+		return this.rankQuestions(query, limit, null);
+	}
+
+	/**
+	 * Searches cached questions with a structured query; see
+	 * {@link QuestionQuery} for the syntax. Each filter is answered from a
+	 * precomputed ID set and the sets are intersected smallest first, so no
+	 * question is looked at unless it passes every filter. Free text then ranks
+	 * the remaining questions by relevance; without it they are listed newest
+	 * first.
+	 *
+	 * @param query Query to run
+	 * @param limit Maximum number of questions to return
+	 * @return Ordered map of question to its best hit, or to null if the query
+	 *         has no free text
+	 * @throws IllegalArgumentException if a filter in the query is malformed
+	 */
+	public Map<Question, SearchHit> searchQuestions(String query, int limit) {
+		QuestionQuery parsed = QuestionQuery.parse(query);
+		if (!parsed.hasFilters())
+			return this.searchFullText(parsed.getText(), limit);
+
+		BitSet allowed = this.evaluateFilters(parsed.getFilters());
+		if (parsed.hasText())
+			return this.rankQuestions(parsed.getText(), limit, allowed);
+		Map<Question, SearchHit> results = new LinkedHashMap<>();
+		for (int id : this.dateIndex.newestIn(allowed, limit))
+			results.put(this.questionMap.get(id), null);
+		return results;
+	}
+
+	/**
+	 * Ranks cached questions by their best full-text hit. Several posts can
+	 * belong to one question, so hits are fetched in growing batches until
+	 * {@code limit} distinct questions are found or the hits run out.
+	 *
+	 * @param text    Free text of the query
+	 * @param limit   Maximum number of questions to return
+	 * @param allowed IDs of the questions that may be returned, or null for all
+	 * @return Ordered map of question to its best hit
+	 */
+	private Map<Question, SearchHit> rankQuestions(String text, int limit, BitSet allowed) {
+		Map<Question, SearchHit> results = new LinkedHashMap<>();
+		if (limit <= 0)
+			return results;
+		// Checked while searching, so posts of other questions never use up the limit
+		BiPredicate<SearchIndex.Kind, Integer> accept = (kind, id) -> {
+			int questionId = this.questionIdFor(kind, id);
+			return questionId >= 0 && (allowed == null || allowed.get(questionId))
+					&& this.questionMap.get(questionId) != null;
+		};
+		int fetch = (int) Math.min(Integer.MAX_VALUE, (long) limit * SEARCH_OVERFETCH);
+		while (true) {
+			List<SearchHit> hits = StartCSE360.getSearchIndex().search(text, fetch,
+					EnumSet.allOf(SearchIndex.Kind.class), accept);
+			results.clear();
+			for (SearchHit hit : hits) {
+				Question q = this.questionForHit(hit);
+				if (q != null)
+					results.putIfAbsent(q, hit);
+				if (results.size() == limit)
+					return results;
 			}
+			if (hits.size() < fetch || fetch == Integer.MAX_VALUE)
+				return results;
+			fetch = (int) Math.min(Integer.MAX_VALUE, fetch * 2L);
+		}
+	}
+
+	/**
+	 * Works out which questions pass every filter of a query.
+	 *
+	 * @param filters Filters to apply; must not be empty
+	 * @return IDs of matching cached questions
+	 */
+	private BitSet evaluateFilters(List<QuestionQuery.Filter> filters) {
+		List<BitSet> required = new ArrayList<>();
+		BitSet excluded = new BitSet();
+		for (QuestionQuery.Filter f : filters) {
+			BitSet ids = this.idsMatching(f);
+			if (f.isNegated())
+				excluded.or(ids);
+			else
+				required.add(ids);
 		}
+
+		BitSet result;
+		if (required.isEmpty()) {
+			result = (BitSet) this.questionIds.clone();
+		} else {
+			// Smallest first, so every AND after it can only shrink an already small set
+			required.sort(Comparator.comparingInt(BitSet::cardinality));
+			result = required.get(0);
+			for (int i = 1; i < required.size() && !result.isEmpty(); i++)
+				result.and(required.get(i));
+			// Sets built from other managers may name questions this cache has dropped
+			result.and(this.questionIds);
+		}
+		result.andNot(excluded);
+		return result;
+	}
+
+	/**
+	 * @return New set of IDs of the questions a filter matches, ignoring whether
+	 *         it is negated
+	 */
+	private BitSet idsMatching(QuestionQuery.Filter f) {
+		switch (f.getField()) {
+		case TAG:
+			return this.tagIndex.containing(f.getText());
+		case AUTHOR:
+			return this.authorIndex.withTag(f.getText());
+		case AFTER:
+			return this.dateIndex.between(f.getDate().atStartOfDay(), null);
+		case BEFORE:
+			return this.dateIndex.between(null, f.getDate().atStartOfDay());
+		case ANSWERED:
+			return (BitSet) this.answeredIds.clone();
+		case UNANSWERED:
+			BitSet unanswered = (BitSet) this.questionIds.clone();
+			unanswered.andNot(this.answeredIds);
+			return unanswered;
+		case HAS_REVIEW:
+			return StartCSE360.getReviewManager().getReviewedQuestionIds();
+		case RATING:
+			return StartCSE360.getReviewManager().getQuestionIdsRated(f.getMinRating(), f.getMaxRating());
+		default:
+			throw new IllegalArgumentException("Unknown filter: " + f);
+		}
+	}
+
+	/**
+	 * Finds cached questions that are near duplicates of the given title and
+	 * content. Candidates come from a MinHash index, so only questions likely to
+	 * be similar are compared in full.
+	 *
+	 * @param title         Title to compare
+	 * @param content       Content to compare; may be null
+	 * @param minSimilarity Lowest similarity to report, from 0.00 to 1.00; see
+	 *                      {@link StringUtil#getSimilarity(String, String, double)}
+	 * @return Ordered map of similar question to its similarity, most similar
+	 *         first
+	 */
+	public Map<Question, Double> findSimilarQuestions(String title, String content, double minSimilarity) {
+		String text = title + "\n" + (content == null ? "" : content);
+		List<Map.Entry<Question, Double>> matches = new ArrayList<>();
+		for (int id : this.duplicateIndex.candidates(text)) {
+			Question q = this.questionMap.get(id);
+			if (q == null)
+				continue;
+			double similarity = StringUtil.getSimilarity(text, searchableText(q), minSimilarity);
+			if (similarity > 0 && similarity >= minSimilarity)
+				matches.add(Map.entry(q, similarity));
+		}
+		matches.sort(Map.Entry.<Question, Double>comparingByValue().reversed());
+
+		Map<Question, Double> results = new LinkedHashMap<>();
+		for (Map.Entry<Question, Double> e : matches)
+			results.put(e.getKey(), e.getValue());
 		return results;
 	}
+
+	/**
+	 * Gets the trigram index over cached question titles, for suggesting similar
+	 * questions while a title is typed. Unlike the other indexes it may be read
+	 * from any thread.
+	 *
+	 * @return Title index kept in sync with the cache
+	 */
+	public TitleIndex getTitleIndex() {
+		return this.titleIndex;
+	}
+
+	/**
+	 * Groups questions into clusters of near duplicates, using every available
+	 * core. This can take a while for a large set, so call it off the JavaFX
+	 * thread; take the snapshot of questions on the thread that owns the cache.
+	 *
+	 * @param questions     Questions to cluster
+	 * @param minSimilarity Lowest similarity for two questions to count as
+	 *                      duplicates, from 0.00 to 1.00
+	 * @return Clusters of two or more questions, largest first
+	 */
+	public static List<List<Question>> clusterDuplicates(Collection<Question> questions, double minSimilarity) {
+		Map<Integer, Question> byId = new HashMap<>();
+		for (Question q : questions)
+			byId.put(q.getId(), q);
+		int[] ids = new int[byId.size()];
+		String[] texts = new String[ids.length];
+		int i = 0;
+		for (Question q : byId.values()) {
+			ids[i] = q.getId();
+			texts[i] = searchableText(q);
+			i++;
+		}
+
+		List<List<Question>> clusters = new ArrayList<>();
+		for (int[] cluster : new DuplicateClusterer(minSimilarity).cluster(ids, texts)) {
+			List<Question> members = new ArrayList<>(cluster.length);
+			for (int id : cluster)
+				members.add(byId.get(id));
+			clusters.add(members);
+		}
+		return clusters;
+	}
+
+	private Question questionForHit(SearchHit hit) {
+		int id = this.questionIdFor(hit.getKind(), hit.getId());
+		return id < 0 ? null : this.questionMap.get(id);
+	}
+
+	/**
+	 * Gets the ID of the question a post belongs to.
+	 *
+	 * @param kind Kind of post
+	 * @param id   ID of the post
+	 * @return Question ID, or -1 if the post is not cached
+	 */
+	private int questionIdFor(SearchIndex.Kind kind, int id) {
+		switch (kind) {
+		case QUESTION:
+			return id;
+		case ANSWER:
+			return this.questionIdByAnswer.getOrDefault(id, -1);
+		case REVIEW:
+			Review r = StartCSE360.getReviewManager().getReview(id);
+			if (r == null)
+				return -1;
+			if (r.isQuestionReview())
+				return r.getReviewedQuestion().getId();
+			return r.isAnswerReview() ? this.questionIdByAnswer.getOrDefault(r.getReviewedAnswer().getId(), -1) : -1;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the text of a question that full-text search looks at.
+	 */
+	private static String searchableText(Question q) {
+		return q.getTitle() + "\n" + (q.getContent() == null ? "" : q.getContent());
+	}
+
+	private Set<Question> toQuestions(BitSet ids) {
+		Set<Question> results = new HashSet<>();
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			Question q = this.questionMap.get(id);
+			if (q != null)
+				results.add(q);
+		}
+		return results;
+	}
+
+	private static List<String> nonBlank(Collection<String> terms) {
+		return terms.stream().filter(s -> !s.isBlank()).toList();
+	}
 }
@@ -5,16 +5,26 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
 import application.obj.Answer;
 import application.obj.Question;
 import application.obj.Review;
+import application.search.SearchIndex;
 import application.util.LogUtil;
+import application.util.Page;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import databasePart1.WriteBehindQueue;
 
 /**
  * Acts as a manager class for dealing with Review objects. This use of data
@@ -26,6 +36,16 @@ public class ReviewManager {
 	private final DatabaseHelper database;
 	private final Set<Review> reviewSet = new HashSet<>();
 
+	// Secondary indexes over reviewSet, kept in sync by addToCache/removeFromCache
+	private final Map<Integer, Review> reviewsById = new HashMap<>();
+	private final Map<Integer, Set<Review>> reviewsByQuestion = new HashMap<>();
+	private final Map<Integer, Set<Review>> reviewsByAnswer = new HashMap<>();
+	private final Map<String, Set<Review>> reviewsByUser = new HashMap<>();
+	// Rating -> question ID -> how many of that question's reviews have the rating
+	private final NavigableMap<Integer, Map<Integer, Integer>> questionsByRating = new TreeMap<>();
+	// Review ID -> rating it is indexed under, since ratings are edited in place
+	private final Map<Integer, Integer> indexedRatings = new HashMap<>();
+
 	public ReviewManager(DatabaseHelper database) {
 		this.database = database;
 		LogUtil.debug("Initialized ReviewManager");
@@ -36,7 +56,7 @@ public class ReviewManager {
 	 */
 	public void fetchReviews() {
 		// Ensure database connection is available
-		if (this.database.getConnection() == null) {
+		if (!this.database.isConnected()) {
 			try {
 				this.database.connectToDatabase();
 			} catch (SQLException e) {
@@ -46,15 +66,26 @@ public class ReviewManager {
 		}
 
 		String query = "SELECT * FROM Reviews";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query);
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
 				ResultSet rs = stmt.executeQuery()) {
 
 			reviewSet.clear();
+			reviewsById.clear();
+			reviewsByQuestion.clear();
+			reviewsByAnswer.clear();
+			reviewsByUser.clear();
+			questionsByRating.clear();
+			indexedRatings.clear();
+
+			// Resolve reviewed questions and answers from the already-loaded caches
+			QuestionManager questionManager = StartCSE360.getQuestionManager();
+			AnswerManager answerManager = StartCSE360.getAnswerManager();
 
 			while (rs.next()) {
 				int id = rs.getInt("id");
 				String userName = rs.getString("userName");
-				LocalDateTime creationDate = LocalDateTime.parse(rs.getString("creationDate"));
+				LocalDateTime creationDate = rs.getObject("creationDate", LocalDateTime.class);
 				String content = rs.getString("content");
 				int rating = rs.getInt("rating");
 				Integer questionId = rs.getObject("questionId", Integer.class);
@@ -63,19 +94,19 @@ public class ReviewManager {
 
 				try {
 					if (questionId != null) {
-						Question q = StartCSE360.getQuestionManager().fetchQuestion(questionId);
+						Question q = questionManager.getQuestion(questionId);
 						if (q != null) {
 							r = new Review(id, userName, creationDate, content, rating, q);
 						}
 					} else if (answerId != null) {
-						Answer a = StartCSE360.getAnswerManager().fetchAnswer(answerId);
+						Answer a = answerManager.getAnswer(answerId);
 						if (a != null) {
 							r = new Review(id, userName, creationDate, content, rating, a);
 						}
 					}
 
 					if (r != null) {
-						this.reviewSet.add(r);
+						this.addToCache(r);
 					} else {
 						System.err.println(
 								"Failed to create review with ID " + id + ": associated question/answer not found");
@@ -84,6 +115,8 @@ public class ReviewManager {
 					System.err.println("Error processing review with ID " + id + ": " + e.getMessage());
 				}
 			}
+			// Drop reviews deleted since the search index was last saved
+			StartCSE360.getSearchIndex().retainAll(SearchIndex.Kind.REVIEW, this.reviewsById.keySet());
 		} catch (SQLException e) {
 			System.err.println("Failed to get all reviews from the database: " + e.getMessage());
 			e.printStackTrace();
@@ -100,23 +133,24 @@ public class ReviewManager {
 		Review result = null;
 
 		String query = "SELECT * FROM Reviews WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setInt(1, id);
 			ResultSet rs = stmt.executeQuery();
 			if (rs.next()) {
 				int i = rs.getInt("id");
 				String userName = rs.getString("userName");
-				LocalDateTime creationTime = LocalDateTime.parse(rs.getString("creationDate"));
+				LocalDateTime creationTime = rs.getObject("creationDate", LocalDateTime.class);
 				String content = rs.getString("content");
 				int rating = rs.getInt("rating");
 				Integer questionId = rs.getObject("questionId", Integer.class);
 				Integer answerId = rs.getObject("answerId", Integer.class);
 
 				if (questionId != null) {
-					Question q = StartCSE360.getQuestionManager().fetchQuestion(questionId);
+					Question q = StartCSE360.getQuestionManager().getQuestion(questionId);
 					result = new Review(i, userName, creationTime, content, rating, q);
 				} else {
-					Answer a = StartCSE360.getAnswerManager().fetchAnswer(answerId);
+					Answer a = StartCSE360.getAnswerManager().getAnswer(answerId);
 					result = new Review(i, userName, creationTime, content, rating, a);
 				}
 			}
@@ -128,6 +162,113 @@ public class ReviewManager {
 		return result;
 	}
 
+	/**
+	 * Fetches one page of reviews, using the ID of the last review on the previous
+	 * page as the starting point. Reviews whose question or answer no longer
+	 * exists are left out.
+	 * 
+	 * @param afterId ID of the last review on the previous page, or 0 for the
+	 *                first page
+	 * @param limit   Maximum number of reviews on the page
+	 * @param sort    Order to page in
+	 * @return Page of canonical Review objects
+	 */
+	public Page<Review> page(int afterId, int limit, Page.Sort sort) {
+		this.database.awaitQueuedWrites(); // Include reviews this client just posted
+		// Read the raw rows first; resolving targets may need connections of its own
+		List<ReviewRow> rows = new ArrayList<>();
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(Page.sql("Reviews", afterId, sort))) {
+			Page.bind(stmt, afterId, limit);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next())
+				rows.add(new ReviewRow(rs));
+		} catch (SQLException e) {
+			System.err.println("Failed to fetch a page of reviews: " + e.getMessage());
+			e.printStackTrace();
+		}
+
+		// The cursor comes from the rows read, so skipped rows are not read again
+		Page<ReviewRow> rowPage = Page.of(rows, limit, row -> row.id);
+		List<Review> result = new ArrayList<>(rowPage.getItems().size());
+		for (ReviewRow row : rowPage.getItems()) {
+			Review r = this.canonicalize(row);
+			if (r != null)
+				result.add(r);
+		}
+		return rowPage.withItems(result);
+	}
+
+	/**
+	 * Maps a row to the cached Review for its ID, refreshing the cached copy's
+	 * content and rating. A review that is not cached yet is added to the cache.
+	 * 
+	 * @param row Row of the review
+	 * @return Canonical Review object, or null if its question or answer no
+	 *         longer exists
+	 */
+	private Review canonicalize(ReviewRow row) {
+		Review cached = this.reviewsById.get(row.id);
+		if (cached == null) {
+			Review fresh = this.toReview(row);
+			if (fresh != null)
+				this.addToCache(fresh);
+			return fresh;
+		}
+		cached.setContent(row.content);
+		cached.setRating(row.rating);
+		StartCSE360.getSearchIndex().put(SearchIndex.Kind.REVIEW, cached.getId(), cached.getContent());
+		if (cached.isQuestionReview() && this.indexedRatings.containsKey(cached.getId())) {
+			this.unindexRating(cached);
+			this.indexRating(cached);
+		}
+		return cached;
+	}
+
+	/**
+	 * Constructs a Review from a row, resolving its question or answer through
+	 * the local caches.
+	 * 
+	 * @param row Row of the review
+	 * @return New Review object, or null if its question or answer no longer
+	 *         exists
+	 */
+	private Review toReview(ReviewRow row) {
+		if (row.questionId != null) {
+			Question q = StartCSE360.getQuestionManager().getQuestion(row.questionId);
+			if (q != null)
+				return new Review(row.id, row.userName, row.creationDate, row.content, row.rating, q);
+		} else if (row.answerId != null) {
+			Answer a = StartCSE360.getAnswerManager().getAnswer(row.answerId);
+			if (a != null)
+				return new Review(row.id, row.userName, row.creationDate, row.content, row.rating, a);
+		}
+		return null;
+	}
+
+	/**
+	 * A row of the Reviews table whose question or answer has not been resolved.
+	 */
+	static class ReviewRow {
+		final int id;
+		final String userName;
+		final LocalDateTime creationDate;
+		final String content;
+		final int rating;
+		final Integer questionId;
+		final Integer answerId;
+
+		ReviewRow(ResultSet rs) throws SQLException {
+			this.id = rs.getInt("id");
+			this.userName = rs.getString("userName");
+			this.creationDate = rs.getObject("creationDate", LocalDateTime.class);
+			this.content = rs.getString("content");
+			this.rating = rs.getInt("rating");
+			this.questionId = rs.getObject("questionId", Integer.class);
+			this.answerId = rs.getObject("answerId", Integer.class);
+		}
+	}
+
 	/**
 	 * Gets an unmodifiable reference to the set of reviews stored in the local
 	 * cache.
@@ -145,7 +286,7 @@ public class ReviewManager {
 	 * @return Set of reviews by the specified user
 	 */
 	public Set<Review> getReviewsByUser(String userName) {
-		return reviewSet.stream().filter(r -> r.getUserName().equals(userName)).collect(Collectors.toSet());
+		return copyOf(this.reviewsByUser.get(userName));
 	}
 
 	/**
@@ -155,8 +296,7 @@ public class ReviewManager {
 	 * @return Set of reviews for the specified question
 	 */
 	public Set<Review> getReviewsForQuestion(int questionId) {
-		return reviewSet.stream().filter(r -> r.isQuestionReview() && r.getReviewedQuestion().getId() == questionId)
-				.collect(Collectors.toSet());
+		return copyOf(this.reviewsByQuestion.get(questionId));
 	}
 
 	/**
@@ -166,8 +306,208 @@ public class ReviewManager {
 	 * @return Set of reviews for the specified answer
 	 */
 	public Set<Review> getReviewsForAnswer(int answerId) {
-		return reviewSet.stream().filter(r -> r.isAnswerReview() && r.getReviewedAnswer().getId() == answerId)
-				.collect(Collectors.toSet());
+		return copyOf(this.reviewsByAnswer.get(answerId));
+	}
+
+	/**
+	 * Gets the number of reviews written by a specific reviewer without copying
+	 * them.
+	 * 
+	 * @param userName Name of the reviewer
+	 * @return Number of reviews by the specified user
+	 */
+	public int getReviewCountByUser(String userName) {
+		return sizeOf(this.reviewsByUser.get(userName));
+	}
+
+	/**
+	 * Gets the number of reviews for a specific question without copying them.
+	 * 
+	 * @param questionId ID of the question
+	 * @return Number of reviews for the specified question
+	 */
+	public int getReviewCountForQuestion(int questionId) {
+		return sizeOf(this.reviewsByQuestion.get(questionId));
+	}
+
+	/**
+	 * Gets the number of reviews for a specific answer without copying them.
+	 * 
+	 * @param answerId ID of the answer
+	 * @return Number of reviews for the specified answer
+	 */
+	public int getReviewCountForAnswer(int answerId) {
+		return sizeOf(this.reviewsByAnswer.get(answerId));
+	}
+
+	/**
+	 * Gets the IDs of questions that have at least one review of their own.
+	 * 
+	 * @return New set of question IDs
+	 */
+	public BitSet getReviewedQuestionIds() {
+		BitSet ids = new BitSet();
+		for (int id : this.reviewsByQuestion.keySet())
+			ids.set(id);
+		return ids;
+	}
+
+	/**
+	 * Gets the IDs of questions that have at least one review of their own rated
+	 * within a range.
+	 * 
+	 * @param minRating Lowest rating, inclusive
+	 * @param maxRating Highest rating, inclusive
+	 * @return New set of question IDs
+	 */
+	public BitSet getQuestionIdsRated(int minRating, int maxRating) {
+		BitSet ids = new BitSet();
+		if (minRating > maxRating)
+			return ids;
+		for (Map<Integer, Integer> counts : this.questionsByRating.subMap(minRating, true, maxRating, true).values()) {
+			for (int id : counts.keySet())
+				ids.set(id);
+		}
+		return ids;
+	}
+
+	private static Set<Review> copyOf(Set<Review> bucket) {
+		return bucket == null ? new HashSet<>() : new HashSet<>(bucket);
+	}
+
+	private static int sizeOf(Set<Review> bucket) {
+		return bucket == null ? 0 : bucket.size();
+	}
+
+	/**
+	 * Gets a review by ID from the local cache.
+	 * 
+	 * @param id ID of review to get
+	 * @return Cached Review object, or null if it is not cached
+	 */
+	public Review getReview(int id) {
+		return this.reviewsById.get(id);
+	}
+
+	/**
+	 * Reloads a review from the database, replacing any cached copy. Used to pick
+	 * up changes made by other clients.
+	 * 
+	 * @param id ID of review to reload
+	 */
+	public void refreshReview(int id) {
+		try {
+			this.cacheReview(id, this.loadReview(id));
+		} catch (SQLException e) {
+			System.err.println("Failed to refresh review " + id + ".");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads a review's row from the database without touching the local cache,
+	 * so it can be called from a background thread.
+	 * 
+	 * @param id ID of review to read
+	 * @return Row of the review, or null if it does not exist
+	 * @throws SQLException if the review could not be read
+	 */
+	ReviewRow loadReview(int id) throws SQLException {
+		String query = "SELECT * FROM Reviews WHERE id = ?";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, id);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? new ReviewRow(rs) : null;
+		}
+	}
+
+	/**
+	 * Replaces the cached copy of a review with a row read by
+	 * {@link #loadReview(int)}. The review is dropped if the row is null or its
+	 * question or answer no longer exists.
+	 * 
+	 * @param id  ID of the review
+	 * @param row Row of the review, or null if it does not exist
+	 */
+	void cacheReview(int id, ReviewRow row) {
+		this.evictReview(id);
+		if (row == null)
+			return;
+		Review fresh = this.toReview(row);
+		if (fresh != null)
+			this.addToCache(fresh);
+	}
+
+	/**
+	 * Drops a review from the local cache without touching the database. Used
+	 * when another client has deleted it.
+	 * 
+	 * @param id ID of review to drop
+	 */
+	public void evictReview(int id) {
+		Review cached = this.reviewsById.get(id);
+		if (cached != null)
+			this.removeFromCache(cached);
+	}
+
+	/**
+	 * Adds a review to the local cache and every secondary index.
+	 */
+	private void addToCache(Review r) {
+		if (!this.reviewSet.add(r))
+			return;
+		this.reviewsById.put(r.getId(), r);
+		StartCSE360.getSearchIndex().put(SearchIndex.Kind.REVIEW, r.getId(), r.getContent());
+		this.reviewsByUser.computeIfAbsent(r.getUserName(), k -> new HashSet<>()).add(r);
+		if (r.isQuestionReview()) {
+			this.reviewsByQuestion.computeIfAbsent(r.getReviewedQuestion().getId(), k -> new HashSet<>()).add(r);
+			this.indexRating(r);
+		}
+		if (r.isAnswerReview())
+			this.reviewsByAnswer.computeIfAbsent(r.getReviewedAnswer().getId(), k -> new HashSet<>()).add(r);
+	}
+
+	/**
+	 * Removes a review from the local cache and every secondary index.
+	 */
+	private void removeFromCache(Review r) {
+		if (!this.reviewSet.remove(r))
+			return;
+		this.reviewsById.remove(r.getId());
+		StartCSE360.getSearchIndex().remove(SearchIndex.Kind.REVIEW, r.getId());
+		removeFromBucket(this.reviewsByUser, r.getUserName(), r);
+		if (r.isQuestionReview()) {
+			removeFromBucket(this.reviewsByQuestion, r.getReviewedQuestion().getId(), r);
+			this.unindexRating(r);
+		}
+		if (r.isAnswerReview())
+			removeFromBucket(this.reviewsByAnswer, r.getReviewedAnswer().getId(), r);
+	}
+
+	private void indexRating(Review r) {
+		this.indexedRatings.put(r.getId(), r.getRating());
+		this.questionsByRating.computeIfAbsent(r.getRating(), k -> new HashMap<>())
+				.merge(r.getReviewedQuestion().getId(), 1, Integer::sum);
+	}
+
+	private void unindexRating(Review r) {
+		Integer rating = this.indexedRatings.remove(r.getId());
+		if (rating == null)
+			return;
+		Map<Integer, Integer> counts = this.questionsByRating.get(rating);
+		counts.computeIfPresent(r.getReviewedQuestion().getId(), (k, n) -> n == 1 ? null : n - 1);
+		if (counts.isEmpty())
+			this.questionsByRating.remove(rating);
+	}
+
+	private static <K> void removeFromBucket(Map<K, Set<Review>> index, K key, Review r) {
+		Set<Review> bucket = index.get(key);
+		if (bucket == null)
+			return;
+		bucket.remove(r);
+		if (bucket.isEmpty())
+			index.remove(key);
 	}
 
 	/**
@@ -184,7 +524,7 @@ public class ReviewManager {
 	public Review createNewQuestionReview(String userName, LocalDateTime creationDate, String content, int rating,
 			Question question) {
 		// Check if database is connected, if not try to reconnect
-		if (this.database.getConnection() == null) {
+		if (!this.database.isConnected()) {
 			try {
 				this.database.connectToDatabase();
 			} catch (SQLException e) {
@@ -193,31 +533,18 @@ public class ReviewManager {
 			}
 		}
 
-		String query = "INSERT INTO Reviews (userName, creationDate, content, rating, questionId, answerId) VALUES (?, ?, ?, ?, ?, NULL)";
-		int id = -1;
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query,
-				Statement.RETURN_GENERATED_KEYS)) {
+		int id = this.insertReview("questionId", "question", stmt -> {
 			stmt.setString(1, userName);
-			stmt.setString(2, creationDate.toString());
+			stmt.setObject(2, creationDate);
 			stmt.setString(3, content);
 			stmt.setInt(4, rating);
 			stmt.setInt(5, question.getId());
-			stmt.executeUpdate();
-			ResultSet results = stmt.getGeneratedKeys();
-			if (results.next()) {
-				id = results.getInt(1);
-			} else {
-				System.err.println("Failed to get generated ID for new review");
-				return null;
-			}
-		} catch (SQLException e) {
-			System.err.println("Failed to create a new question review: " + e.getMessage());
-			e.printStackTrace();
+		});
+		if (id == -1)
 			return null;
-		}
 
 		Review r = new Review(id, userName, creationDate, content, rating, question);
-		this.reviewSet.add(r);
+		this.addToCache(r);
 		return r;
 	}
 
@@ -235,7 +562,7 @@ public class ReviewManager {
 	public Review createNewAnswerReview(String userName, LocalDateTime creationDate, String content, int rating,
 			Answer answer) {
 		// Check if database is connected, if not try to reconnect
-		if (this.database.getConnection() == null) {
+		if (!this.database.isConnected()) {
 			try {
 				this.database.connectToDatabase();
 			} catch (SQLException e) {
@@ -244,46 +571,87 @@ public class ReviewManager {
 			}
 		}
 
-		String query = "INSERT INTO Reviews (userName, creationDate, content, rating, questionId, answerId) VALUES (?, ?, ?, ?, NULL, ?)";
-		int id = -1;
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query,
-				Statement.RETURN_GENERATED_KEYS)) {
+		int id = this.insertReview("answerId", "answer", stmt -> {
 			stmt.setString(1, userName);
-			stmt.setString(2, creationDate.toString());
+			stmt.setObject(2, creationDate);
 			stmt.setString(3, content);
 			stmt.setInt(4, rating);
 			stmt.setInt(5, answer.getId());
+		});
+		if (id == -1)
+			return null;
+
+		Review r = new Review(id, userName, creationDate, content, rating, answer);
+		this.addToCache(r);
+		return r;
+	}
+
+	/**
+	 * Inserts a new row into the Reviews table, either right away or through the
+	 * write-behind queue if it is enabled.
+	 * 
+	 * @param targetColumn Column holding the reviewed object's ID
+	 * @param targetKind   Kind of object being reviewed, for error messages
+	 * @param binder       Binds userName, creationDate, content, rating and the
+	 *                     target ID, in that order
+	 * @return ID of the new review, or -1 if it could not be created
+	 */
+	private int insertReview(String targetColumn, String targetKind, WriteBehindQueue.Binder binder) {
+		String columns = "userName, creationDate, content, rating, " + targetColumn;
+		WriteBehindQueue writer = this.database.getWriteBehindQueue();
+		if (writer != null) {
+			// Cache the review now and insert it in the background under a reserved ID
+			try {
+				int reserved = writer.reserveId("Reviews");
+				writer.enqueue(WriteBehindQueue.key("Reviews", reserved),
+						"INSERT INTO Reviews (" + columns + ", id) VALUES (?, ?, ?, ?, ?, ?)", stmt -> {
+							binder.bind(stmt);
+							stmt.setInt(6, reserved);
+						}, () -> this.evictReview(reserved));
+				return reserved;
+			} catch (SQLException e) {
+				System.err.println("Failed to reserve an ID for a new " + targetKind + " review: " + e.getMessage());
+				e.printStackTrace();
+				return -1;
+			}
+		}
+
+		String query = "INSERT INTO Reviews (" + columns + ") VALUES (?, ?, ?, ?, ?)";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+			binder.bind(stmt);
 			stmt.executeUpdate();
 			ResultSet results = stmt.getGeneratedKeys();
-			if (results.next()) {
-				id = results.getInt(1);
-			} else {
-				System.err.println("Failed to get generated ID for new review");
-				return null;
-			}
+			if (results.next())
+				return results.getInt(1);
+			System.err.println("Failed to get generated ID for new review");
 		} catch (SQLException e) {
-			System.err.println("Failed to create a new answer review: " + e.getMessage());
+			System.err.println("Failed to create a new " + targetKind + " review: " + e.getMessage());
 			e.printStackTrace();
-			return null;
 		}
-
-		Review r = new Review(id, userName, creationDate, content, rating, answer);
-		this.reviewSet.add(r);
-		return r;
+		return -1;
 	}
 
 	/**
-	 * Updates an existing review's content and rating in the database.
+	 * Updates an existing review's content and rating in the database, and
+	 * re-indexes its text and rating.
 	 * 
 	 * @param review Review to update
 	 */
 	public void updateReview(Review review) {
+		this.database.awaitQueuedWrite("Reviews", review.getId()); // The row may still be queued
 		String query = "UPDATE Reviews SET content = ?, rating = ? WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setString(1, review.getContent());
 			stmt.setInt(2, review.getRating());
 			stmt.setInt(3, review.getId());
 			stmt.executeUpdate();
+			StartCSE360.getSearchIndex().put(SearchIndex.Kind.REVIEW, review.getId(), review.getContent());
+			if (review.isQuestionReview() && this.indexedRatings.containsKey(review.getId())) {
+				this.unindexRating(review);
+				this.indexRating(review);
+			}
 		} catch (SQLException e) {
 			System.err.println("Failed to update review in database.");
 			e.printStackTrace();
@@ -296,11 +664,13 @@ public class ReviewManager {
 	 * @param review Review to delete
 	 */
 	public void deleteReview(Review review) {
+		this.database.awaitQueuedWrite("Reviews", review.getId()); // The row may still be queued
 		String query = "DELETE FROM Reviews WHERE id = ?";
-		try (PreparedStatement stmt = this.database.getConnection().prepareStatement(query)) {
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setInt(1, review.getId());
 			stmt.executeUpdate();
-			reviewSet.remove(review);
+			this.removeFromCache(review);
 		} catch (SQLException e) {
 			System.err.println("Failed to delete review from database.");
 			e.printStackTrace();
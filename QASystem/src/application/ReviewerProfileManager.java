@@ -3,12 +3,13 @@ package application;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import databasePart1.WriteBehindQueue;
 import application.obj.ReviewerProfile;
 import application.util.LogUtil;
 
@@ -28,85 +29,16 @@ public class ReviewerProfileManager {
 	 */
 	public ReviewerProfileManager(DatabaseHelper database) {
 		this.database = database;
-		createTableIfNotExists();
-		createPendingReviewersTableIfNotExists();
 		fetchProfiles();
 		LogUtil.debug("Initialized ReviewerProfileManager");
 	}
 
-	private void createTableIfNotExists() {
-		if (database.getConnection() == null) {
-			try {
-				database.connectToDatabase();
-			} catch (SQLException e) {
-				System.err.println("Database connection is null. Cannot create table.");
-				e.printStackTrace();
-				return;
-			}
-			if (database.getConnection() == null) {
-				System.err.println("Database connection is null after attempting to connect. Cannot create table.");
-				return;
-			}
-		}
-
-		String sql = """
-				    CREATE TABLE IF NOT EXISTS ReviewerProfiles (
-				        userName VARCHAR(255) PRIMARY KEY,
-				        bio VARCHAR(1000),
-				        expertise VARCHAR(255),
-				        yearsExperience INT,
-				        totalReviews INT,
-				        averageRating DOUBLE
-				    )
-				""";
-
-		try (Statement stmt = database.getConnection().createStatement()) {
-			stmt.execute(sql);
-			System.out.println("ReviewerProfiles table is ready.");
-		} catch (SQLException e) {
-			System.err.println("Failed to create ReviewerProfiles table.");
-			e.printStackTrace();
-		}
-	}
-
-	private void createPendingReviewersTableIfNotExists() {
-		if (database.getConnection() == null) {
-			try {
-				database.connectToDatabase();
-			} catch (SQLException e) {
-				System.err.println("Database connection is null. Cannot create pending reviewers table.");
-				e.printStackTrace();
-				return;
-			}
-			if (database.getConnection() == null) {
-				System.err.println(
-						"Database connection is null after attempting to connect. Cannot create pending reviewers table.");
-				return;
-			}
-		}
-
-		String sql = """
-				    CREATE TABLE IF NOT EXISTS PendingReviewers (
-				        userName VARCHAR(255) PRIMARY KEY,
-				        requestDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-				    )
-				""";
-
-		try (Statement stmt = database.getConnection().createStatement()) {
-			stmt.execute(sql);
-			System.out.println("PendingReviewers table is ready.");
-		} catch (SQLException e) {
-			System.err.println("Failed to create PendingReviewers table.");
-			e.printStackTrace();
-		}
-	}
-
 	/**
 	 * Fetches data used to construct {@link ReviewerProfile} objects from the
 	 * database, constructs those objects, and stores them in a local cache.
 	 */
 	public void fetchProfiles() {
-		if (database.getConnection() == null) {
+		if (!database.isConnected()) {
 			try {
 				database.connectToDatabase();
 			} catch (SQLException e) {
@@ -114,28 +46,21 @@ public class ReviewerProfileManager {
 				e.printStackTrace();
 				return;
 			}
-			if (database.getConnection() == null) {
+			if (!database.isConnected()) {
 				System.err.println("Database connection is null after attempting to connect. Cannot fetch profiles.");
 				return;
 			}
 		}
 
 		String query = "SELECT * FROM ReviewerProfiles";
-		try (Statement stmt = database.getConnection().createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+		try (PooledConnection conn = database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 
 			profileSet.clear();
 
-			while (rs.next()) {
-				String userName = rs.getString("userName");
-				ReviewerProfile profile = new ReviewerProfile(userName);
-				profile.setBio(rs.getString("bio"));
-				profile.setExpertise(rs.getString("expertise"));
-				profile.setYearsExperience(rs.getInt("yearsExperience"));
-				profile.setTotalReviews(rs.getInt("totalReviews"));
-				profile.setAverageRating(rs.getDouble("averageRating"));
-
-				profileSet.add(profile);
-			}
+			while (rs.next())
+				profileSet.add(readProfile(rs));
 		} catch (SQLException e) {
 			System.err.println("Failed to fetch reviewer profiles from database.");
 			e.printStackTrace();
@@ -164,18 +89,14 @@ public class ReviewerProfileManager {
 		}
 
 		// Check database for existing profile
-		if (database.getConnection() != null) {
+		if (database.isConnected()) {
 			String query = "SELECT * FROM ReviewerProfiles WHERE userName = ?";
-			try (PreparedStatement stmt = database.getConnection().prepareStatement(query)) {
+			try (PooledConnection conn = database.borrowConnection();
+					PreparedStatement stmt = conn.prepareStatement(query)) {
 				stmt.setString(1, userName);
 				ResultSet rs = stmt.executeQuery();
 				if (rs.next()) {
-					ReviewerProfile profile = new ReviewerProfile(userName);
-					profile.setBio(rs.getString("bio"));
-					profile.setExpertise(rs.getString("expertise"));
-					profile.setYearsExperience(rs.getInt("yearsExperience"));
-					profile.setTotalReviews(rs.getInt("totalReviews"));
-					profile.setAverageRating(rs.getDouble("averageRating"));
+					ReviewerProfile profile = readProfile(rs);
 					profileSet.add(profile);
 					return profile;
 				}
@@ -187,7 +108,8 @@ public class ReviewerProfileManager {
 			// Insert new profile if it does not exist
 			ReviewerProfile newProfile = new ReviewerProfile(userName);
 			String insert = "INSERT INTO ReviewerProfiles (userName, bio, expertise, yearsExperience, totalReviews, averageRating) VALUES (?, ?, ?, ?, ?, ?)";
-			try (PreparedStatement stmt = database.getConnection().prepareStatement(insert)) {
+			try (PooledConnection conn = database.borrowConnection();
+					PreparedStatement stmt = conn.prepareStatement(insert)) {
 				stmt.setString(1, userName);
 				stmt.setString(2, "");
 				stmt.setString(3, "");
@@ -216,19 +138,38 @@ public class ReviewerProfileManager {
 	 * @param profile - ReviewerProfile to update
 	 */
 	public void updateProfile(ReviewerProfile profile) {
-		if (database.getConnection() == null) {
+		if (!database.isConnected()) {
 			System.err.println("Database connection is null. Cannot update profile.");
 			return;
 		}
 
 		String query = "UPDATE ReviewerProfiles SET bio = ?, expertise = ?, yearsExperience = ?, totalReviews = ?, averageRating = ? WHERE userName = ?";
-		try (PreparedStatement stmt = database.getConnection().prepareStatement(query)) {
-			stmt.setString(1, profile.getBio());
-			stmt.setString(2, profile.getExpertise());
-			stmt.setInt(3, profile.getYearsExperience());
-			stmt.setInt(4, profile.getTotalReviews());
-			stmt.setDouble(5, profile.getAverageRating());
-			stmt.setString(6, profile.getUserName());
+		// Capture the values now; a queued update runs after the profile may have changed again
+		String bio = profile.getBio();
+		String expertise = profile.getExpertise();
+		int yearsExperience = profile.getYearsExperience();
+		int totalReviews = profile.getTotalReviews();
+		double averageRating = profile.getAverageRating();
+		String userName = profile.getUserName();
+		WriteBehindQueue.Binder binder = stmt -> {
+			stmt.setString(1, bio);
+			stmt.setString(2, expertise);
+			stmt.setInt(3, yearsExperience);
+			stmt.setInt(4, totalReviews);
+			stmt.setDouble(5, averageRating);
+			stmt.setString(6, userName);
+		};
+
+		WriteBehindQueue writer = database.getWriteBehindQueue();
+		if (writer != null) {
+			// If the update is lost, drop the profile so it is reloaded as stored
+			writer.enqueue(WriteBehindQueue.key("ReviewerProfiles", userName), query, binder,
+					() -> profileSet.remove(profile));
+			return;
+		}
+		try (PooledConnection conn = database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			binder.bind(stmt);
 			stmt.executeUpdate();
 		} catch (SQLException e) {
 			System.err.println("Failed to update reviewer profile for " + profile.getUserName());
@@ -236,6 +177,69 @@ public class ReviewerProfileManager {
 		}
 	}
 
+	/**
+	 * Constructs a ReviewerProfile from the current row of a result set over the
+	 * ReviewerProfiles table.
+	 */
+	private static ReviewerProfile readProfile(ResultSet rs) throws SQLException {
+		ReviewerProfile profile = new ReviewerProfile(rs.getString("userName"));
+		profile.setBio(rs.getString("bio"));
+		profile.setExpertise(rs.getString("expertise"));
+		profile.setYearsExperience(rs.getInt("yearsExperience"));
+		profile.setTotalReviews(rs.getInt("totalReviews"));
+		profile.setAverageRating(rs.getDouble("averageRating"));
+		return profile;
+	}
+
+	/**
+	 * Reads a profile from the database without touching the local cache, so it
+	 * can be called from a background thread.
+	 * 
+	 * @param userName User name of the profile to read
+	 * @return Profile constructed from database data, or null if it does not
+	 *         exist
+	 * @throws SQLException if the profile could not be read
+	 */
+	ReviewerProfile loadProfile(String userName) throws SQLException {
+		String query = "SELECT * FROM ReviewerProfiles WHERE userName = ?";
+		try (PooledConnection conn = database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setString(1, userName);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? readProfile(rs) : null;
+		}
+	}
+
+	/**
+	 * Applies a profile read by {@link #loadProfile(String)} to the local cache.
+	 * A cached profile is updated in place, so pages holding it see the change.
+	 * 
+	 * @param userName User name of the profile
+	 * @param fresh    Profile constructed from database data, or null if it no
+	 *                 longer exists
+	 */
+	void cacheProfile(String userName, ReviewerProfile fresh) {
+		ReviewerProfile cached = null;
+		for (ReviewerProfile profile : profileSet) {
+			if (profile.getUserName().equals(userName)) {
+				cached = profile;
+				break;
+			}
+		}
+		if (fresh == null) {
+			if (cached != null)
+				profileSet.remove(cached);
+		} else if (cached == null) {
+			profileSet.add(fresh);
+		} else {
+			cached.setBio(fresh.getBio());
+			cached.setExpertise(fresh.getExpertise());
+			cached.setYearsExperience(fresh.getYearsExperience());
+			cached.setTotalReviews(fresh.getTotalReviews());
+			cached.setAverageRating(fresh.getAverageRating());
+		}
+	}
+
 	/**
 	 * Returns an unmodifiable {@link Set} containing the current local cache of
 	 * {@link ReviewerProfile} objects.
@@ -0,0 +1,495 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import application.eval.EmailEvaluator;
+import application.eval.Evaluator;
+import application.eval.NameEvaluator;
+import application.eval.PasswordEvaluator;
+import application.eval.UserNameRecognizer;
+import application.util.LogUtil;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Creates accounts in bulk from a roster file, either CSV with a header row or
+ * NDJSON with one JSON object per line. Both formats use the fields userName,
+ * password, firstName, lastName, email and, optionally, role.
+ *
+ * <p>
+ * The file is streamed in chunks of {@link #CHUNK_SIZE} rows. Each chunk is
+ * parsed and validated in parallel, checked against existing usernames with a
+ * single query, and inserted as one JDBC batch in its own transaction. Rows
+ * that fail are left out and listed in the {@link Report}, while the rest of
+ * the file is still imported.
+ */
+public class RosterImporter {
+
+	// Rows read, validated and inserted together
+	public static final int CHUNK_SIZE = 2000;
+
+	/**
+	 * Supported roster file formats.
+	 */
+	public enum Format {
+		CSV, NDJSON;
+
+		/**
+		 * Picks a format by file extension; anything other than .csv is read as
+		 * NDJSON.
+		 */
+		public static Format forFile(Path file) {
+			return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+		}
+	}
+
+	/**
+	 * A row that was not imported, and why.
+	 */
+	public static final class RowError {
+		private final int line;
+		private final String userName;
+		private final String message;
+
+		RowError(int line, String userName, String message) {
+			this.line = line;
+			this.userName = userName;
+			this.message = message;
+		}
+
+		/**
+		 * @return Line number of the row in the file, starting at 1
+		 */
+		public int getLine() {
+			return this.line;
+		}
+
+		/**
+		 * @return Username of the row, or null if it could not be read
+		 */
+		public String getUserName() {
+			return this.userName;
+		}
+
+		public String getMessage() {
+			return this.message;
+		}
+
+		@Override
+		public String toString() {
+			return "Line " + this.line + (this.userName == null ? "" : " (" + this.userName + ")") + ": "
+					+ this.message;
+		}
+	}
+
+	/**
+	 * Outcome of one import.
+	 */
+	public static final class Report {
+		private int rows = 0;
+		private int imported = 0;
+		private final List<RowError> errors = new ArrayList<>();
+
+		/**
+		 * @return Number of non-blank rows read, not counting a CSV header
+		 */
+		public int getRows() {
+			return this.rows;
+		}
+
+		public int getImported() {
+			return this.imported;
+		}
+
+		/**
+		 * @return Rows that were not imported, in file order
+		 */
+		public List<RowError> getErrors() {
+			return Collections.unmodifiableList(this.errors);
+		}
+	}
+
+	// Field names, in the order rows store them
+	private static final String[] FIELDS = { "userName", "password", "firstName", "lastName", "email", "role" };
+	private static final int USER_NAME = 0;
+	private static final int PASSWORD = 1;
+	private static final int FIRST_NAME = 2;
+	private static final int LAST_NAME = 3;
+	private static final int EMAIL = 4;
+	private static final int ROLE = 5;
+
+	// Evaluator applied to each field that has one
+	private static final Evaluator[] EVALUATORS = { UserNameRecognizer::checkForValidUserName,
+			PasswordEvaluator::evaluatePassword, NameEvaluator.INSTANCE, NameEvaluator.INSTANCE,
+			EmailEvaluator.INSTANCE, null };
+
+	private final DatabaseHelper database;
+	private final UserRole defaultRole;
+
+	/**
+	 * @param database    Database to create the accounts in
+	 * @param defaultRole Role for rows that do not name one
+	 */
+	public RosterImporter(DatabaseHelper database, UserRole defaultRole) {
+		this.database = database;
+		this.defaultRole = defaultRole;
+	}
+
+	/**
+	 * Imports a roster file, choosing the format by its extension.
+	 *
+	 * @param file Roster file, in UTF-8
+	 * @return Report of the import
+	 * @throws IOException If the file cannot be read
+	 */
+	public Report importFile(Path file) throws IOException {
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return this.importFrom(in, Format.forFile(file));
+		}
+	}
+
+	/**
+	 * Imports a roster.
+	 *
+	 * @param reader Roster to read; it is not closed
+	 * @param format Format of the roster
+	 * @return Report of the import
+	 * @throws IOException              If the roster cannot be read
+	 * @throws IllegalArgumentException If a CSV header lacks a required column
+	 */
+	public Report importFrom(Reader reader, Format format) throws IOException {
+		long start = System.currentTimeMillis();
+		BufferedReader in = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+		Report report = new Report();
+		Set<String> seen = new HashSet<>();
+		int[] columns = null;
+		List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+		String line;
+		int lineNumber = 0;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			if (line.isBlank())
+				continue;
+			if (format == Format.CSV && columns == null) {
+				columns = readHeader(line);
+				continue;
+			}
+			chunk.add(new Row(lineNumber, line));
+			if (chunk.size() == CHUNK_SIZE) {
+				this.importChunk(chunk, format, columns, seen, report);
+				chunk.clear();
+			}
+		}
+		this.importChunk(chunk, format, columns, seen, report);
+		LogUtil.info("Imported " + report.imported + " of " + report.rows + " user(s) in "
+				+ (System.currentTimeMillis() - start) + " ms");
+		return report;
+	}
+
+	/**
+	 * Maps each field to its column in a CSV header.
+	 */
+	private static int[] readHeader(String line) {
+		List<String> names = parseCsv(line);
+		Map<String, Integer> byName = new HashMap<>();
+		for (int i = 0; i < names.size(); i++)
+			byName.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+		int[] columns = new int[FIELDS.length];
+		for (int f = 0; f < FIELDS.length; f++) {
+			Integer column = byName.get(FIELDS[f].toLowerCase(Locale.ROOT));
+			if (column == null && f != ROLE)
+				throw new IllegalArgumentException("The CSV header has no " + FIELDS[f] + " column");
+			columns[f] = column == null ? -1 : column;
+		}
+		return columns;
+	}
+
+	private void importChunk(List<Row> chunk, Format format, int[] columns, Set<String> seen, Report report) {
+		if (chunk.isEmpty())
+			return;
+		report.rows += chunk.size();
+
+		// Parsing and validation only look at the row itself, so rows go in parallel
+		chunk.parallelStream().forEach(row -> row.parse(format, columns, this.defaultRole));
+
+		// Duplicates within the file, in file order
+		for (Row row : chunk) {
+			if (row.error == null && !seen.add(row.user.getUserName()))
+				row.error = "Username appears more than once in the file";
+		}
+
+		// Usernames already taken, in one query
+		List<String> names = new ArrayList<>();
+		for (Row row : chunk) {
+			if (row.error == null)
+				names.add(row.user.getUserName());
+		}
+		Set<String> existing = this.database.findExistingUserNames(names);
+		List<Row> valid = new ArrayList<>(names.size());
+		for (Row row : chunk) {
+			if (row.error != null)
+				continue;
+			if (existing.contains(row.user.getUserName()))
+				row.error = "Username is already taken";
+			else
+				valid.add(row);
+		}
+
+		List<User> users = new ArrayList<>(valid.size());
+		for (Row row : valid)
+			users.add(row.user);
+		BitSet failed = this.database.insertUsers(users);
+		for (int i = failed.nextSetBit(0); i >= 0; i = failed.nextSetBit(i + 1))
+			valid.get(i).error = "Could not be saved to the database";
+
+		for (Row row : chunk) {
+			if (row.error == null)
+				report.imported++;
+			else
+				report.errors.add(new RowError(row.line, row.user == null ? row.userName() : row.user.getUserName(),
+						row.error));
+		}
+	}
+
+	/**
+	 * One line of the roster and what became of it.
+	 */
+	private static class Row {
+		final int line;
+		final String text;
+		String[] fields;
+		User user;
+		String error;
+
+		Row(int line, String text) {
+			this.line = line;
+			this.text = text;
+		}
+
+		/**
+		 * @return Username read from the row, if it got that far
+		 */
+		String userName() {
+			return this.fields == null ? null : this.fields[USER_NAME];
+		}
+
+		/**
+		 * Reads the fields of the row and validates them, setting either the user to
+		 * create or the error.
+		 */
+		void parse(Format format, int[] columns, UserRole defaultRole) {
+			try {
+				this.fields = format == Format.CSV ? fromCsv(this.text, columns) : fromJson(this.text);
+			} catch (IllegalArgumentException e) {
+				this.error = e.getMessage();
+				return;
+			}
+
+			for (int f = 0; f < FIELDS.length; f++) {
+				if (EVALUATORS[f] == null)
+					continue;
+				if (this.fields[f] == null) {
+					this.error = "Missing " + FIELDS[f];
+					return;
+				}
+				String message = EVALUATORS[f].evaluate(this.fields[f]);
+				if (!message.isEmpty()) {
+					this.error = FIELDS[f] + ": " + message.trim();
+					return;
+				}
+			}
+
+			UserRole role = defaultRole;
+			String roleName = this.fields[ROLE];
+			if (roleName != null && !roleName.isBlank()) {
+				try {
+					role = UserRole.valueOf(roleName.trim().toUpperCase(Locale.ROOT));
+				} catch (IllegalArgumentException e) {
+					this.error = "Unknown role " + roleName;
+					return;
+				}
+			}
+			this.user = new User(this.fields[USER_NAME], this.fields[PASSWORD], this.fields[FIRST_NAME],
+					this.fields[LAST_NAME], this.fields[EMAIL], role);
+		}
+	}
+
+	private static String[] fromCsv(String line, int[] columns) {
+		List<String> values = parseCsv(line);
+		String[] fields = new String[FIELDS.length];
+		for (int f = 0; f < FIELDS.length; f++) {
+			if (columns[f] >= 0 && columns[f] < values.size())
+				fields[f] = values.get(columns[f]);
+		}
+		return fields;
+	}
+
+	/**
+	 * Splits one CSV line into values. Values may be quoted, with doubled quotes
+	 * standing for a quote; quoted line breaks are not supported.
+	 *
+	 * @throws IllegalArgumentException If a quote is not closed
+	 */
+	static List<String> parseCsv(String line) {
+		List<String> values = new ArrayList<>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"')
+					value.append(c);
+				else if (i + 1 < line.length() && line.charAt(i + 1) == '"')
+					value.append(line.charAt(++i));
+				else
+					quoted = false;
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				values.add(value.toString());
+				value.setLength(0);
+			} else {
+				value.append(c);
+			}
+		}
+		if (quoted)
+			throw new IllegalArgumentException("Unclosed quote");
+		values.add(value.toString());
+		return values;
+	}
+
+	/**
+	 * Reads the fields of a flat JSON object whose values are strings or null.
+	 * Unknown keys are ignored.
+	 *
+	 * @throws IllegalArgumentException If the line is not such an object
+	 */
+	static String[] fromJson(String line) {
+		String[] fields = new String[FIELDS.length];
+		JsonScanner in = new JsonScanner(line);
+		in.expect('{');
+		if (!in.consume('}')) {
+			do {
+				String key = in.string();
+				in.expect(':');
+				String value = in.consumeWord("null") ? null : in.string();
+				for (int f = 0; f < FIELDS.length; f++) {
+					if (FIELDS[f].equals(key))
+						fields[f] = value;
+				}
+			} while (in.consume(','));
+			in.expect('}');
+		}
+		in.end();
+		return fields;
+	}
+
+	/**
+	 * Just enough of a JSON reader for one flat object per line.
+	 */
+	private static class JsonScanner {
+		private final String text;
+		private int pos = 0;
+
+		JsonScanner(String text) {
+			this.text = text;
+		}
+
+		private void skipSpace() {
+			while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos)))
+				this.pos++;
+		}
+
+		boolean consume(char c) {
+			this.skipSpace();
+			if (this.pos < this.text.length() && this.text.charAt(this.pos) == c) {
+				this.pos++;
+				return true;
+			}
+			return false;
+		}
+
+		boolean consumeWord(String word) {
+			this.skipSpace();
+			if (!this.text.startsWith(word, this.pos))
+				return false;
+			this.pos += word.length();
+			return true;
+		}
+
+		void expect(char c) {
+			if (!this.consume(c))
+				throw this.error("expected '" + c + "'");
+		}
+
+		void end() {
+			this.skipSpace();
+			if (this.pos < this.text.length())
+				throw this.error("unexpected text after the object");
+		}
+
+		String string() {
+			this.expect('"');
+			StringBuilder sb = new StringBuilder();
+			while (this.pos < this.text.length()) {
+				char c = this.text.charAt(this.pos++);
+				if (c == '"')
+					return sb.toString();
+				if (c != '\\') {
+					sb.append(c);
+					continue;
+				}
+				if (this.pos >= this.text.length())
+					break;
+				char escaped = this.text.charAt(this.pos++);
+				switch (escaped) {
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					if (this.pos + 4 > this.text.length())
+						throw this.error("incomplete \\u escape");
+					try {
+						sb.append((char) Integer.parseInt(this.text.substring(this.pos, this.pos + 4), 16));
+					} catch (NumberFormatException e) {
+						throw this.error("bad \\u escape");
+					}
+					this.pos += 4;
+					break;
+				default:
+					sb.append(escaped);
+				}
+			}
+			throw this.error("unclosed string");
+		}
+
+		private IllegalArgumentException error(String problem) {
+			return new IllegalArgumentException("Malformed JSON at column " + (this.pos + 1) + ": " + problem);
+		}
+	}
+}
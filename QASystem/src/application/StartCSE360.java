@@ -1,11 +1,16 @@
 package application;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 
 import application.pages.FirstRunPage;
 import application.pages.SetupLoginSelectionPage;
+import application.search.SearchIndex;
+import application.util.LogUtil;
 import databasePart1.DatabaseHelper;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 /**
@@ -13,7 +18,13 @@ import javafx.stage.Stage;
  */
 public class StartCSE360 extends Application {
 
+	// Set with -Dqasystem.writeBehind=true to enable write-behind persistence
+	public static final String WRITE_BEHIND_PROPERTY = "qasystem.writeBehind";
+	// Where the full-text search index is saved between launches
+	public static final Path SEARCH_INDEX_DIR = Path.of(System.getProperty("user.home"), "FoundationSearch");
+
 	private static final DatabaseHelper databaseHelper = new DatabaseHelper();
+	private static final SearchIndex searchIndex = new SearchIndex();
 	private static final QuestionManager questionManager = new QuestionManager(databaseHelper);
 	private static final AnswerManager answerManager = new AnswerManager(databaseHelper);
 	private static final CommentManager commentManager = new CommentManager(databaseHelper);
@@ -24,6 +35,8 @@ public class StartCSE360 extends Application {
 	private static final UserManager userManager = new UserManager(databaseHelper);
 
 	private static User currentUser = null;
+	private static ChangeFeedConsumer changeFeed = null;
+	private static InviteCodeSweeper inviteCodeSweeper = null;
 
 	public static void main(String[] args) {
 		launch(args);
@@ -32,7 +45,14 @@ public class StartCSE360 extends Application {
 	@Override
 	public void start(Stage primaryStage) {
 		try {
+			openSearchIndex(); // Saved search segments are searchable before anything is fetched
 			databaseHelper.connectToDatabase(); // Connect to the database
+			if (Boolean.getBoolean(WRITE_BEHIND_PROPERTY))
+				databaseHelper.enableWriteBehind(Platform::runLater); // Persist new posts in the background
+			// Positioned before the caches load so no other client's change is missed
+			changeFeed = new ChangeFeedConsumer(databaseHelper, questionManager, answerManager, reviewManager,
+					messageManager, commentManager, reviewProfileManager, userManager, inviteCodeManager,
+					Platform::runLater);
 			answerManager.fetchAnswers(); // Populate answers from database
 			questionManager.fetchQuestions(); // Populate questions from database
 			commentManager.fetchComments(); // Populate comments from database
@@ -40,6 +60,9 @@ public class StartCSE360 extends Application {
 			reviewProfileManager.fetchProfiles(); // Populate reviewer profiles from database
 			inviteCodeManager.fetchInviteCodes(); // Populate invite codes from database
 			userManager.fetchUsers(); // Populate users from database
+			changeFeed.start(); // Apply other clients' changes as they happen
+			inviteCodeSweeper = new InviteCodeSweeper(databaseHelper, inviteCodeManager);
+			inviteCodeSweeper.start(); // Remove expired and used invitation codes
 
 			if (databaseHelper.isDatabaseEmpty()) {
 				new FirstRunPage(databaseHelper).show(primaryStage);
@@ -47,14 +70,48 @@ public class StartCSE360 extends Application {
 				new SetupLoginSelectionPage(databaseHelper).show(primaryStage);
 			}
 		} catch (SQLException e) {
-			System.out.println(e.getMessage());
+			LogUtil.error(e.getMessage());
+		}
+	}
+
+	/**
+	 * Maps the saved search index. If it cannot be opened, search still works from
+	 * memory and the index is rebuilt as the managers fetch.
+	 */
+	private static void openSearchIndex() {
+		try {
+			searchIndex.open(SEARCH_INDEX_DIR);
+		} catch (IOException e) {
+			System.err.println("Failed to open the saved search index: " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (changeFeed != null)
+			changeFeed.stop();
+		if (inviteCodeSweeper != null)
+			inviteCodeSweeper.stop();
+		try {
+			searchIndex.close(); // Saves posts indexed since the last background flush
+		} catch (IOException e) {
+			System.err.println("Failed to save the search index: " + e.getMessage());
+			e.printStackTrace();
 		}
+		// Flushes any queued writes before the database is closed
+		databaseHelper.closeConnection();
+		LogUtil.flush();
 	}
 
 	public static DatabaseHelper getDatabaseHelper() {
 		return databaseHelper;
 	}
 
+	public static SearchIndex getSearchIndex() {
+		return searchIndex;
+	}
+
 	public static QuestionManager getQuestionManager() {
 		return questionManager;
 	}
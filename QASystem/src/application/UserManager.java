@@ -1,13 +1,18 @@
 package application;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import application.util.LogUtil;
+import application.util.Page;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
 
 public class UserManager {
 
@@ -26,21 +31,85 @@ public class UserManager {
 	public void fetchUsers() {
 		this.userSet.clear();
 		String query = "SELECT * FROM cse360users";
-		try (ResultSet rs = this.database.getStatement().executeQuery(query)) {
-			while (rs.next()) {
-				int id = rs.getInt("id");
-				String userName = rs.getString("userName");
-				String password = rs.getString("password");
-				String firstName = rs.getString("firstName");
-				String lastName = rs.getString("lastName");
-				String email = rs.getString("email");
-				UserRole role = UserRole.valueOf(rs.getString("role").toUpperCase());
-				User u = new User(id, userName, password, firstName, lastName, email, role);
-				this.userSet.add(u);
-			}
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next())
+				this.userSet.add(this.readUser(rs));
 		} catch (SQLException e) {
 			LogUtil.error("Caught SQLException when trying to fetch users. Printing stacktrace.");
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Fetches one page of users, using the ID of the last user on the previous
+	 * page as the starting point.
+	 * 
+	 * @param afterId ID of the last user on the previous page, or 0 for the first
+	 *                page
+	 * @param limit   Maximum number of users on the page
+	 * @param sort    Order to page in
+	 * @return Page of User objects
+	 */
+	public Page<User> page(int afterId, int limit, Page.Sort sort) {
+		List<User> result = new ArrayList<>();
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(Page.sql("cse360users", afterId, sort))) {
+			Page.bind(stmt, afterId, limit);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next())
+				result.add(this.readUser(rs));
+		} catch (SQLException e) {
+			LogUtil.error("Caught SQLException when trying to fetch a page of users. Printing stacktrace.");
+			e.printStackTrace();
+		}
+		return Page.of(result, limit, User::getID);
+	}
+
+	/**
+	 * Reads a user from the database without touching the local cache, so it can
+	 * be called from a background thread.
+	 * 
+	 * @param id ID of the user to read
+	 * @return User constructed from database data, or null if it does not exist
+	 * @throws SQLException if the user could not be read
+	 */
+	User loadUser(int id) throws SQLException {
+		String query = "SELECT * FROM cse360users WHERE id = ?";
+		try (PooledConnection conn = this.database.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, id);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? this.readUser(rs) : null;
+		}
+	}
+
+	/**
+	 * Applies a user read by {@link #loadUser(int)} to the local cache.
+	 * 
+	 * @param id   ID of the user
+	 * @param user User constructed from database data, or null if it no longer
+	 *             exists
+	 */
+	void cacheUser(int id, User user) {
+		this.userSet.removeIf(cached -> cached.getID() == id);
+		if (user != null)
+			this.userSet.add(user);
+	}
+
+	/**
+	 * Constructs a User from the current row of a result set over the
+	 * cse360users table.
+	 */
+	private User readUser(ResultSet rs) throws SQLException {
+		int id = rs.getInt("id");
+		String userName = rs.getString("userName");
+		String password = rs.getString("password");
+		String firstName = rs.getString("firstName");
+		String lastName = rs.getString("lastName");
+		String email = rs.getString("email");
+		UserRole role = UserRole.valueOf(rs.getString("role").toUpperCase());
+		return new User(id, userName, password, firstName, lastName, email, role);
+	}
 }
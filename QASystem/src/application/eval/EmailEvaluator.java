@@ -1,41 +1,91 @@
 package application.eval;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Used to evaluate/validate the input of an email address.
  */
-public class EmailEvaluator {
+public class EmailEvaluator implements Evaluator {
 
 	public static final String ERR_INVALID = "Email address is invalid";
 	public static final String ERR_TOO_LONG = "Email address is too long";
 
 	public static final int MAX_LENGTH = 64;
 
+	public static final EmailEvaluator INSTANCE = new EmailEvaluator();
+
+	// Shortest and longest top-level domain accepted
+	private static final int MIN_TLD_LENGTH = 2;
+	private static final int MAX_TLD_LENGTH = 6;
+
+	// What each ASCII character may be part of, as bit flags
+	private static final int LOCAL = 1;
+	private static final int DOMAIN = 1 << 1;
+	private static final int LETTER = 1 << 2;
+	private static final byte[] CHAR_CLASS = new byte[128];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			CHAR_CLASS[c] = LOCAL | DOMAIN | LETTER;
+			CHAR_CLASS[Character.toUpperCase(c)] = LOCAL | DOMAIN | LETTER;
+		}
+		for (char c = '0'; c <= '9'; c++)
+			CHAR_CLASS[c] = LOCAL | DOMAIN;
+		CHAR_CLASS['.'] = LOCAL | DOMAIN;
+		CHAR_CLASS['-'] = LOCAL | DOMAIN;
+		CHAR_CLASS['_'] = LOCAL;
+		CHAR_CLASS['%'] = LOCAL;
+		CHAR_CLASS['+'] = LOCAL;
+	}
+
+	private EmailEvaluator() {
+	}
+
 	/**
 	 * Evaluates a given String input to determine whether it conforms to typical
 	 * expectations for an email address, as long as the input is under a certain
-	 * character limit.
+	 * character limit. The accepted format is that of the pattern
+	 * {@code [A-Z0-9._%+-]+@[A-Z0-9.-]+\.[A-Z]{2,6}}, ignoring case, checked in a
+	 * single pass.
 	 * 
 	 * @param input String to evaluate
 	 * @return Empty String if validation passes
 	 * @return String containing error message if validation fails
 	 */
 	public static String evaluateEmail(String input) {
-		String result = "";
-		input = input.toLowerCase();
+		int length = input.length();
+		int at = -1;
+		int lastDot = -1;
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			if (c == '@') {
+				if (at >= 0)
+					return ERR_INVALID;
+				at = i;
+				continue;
+			}
+			int cls = c < CHAR_CLASS.length ? CHAR_CLASS[c] : 0;
+			if ((cls & (at < 0 ? LOCAL : DOMAIN)) == 0)
+				return ERR_INVALID;
+			if (c == '.' && at >= 0)
+				lastDot = i;
+		}
 
-		// Check for length
-		if (input.length() > MAX_LENGTH)
-			result = ERR_TOO_LONG;
+		// Both sides of the @ are needed, and the domain must end in a dot and a
+		// top-level domain made of letters only
+		int tldLength = length - lastDot - 1;
+		if (at < 1 || lastDot < at + 2 || tldLength < MIN_TLD_LENGTH || tldLength > MAX_TLD_LENGTH)
+			return ERR_INVALID;
+		for (int i = lastDot + 1; i < length; i++) {
+			if ((CHAR_CLASS[input.charAt(i)] & LETTER) == 0)
+				return ERR_INVALID;
+		}
 
-		// Check for conformity to email address format
-		Pattern pattern = Pattern.compile("^[A-Z0-9._%+-]+@[A-Z0-9.-]+\\.[A-Z]{2,6}$", Pattern.CASE_INSENSITIVE);
-		Matcher matcher = pattern.matcher(input);
-		if (!matcher.matches())
-			result = ERR_INVALID;
+		if (length > MAX_LENGTH)
+			return ERR_TOO_LONG;
+		return "";
+	}
 
-		return result;
+	@Override
+	public String evaluate(String input) {
+		return evaluateEmail(input);
 	}
 }
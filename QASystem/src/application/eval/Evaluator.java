@@ -0,0 +1,38 @@
+package application.eval;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Checks one kind of user input, such as an email address or a name.
+ * Implementations keep no state between calls, so one evaluator may be used
+ * from any number of threads at once.
+ */
+@FunctionalInterface
+public interface Evaluator {
+
+	/**
+	 * Evaluates one input.
+	 *
+	 * @param input String to evaluate
+	 * @return Empty String if the input is valid, otherwise an error message
+	 */
+	String evaluate(String input);
+
+	/**
+	 * Evaluates many inputs in parallel, for example a whole roster being
+	 * imported.
+	 *
+	 * @param inputs Strings to evaluate
+	 * @return One result per input, in the same order, each as returned by
+	 *         {@link #evaluate(String)}
+	 */
+	default List<String> validateAll(Iterable<String> inputs) {
+		// Collections split evenly across workers; other iterables only in batches
+		Stream<String> stream = inputs instanceof Collection<String> c ? c.parallelStream()
+				: StreamSupport.stream(inputs.spliterator(), true);
+		return stream.map(this::evaluate).toList();
+	}
+}
@@ -3,7 +3,7 @@ package application.eval;
 /**
  * Used to evaluate and validate the input of a person's first or last name.
  */
-public class NameEvaluator {
+public class NameEvaluator implements Evaluator {
 
 	public static String ERR_SPACE = "Name cannot contain a space";
 	public static String ERR_NUM = "Name cannot contain a number";
@@ -12,31 +12,45 @@ public class NameEvaluator {
 
 	public static int MAX_LENGTH = 32;
 
+	public static final NameEvaluator INSTANCE = new NameEvaluator();
+
+	private NameEvaluator() {
+	}
+
 	/**
 	 * Evaluates a given String to check if it complies with contemporary
-	 * conventions for first and last names in American English.
+	 * conventions for first and last names in American English. A valid name is
+	 * one or more letters A-Z or a-z, no longer than {@link #MAX_LENGTH}. The
+	 * input is checked in a single pass, and the first character that is not a
+	 * letter decides the error message.
 	 * 
 	 * @param input String to input
 	 * @return Empty String if the input String is a valid name
 	 * @return String containing error message if input is invalid
 	 */
 	public static String evaluateName(String input) {
+		int length = input.length();
+		if (length == 0)
+			return ERR_CHAR;
+
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))
+				continue;
+			if (c == ' ')
+				return ERR_SPACE;
+			if (c >= '0' && c <= '9')
+				return ERR_NUM;
+			return ERR_CHAR;
+		}
+
+		if (length > MAX_LENGTH)
+			return ERR_TOO_LONG;
+		return "";
+	}
 
-		String result = "";
-		input = input.toLowerCase();
-
-		// Check for length
-		if (input.length() > MAX_LENGTH)
-			result = ERR_TOO_LONG;
-
-		// Check for the other conditions of a valid name
-		if (input.matches(" "))
-			result = ERR_SPACE;
-		if (input.matches("[0-9]"))
-			result = ERR_NUM;
-		if (!input.matches("[a-zA-Z]+"))
-			result = ERR_CHAR;
-
-		return result;
+	@Override
+	public String evaluate(String input) {
+		return evaluateName(input);
 	}
 }
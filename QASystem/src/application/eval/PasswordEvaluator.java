@@ -1,166 +1,183 @@
 package application.eval;
 
+/**
+ * <p>
+ * Title: Directed Graph-translated Password Assessor.
+ * </p>
+ *
+ * <p>
+ * Description: A demonstration of the mechanical translation of Directed Graph
+ * diagram into an executable Java program using the Password Evaluator Directed
+ * Graph. Each character is classified with a lookup table, and the classes seen
+ * so far are kept as bit flags, so one pass over the input decides the result.
+ * </p>
+ *
+ * <p>
+ * The evaluator keeps no state between calls, so it may be used from any
+ * number of threads at once.
+ * </p>
+ *
+ * <p>
+ * Copyright: Lynn Robert Carter © 2022
+ * </p>
+ *
+ * @author Lynn Robert Carter
+ *
+ * @version 0.00 2018-02-22 Initial baseline
+ *
+ */
 public class PasswordEvaluator {
-	/**
-	 * <p>
-	 * Title: Directed Graph-translated Password Assessor.
-	 * </p>
-	 * 
-	 * <p>
-	 * Description: A demonstration of the mechanical translation of Directed Graph
-	 * diagram into an executable Java program using the Password Evaluator Directed
-	 * Graph. The code detailed design is based on a while loop with a cascade of if
-	 * statements
-	 * </p>
-	 * 
-	 * <p>
-	 * Copyright: Lynn Robert Carter © 2022
-	 * </p>
-	 * 
-	 * @author Lynn Robert Carter
-	 * 
-	 * @version 0.00 2018-02-22 Initial baseline
-	 * 
-	 */
 
-	/**********************************************************************************************
-	 * 
-	 * Result attributes to be used for GUI applications where a detailed error
-	 * message and a pointer to the character of the error will enhance the user
-	 * experience.
-	 * 
-	 */
+	public static final String ERR_EMPTY = "*** Error *** The password is empty!";
+	public static final String ERR_INVALID_CHAR = "*** Error *** An invalid character has been found!";
+	public static final String ERR_UNSATISFIED = "conditions were not satisfied";
+
+	public static final int MIN_LENGTH = 8;
+
+	// Character classes, as bit flags
+	public static final int UPPER_CASE = 1;
+	public static final int LOWER_CASE = 1 << 1;
+	public static final int NUMERIC_DIGIT = 1 << 2;
+	public static final int SPECIAL_CHAR = 1 << 3;
+	public static final int ALL_CLASSES = UPPER_CASE | LOWER_CASE | NUMERIC_DIGIT | SPECIAL_CHAR;
+
+	private static final String SPECIAL_CHARS = "~`!@#$%^&*()_-+{}[]|\\:;.?/";
+
+	// Class of every ASCII character; 0 means the character is not allowed
+	private static final byte[] CHAR_CLASS = new byte[128];
+
+	static {
+		for (char c = 'A'; c <= 'Z'; c++)
+			CHAR_CLASS[c] = UPPER_CASE;
+		for (char c = 'a'; c <= 'z'; c++)
+			CHAR_CLASS[c] = LOWER_CASE;
+		for (char c = '0'; c <= '9'; c++)
+			CHAR_CLASS[c] = NUMERIC_DIGIT;
+		for (int i = 0; i < SPECIAL_CHARS.length(); i++)
+			CHAR_CLASS[SPECIAL_CHARS.charAt(i)] = SPECIAL_CHAR;
+	}
 
-	public static String passwordErrorMessage = ""; // The error message text
-	public static String passwordInput = ""; // The input being processed
-	public static int passwordIndexofError = -1; // The index where the error was located
-	public static boolean foundUpperCase = false;
-	public static boolean foundLowerCase = false;
-	public static boolean foundNumericDigit = false;
-	public static boolean foundSpecialChar = false;
-	public static boolean foundLongEnough = false;
-	private static String inputLine = ""; // The input line
-	private static char currentChar; // The current character in the line
-	private static int currentCharNdx; // The index of the current character
-	private static boolean running; // The flag that specifies if the FSM is
-									// running
-
-	/**********
-	 * This private method display the input line and then on a line under it
-	 * displays an up arrow at the point where an error should one be detected. This
-	 * method is designed to be used to display the error message on the console
-	 * terminal.
-	 * 
-	 * @param input          The input string
-	 * @param currentCharNdx The location where an error was found
-	 * @return Two lines, the entire input line followed by a line with an up arrow
+	/**
+	 * Why a password was rejected.
 	 */
-	private static void displayInputState() {
-		// Display the entire input line
-		System.out.println(inputLine);
-		System.out.println(inputLine.substring(0, currentCharNdx) + "?");
-		System.out.println("The password size: " + inputLine.length() + "  |  The currentCharNdx: " + currentCharNdx
-				+ "  |  The currentChar: \"" + currentChar + "\"");
+	public enum Error {
+		NONE, EMPTY, INVALID_CHARACTER, UNSATISFIED
 	}
 
-	/**********
-	 * This method is a mechanical transformation of a Directed Graph diagram into a
-	 * Java method.
-	 * 
-	 * @param input The input string for directed graph processing
-	 * @return An output string that is empty if every things is okay or it will be
-	 *         a string with a help description of the error follow by two lines
-	 *         that shows the input line follow by a line with an up arrow at the
-	 *         point where the error was found.
+	/**
+	 * The immutable outcome of evaluating one password.
 	 */
-	public static String evaluatePassword(String input) {
-		// The following are the local variable used to perform the Directed Graph
-		// simulation
-		passwordErrorMessage = "";
-		passwordIndexofError = 0; // Initialize the IndexofError
-		inputLine = input; // Save the reference to the input line as a global
-		currentCharNdx = 0; // The index of the current character
-
-		if (input.length() <= 0)
-			return "*** Error *** The password is empty!";
-
-		// The input is not empty, so we can access the first character
-		currentChar = input.charAt(0); // The current character from the above indexed position
-
-		// The Directed Graph simulation continues until the end of the input is reached
-		// or at some
-		// state the current character does not match any valid transition to a next
-		// state
-
-		passwordInput = input; // Save a copy of the input
-		foundUpperCase = false; // Reset the Boolean flag
-		foundLowerCase = false; // Reset the Boolean flag
-		foundNumericDigit = false; // Reset the Boolean flag
-		foundSpecialChar = false; // Reset the Boolean flag
-		foundNumericDigit = false; // Reset the Boolean flag
-		foundLongEnough = false; // Reset the Boolean flag
-		running = true; // Start the loop
-
-		// The Directed Graph simulation continues until the end of the input is reached
-		// or at some
-		// state the current character does not match any valid transition
-		while (running) {
-			displayInputState();
-			// The cascading if statement sequentially tries the current character against
-			// all of the
-			// valid transitions
-			if (currentChar >= 'A' && currentChar <= 'Z') {
-				System.out.println("Upper case letter found");
-				foundUpperCase = true;
-			} else if (currentChar >= 'a' && currentChar <= 'z') {
-				System.out.println("Lower case letter found");
-				foundLowerCase = true;
-			} else if (currentChar >= '0' && currentChar <= '9') {
-				System.out.println("Digit found");
-				foundNumericDigit = true;
-			} else if ("~`!@#$%^&*()_-+{}[]|\\:;.?/".indexOf(currentChar) >= 0) {
-				System.out.println("Special character found");
-				foundSpecialChar = true;
-			} else {
-				passwordIndexofError = currentCharNdx;
-				return "*** Error *** An invalid character has been found!";
-			}
-			if (currentCharNdx >= 7) {
-				System.out.println("At least 8 characters found");
-				foundLongEnough = true;
-			}
+	public static final class Result {
+		private final Error error;
+		private final int indexOfError;
+		private final int classes;
+		private final boolean longEnough;
+
+		private Result(Error error, int indexOfError, int classes, boolean longEnough) {
+			this.error = error;
+			this.indexOfError = indexOfError;
+			this.classes = classes;
+			this.longEnough = longEnough;
+		}
 
-			// Go to the next character if there is one
-			currentCharNdx++;
-			if (currentCharNdx >= inputLine.length())
-				running = false;
-			else
-				currentChar = input.charAt(currentCharNdx);
+		public Error getError() {
+			return this.error;
+		}
 
-			System.out.println();
+		public boolean isValid() {
+			return this.error == Error.NONE;
 		}
 
-		String errMessage = "";
-		if (!foundUpperCase)
-			errMessage += "Upper case; ";
+		/**
+		 * @return Index of the invalid character, or the length of the password if
+		 *         conditions were not satisfied; -1 if the password is valid
+		 */
+		public int getIndexOfError() {
+			return this.indexOfError;
+		}
 
-		if (!foundLowerCase)
-			errMessage += "Lower case; ";
+		/**
+		 * @return Character classes found before evaluation stopped, as a
+		 *         combination of {@link PasswordEvaluator#UPPER_CASE} and the other
+		 *         class flags
+		 */
+		public int getClasses() {
+			return this.classes;
+		}
 
-		if (!foundNumericDigit)
-			errMessage += "Numeric digits; ";
+		public boolean hasClass(int characterClass) {
+			return (this.classes & characterClass) == characterClass;
+		}
 
-		if (!foundSpecialChar)
-			errMessage += "Special character; ";
+		public boolean isLongEnough() {
+			return this.longEnough;
+		}
 
-		if (!foundLongEnough)
-			errMessage += "Long Enough; ";
+		/**
+		 * @return Empty String if the password is valid, otherwise a description of
+		 *         the error
+		 */
+		public String getMessage() {
+			switch (this.error) {
+			case NONE:
+				return "";
+			case EMPTY:
+				return ERR_EMPTY;
+			case INVALID_CHARACTER:
+				return ERR_INVALID_CHAR;
+			default:
+				StringBuilder sb = new StringBuilder();
+				if (!this.hasClass(UPPER_CASE))
+					sb.append("Upper case; ");
+				if (!this.hasClass(LOWER_CASE))
+					sb.append("Lower case; ");
+				if (!this.hasClass(NUMERIC_DIGIT))
+					sb.append("Numeric digits; ");
+				if (!this.hasClass(SPECIAL_CHAR))
+					sb.append("Special character; ");
+				if (!this.longEnough)
+					sb.append("Long Enough; ");
+				return sb.append(ERR_UNSATISFIED).toString();
+			}
+		}
+	}
 
-		if (errMessage == "")
-			return "";
+	/**
+	 * Evaluates a password. A valid password is at least {@link #MIN_LENGTH}
+	 * characters long, contains at least one character of every class, and
+	 * contains nothing but letters, digits and the allowed special characters.
+	 *
+	 * @param input The password to evaluate
+	 * @return The result of the evaluation
+	 */
+	public static Result evaluate(CharSequence input) {
+		int length = input.length();
+		if (length == 0)
+			return new Result(Error.EMPTY, 0, 0, false);
+
+		int classes = 0;
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			int cls = c < CHAR_CLASS.length ? CHAR_CLASS[c] : 0;
+			if (cls == 0)
+				return new Result(Error.INVALID_CHARACTER, i, classes, i >= MIN_LENGTH);
+			classes |= cls;
+		}
 
-		passwordIndexofError = currentCharNdx;
-		return errMessage + "conditions were not satisfied";
+		boolean longEnough = length >= MIN_LENGTH;
+		if (classes == ALL_CLASSES && longEnough)
+			return new Result(Error.NONE, -1, classes, true);
+		return new Result(Error.UNSATISFIED, length, classes, longEnough);
+	}
 
+	/**
+	 * Evaluates a password.
+	 *
+	 * @param input The input string for directed graph processing
+	 * @return An output string that is empty if every things is okay or it will be
+	 *         a string with a help description of the error
+	 */
+	public static String evaluatePassword(String input) {
+		return evaluate(input).getMessage();
 	}
 }
@@ -1,283 +1,215 @@
 package application.eval;
 
+import java.util.List;
+
+/**
+ * <p>
+ * Title: FSM-translated UserNameRecognizer.
+ * </p>
+ *
+ * <p>
+ * Description: A demonstration of the mechanical translation of Finite State
+ * Machine diagram into an executable Java program using the UserName
+ * Recognizer. The diagram is compiled into a transition table indexed by state
+ * and character class, so recognizing a UserName is one table lookup per
+ * character.
+ * </p>
+ *
+ * <p>
+ * The recognizer keeps no state between calls, so it may be used from any
+ * number of threads at once.
+ * </p>
+ *
+ * <p>
+ * Copyright: Lynn Robert Carter © 2024
+ * </p>
+ *
+ * @author Lynn Robert Carter
+ *
+ * @version 1.00 2024-09-13 Initial baseline derived from the Even Recognizer
+ * @version 1.01 2024-09-17 Correction to address UNChar coding error, improper
+ *          error message, and improve internal documentation
+ *
+ */
 public class UserNameRecognizer {
-	/**
-	 * <p>
-	 * Title: FSM-translated UserNameRecognizer.
-	 * </p>
-	 * 
-	 * <p>
-	 * Description: A demonstration of the mechanical translation of Finite State
-	 * Machine diagram into an executable Java program using the UserName
-	 * Recognizer. The code detailed design is based on a while loop with a select
-	 * list
-	 * </p>
-	 * 
-	 * <p>
-	 * Copyright: Lynn Robert Carter © 2024
-	 * </p>
-	 * 
-	 * @author Lynn Robert Carter
-	 * 
-	 * @version 1.00 2024-09-13 Initial baseline derived from the Even Recognizer
-	 * @version 1.01 2024-09-17 Correction to address UNChar coding error, improper
-	 *          error message, and improve internal documentation
-	 * 
-	 */
 
-	/**********************************************************************************************
-	 * 
-	 * Result attributes to be used for GUI applications where a detailed error
-	 * message and a pointer to the character of the error will enhance the user
-	 * experience.
-	 * 
+	public static final String ERR_EMPTY = "\n*** ERROR *** The input is empty";
+	public static final String ERR_START = "\n*** ERROR *** A UserName must start with A-Z or a-z.\n";
+	public static final String ERR_TOO_SHORT = "\n*** ERROR *** A UserName must have at least 4 characters.\n";
+	public static final String ERR_TOO_LONG = "\n*** ERROR *** A UserName must have no more than 16 character.\n";
+	public static final String ERR_INVALID_CHAR = "\n*** ERROR *** A UserName character may only contain the characters A-Z, a-z, 0-9.\n";
+	public static final String ERR_AFTER_SEPARATOR = "\n*** ERROR *** A UserName character after a hyphen, underscore, or period must be A-Z, a-z, 0-9.\n";
+
+	public static final int MIN_LENGTH = 4;
+	public static final int MAX_LENGTH = 16;
+
+	// Character classes
+	private static final int OTHER = 0;
+	private static final int LETTER = 1;
+	private static final int DIGIT = 2;
+	private static final int SEPARATOR = 3;
+
+	// States; 1 is the only final state
+	private static final int START = 0;
+	private static final int NAME = 1;
+	private static final int AFTER_SEPARATOR = 2;
+	private static final int HALT = -1;
+
+	// Class of every ASCII character; everything else is OTHER
+	private static final byte[] CHAR_CLASS = new byte[128];
+
+	/*
+	 * The Finite State Machine diagram as a table of next states:
+	 *
+	 * State 0: A-Z, a-z -> State 1
+	 * State 1: A-Z, a-z, 0-9 -> State 1; '-', '_', '.' -> State 2
+	 * State 2: A-Z, a-z, 0-9 -> State 1
 	 */
-
-	public static String userNameRecognizerErrorMessage = ""; // The error message text
-	public static String userNameRecognizerInput = ""; // The input being processed
-	public static int userNameRecognizerIndexofError = -1; // The index of error location
-	private static int state = 0; // The current state value
-	private static int nextState = 0; // The next state value
-	private static boolean finalState = false; // Is this state a final state?
-	private static String inputLine = ""; // The input line
-	private static char currentChar; // The current character in the line
-	private static int currentCharNdx; // The index of the current character
-	private static boolean running; // The flag that specifies if the FSM is
-									// running
-	private static int userNameSize = 0; // A numeric value may not exceed 16 characters
-
-	// Private method to display debugging data
-	private static void displayDebuggingInfo() {
-		// Display the current state of the FSM as part of an execution trace
-		if (currentCharNdx >= inputLine.length())
-			// display the line with the current state numbers aligned
-			System.out.println(((state > 99) ? " " : (state > 9) ? "  " : "   ") + state
-					+ ((finalState) ? "       F   " : "           ") + "None");
-		else
-			System.out.println(((state > 99) ? " " : (state > 9) ? "  " : "   ") + state
-					+ ((finalState) ? "       F   " : "           ") + "  " + currentChar + " "
-					+ ((nextState > 99) ? "" : (nextState > 9) || (nextState == -1) ? "   " : "    ") + nextState
-					+ "     " + userNameSize);
+	private static final int[][] TRANSITIONS = {
+			// OTHER, LETTER, DIGIT, SEPARATOR
+			{ HALT, NAME, HALT, HALT }, // START
+			{ HALT, NAME, NAME, AFTER_SEPARATOR }, // NAME
+			{ HALT, NAME, NAME, HALT }, // AFTER_SEPARATOR
+	};
+
+	static {
+		for (char c = 'A'; c <= 'Z'; c++)
+			CHAR_CLASS[c] = LETTER;
+		for (char c = 'a'; c <= 'z'; c++)
+			CHAR_CLASS[c] = LETTER;
+		for (char c = '0'; c <= '9'; c++)
+			CHAR_CLASS[c] = DIGIT;
+		CHAR_CLASS['-'] = SEPARATOR;
+		CHAR_CLASS['_'] = SEPARATOR;
+		CHAR_CLASS['.'] = SEPARATOR;
 	}
 
-	// Private method to move to the next character within the limits of the input
-	// line
-	private static void moveToNextCharacter() {
-		currentCharNdx++;
-		if (currentCharNdx < inputLine.length())
-			currentChar = inputLine.charAt(currentCharNdx);
-		else {
-			currentChar = ' ';
-			running = false;
-		}
+	/**
+	 * Why a UserName was rejected.
+	 */
+	public enum Error {
+		NONE, EMPTY, START, TOO_SHORT, TOO_LONG, INVALID_CHARACTER, AFTER_SEPARATOR
 	}
 
-	/**********
-	 * This method is a mechanical transformation of a Finite State Machine diagram
-	 * into a Java method.
-	 * 
-	 * @param input The input string for the Finite State Machine
-	 * @return An output string that is empty if every things is okay or it is a
-	 *         String with a helpful description of the error
+	/**
+	 * The immutable outcome of recognizing one UserName.
 	 */
-	public static String checkForValidUserName(String input) {
-		// Check to ensure that there is input to process
-		if (input.length() <= 0) {
-			userNameRecognizerIndexofError = 0; // Error at first character;
-			return "\n*** ERROR *** The input is empty";
-		}
-
-		// The local variables used to perform the Finite State Machine simulation
-		state = 0; // This is the FSM state number
-		inputLine = input; // Save the reference to the input line as a global
-		currentCharNdx = 0; // The index of the current character
-		currentChar = input.charAt(0); // The current character from above indexed position
-
-		// The Finite State Machines continues until the end of the input is reached or
-		// at some
-		// state the current character does not match any valid transition to a next
-		// state
-
-		userNameRecognizerInput = input; // Save a copy of the input
-		running = true; // Start the loop
-		nextState = -1; // There is no next state
-		System.out.println("\nCurrent Final Input  Next  Date\nState   State Char  State  Size");
+	public static final class Result {
+		private final Error error;
+		private final int indexOfError;
 
-		// This is the place where semantic actions for a transition to the initial
-		// state occur
-
-		userNameSize = 0; // Initialize the UserName size
+		private Result(Error error, int indexOfError) {
+			this.error = error;
+			this.indexOfError = indexOfError;
+		}
 
-		// The Finite State Machines continues until the end of the input is reached or
-		// at some
-		// state the current character does not match any valid transition to a next
-		// state
-		while (running) {
-			// The switch statement takes the execution to the code for the current state,
-			// where
-			// that code sees whether or not the current character is valid to transition to
-			// a
-			// next state
-			switch (state) {
-			case 0:
-				// State 0 has 1 valid transition that is addressed by an if statement.
+		public Error getError() {
+			return this.error;
+		}
 
-				// The current character is checked against A-Z and a-z. If any are matched
-				// the FSM goes to state 1
+		public boolean isValid() {
+			return this.error == Error.NONE;
+		}
 
-				// A-Z, a-z -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z') || // Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z')) { // Check for a-z
-					nextState = 1;
+		/**
+		 * @return Index of the character where the machine halted, or -1 if the
+		 *         UserName is valid
+		 */
+		public int getIndexOfError() {
+			return this.indexOfError;
+		}
 
-					// Count the character
-					userNameSize++;
+		/**
+		 * @return Empty String if the UserName is valid, otherwise a description of
+		 *         the error
+		 */
+		public String getMessage() {
+			switch (this.error) {
+			case EMPTY:
+				return ERR_EMPTY;
+			case START:
+				return ERR_START;
+			case TOO_SHORT:
+				return ERR_TOO_SHORT;
+			case TOO_LONG:
+				return ERR_TOO_LONG;
+			case INVALID_CHARACTER:
+				return ERR_INVALID_CHAR;
+			case AFTER_SEPARATOR:
+				return ERR_AFTER_SEPARATOR;
+			default:
+				return "";
+			}
+		}
+	}
 
-					// This only occurs once, so there is no need to check for the size getting
-					// too large.
-				}
-				// If it is none of those characters, the FSM halts
-				else
-					running = false;
+	// Results that do not depend on the input, shared to avoid allocating
+	private static final Result VALID = new Result(Error.NONE, -1);
+	private static final Result EMPTY = new Result(Error.EMPTY, 0);
 
-				// The execution of this state is finished
+	/**
+	 * Runs the Finite State Machine over a UserName.
+	 *
+	 * @param input The input for the Finite State Machine
+	 * @return The result of the recognition
+	 */
+	public static Result recognize(CharSequence input) {
+		int length = input.length();
+		if (length == 0)
+			return EMPTY;
+
+		// The machine halts on a character with no valid transition, or once it has
+		// counted more characters than a UserName may have
+		int state = START;
+		int size = 0;
+		int ndx = 0;
+		while (ndx < length) {
+			char c = input.charAt(ndx);
+			int next = TRANSITIONS[state][c < CHAR_CLASS.length ? CHAR_CLASS[c] : OTHER];
+			if (next == HALT)
 				break;
-
-			case 1:
-				// State 1 has two valid transitions,
-				// 1: a A-Z, a-z, 0-9 that transitions back to state 1
-				// 2: a hyphen, underscore, or period that transitions to state 2
-
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z') || // Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z') || // Check for a-z
-						(currentChar >= '0' && currentChar <= '9')) { // Check for 0-9
-					nextState = 1;
-
-					// Count the character
-					userNameSize++;
-				}
-				// '-', '_', or '.' -> State 2
-				else if (currentChar == '-' || currentChar == '_' || currentChar == '.') { // Check for '-', '_', and
-																							// '.'
-					nextState = 2;
-
-					// Count the '-', '_', or '.'
-					userNameSize++;
-				}
-				// If it is none of those characters, the FSM halts
-				else
-					running = false;
-
-				// The execution of this state is finished
-				// If the size is larger than 16, the loop must stop
-				if (userNameSize > 16)
-					running = false;
+			if (++size > MAX_LENGTH)
 				break;
-
-			case 2:
-				// State 2 deals with a character after a hyphen, underscore, or period in the
-				// name.
-
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z') || // Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z') || // Check for a-z
-						(currentChar >= '0' && currentChar <= '9')) { // Check for 0-9
-					nextState = 1;
-
-					// Count the odd digit
-					userNameSize++;
-
-				}
-				// If it is none of those characters, the FSM halts
-				else
-					running = false;
-
-				// The execution of this state is finished
-				// If the size is larger than 16, the loop must stop
-				if (userNameSize > 16)
-					running = false;
-				break;
-			}
-
-			if (running) {
-				displayDebuggingInfo();
-				// When the processing of a state has finished, the FSM proceeds to the next
-				// character in the input and if there is one, it fetches that character and
-				// updates the currentChar. If there is no next character the currentChar is
-				// set to a blank.
-				moveToNextCharacter();
-
-				// Move to the next state
-				state = nextState;
-
-				// Is the new state a final state? If so, signal this fact.
-				if (state == 1)
-					finalState = true;
-
-				// Ensure that one of the cases sets this to a valid value
-				nextState = -1;
-			}
-			// Should the FSM get here, the loop starts again
-
+			state = next;
+			ndx++;
 		}
-		displayDebuggingInfo();
 
-		System.out.println("The loop has ended.");
-
-		// When the FSM halts, we must determine if the situation is an error or not.
-		// That depends
-		// of the current state of the FSM and whether or not the whole string has been
-		// consumed.
-		// This switch directs the execution to separate code for each of the FSM states
-		// and that
-		// makes it possible for this code to display a very specific error message to
-		// improve the
-		// user experience.
-		userNameRecognizerIndexofError = currentCharNdx; // Set index of a possible error;
-		userNameRecognizerErrorMessage = "\n*** ERROR *** ";
-
-		// The following code is a slight variation to support just console output.
+		// Whether the halt is an error depends on the state it halted in and whether
+		// the whole input has been consumed
 		switch (state) {
-		case 0:
-			// State 0 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage += "A UserName must start with A-Z or a-z.\n";
-			return userNameRecognizerErrorMessage;
-
-		case 1:
-			// State 1 is a final state. Check to see if the UserName length is valid. If so
-			// we
-			// we must ensure the whole string has been consumed.
-
-			if (userNameSize < 4) {
-				// UserName is too small
-				userNameRecognizerErrorMessage += "A UserName must have at least 4 characters.\n";
-				return userNameRecognizerErrorMessage;
-			} else if (userNameSize > 16) {
-				// UserName is too long
-				userNameRecognizerErrorMessage += "A UserName must have no more than 16 character.\n";
-				return userNameRecognizerErrorMessage;
-			} else if (currentCharNdx < input.length()) {
-				// There are characters remaining in the input, so the input is not valid
-				userNameRecognizerErrorMessage += "A UserName character may only contain the characters A-Z, a-z, 0-9.\n";
-				return userNameRecognizerErrorMessage;
-			} else {
-				// UserName is valid
-				userNameRecognizerIndexofError = -1;
-				userNameRecognizerErrorMessage = "";
-				return userNameRecognizerErrorMessage;
-			}
-
-		case 2:
-			// State 2 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage += "A UserName character after a hyphen, underscore, or period must be A-Z, a-z, 0-9.\n";
-			return userNameRecognizerErrorMessage;
-
+		case START:
+			return new Result(Error.START, ndx);
+		case NAME:
+			if (size < MIN_LENGTH)
+				return new Result(Error.TOO_SHORT, ndx);
+			if (size > MAX_LENGTH)
+				return new Result(Error.TOO_LONG, ndx);
+			if (ndx < length)
+				return new Result(Error.INVALID_CHARACTER, ndx);
+			return VALID;
 		default:
-			// This is for the case where we have a state that is outside of the valid
-			// range.
-			// This should not happen
-			return "";
+			return new Result(Error.AFTER_SEPARATOR, ndx);
 		}
 	}
+
+	/**
+	 * Recognizes many UserNames in parallel.
+	 *
+	 * @param inputs UserNames to recognize
+	 * @return One result per UserName, in the same order
+	 */
+	public static List<Result> recognizeAll(List<? extends CharSequence> inputs) {
+		return inputs.parallelStream().map(UserNameRecognizer::recognize).toList();
+	}
+
+	/**
+	 * Checks a UserName.
+	 *
+	 * @param input The input string for the Finite State Machine
+	 * @return An output string that is empty if every things is okay or it is a
+	 *         String with a helpful description of the error
+	 */
+	public static String checkForValidUserName(String input) {
+		return recognize(input).getMessage();
+	}
 }
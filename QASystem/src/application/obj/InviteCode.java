@@ -1,5 +1,8 @@
 package application.obj;
 
+import java.time.LocalDateTime;
+
+import application.UserRole;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 
@@ -7,10 +10,29 @@ public class InviteCode {
 
 	private final SimpleStringProperty code;
 	private final SimpleBooleanProperty used;
+	private final UserRole role;
+	private final LocalDateTime expiresAt;
 
-	public InviteCode(String code, boolean hasBeenUsed) {
+	/**
+	 * Constructs an invitation code.
+	 *
+	 * @param code        The code itself
+	 * @param hasBeenUsed Whether the code has been redeemed
+	 * @param role        Role given to the account created with the code
+	 * @param expiresAt   Time after which the code can no longer be redeemed
+	 */
+	public InviteCode(String code, boolean hasBeenUsed, UserRole role, LocalDateTime expiresAt) {
 		this.code = new SimpleStringProperty(code);
 		this.used = new SimpleBooleanProperty(hasBeenUsed);
+		this.role = role;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * Constructs a student invitation code that does not expire.
+	 */
+	public InviteCode(String code, boolean hasBeenUsed) {
+		this(code, hasBeenUsed, UserRole.STUDENT, null);
 	}
 
 	public String getCode() {
@@ -28,4 +50,20 @@ public class InviteCode {
 	public SimpleBooleanProperty getUsedProperty() {
 		return this.used;
 	}
+
+	public UserRole getRole() {
+		return this.role;
+	}
+
+	/**
+	 * @return Time after which the code can no longer be redeemed, or null if it
+	 *         does not expire
+	 */
+	public LocalDateTime getExpiresAt() {
+		return this.expiresAt;
+	}
+
+	public boolean isExpired() {
+		return this.expiresAt != null && !LocalDateTime.now().isBefore(this.expiresAt);
+	}
 }
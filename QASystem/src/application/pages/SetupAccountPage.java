@@ -167,12 +167,12 @@ public class SetupAccountPage {
 			// Check if the user already exists
 			if (!database.doesUserExist(userName)) {
 
-				// Validate the invitation code
-				if (database.validateInvitationCode(code)) {
+				// Redeem the invitation code, which decides the new user's role
+				UserRole role = StartCSE360.getInviteCodeManager().redeem(code);
+				if (role != null) {
 
 					// Create a new user and register them in the database
-					User user = this.database.createUser(userName, password, firstName, lastName, email,
-							UserRole.STUDENT);
+					User user = this.database.createUser(userName, password, firstName, lastName, email, role);
 					StartCSE360.setCurrentUser(user);
 
 					// Navigate user to welcome page
@@ -1,15 +1,23 @@
 package application.pages.admin;
 
+import application.RosterImporter;
 import application.StartCSE360;
 import application.User;
 import application.UserRole;
+import application.util.LogUtil;
+import databasePart1.PooledConnection;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
@@ -25,6 +33,7 @@ import javafx.collections.FXCollections;
 public class AdminHomePage {
 
 	private Button updateButton = new Button("Update Roles");
+	private Button importButton = new Button("Import Users");
 
 	/**
 	 * Displays the admin page in the provided primary stage.
@@ -48,7 +57,10 @@ public class AdminHomePage {
 		updateButton.setOnAction(e -> {
 			updateDatabaseRoles(userTable);
 		});
-		layout.getChildren().addAll(adminLabel, updateButton, userTable);
+		importButton.setOnAction(e -> {
+			importRoster(primaryStage);
+		});
+		layout.getChildren().addAll(adminLabel, importButton, updateButton, userTable);
 		Scene adminScene = new Scene(layout, 800, 400);
 
 		// Set the scene to primary stage
@@ -75,7 +87,7 @@ public class AdminHomePage {
 			User user = event.getRowValue();
 			UserRole newRole = event.getNewValue();
 			user.setRole(newRole);
-			System.out.println("Updated role for " + user.getUserName() + " to " + newRole);
+			LogUtil.info("Updated role for " + user.getUserName() + " to " + newRole);
 		});
 
 		// Update Role styling and behavior
@@ -118,7 +130,9 @@ public class AdminHomePage {
 
 		// Fetch Users from database and add them to table
 		String query = "SELECT * FROM cse360users";
-		try (ResultSet rs = StartCSE360.getDatabaseHelper().getStatement().executeQuery(query)) {
+		try (PooledConnection conn = StartCSE360.getDatabaseHelper().borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 			while (rs.next()) {
 				String userName = rs.getString("userName");
 				String password = rs.getString("password");
@@ -134,6 +148,61 @@ public class AdminHomePage {
 		}
 	}
 
+	/**
+	 * Lets the admin pick a roster file and creates its accounts in the
+	 * background, then shows how many were created and which rows were skipped.
+	 * 
+	 * @param primaryStage Stage to show the file chooser over
+	 */
+	private void importRoster(Stage primaryStage) {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Import Users");
+		chooser.getExtensionFilters()
+				.addAll(new FileChooser.ExtensionFilter("Roster files", "*.csv", "*.ndjson", "*.jsonl"));
+		File file = chooser.showOpenDialog(primaryStage);
+		if (file == null)
+			return;
+
+		importButton.setDisable(true);
+		Thread worker = new Thread(() -> {
+			RosterImporter importer = new RosterImporter(StartCSE360.getDatabaseHelper(), UserRole.STUDENT);
+			try {
+				RosterImporter.Report report = importer.importFile(file.toPath());
+				Platform.runLater(() -> showImportReport(primaryStage, report));
+			} catch (IOException | IllegalArgumentException e) {
+				Platform.runLater(() -> {
+					importButton.setDisable(false);
+					new Alert(Alert.AlertType.ERROR, "Could not import " + file.getName() + ": " + e.getMessage())
+							.showAndWait();
+				});
+			}
+		}, "roster-import");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Summarizes an import, listing every skipped row in the expandable details,
+	 * and then reloads the page so the new users appear.
+	 */
+	private void showImportReport(Stage primaryStage, RosterImporter.Report report) {
+		Alert alert = new Alert(Alert.AlertType.INFORMATION);
+		alert.setTitle("Import Users");
+		alert.setHeaderText("Imported " + report.getImported() + " of " + report.getRows() + " user(s).");
+		if (!report.getErrors().isEmpty()) {
+			StringBuilder sb = new StringBuilder();
+			for (RosterImporter.RowError error : report.getErrors())
+				sb.append(error).append('\n');
+			TextArea details = new TextArea(sb.toString());
+			details.setEditable(false);
+			alert.setContentText(report.getErrors().size() + " row(s) were skipped; see the details.");
+			alert.getDialogPane().setExpandableContent(details);
+		}
+		alert.showAndWait();
+		importButton.setDisable(false);
+		show(primaryStage);
+	}
+
 	/**
 	 * Given a {@link TableView} with {@link User} as its generic object, this
 	 * pushes the selected roles for the users in the TableView to the local H2
@@ -1,18 +1,31 @@
 package application.pages.admin;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
 import application.StartCSE360;
+import application.InviteCodeManager;
 import application.User;
+import application.UserRole;
 import application.obj.InviteCode;
 import application.pages.WelcomeLoginPage;
 import databasePart1.DatabaseHelper;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 /**
@@ -57,9 +70,17 @@ public class AdminInvitationPage {
 		header1.getStyleClass().add("header-main");
 
 		// A sub-header
-		Label header2 = new Label("Each code generated can only be used once! Don't forget them.");
+		Label header2 = new Label("Each code generated can only be used once and expires after "
+				+ InviteCodeManager.DEFAULT_VALIDITY.toDays() + " days! Don't forget them.");
 		header2.getStyleClass().add("header-sub");
 
+		// Role given to accounts created with the generated codes
+		ComboBox<UserRole> roleBox = new ComboBox<>();
+		roleBox.getItems().addAll(UserRole.STUDENT, UserRole.REVIEWER, UserRole.INSTRUCTOR, UserRole.STAFF);
+		roleBox.setValue(UserRole.STUDENT);
+		HBox roleRow = new HBox(10, new Label("Role:"), roleBox);
+		roleRow.setAlignment(Pos.CENTER);
+
 		// Button to generate the invitation code
 		Button makeCodeButton = new Button("Generate invitation code");
 		makeCodeButton.getStyleClass().add("action-button");
@@ -71,13 +92,65 @@ public class AdminInvitationPage {
 		// Logic for the button to generate invitation codes
 		makeCodeButton.setOnAction(_ -> {
 			// Generate the invitation code using the databaseHelper and set it to the label
-			InviteCode invCode = StartCSE360.getInviteCodeManager().createInviteCode();
-			inviteCodeLabel.setText(invCode.getCode());
+			InviteCode invCode = StartCSE360.getInviteCodeManager().createInviteCode(roleBox.getValue());
+			inviteCodeLabel.setText(invCode == null ? "Could not generate a code." : invCode.getCode());
+		});
+
+		// Many codes at once, e.g. one per seat of a lecture, saved to a file
+		TextField countField = new TextField("100");
+		countField.setPrefColumnCount(6);
+		Button makeBatchButton = new Button("Generate batch and export");
+		makeBatchButton.getStyleClass().add("action-button");
+		makeBatchButton.setOnAction(_ -> {
+			int count;
+			try {
+				count = Integer.parseInt(countField.getText().trim());
+			} catch (NumberFormatException e) {
+				inviteCodeLabel.setText("Enter the number of codes to generate.");
+				return;
+			}
+			if (count <= 0) {
+				inviteCodeLabel.setText("Enter the number of codes to generate.");
+				return;
+			}
+			long maxCount = InviteCodeManager.maxBatchSize(InviteCodeManager.DEFAULT_CODE_LENGTH);
+			if (count > maxCount) {
+				inviteCodeLabel.setText("At most " + maxCount + " codes can be generated at once.");
+				return;
+			}
+			FileChooser chooser = new FileChooser();
+			chooser.setTitle("Export Invitation Codes");
+			chooser.setInitialFileName("invitation-codes.txt");
+			File file = chooser.showSaveDialog(primaryStage);
+			if (file == null)
+				return;
+
+			// Large batches take a while to draw and insert, so keep them off the FX thread
+			UserRole role = roleBox.getValue();
+			makeBatchButton.setDisable(true);
+			inviteCodeLabel.setText("Generating " + count + " codes...");
+			Thread worker = new Thread(() -> {
+				String result;
+				try {
+					result = exportBatch(count, role, file);
+				} catch (IllegalArgumentException e) {
+					result = "Could not generate the codes: " + e.getMessage();
+				}
+				String message = result;
+				Platform.runLater(() -> {
+					makeBatchButton.setDisable(false);
+					inviteCodeLabel.setText(message);
+				});
+			}, "invite-batch");
+			worker.setDaemon(true);
+			worker.start();
 		});
+		HBox batchRow = new HBox(10, new Label("Number of codes:"), countField, makeBatchButton);
+		batchRow.setAlignment(Pos.CENTER);
 
 		// Container for the main content
 		VBox mainContent = new VBox(10);
-		mainContent.getChildren().addAll(header1, header2, makeCodeButton, inviteCodeLabel);
+		mainContent.getChildren().addAll(header1, header2, roleRow, makeCodeButton, batchRow, inviteCodeLabel);
 		mainContent.setAlignment(Pos.CENTER);
 		mainContent.setPrefSize(800, 600);
 
@@ -94,4 +167,31 @@ public class AdminInvitationPage {
 		primaryStage.setScene(scene);
 		primaryStage.show();
 	}
+
+	/**
+	 * Generates a batch of codes and writes them to a file, one per line. Runs on a
+	 * worker thread.
+	 *
+	 * @param count Number of codes to generate
+	 * @param role  Role given to accounts created with the codes
+	 * @param file  File to write the codes to
+	 * @return Message describing the outcome, to show to the admin
+	 */
+	private static String exportBatch(int count, UserRole role, File file) {
+		List<InviteCode> codes = StartCSE360.getInviteCodeManager().generateBatch(count,
+				InviteCodeManager.DEFAULT_CODE_LENGTH, role, InviteCodeManager.DEFAULT_VALIDITY);
+		if (codes.isEmpty())
+			return "Could not generate the codes.";
+		List<String> lines = new ArrayList<>(codes.size());
+		for (InviteCode invCode : codes)
+			lines.add(invCode.getCode());
+		try {
+			Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+			return "Saved " + codes.size() + " codes to " + file.getName();
+		} catch (IOException e) {
+			System.err.println("Failed to export invitation codes.");
+			e.printStackTrace();
+			return "Generated " + codes.size() + " codes, but could not save them.";
+		}
+	}
 }
\ No newline at end of file
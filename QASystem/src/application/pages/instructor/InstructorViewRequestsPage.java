@@ -1,14 +1,15 @@
 package application.pages.instructor;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 
 import application.StartCSE360;
 import application.User;
 import application.pages.UserReviewsPage;
 import application.util.LogUtil;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -122,8 +123,9 @@ public class InstructorViewRequestsPage {
 		userTable.getItems().clear();
 
 		String fetchPending = "SELECT * FROM PendingReviewers";
-		try (Statement stmt = StartCSE360.getDatabaseHelper().getConnection().createStatement();
-				ResultSet rs = stmt.executeQuery(fetchPending)) {
+		try (PooledConnection conn = StartCSE360.getDatabaseHelper().borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(fetchPending);
+				ResultSet rs = stmt.executeQuery()) {
 			while (rs.next()) {
 				String userName = rs.getString("userName");
 
@@ -131,11 +133,11 @@ public class InstructorViewRequestsPage {
 				if (user != null) {
 					userTable.getItems().add(user);
 				} else {
-					System.out.println("Skipping null user fetched for username: " + userName);
+					LogUtil.error("Skipping null user fetched for username: " + userName);
 				}
 			}
 
-			System.out.println("Loaded PendingReviewers into table.");
+			LogUtil.debug("Loaded PendingReviewers into table.");
 		} catch (SQLException e) {
 			System.err.println("Failed to fetch from PendingReviewers.");
 			e.printStackTrace();
@@ -211,7 +213,7 @@ public class InstructorViewRequestsPage {
 						return;
 					StartCSE360.getDatabaseHelper().approvePendingReviewer(user.getUserName());
 					removeUserFromTable(user.getUserName(), userTable);
-					System.out.println("Accepted: " + user.getUserName());
+					LogUtil.info("Accepted: " + user.getUserName());
 				});
 
 				rejectBtn.setOnAction(_ -> {
@@ -220,7 +222,7 @@ public class InstructorViewRequestsPage {
 						return;
 					StartCSE360.getDatabaseHelper().removeFromPendingReviewers(user.getUserName());
 					removeUserFromTable(user.getUserName(), userTable);
-					System.out.println("Rejected: " + user.getUserName());
+					LogUtil.info("Rejected: " + user.getUserName());
 				});
 
 				buttonBox.setAlignment(Pos.CENTER);
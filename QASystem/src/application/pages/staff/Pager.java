@@ -0,0 +1,107 @@
+package application.pages.staff;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import application.util.Page;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.layout.HBox;
+
+/**
+ * Previous and next buttons that step a table through a manager's
+ * keyset-paginated {@code page} method. The rows of the current page are kept
+ * in {@link #getItems()}, and the afterId of each earlier page is remembered so
+ * that Previous can go back.
+ *
+ * <pre>
+ * Pager&lt;Answer&gt; pager = new Pager&lt;&gt;(answerManager::page, 50, Page.Sort.OLDEST_FIRST);
+ * tableView.setItems(pager.getItems());
+ * pager.firstPage();
+ * </pre>
+ *
+ * @param <T> Type of row being paged through
+ */
+public class Pager<T> {
+
+	/**
+	 * Fetches one page of rows; matches the signature of the managers'
+	 * {@code page} methods.
+	 *
+	 * @param <T> Type of row on the page
+	 */
+	@FunctionalInterface
+	public interface Source<T> {
+		Page<T> page(int afterId, int limit, Page.Sort sort);
+	}
+
+	private final Source<T> source;
+	private final int pageSize;
+	private final Page.Sort sort;
+
+	// Keyset paging state; pageStarts holds the afterId of each earlier page
+	private final ObservableList<T> items = FXCollections.observableArrayList();
+	private final Deque<Integer> pageStarts = new ArrayDeque<>();
+	private final Button previousButton = new Button("← Previous");
+	private final Button nextButton = new Button("Next →");
+	private final HBox controls = new HBox(10, this.previousButton, this.nextButton);
+	private int currentStart = 0;
+	private Page<T> currentPage;
+
+	/**
+	 * Creates a pager. No rows are fetched until {@link #firstPage()} is called.
+	 *
+	 * @param source   Method that fetches a page of rows
+	 * @param pageSize Number of rows on each page
+	 * @param sort     Order to page through the rows in
+	 */
+	public Pager(Source<T> source, int pageSize, Page.Sort sort) {
+		this.source = source;
+		this.pageSize = pageSize;
+		this.sort = sort;
+
+		this.previousButton.setOnAction(_ -> this.loadPage(this.pageStarts.pop()));
+		this.nextButton.setOnAction(_ -> {
+			this.pageStarts.push(this.currentStart);
+			this.loadPage(this.currentPage.getNextAfterId());
+		});
+		this.controls.setAlignment(Pos.CENTER);
+	}
+
+	/**
+	 * @return Rows of the current page, to be shown in a table
+	 */
+	public ObservableList<T> getItems() {
+		return this.items;
+	}
+
+	/**
+	 * @return Row holding the previous and next buttons
+	 */
+	public HBox getControls() {
+		return this.controls;
+	}
+
+	/**
+	 * Goes back to the first page, forgetting any pages already visited.
+	 */
+	public void firstPage() {
+		this.pageStarts.clear();
+		this.loadPage(0);
+	}
+
+	/**
+	 * Replaces the rows with the page that follows the given ID.
+	 *
+	 * @param afterId ID of the last row on the previous page, or 0
+	 */
+	private void loadPage(int afterId) {
+		this.currentStart = afterId;
+		this.currentPage = this.source.page(afterId, this.pageSize, this.sort);
+		this.items.setAll(this.currentPage.getItems());
+		this.previousButton.setDisable(this.pageStarts.isEmpty());
+		this.nextButton.setDisable(!this.currentPage.hasMore());
+	}
+}
@@ -82,6 +82,9 @@ public class StaffHomePage {
 		Button inviteCodesPageBtn = new Button("Invitation Codes");
 		inviteCodesPageBtn.getStyleClass().add("action-button");
 
+		Button duplicatesPageBtn = new Button("Duplicate Questions");
+		duplicatesPageBtn.getStyleClass().add("action-button");
+
 		// Logic for users page button
 		usersPageBtn.setOnAction(_ -> {
 			StaffViewUsersPage target = new StaffViewUsersPage(this.database, this.user);
@@ -118,9 +121,15 @@ public class StaffHomePage {
 			target.show(primaryStage);
 		});
 
+		// Logic for duplicate questions button
+		duplicatesPageBtn.setOnAction(_ -> {
+			StaffViewDuplicatesPage target = new StaffViewDuplicatesPage(this.database, this.user);
+			target.show(primaryStage);
+		});
+
 		// Container for center row
 		VBox centerRow = new VBox(5, usersPageBtn, questionsPageBtn, answersPageBtn, reviewsPageBtn, reviewReqsPageBtn,
-				inviteCodesPageBtn);
+				inviteCodesPageBtn, duplicatesPageBtn);
 		centerRow.getStyleClass().add("background");
 		centerRow.setAlignment(Pos.CENTER);
 
@@ -5,9 +5,8 @@ import application.User;
 import application.UserRole;
 import application.obj.Answer;
 import application.util.LogUtil;
+import application.util.Page;
 import databasePart1.DatabaseHelper;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -26,9 +25,14 @@ import javafx.stage.Stage;
  */
 public class StaffViewAnswersPage {
 
+	private static final int PAGE_SIZE = 50;
+
 	private final DatabaseHelper database;
 	private final User user;
 
+	private final Pager<Answer> pager = new Pager<>(StartCSE360.getAnswerManager()::page, PAGE_SIZE,
+			Page.Sort.OLDEST_FIRST);
+
 	public StaffViewAnswersPage(DatabaseHelper helper, User user) {
 		this.database = helper;
 		this.user = user;
@@ -82,15 +86,12 @@ public class StaffViewAnswersPage {
 		// Add the columns to the table
 		tableView.getColumns().addAll(idCol, userNameCol, creationDateCol, contentCol);
 
-		// Populate the table
-		ObservableList<Answer> data = FXCollections.observableArrayList();
-		for (Answer a : StartCSE360.getAnswerManager().getAnswerSet()) {
-			data.add(a);
-		}
-		tableView.setItems(data);
+		// Populate the table with the first page only
+		tableView.setItems(this.pager.getItems());
+		this.pager.firstPage();
 
 		// Container for the center row
-		VBox centerRow = new VBox(5, header1, header2, tableView);
+		VBox centerRow = new VBox(5, header1, header2, tableView, this.pager.getControls());
 		centerRow.getStyleClass().add("background");
 		centerRow.setAlignment(Pos.CENTER);
 
@@ -0,0 +1,153 @@
+package application.pages.staff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import application.QuestionManager;
+import application.StartCSE360;
+import application.User;
+import application.UserRole;
+import application.obj.Question;
+import application.util.LogUtil;
+import databasePart1.DatabaseHelper;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Allows {@link User}s whose role is {@link UserRole#STAFF} to find groups of
+ * near-duplicate questions so they can be merged.
+ */
+public class StaffViewDuplicatesPage {
+
+	// Lowest similarity for two questions to be listed as duplicates
+	private static final double MIN_SIMILARITY = 0.8;
+
+	private final DatabaseHelper database;
+	private final User user;
+
+	private final ObservableList<String> data = FXCollections.observableArrayList();
+	private final Label status = new Label();
+
+	public StaffViewDuplicatesPage(DatabaseHelper helper, User user) {
+		this.database = helper;
+		this.user = user;
+	}
+
+	public void show(Stage primaryStage) {
+		// Back button
+		Button backButton = new Button("← Back");
+		backButton.getStyleClass().add("back-button");
+
+		// Back button logic
+		backButton.setOnAction(_ -> {
+			StaffHomePage target = new StaffHomePage(this.database, this.user);
+			target.show(primaryStage);
+		});
+
+		// Container for the back button
+		HBox backButtonBox = new HBox(backButton);
+		backButtonBox.setAlignment(Pos.CENTER_LEFT);
+		backButtonBox.setPadding(new Insets(10, 10, 0, 10));
+		backButtonBox.getStyleClass().add("background");
+
+		// A basic header
+		Label header1 = new Label("Duplicate Questions");
+		header1.getStyleClass().add("header-main");
+
+		// Sub header
+		Label header2 = new Label("Groups of questions whose text is at least " + (int) (MIN_SIMILARITY * 100)
+				+ "% similar.");
+		header2.getStyleClass().add("header-sub");
+
+		// One entry per cluster
+		ListView<String> listView = new ListView<>(this.data);
+
+		// Clustering runs in the background so the page stays responsive
+		Button findButton = new Button("Find duplicates");
+		findButton.getStyleClass().add("action-button");
+		findButton.setOnAction(_ -> {
+			findButton.setDisable(true);
+			this.status.setText("Searching...");
+			List<Question> snapshot = new ArrayList<>(StartCSE360.getQuestionManager().getQuestionSet());
+			Thread worker = new Thread(() -> {
+				try {
+					long start = System.currentTimeMillis();
+					List<List<Question>> clusters = QuestionManager.clusterDuplicates(snapshot, MIN_SIMILARITY);
+					long elapsed = System.currentTimeMillis() - start;
+					Platform.runLater(() -> {
+						this.showClusters(clusters);
+						this.status.setText(clusters.size() + " group(s) found among " + snapshot.size()
+								+ " questions in " + elapsed + " ms.");
+					});
+				} catch (RuntimeException e) {
+					LogUtil.error("Failed to find duplicate questions: " + e);
+					Platform.runLater(() -> this.status.setText("Search failed: " + e.getMessage()));
+				} finally {
+					// Always let the user try again
+					Platform.runLater(() -> findButton.setDisable(false));
+				}
+			}, "duplicate-clustering");
+			worker.setDaemon(true);
+			worker.start();
+		});
+		HBox actionRow = new HBox(10, findButton, this.status);
+		actionRow.setAlignment(Pos.CENTER);
+
+		// Container for the center row
+		VBox centerRow = new VBox(5, header1, header2, actionRow, listView);
+		centerRow.getStyleClass().add("background");
+		centerRow.setAlignment(Pos.CENTER);
+
+		// Disclaimer
+		Label disclaimer = new Label("For educational purposes only.");
+		disclaimer.getStyleClass().add("disclaimer");
+
+		// Container for the bottom row
+		VBox bottomRow = new VBox(5, disclaimer);
+		bottomRow.getStyleClass().add("background");
+		bottomRow.setAlignment(Pos.CENTER);
+
+		// Root container
+		BorderPane root = new BorderPane();
+		root.setTop(backButtonBox);
+		root.setCenter(centerRow);
+		root.setBottom(bottomRow);
+		root.getStyleClass().add("background");
+		root.setPrefSize(800, 600);
+
+		// Finalize scene and stage
+		Scene scene = new Scene(root);
+		scene.getStylesheets().add(this.getClass().getResource("/styles.css").toExternalForm());
+		primaryStage.setScene(scene);
+		primaryStage.setTitle("Question/Answer System - Staff Duplicates Viewer");
+		primaryStage.show();
+		LogUtil.debug("Displayed " + this.getClass().getName());
+	}
+
+	/**
+	 * Replaces the list with one entry per cluster, naming each question by ID,
+	 * author and title.
+	 */
+	private void showClusters(List<List<Question>> clusters) {
+		List<String> rows = new ArrayList<>(clusters.size());
+		for (List<Question> cluster : clusters) {
+			StringBuilder sb = new StringBuilder(cluster.size() + " questions:");
+			for (Question q : cluster)
+				sb.append("\n  #").append(q.getId()).append(" by ").append(q.getUserName()).append(": ")
+						.append(q.getTitle());
+			rows.add(sb.toString());
+		}
+		this.data.setAll(rows);
+	}
+}
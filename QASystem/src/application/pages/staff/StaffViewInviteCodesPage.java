@@ -1,5 +1,7 @@
 package application.pages.staff;
 
+import java.time.LocalDateTime;
+
 import application.StartCSE360;
 import application.User;
 import application.UserRole;
@@ -78,13 +80,22 @@ public class StaffViewInviteCodesPage {
 		// Show the "used" column as checkboxes
 		usedCol.setCellFactory(CheckBoxTableCell.forTableColumn(usedCol));
 
+		// Column for the role an account created with the code is given
+		TableColumn<InviteCode, UserRole> roleCol = new TableColumn<>("Role");
+		roleCol.setCellValueFactory(new PropertyValueFactory<>("role"));
+
+		// Column for when the code stops being redeemable
+		TableColumn<InviteCode, LocalDateTime> expiresCol = new TableColumn<>("Expires");
+		expiresCol.setCellValueFactory(new PropertyValueFactory<>("expiresAt"));
+
+		// Expired and used codes are removed by InviteCodeSweeper, so this stays short
 		// TODO: Populate table
 		ObservableList<InviteCode> data = FXCollections.observableArrayList();
 		for (InviteCode ic : StartCSE360.getInviteCodeManager().getInviteCodes()) {
 			data.add(ic);
 		}
 
-		tableView.getColumns().addAll(codeCol, usedCol);
+		tableView.getColumns().addAll(codeCol, usedCol, roleCol, expiresCol);
 		tableView.setItems(data);
 
 		// Container for the center row
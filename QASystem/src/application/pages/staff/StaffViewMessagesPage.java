@@ -5,9 +5,8 @@ import application.User;
 import application.UserRole;
 import application.obj.Message;
 import application.util.LogUtil;
+import application.util.Page;
 import databasePart1.DatabaseHelper;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -28,9 +27,14 @@ import javafx.stage.Stage;
  */
 public class StaffViewMessagesPage {
 
+	private static final int PAGE_SIZE = 50;
+
 	private final DatabaseHelper database;
 	private final User user;
 
+	private final Pager<Message> pager = new Pager<>(StartCSE360.getMessageManager()::page, PAGE_SIZE,
+			Page.Sort.OLDEST_FIRST);
+
 	public StaffViewMessagesPage(DatabaseHelper helper, User user) {
 		this.database = helper;
 		this.user = user;
@@ -93,15 +97,12 @@ public class StaffViewMessagesPage {
 		// Add the columns to the table
 		tableView.getColumns().addAll(idCol, userNameCol, recipientCol, contentCol, sentTimeCol, isReadCol);
 
-		// Populate the table
-		ObservableList<Message> data = FXCollections.observableArrayList();
-		for (Message m : StartCSE360.getMessageManager().getMessageSet()) {
-			data.add(m);
-		}
-		tableView.setItems(data);
+		// Populate the table with the first page only
+		tableView.setItems(this.pager.getItems());
+		this.pager.firstPage();
 
 		// Container for the center row
-		VBox centerRow = new VBox(5, header1, header2, tableView);
+		VBox centerRow = new VBox(5, header1, header2, tableView, this.pager.getControls());
 		centerRow.getStyleClass().add("background");
 		centerRow.setAlignment(Pos.CENTER);
 
@@ -5,9 +5,8 @@ import application.User;
 import application.UserRole;
 import application.obj.Question;
 import application.util.LogUtil;
+import application.util.Page;
 import databasePart1.DatabaseHelper;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -27,9 +26,14 @@ import javafx.stage.Stage;
  */
 public class StaffViewQuestionsPage {
 
+	private static final int PAGE_SIZE = 50;
+
 	private final DatabaseHelper database;
 	private final User user;
 
+	private final Pager<Question> pager = new Pager<>(StartCSE360.getQuestionManager()::page, PAGE_SIZE,
+			Page.Sort.OLDEST_FIRST);
+
 	public StaffViewQuestionsPage(DatabaseHelper helper, User user) {
 		this.database = helper;
 		this.user = user;
@@ -96,15 +100,12 @@ public class StaffViewQuestionsPage {
 		// Add columns to the table
 		tableView.getColumns().addAll(idCol, userNameCol, creationDateCol, titleCol, contentCol, answersCol, tagsCol);
 
-		// Populate table
-		ObservableList<Question> data = FXCollections.observableArrayList();
-		for (Question q : StartCSE360.getQuestionManager().getQuestionSet()) {
-			data.add(q);
-		}
-		tableView.setItems(data);
+		// Populate table with the first page only
+		tableView.setItems(this.pager.getItems());
+		this.pager.firstPage();
 
 		// Container for the center row
-		VBox centerRow = new VBox(5, header1, header2, tableView);
+		VBox centerRow = new VBox(5, header1, header2, tableView, this.pager.getControls());
 		centerRow.getStyleClass().add("background");
 		centerRow.setAlignment(Pos.CENTER);
 
@@ -1,14 +1,15 @@
 package application.pages.staff;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 
 import application.StartCSE360;
 import application.User;
 import application.UserRole;
 import application.util.LogUtil;
 import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -84,8 +85,9 @@ public class StaffViewReviewRequestsPage {
 		ObservableList<User> data = FXCollections.observableArrayList();
 
 		String fetchPending = "SELECT * FROM PendingReviewers";
-		try (Statement stmt = StartCSE360.getDatabaseHelper().getConnection().createStatement();
-				ResultSet rs = stmt.executeQuery(fetchPending)) {
+		try (PooledConnection conn = StartCSE360.getDatabaseHelper().borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(fetchPending);
+				ResultSet rs = stmt.executeQuery()) {
 			while (rs.next()) {
 				String userName = rs.getString("userName");
 				User user = StartCSE360.getDatabaseHelper().fetchUser(userName);
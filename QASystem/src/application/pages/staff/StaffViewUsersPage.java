@@ -4,9 +4,8 @@ import application.StartCSE360;
 import application.User;
 import application.UserRole;
 import application.util.LogUtil;
+import application.util.Page;
 import databasePart1.DatabaseHelper;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -26,9 +25,14 @@ import javafx.stage.Stage;
  */
 public class StaffViewUsersPage {
 
+	private static final int PAGE_SIZE = 50;
+
 	private final DatabaseHelper database;
 	private final User user;
 
+	private final Pager<User> pager = new Pager<>(StartCSE360.getUserManager()::page, PAGE_SIZE,
+			Page.Sort.OLDEST_FIRST);
+
 	public StaffViewUsersPage(DatabaseHelper helper, User user) {
 		this.database = helper;
 		this.user = user;
@@ -90,15 +94,12 @@ public class StaffViewUsersPage {
 		// Add the columns to the table
 		tableView.getColumns().addAll(userNameCol, passwordCol, firstNameCol, lastNameCol, emailCol, roleCol);
 
-		// Populate the table
-		ObservableList<User> data = FXCollections.observableArrayList();
-		for (User u : StartCSE360.getUserManager().getUserSet()) {
-			data.add(u);
-		}
-		tableView.setItems(data);
+		// Populate the table with the first page only
+		tableView.setItems(this.pager.getItems());
+		this.pager.firstPage();
 
 		// Container for the center row
-		VBox centerRow = new VBox(5, header1, header2, tableView);
+		VBox centerRow = new VBox(5, header1, header2, tableView, this.pager.getControls());
 		centerRow.getStyleClass().add("background");
 		centerRow.setAlignment(Pos.CENTER);
 
@@ -2,9 +2,11 @@ package application.pages.student;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
+import application.QuestionManager;
 import application.StartCSE360;
 import application.User;
 import application.UserRole;
@@ -12,22 +14,38 @@ import application.obj.Question;
 import application.pages.reviewer.ReviewManagementPage;
 import application.pages.reviewer.ReviewerMessagingPage;
 import application.pages.reviewer.ReviewerProfilePage;
+import application.search.SearchHit;
+import application.search.TitleIndex;
+import application.search.TypeAheadSuggester;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ContentDisplay;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.Separator;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 
 public class StudentHomePage {
 
+	// Most questions shown for a search
+	private static final int SEARCH_LIMIT = 50;
+	// Most similar questions suggested while typing a title
+	private static final int SUGGESTION_LIMIT = 5;
+	// Shortest title worth looking up
+	private static final int MIN_SUGGESTION_LENGTH = 3;
+
 	public void show(Stage primaryStage) {
 		showScene(primaryStage);
 	}
@@ -78,7 +96,7 @@ public class StudentHomePage {
 		populateQuestions(questionsBox, StartCSE360.getQuestionManager().getQuestionSet(), primaryStage);
 
 		TextField searchField = new TextField();
-		searchField.setPromptText("Search...");
+		searchField.setPromptText("Search... (e.g. tag:java unanswered \"exact phrase\")");
 		searchField.textProperty().addListener((obs, oldVal, newVal) -> {
 			if (newVal.isEmpty())
 				populateQuestions(questionsBox, StartCSE360.getQuestionManager().getQuestionSet(), primaryStage);
@@ -87,15 +105,18 @@ public class StudentHomePage {
 		Button searchButton = new Button("Search");
 		searchButton.setOnAction(e -> {
 			String input = searchField.getText();
-			Set<Question> questions = new HashSet<>();
-			if (!input.isEmpty()) {
-				for (String word : input.trim().split("\\s+")) {
-					questions.addAll(StartCSE360.getQuestionManager().searchByTag(word));
+			if (!input.isBlank()) {
+				// Filters like tag:java narrow the results; any other text ranks them by relevance
+				try {
+					Map<Question, SearchHit> results = StartCSE360.getQuestionManager().searchQuestions(input,
+							SEARCH_LIMIT);
+					populateSearchResults(questionsBox, results, primaryStage);
+				} catch (IllegalArgumentException ex) {
+					showAlert("Search", ex.getMessage());
 				}
 			} else {
-				questions = StartCSE360.getQuestionManager().getQuestionSet();
+				populateQuestions(questionsBox, StartCSE360.getQuestionManager().getQuestionSet(), primaryStage);
 			}
-			populateQuestions(questionsBox, questions, primaryStage);
 		});
 
 		HBox searchBox = new HBox(10, searchField, searchButton);
@@ -109,6 +130,19 @@ public class StudentHomePage {
 		Label titleLabel = new Label("Title:");
 		TextArea titleTextArea = new TextArea();
 		titleTextArea.setPrefHeight(2);
+
+		// Similar questions already asked, updated as the title is typed
+		VBox suggestionsBox = new VBox(3);
+		TypeAheadSuggester suggester = new TypeAheadSuggester(StartCSE360.getQuestionManager().getTitleIndex(),
+				SUGGESTION_LIMIT, Platform::runLater);
+		titleTextArea.textProperty().addListener((obs, oldVal, newVal) -> {
+			if (newVal.trim().length() < MIN_SUGGESTION_LENGTH) {
+				suggester.cancel();
+				suggestionsBox.getChildren().clear();
+				return;
+			}
+			suggester.request(newVal, matches -> showSuggestions(suggestionsBox, matches, primaryStage));
+		});
 		Label bodyLabel = new Label("Body:");
 		TextArea bodyTextArea = new TextArea();
 		Button postButton = new Button("Post question");
@@ -116,8 +150,10 @@ public class StudentHomePage {
 			Question question = StartCSE360.getQuestionManager().createNewQuestion(currentUser.getUserName(),
 					LocalDateTime.now(), titleTextArea.getText(), bodyTextArea.getText(), new ArrayList<>());
 			addQuestionLabel(questionsBox, question, primaryStage);
+			suggester.cancel();
+			suggestionsBox.getChildren().clear();
 		});
-		postBox.getChildren().addAll(titleLabel, titleTextArea, bodyLabel, bodyTextArea, postButton);
+		postBox.getChildren().addAll(titleLabel, titleTextArea, suggestionsBox, bodyLabel, bodyTextArea, postButton);
 
 		// Request Reviewer HBox
 		HBox requestReviewerHBox = new HBox(10);
@@ -153,6 +189,10 @@ public class StudentHomePage {
 	}
 
 	private void addQuestionLabel(VBox questionsBox, Question question, Stage primaryStage) {
+		addQuestionLabel(questionsBox, question, null, primaryStage);
+	}
+
+	private void addQuestionLabel(VBox questionsBox, Question question, SearchHit hit, Stage primaryStage) {
 		Label questionLabel = new Label(question.getTitle());
 		questionLabel.setWrapText(true);
 		questionLabel.setMaxWidth(Double.MAX_VALUE);
@@ -160,6 +200,13 @@ public class StudentHomePage {
 
 		setQuestionLabelStyle(questionLabel);
 
+		if (hit != null) {
+			// Show the matching text under the title with the query terms in bold
+			questionLabel.setPrefHeight(Region.USE_COMPUTED_SIZE);
+			questionLabel.setGraphic(snippetFlow(hit));
+			questionLabel.setContentDisplay(ContentDisplay.BOTTOM);
+		}
+
 		questionLabel.setOnMouseClicked(f -> {
 			StudentQuestionFocusPage questionPage = new StudentQuestionFocusPage();
 			questionPage.show(primaryStage, this, question);
@@ -168,10 +215,61 @@ public class StudentHomePage {
 		questionsBox.getChildren().add(questionLabel);
 	}
 
-	private void populateQuestions(VBox questionsBox, Set<Question> questions, Stage primaryStage) {
+	private static TextFlow snippetFlow(SearchHit hit) {
+		TextFlow flow = new TextFlow();
+		String snippet = hit.getSnippet();
+		int last = 0;
+		for (int[] range : hit.getHighlights()) {
+			flow.getChildren().add(new Text(snippet.substring(last, range[0])));
+			Text match = new Text(snippet.substring(range[0], range[1]));
+			match.setStyle("-fx-font-weight: bold;");
+			flow.getChildren().add(match);
+			last = range[1];
+		}
+		flow.getChildren().add(new Text(snippet.substring(last)));
+		flow.setStyle("-fx-font-size: 13px;");
+		return flow;
+	}
+
+	/**
+	 * Lists questions similar to the title being typed, each opening the question
+	 * when clicked.
+	 */
+	private void showSuggestions(VBox suggestionsBox, List<TitleIndex.Match> matches, Stage primaryStage) {
+		suggestionsBox.getChildren().clear();
+		QuestionManager questionManager = StartCSE360.getQuestionManager();
+		for (TitleIndex.Match match : matches) {
+			Question question = questionManager.getQuestion(match.getId());
+			if (question == null)
+				continue;
+			Label suggestion = new Label("Similar: " + question.getTitle());
+			suggestion.setStyle("-fx-font-size: 12px; -fx-text-fill: #1a5fb4; -fx-cursor: hand;");
+			suggestion.setOnMouseClicked(f -> {
+				StudentQuestionFocusPage questionPage = new StudentQuestionFocusPage();
+				questionPage.show(primaryStage, this, question);
+			});
+			suggestionsBox.getChildren().add(suggestion);
+		}
+	}
+
+	private void populateQuestions(VBox questionsBox, Collection<Question> questions, Stage primaryStage) {
 		questionsBox.getChildren().clear();
 		for (Question question : questions) {
 			addQuestionLabel(questionsBox, question, primaryStage);
 		}
 	}
+
+	private void populateSearchResults(VBox questionsBox, Map<Question, SearchHit> results, Stage primaryStage) {
+		questionsBox.getChildren().clear();
+		for (Map.Entry<Question, SearchHit> result : results.entrySet()) {
+			addQuestionLabel(questionsBox, result.getKey(), result.getValue(), primaryStage);
+		}
+	}
+
+	private void showAlert(String title, String message) {
+		Alert alert = new Alert(Alert.AlertType.ERROR);
+		alert.setTitle(title);
+		alert.setContentText(message);
+		alert.showAndWait();
+	}
 }
@@ -1,13 +1,13 @@
 package application.pages.student;
 
 import java.time.format.DateTimeFormatter;
-import java.util.Set;
 
 import application.StartCSE360;
 import application.User;
 import application.UserRole;
 import application.obj.Question;
 import application.util.LogUtil;
+import application.util.Page;
 import application.util.StringUtil;
 import databasePart1.DatabaseHelper;
 import javafx.collections.FXCollections;
@@ -29,9 +29,16 @@ import javafx.stage.Stage;
  */
 public class StudentQuestionListPage {
 
+	private static final int PAGE_SIZE = 25;
+
 	private final DatabaseHelper database;
 	private final User user;
 
+	// Questions are loaded a page at a time as the user asks for more
+	private final ObservableList<Question> questions = FXCollections.observableArrayList();
+	private final Button loadMoreBtn = new Button("Load more questions");
+	private Page<Question> lastPage;
+
 	public StudentQuestionListPage(DatabaseHelper helper, User user) {
 		this.database = helper;
 		this.user = user;
@@ -76,9 +83,13 @@ public class StudentQuestionListPage {
 
 		// Set up the question list
 		ListView<Question> questionList = this.buildQuestionList();
+		this.loadNextPage();
+
+		// Load more button logic
+		this.loadMoreBtn.setOnAction(_ -> this.loadNextPage());
 
 		// Container for center section
-		VBox centerSection = new VBox(5, questionList, newQuestionBtn);
+		VBox centerSection = new VBox(5, questionList, this.loadMoreBtn, newQuestionBtn);
 		centerSection.getStyleClass().add("background-center");
 
 		Label disclaimer = new Label("For educational purposes only.");
@@ -106,9 +117,7 @@ public class StudentQuestionListPage {
 	}
 
 	private ListView<Question> buildQuestionList() {
-		Set<Question> questionSet = StartCSE360.getQuestionManager().getQuestionSet();
-		ObservableList<Question> obsList = FXCollections.observableArrayList(questionSet);
-		ListView<Question> listView = new ListView<>(obsList);
+		ListView<Question> listView = new ListView<>(this.questions);
 
 		// Build custom cells for each question
 		listView.setCellFactory(_ -> new ListCell<>() {
@@ -152,7 +161,7 @@ public class StudentQuestionListPage {
 					titleLabel.setText("\"" + StringUtil.truncate(q.getTitle(), 24));
 					int answerCount = q.getAnswers().size();
 					answerCountLabel.setText("Answers: " + answerCount);
-					int reviewCount = StartCSE360.getReviewManager().getReviewsForQuestion(q.getId()).size();
+					int reviewCount = StartCSE360.getReviewManager().getReviewCountForQuestion(q.getId());
 					reviewCountLabel.setText("Reviews: " + reviewCount);
 					dateLabel.setText(q.getCreationDate().format(DateTimeFormatter.RFC_1123_DATE_TIME));
 
@@ -169,4 +178,14 @@ public class StudentQuestionListPage {
 		return listView;
 	}
 
+	/**
+	 * Appends the next page of questions, newest first, to the list.
+	 */
+	private void loadNextPage() {
+		int afterId = this.lastPage == null ? 0 : this.lastPage.getNextAfterId();
+		this.lastPage = StartCSE360.getQuestionManager().page(afterId, PAGE_SIZE, Page.Sort.NEWEST_FIRST);
+		this.questions.addAll(this.lastPage.getItems());
+		this.loadMoreBtn.setVisible(this.lastPage.hasMore());
+	}
+
 }
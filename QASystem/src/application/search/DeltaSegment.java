@@ -0,0 +1,137 @@
+package application.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory segment that receives newly indexed documents. Once it is written
+ * to disk it is frozen and replaced by a {@link MappedSegment} with the same
+ * document numbering.
+ */
+class DeltaSegment extends IndexSegment {
+
+	private static class Doc {
+		final SearchIndex.Kind kind;
+		final int id;
+		final String text;
+		final int length;
+		final long hash;
+
+		Doc(SearchIndex.Kind kind, int id, String text, int length, long hash) {
+			this.kind = kind;
+			this.id = id;
+			this.text = text;
+			this.length = length;
+			this.hash = hash;
+		}
+	}
+
+	private static class DeltaPostings implements Postings {
+		private int[] docs = new int[2];
+		private int[][] positions = new int[2][];
+		private int size = 0;
+
+		void add(int doc, int[] pos) {
+			if (this.size == this.docs.length) {
+				this.docs = Arrays.copyOf(this.docs, this.size * 2);
+				this.positions = Arrays.copyOf(this.positions, this.size * 2);
+			}
+			this.docs[this.size] = doc;
+			this.positions[this.size] = pos;
+			this.size++;
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public int doc(int i) {
+			return this.docs[i];
+		}
+
+		@Override
+		public int freq(int i) {
+			return this.positions[i].length;
+		}
+
+		@Override
+		public int[] positions(int i) {
+			return this.positions[i];
+		}
+	}
+
+	private final List<Doc> docs = new ArrayList<>();
+	private final Map<String, DeltaPostings> postings = new HashMap<>();
+
+	/**
+	 * Tokenizes and adds a document.
+	 *
+	 * @return Number of the new document within this segment
+	 */
+	int add(SearchIndex.Kind kind, int id, String text, long hash) {
+		int doc = this.docs.size();
+		List<String> terms = Tokenizer.terms(text);
+		Map<String, List<Integer>> positions = new HashMap<>();
+		for (int pos = 0; pos < terms.size(); pos++)
+			positions.computeIfAbsent(terms.get(pos), k -> new ArrayList<>()).add(pos);
+		for (Map.Entry<String, List<Integer>> e : positions.entrySet()) {
+			int[] p = e.getValue().stream().mapToInt(Integer::intValue).toArray();
+			this.postings.computeIfAbsent(e.getKey(), k -> new DeltaPostings()).add(doc, p);
+		}
+		this.docs.add(new Doc(kind, id, text, terms.size(), hash));
+		return doc;
+	}
+
+	/**
+	 * @return Every term in the segment, sorted by UTF-8 bytes as segment files
+	 *         require
+	 */
+	List<byte[]> sortedTerms() {
+		List<byte[]> terms = new ArrayList<>(this.postings.size());
+		for (String term : this.postings.keySet())
+			terms.add(term.getBytes(StandardCharsets.UTF_8));
+		terms.sort(Arrays::compareUnsigned);
+		return terms;
+	}
+
+	@Override
+	int docCount() {
+		return this.docs.size();
+	}
+
+	@Override
+	SearchIndex.Kind kind(int doc) {
+		return this.docs.get(doc).kind;
+	}
+
+	@Override
+	int id(int doc) {
+		return this.docs.get(doc).id;
+	}
+
+	@Override
+	int length(int doc) {
+		return this.docs.get(doc).length;
+	}
+
+	@Override
+	long textHash(int doc) {
+		return this.docs.get(doc).hash;
+	}
+
+	@Override
+	String text(int doc) {
+		return this.docs.get(doc).text;
+	}
+
+	@Override
+	Postings postings(String term) {
+		return this.postings.get(term);
+	}
+}
@@ -0,0 +1,297 @@
+package application.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import application.util.StringUtil;
+
+/**
+ * Batch job that groups a whole corpus of texts into clusters of near
+ * duplicates. It runs on a fork/join pool in four stages:
+ *
+ * <ol>
+ * <li>Every text's {@link MinHash} band hashes are computed, split across
+ * workers by range.</li>
+ * <li>Each band is sorted by hash on its own worker, so texts sharing a hash
+ * sit next to each other.</li>
+ * <li>Texts sharing a hash in a band become candidate pairs. In a large bucket
+ * each text is only paired with the {@link #MAX_BUCKET_NEIGHBOURS} texts before
+ * it. Each candidate pair is verified, in the first band that pairs it only,
+ * with {@link StringUtil#getSimilarity(String, String, double)} and, if similar
+ * enough, joined in a shared lock-free union-find. Pairs already in the same
+ * cluster are not verified again, so a large group of copies costs a linear
+ * number of comparisons.</li>
+ * </ol>
+ *
+ * Clusters are transitive: a text joins a cluster if it is similar to any
+ * member, not necessarily to all of them.
+ */
+public class DuplicateClusterer {
+
+	// Texts per signature task before it stops splitting
+	private static final int SIGNATURE_BATCH = 512;
+	// Earlier texts of the same bucket each text is compared with. A bucket of k
+	// texts then costs O(k) comparisons instead of O(k^2); copies are still joined
+	// through their neighbours, since clusters are transitive.
+	static final int MAX_BUCKET_NEIGHBOURS = 32;
+
+	private final ForkJoinPool pool;
+	private final double minSimilarity;
+
+	/**
+	 * @param pool          Pool to run on
+	 * @param minSimilarity Lowest similarity for two texts to count as
+	 *                      duplicates, from 0.00 to 1.00
+	 */
+	public DuplicateClusterer(ForkJoinPool pool, double minSimilarity) {
+		this.pool = pool;
+		this.minSimilarity = minSimilarity;
+	}
+
+	/**
+	 * Runs on the common fork/join pool.
+	 */
+	public DuplicateClusterer(double minSimilarity) {
+		this(ForkJoinPool.commonPool(), minSimilarity);
+	}
+
+	/**
+	 * Clusters texts. The texts must not change while this runs.
+	 *
+	 * @param ids   ID of each text
+	 * @param texts Texts to cluster, parallel to ids
+	 * @return Clusters of two or more IDs, largest first; IDs within a cluster
+	 *         are in ascending order
+	 */
+	public List<int[]> cluster(int[] ids, String[] texts) {
+		if (ids.length != texts.length)
+			throw new IllegalArgumentException("Expected one ID per text");
+		int n = texts.length;
+		int[][] bandHashes = new int[n][];
+		this.pool.invoke(new SignatureTask(texts, bandHashes, 0, n));
+
+		// Every band is sorted before any is paired, since pairing a band looks at
+		// where the texts sit in the bands before it
+		long[][] sorted = new long[MinHash.BANDS][];
+		int[][] positions = new int[MinHash.BANDS][n];
+		List<SortTask> sortTasks = new ArrayList<>();
+		for (int b = 0; b < MinHash.BANDS; b++)
+			sortTasks.add(new SortTask(b, bandHashes, sorted, positions));
+		this.invokeAll(sortTasks);
+
+		UnionFind clusters = new UnionFind(n);
+		List<BandTask> bandTasks = new ArrayList<>();
+		for (int b = 0; b < MinHash.BANDS; b++)
+			bandTasks.add(new BandTask(b, texts, bandHashes, sorted, positions, clusters, this.minSimilarity));
+		this.invokeAll(bandTasks);
+
+		Map<Integer, List<Integer>> byRoot = new HashMap<>();
+		for (int i = 0; i < n; i++)
+			byRoot.computeIfAbsent(clusters.find(i), k -> new ArrayList<>()).add(ids[i]);
+		List<int[]> result = new ArrayList<>();
+		for (List<Integer> members : byRoot.values()) {
+			if (members.size() < 2)
+				continue;
+			int[] cluster = members.stream().mapToInt(Integer::intValue).toArray();
+			Arrays.sort(cluster);
+			result.add(cluster);
+		}
+		result.sort((a, b) -> a.length != b.length ? Integer.compare(b.length, a.length)
+				: Integer.compare(a[0], b[0]));
+		return result;
+	}
+
+	private void invokeAll(List<? extends RecursiveAction> tasks) {
+		this.pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/**
+	 * Computes band hashes for a range of texts, splitting the range in half
+	 * until it is small enough.
+	 */
+	private static class SignatureTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final String[] texts;
+		private final int[][] bandHashes;
+		private final int from;
+		private final int to;
+
+		SignatureTask(String[] texts, int[][] bandHashes, int from, int to) {
+			this.texts = texts;
+			this.bandHashes = bandHashes;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= SIGNATURE_BATCH) {
+				for (int i = this.from; i < this.to; i++)
+					this.bandHashes[i] = MinHash.bandHashes(this.texts[i]);
+				return;
+			}
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new SignatureTask(this.texts, this.bandHashes, this.from, mid),
+					new SignatureTask(this.texts, this.bandHashes, mid, this.to));
+		}
+	}
+
+	/**
+	 * Sorts one band's (hash, index) pairs so texts sharing a hash sit next to
+	 * each other, and records where each text ended up.
+	 */
+	private static class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int band;
+		private final int[][] bandHashes;
+		private final long[][] sorted;
+		private final int[][] positions;
+
+		SortTask(int band, int[][] bandHashes, long[][] sorted, int[][] positions) {
+			this.band = band;
+			this.bandHashes = bandHashes;
+			this.sorted = sorted;
+			this.positions = positions;
+		}
+
+		@Override
+		protected void compute() {
+			long[] entries = new long[this.bandHashes.length];
+			int count = 0;
+			for (int i = 0; i < this.bandHashes.length; i++) {
+				if (this.bandHashes[i] != null)
+					entries[count++] = ((long) this.bandHashes[i][this.band] << 32) | i;
+			}
+			entries = Arrays.copyOf(entries, count);
+			Arrays.sort(entries);
+			for (int x = 0; x < count; x++)
+				this.positions[this.band][(int) entries[x]] = x;
+			this.sorted[this.band] = entries;
+		}
+	}
+
+	/**
+	 * Finds and verifies the candidate pairs of one band.
+	 */
+	private static class BandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int band;
+		private final String[] texts;
+		private final int[][] bandHashes;
+		private final long[][] sorted;
+		private final int[][] positions;
+		// Tasks are never serialized; the union-find is shared by every band
+		private final transient UnionFind clusters;
+		private final double minSimilarity;
+
+		BandTask(int band, String[] texts, int[][] bandHashes, long[][] sorted, int[][] positions,
+				UnionFind clusters, double minSimilarity) {
+			this.band = band;
+			this.texts = texts;
+			this.bandHashes = bandHashes;
+			this.sorted = sorted;
+			this.positions = positions;
+			this.clusters = clusters;
+			this.minSimilarity = minSimilarity;
+		}
+
+		@Override
+		protected void compute() {
+			long[] entries = this.sorted[this.band];
+			int count = entries.length;
+			int start = 0;
+			while (start < count) {
+				int end = start + 1;
+				while (end < count && (entries[end] >> 32) == (entries[start] >> 32))
+					end++;
+				for (int x = start + 1; x < end; x++) {
+					int i = (int) entries[x];
+					for (int y = Math.max(start, x - MAX_BUCKET_NEIGHBOURS); y < x; y++) {
+						int j = (int) entries[y];
+						if (this.pairedEarlier(i, j) || this.clusters.find(i) == this.clusters.find(j))
+							continue;
+						if (this.isSimilar(i, j))
+							this.clusters.union(i, j);
+					}
+				}
+				start = end;
+			}
+		}
+
+		/**
+		 * Checks whether an earlier band pairs two texts, in which case that band's
+		 * task verifies them instead. Sharing a hash is not enough: in a large
+		 * bucket the texts must also be within {@link #MAX_BUCKET_NEIGHBOURS} of
+		 * each other, or the earlier band skips them too.
+		 */
+		private boolean pairedEarlier(int i, int j) {
+			for (int b = 0; b < this.band; b++) {
+				if (this.bandHashes[i][b] == this.bandHashes[j][b]
+						&& Math.abs(this.positions[b][i] - this.positions[b][j]) <= MAX_BUCKET_NEIGHBOURS)
+					return true;
+			}
+			return false;
+		}
+
+		private boolean isSimilar(int i, int j) {
+			return StringUtil.getSimilarity(this.texts[i], this.texts[j], this.minSimilarity) >= this.minSimilarity;
+		}
+	}
+
+	/**
+	 * Union-find over indexes that many threads can update at once. Roots are
+	 * always linked under the smaller index, with a compare-and-set so two
+	 * threads cannot both relink the same root.
+	 */
+	private static class UnionFind {
+		private final AtomicIntegerArray parent;
+
+		UnionFind(int size) {
+			this.parent = new AtomicIntegerArray(size);
+			for (int i = 0; i < size; i++)
+				this.parent.set(i, i);
+		}
+
+		int find(int x) {
+			while (true) {
+				int p = this.parent.get(x);
+				if (p == x)
+					return x;
+				int gp = this.parent.get(p);
+				// Path halving; losing the race only means a longer path next time
+				if (gp != p)
+					this.parent.compareAndSet(x, p, gp);
+				x = gp;
+			}
+		}
+
+		void union(int a, int b) {
+			while (true) {
+				int ra = this.find(a);
+				int rb = this.find(b);
+				if (ra == rb)
+					return;
+				int low = Math.min(ra, rb);
+				int high = Math.max(ra, rb);
+				if (this.parent.compareAndSet(high, high, low))
+					return;
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package application.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locality-sensitive hash index for finding near-duplicate texts without
+ * comparing against every indexed one. Each text is reduced to
+ * {@link MinHash#BANDS} band hashes, and any indexed text sharing a band hash
+ * with a query is a candidate. Candidates are only likely to be similar, so
+ * callers should verify them with an exact measure.
+ *
+ * <p>
+ * Each band is a sorted array of entries packing the band hash into the high
+ * half and the ID into the low half, searched with binary search. New entries
+ * go into a small unsorted pending array that is merged in the next time a
+ * lookup finds it too long to scan, so a bulk load costs one sort per band.
+ * Removing or re-indexing an ID only updates its band hashes; entries that no
+ * longer match them are skipped by lookups and dropped by the next merge.
+ *
+ * <p>
+ * This class is not thread safe; it is meant to be updated and queried on the
+ * same thread as the cache it indexes.
+ */
+public class DuplicateIndex {
+
+	// Longest pending array a lookup scans rather than merging it first
+	private static final int PENDING_SCAN_LIMIT = 64;
+
+	private final Band[] bands = new Band[MinHash.BANDS];
+	private final Map<Integer, int[]> bandHashesById = new HashMap<>();
+
+	public DuplicateIndex() {
+		for (int b = 0; b < this.bands.length; b++)
+			this.bands[b] = new Band();
+	}
+
+	/**
+	 * Indexes a text under an ID, replacing any text indexed under it before.
+	 *
+	 * @param id   ID of the text
+	 * @param text Text to index
+	 */
+	public void put(int id, String text) {
+		int[] hashes = MinHash.bandHashes(text);
+		int[] old = hashes == null ? this.bandHashesById.remove(id) : this.bandHashesById.put(id, hashes);
+		if (hashes == null)
+			return;
+		for (int b = 0; b < this.bands.length; b++) {
+			// An unchanged band already has a live entry
+			if (old == null || old[b] != hashes[b])
+				this.bands[b].add(pack(hashes[b], id));
+		}
+	}
+
+	/**
+	 * Removes an ID from the index.
+	 *
+	 * @param id ID to remove
+	 */
+	public void remove(int id) {
+		this.bandHashesById.remove(id);
+	}
+
+	/**
+	 * Removes every ID from the index.
+	 */
+	public void clear() {
+		this.bandHashesById.clear();
+		for (Band band : this.bands)
+			band.clear();
+	}
+
+	public int size() {
+		return this.bandHashesById.size();
+	}
+
+	/**
+	 * Finds the IDs of indexed texts that share at least one band hash with a
+	 * text, and so are likely to be similar to it.
+	 *
+	 * @param text Text to look up
+	 * @return Candidate IDs, in no particular order
+	 */
+	public Set<Integer> candidates(String text) {
+		Set<Integer> result = new HashSet<>();
+		int[] hashes = MinHash.bandHashes(text);
+		if (hashes == null)
+			return result;
+		for (int b = 0; b < this.bands.length; b++) {
+			Band band = this.bands[b];
+			if (band.pendingSize > PENDING_SCAN_LIMIT)
+				band.merge(b);
+			band.collect(b, hashes[b], result);
+		}
+		return result;
+	}
+
+	private static long pack(int hash, int id) {
+		return ((long) hash << 32) | (id & 0xFFFFFFFFL);
+	}
+
+	private static int hashOf(long entry) {
+		return (int) (entry >> 32);
+	}
+
+	private static int idOf(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * @return Whether an entry still matches the current band hash of its ID
+	 */
+	private boolean isLive(int band, long entry) {
+		int[] hashes = this.bandHashesById.get(idOf(entry));
+		return hashes != null && hashes[band] == hashOf(entry);
+	}
+
+	/**
+	 * Entries of one band: a sorted array plus unsorted recent additions.
+	 */
+	private class Band {
+		long[] sorted = new long[0];
+		long[] pending = new long[8];
+		int pendingSize = 0;
+
+		void add(long entry) {
+			if (this.pendingSize == this.pending.length)
+				this.pending = Arrays.copyOf(this.pending, this.pendingSize * 2);
+			this.pending[this.pendingSize++] = entry;
+		}
+
+		void clear() {
+			this.sorted = new long[0];
+			this.pending = new long[8];
+			this.pendingSize = 0;
+		}
+
+		/**
+		 * Sorts the pending entries into the sorted array, dropping entries that
+		 * are no longer live.
+		 */
+		void merge(int band) {
+			Arrays.sort(this.pending, 0, this.pendingSize);
+			long[] merged = new long[this.sorted.length + this.pendingSize];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while (i < this.sorted.length || j < this.pendingSize) {
+				long next;
+				if (j == this.pendingSize || (i < this.sorted.length && this.sorted[i] <= this.pending[j]))
+					next = this.sorted[i++];
+				else
+					next = this.pending[j++];
+				// Re-indexing an unchanged band can repeat an entry
+				if (isLive(band, next) && (n == 0 || merged[n - 1] != next))
+					merged[n++] = next;
+			}
+			this.sorted = n == merged.length ? merged : Arrays.copyOf(merged, n);
+			this.pending = new long[8];
+			this.pendingSize = 0;
+		}
+
+		void collect(int band, int hash, Set<Integer> result) {
+			long first = pack(hash, 0); // IDs sort as unsigned below the hash
+			int lo = 0;
+			int hi = this.sorted.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (this.sorted[mid] < first)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			for (int i = lo; i < this.sorted.length && hashOf(this.sorted[i]) == hash; i++) {
+				if (isLive(band, this.sorted[i]))
+					result.add(idOf(this.sorted[i]));
+			}
+			for (int i = 0; i < this.pendingSize; i++) {
+				if (hashOf(this.pending[i]) == hash && isLive(band, this.pending[i]))
+					result.add(idOf(this.pending[i]));
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package application.search;
+
+import java.util.BitSet;
+
+/**
+ * A group of indexed documents searched as a unit. Documents are numbered
+ * from 0 in the order they were added. Apart from deletions, which are
+ * recorded in a bit set, a segment's contents never change once written.
+ */
+abstract class IndexSegment {
+
+	/**
+	 * The documents containing one term, in increasing document order.
+	 */
+	interface Postings {
+		int size();
+
+		int doc(int i);
+
+		int freq(int i);
+
+		int[] positions(int i);
+
+		/**
+		 * @return Index of the entry for a document, or a negative number if the
+		 *         term does not occur in it
+		 */
+		default int indexOf(int doc) {
+			int lo = 0;
+			int hi = this.size() - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				int d = this.doc(mid);
+				if (d < doc)
+					lo = mid + 1;
+				else if (d > doc)
+					hi = mid - 1;
+				else
+					return mid;
+			}
+			return -1;
+		}
+	}
+
+	// Accessed only while holding the owning SearchIndex's lock
+	final BitSet deleted = new BitSet();
+
+	abstract int docCount();
+
+	abstract SearchIndex.Kind kind(int doc);
+
+	abstract int id(int doc);
+
+	abstract int length(int doc);
+
+	abstract long textHash(int doc);
+
+	abstract String text(int doc);
+
+	/**
+	 * @return Postings of a term, or null if no document contains it
+	 */
+	abstract Postings postings(String term);
+
+	boolean isDeleted(int doc) {
+		return this.deleted.get(doc);
+	}
+
+	int liveCount() {
+		return this.docCount() - this.deleted.cardinality();
+	}
+}
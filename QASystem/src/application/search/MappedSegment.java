@@ -0,0 +1,275 @@
+package application.search;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Read-only segment backed by a memory-mapped file written by
+ * {@link SegmentWriter}. Nothing is decoded up front; terms, postings and text
+ * are read straight from the mapping when a search needs them, so opening a
+ * segment costs the same no matter how large it is.
+ *
+ * <p>
+ * The mapping belongs to its own arena so it can be released as soon as the
+ * segment has been merged away, rather than whenever the garbage collector
+ * gets to it. This matters on Windows, where a mapped file cannot be deleted.
+ *
+ * <p>
+ * File layout (all numbers big-endian):
+ *
+ * <pre>
+ * header   MAGIC, VERSION, docCount, termCount, then the offsets of the sections below
+ * text     UTF-8 text of every document, back to back
+ * docs     docCount x {kind, id, length, textLength, textStart (long), textHash (long)}
+ * postings per term, per document: {doc, freq, freq x position}
+ * terms    UTF-8 bytes of every term, back to back, sorted
+ * dict     termCount x {termStart (long), termLength, docFreq, postingsStart (long)}
+ * </pre>
+ */
+class MappedSegment extends IndexSegment {
+
+	static final int MAGIC = 0x51415358; // "QASX"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 64;
+	static final int DOC_ENTRY_SIZE = 32;
+	static final int DICT_ENTRY_SIZE = 24;
+
+	private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+	private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+	private final int generation;
+	private final Path file;
+	private final Arena arena;
+	private final MemorySegment data;
+
+	private final int docCount;
+	private final int termCount;
+	private final long textOffset;
+	private final long docsOffset;
+	private final long termsOffset;
+	private final long dictOffset;
+
+	private MappedSegment(int generation, Path file, Arena arena, MemorySegment data) throws IOException {
+		this.generation = generation;
+		this.file = file;
+		this.arena = arena;
+		this.data = data;
+
+		if (data.byteSize() < HEADER_SIZE || data.get(INT, 0) != MAGIC || data.get(INT, 4) != VERSION)
+			throw new IOException("Not a search segment: " + file);
+		this.docCount = data.get(INT, 8);
+		this.termCount = data.get(INT, 12);
+		this.textOffset = data.get(LONG, 16);
+		this.docsOffset = data.get(LONG, 24);
+		// The postings section (offset at 32) is reached through the dictionary
+		this.termsOffset = data.get(LONG, 40);
+		this.dictOffset = data.get(LONG, 48);
+		if (data.get(LONG, 56) != data.byteSize())
+			throw new IOException("Truncated search segment: " + file);
+	}
+
+	/**
+	 * Maps a segment file and loads its deletions, if any were saved.
+	 *
+	 * @param generation Generation number of the segment
+	 * @param file       Segment file
+	 * @return Mapped segment
+	 * @throws IOException if the file cannot be mapped or is not a valid segment
+	 */
+	static MappedSegment open(int generation, Path file) throws IOException {
+		Arena arena = Arena.ofShared();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+			MappedSegment segment = new MappedSegment(generation, file, arena, data);
+			Path deletes = deletesFile(file);
+			if (Files.exists(deletes)) {
+				try (DataInputStream in = new DataInputStream(Files.newInputStream(deletes))) {
+					long[] words = new long[in.readInt()];
+					for (int i = 0; i < words.length; i++)
+						words[i] = in.readLong();
+					segment.deleted.or(BitSet.valueOf(words));
+				}
+			}
+			return segment;
+		} catch (IOException | RuntimeException e) {
+			arena.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return File holding the deletions of a segment file
+	 */
+	static Path deletesFile(Path segmentFile) {
+		return segmentFile.resolveSibling(segmentFile.getFileName() + ".del");
+	}
+
+	int generation() {
+		return this.generation;
+	}
+
+	Path file() {
+		return this.file;
+	}
+
+	/**
+	 * Unmaps the file. The segment must not be used afterwards.
+	 */
+	void close() {
+		this.arena.close();
+	}
+
+	int termCount() {
+		return this.termCount;
+	}
+
+	/**
+	 * @return UTF-8 bytes of the term at a dictionary index
+	 */
+	byte[] termBytes(int index) {
+		long entry = this.dictOffset + (long) index * DICT_ENTRY_SIZE;
+		long start = this.termsOffset + this.data.get(LONG, entry);
+		int length = this.data.get(INT, entry + 8);
+		return this.data.asSlice(start, length).toArray(ValueLayout.JAVA_BYTE);
+	}
+
+	/**
+	 * @return Postings of the term at a dictionary index
+	 */
+	Postings postingsAt(int index) {
+		long entry = this.dictOffset + (long) index * DICT_ENTRY_SIZE;
+		return new MappedPostings(this.data.get(INT, entry + 12), this.data.get(LONG, entry + 16));
+	}
+
+	@Override
+	int docCount() {
+		return this.docCount;
+	}
+
+	private long docEntry(int doc) {
+		return this.docsOffset + (long) doc * DOC_ENTRY_SIZE;
+	}
+
+	@Override
+	SearchIndex.Kind kind(int doc) {
+		return SearchIndex.Kind.values()[this.data.get(INT, this.docEntry(doc))];
+	}
+
+	@Override
+	int id(int doc) {
+		return this.data.get(INT, this.docEntry(doc) + 4);
+	}
+
+	@Override
+	int length(int doc) {
+		return this.data.get(INT, this.docEntry(doc) + 8);
+	}
+
+	@Override
+	long textHash(int doc) {
+		return this.data.get(LONG, this.docEntry(doc) + 24);
+	}
+
+	@Override
+	String text(int doc) {
+		return new String(this.textBytes(doc), StandardCharsets.UTF_8);
+	}
+
+	byte[] textBytes(int doc) {
+		long entry = this.docEntry(doc);
+		int length = this.data.get(INT, entry + 12);
+		long start = this.textOffset + this.data.get(LONG, entry + 16);
+		return this.data.asSlice(start, length).toArray(ValueLayout.JAVA_BYTE);
+	}
+
+	@Override
+	Postings postings(String term) {
+		byte[] key = term.getBytes(StandardCharsets.UTF_8);
+		int lo = 0;
+		int hi = this.termCount - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = this.compareTerm(mid, key);
+			if (c < 0)
+				lo = mid + 1;
+			else if (c > 0)
+				hi = mid - 1;
+			else
+				return this.postingsAt(mid);
+		}
+		return null;
+	}
+
+	/**
+	 * Compares the term at a dictionary index with a key, byte by byte, without
+	 * copying it out of the mapping.
+	 */
+	private int compareTerm(int index, byte[] key) {
+		long entry = this.dictOffset + (long) index * DICT_ENTRY_SIZE;
+		long start = this.termsOffset + this.data.get(LONG, entry);
+		int length = this.data.get(INT, entry + 8);
+		int n = Math.min(length, key.length);
+		for (int i = 0; i < n; i++) {
+			int c = Byte.compareUnsigned(this.data.get(ValueLayout.JAVA_BYTE, start + i), key[i]);
+			if (c != 0)
+				return c;
+		}
+		return length - key.length;
+	}
+
+	/**
+	 * Postings read from the mapping. Document numbers and frequencies are read
+	 * in one pass; positions are only read for the entries that need them.
+	 */
+	private class MappedPostings implements Postings {
+		private final int[] docs;
+		private final int[] freqs;
+		private final long[] positionStarts;
+
+		MappedPostings(int docFreq, long start) {
+			this.docs = new int[docFreq];
+			this.freqs = new int[docFreq];
+			this.positionStarts = new long[docFreq];
+			long offset = start;
+			for (int i = 0; i < docFreq; i++) {
+				this.docs[i] = data.get(INT, offset);
+				this.freqs[i] = data.get(INT, offset + 4);
+				this.positionStarts[i] = offset + 8;
+				offset += 8 + 4L * this.freqs[i];
+			}
+		}
+
+		@Override
+		public int size() {
+			return this.docs.length;
+		}
+
+		@Override
+		public int doc(int i) {
+			return this.docs[i];
+		}
+
+		@Override
+		public int freq(int i) {
+			return this.freqs[i];
+		}
+
+		@Override
+		public int[] positions(int i) {
+			int[] result = new int[this.freqs[i]];
+			for (int k = 0; k < result.length; k++)
+				result[k] = data.get(INT, this.positionStarts[i] + 4L * k);
+			return result;
+		}
+	}
+}
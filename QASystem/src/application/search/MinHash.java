@@ -0,0 +1,136 @@
+package application.search;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MinHash signatures over character shingles, grouped into bands for
+ * locality-sensitive hashing.
+ *
+ * <p>
+ * Text is normalized to lower-case letters and digits with single spaces
+ * between words, and every run of {@link #SHINGLE_LENGTH} characters is a
+ * shingle. Each of the {@link #HASHES} hash functions keeps the smallest value
+ * it gives any shingle; two texts agree on a given function with probability
+ * equal to the Jaccard similarity of their shingle sets.
+ *
+ * <p>
+ * The signature is cut into {@link #BANDS} bands of {@link #ROWS} rows, and
+ * each band is hashed to one int. Two texts share at least one band hash with
+ * probability {@code 1 - (1 - J^ROWS)^BANDS}: about 0.64 at a Jaccard
+ * similarity of 0.5 and 0.98 at 0.7, but only 0.12 at 0.3.
+ *
+ * <p>
+ * This class is stateless and thread safe.
+ */
+final class MinHash {
+
+	static final int SHINGLE_LENGTH = 3;
+	static final int BANDS = 16;
+	static final int ROWS = 4;
+	static final int HASHES = BANDS * ROWS;
+
+	// Multiply-shift hash functions; fixed seed so band hashes are stable across runs
+	private static final long[] MULTIPLIERS = new long[HASHES];
+	private static final long[] ADDENDS = new long[HASHES];
+
+	static {
+		Random random = new Random(0x51A5D0C5L);
+		for (int i = 0; i < HASHES; i++) {
+			MULTIPLIERS[i] = random.nextLong() | 1;
+			ADDENDS[i] = random.nextLong();
+		}
+	}
+
+	private MinHash() {
+	}
+
+	/**
+	 * Computes the band hashes of a text.
+	 *
+	 * @param text Text to hash; null is treated as empty
+	 * @return One hash per band, or null if the text has no letters or digits
+	 */
+	static int[] bandHashes(String text) {
+		int[] signature = signature(text);
+		if (signature == null)
+			return null;
+		int[] bands = new int[BANDS];
+		for (int b = 0; b < BANDS; b++) {
+			int h = b;
+			for (int r = 0; r < ROWS; r++)
+				h = h * 31 + signature[b * ROWS + r];
+			// Spread the bits so similar signatures do not give similar band hashes
+			h ^= h >>> 16;
+			h *= 0x85EBCA6B;
+			h ^= h >>> 13;
+			bands[b] = h;
+		}
+		return bands;
+	}
+
+	/**
+	 * Computes the MinHash signature of a text without building its normalized
+	 * form or shingle set.
+	 *
+	 * @return Signature, or null if the text has no letters or digits
+	 */
+	static int[] signature(String text) {
+		if (text == null)
+			return null;
+		int[] signature = new int[HASHES];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+
+		// The last SHINGLE_LENGTH normalized characters, oldest first
+		char[] window = new char[SHINGLE_LENGTH];
+		int seen = 0;
+		boolean pendingSpace = false;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (!Character.isLetterOrDigit(c)) {
+				// Collapse separators into one space, and drop leading ones
+				pendingSpace = seen > 0;
+				continue;
+			}
+			if (pendingSpace) {
+				seen = push(window, seen, ' ', signature);
+				pendingSpace = false;
+			}
+			seen = push(window, seen, Character.toLowerCase(c), signature);
+		}
+		if (seen == 0)
+			return null;
+		if (seen < SHINGLE_LENGTH)
+			addShingle(window, seen, signature); // Too short for a full shingle; use all of it
+		return signature;
+	}
+
+	/**
+	 * Appends a character to the window and adds the shingle ending there.
+	 *
+	 * @return Number of characters seen so far
+	 */
+	private static int push(char[] window, int seen, char c, int[] signature) {
+		if (seen < SHINGLE_LENGTH) {
+			window[seen] = c;
+		} else {
+			System.arraycopy(window, 1, window, 0, SHINGLE_LENGTH - 1);
+			window[SHINGLE_LENGTH - 1] = c;
+		}
+		seen++;
+		if (seen >= SHINGLE_LENGTH)
+			addShingle(window, SHINGLE_LENGTH, signature);
+		return seen;
+	}
+
+	private static void addShingle(char[] window, int length, int[] signature) {
+		long x = length;
+		for (int i = 0; i < length; i++)
+			x = x * 65599 + window[i];
+		for (int i = 0; i < HASHES; i++) {
+			int h = (int) ((MULTIPLIERS[i] * x + ADDENDS[i]) >>> 32);
+			if (h < signature[i])
+				signature[i] = h;
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package application.search;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A parsed question search. The query is split into filters, which narrow the
+ * set of questions using precomputed ID sets, and free text, which is ranked
+ * by the full-text index.
+ *
+ * <p>
+ * Recognized filters (prefix any of them with {@code -} to negate it):
+ *
+ * <pre>
+ * tag:java          a tag containing "java"
+ * author:alice      posted by alice
+ * after:2026-01-01  posted on or after that day
+ * before:2026-02-01 posted before that day
+ * answered          has at least one answer (also is:answered)
+ * unanswered        has no answers (also is:unanswered)
+ * has:review        has at least one review of its own
+ * rating&gt;=4         has a review of its own rated 4 or higher; also &gt;, &lt;, &lt;=, = and rating:4
+ * </pre>
+ *
+ * Everything else, including quoted phrases, is free text.
+ */
+public class QuestionQuery {
+
+	public enum Field {
+		TAG, AUTHOR, AFTER, BEFORE, ANSWERED, UNANSWERED, HAS_REVIEW, RATING
+	}
+
+	/**
+	 * One filter of a query. Only the value fields that apply to its
+	 * {@link Field} are set.
+	 */
+	public static class Filter {
+		private final Field field;
+		private final boolean negated;
+		private final String text;
+		private final LocalDate date;
+		private final int minRating;
+		private final int maxRating;
+
+		private Filter(Field field, boolean negated, String text, LocalDate date, int minRating, int maxRating) {
+			this.field = field;
+			this.negated = negated;
+			this.text = text;
+			this.date = date;
+			this.minRating = minRating;
+			this.maxRating = maxRating;
+		}
+
+		public Field getField() {
+			return this.field;
+		}
+
+		/**
+		 * @return Whether questions matching this filter are excluded rather than
+		 *         kept
+		 */
+		public boolean isNegated() {
+			return this.negated;
+		}
+
+		/**
+		 * @return Tag fragment or author name
+		 */
+		public String getText() {
+			return this.text;
+		}
+
+		/**
+		 * @return Day for {@link Field#AFTER} and {@link Field#BEFORE}
+		 */
+		public LocalDate getDate() {
+			return this.date;
+		}
+
+		/**
+		 * @return Lowest matching rating for {@link Field#RATING}, inclusive
+		 */
+		public int getMinRating() {
+			return this.minRating;
+		}
+
+		/**
+		 * @return Highest matching rating for {@link Field#RATING}, inclusive
+		 */
+		public int getMaxRating() {
+			return this.maxRating;
+		}
+
+		@Override
+		public String toString() {
+			String value = this.text != null ? this.text
+					: this.date != null ? this.date.toString()
+							: this.field == Field.RATING ? this.minRating + ".." + this.maxRating : "";
+			return (this.negated ? "-" : "") + this.field + (value.isEmpty() ? "" : ":" + value);
+		}
+	}
+
+	private final List<Filter> filters;
+	private final String text;
+
+	private QuestionQuery(List<Filter> filters, String text) {
+		this.filters = Collections.unmodifiableList(filters);
+		this.text = text;
+	}
+
+	/**
+	 * @return Filters in the order they were written
+	 */
+	public List<Filter> getFilters() {
+		return this.filters;
+	}
+
+	/**
+	 * @return Free text for the full-text index, with phrases still quoted; empty
+	 *         if there is none
+	 */
+	public String getText() {
+		return this.text;
+	}
+
+	public boolean hasText() {
+		return !this.text.isBlank();
+	}
+
+	public boolean hasFilters() {
+		return !this.filters.isEmpty();
+	}
+
+	/**
+	 * Parses a search box query.
+	 *
+	 * @param query Query to parse
+	 * @return Parsed query
+	 * @throws IllegalArgumentException if a filter has a malformed value, such as
+	 *                                  an invalid date or rating
+	 */
+	public static QuestionQuery parse(String query) {
+		List<Filter> filters = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		for (String token : split(query)) {
+			Filter filter = token.startsWith("\"") ? null : parseFilter(token);
+			if (filter != null) {
+				filters.add(filter);
+			} else {
+				if (text.length() > 0)
+					text.append(' ');
+				text.append(token);
+			}
+		}
+		return new QuestionQuery(filters, text.toString());
+	}
+
+	/**
+	 * Splits a query on whitespace, keeping quoted phrases (quotes included) as
+	 * single tokens. An unclosed quote runs to the end of the query.
+	 */
+	private static List<String> split(String query) {
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		int n = query.length();
+		while (i < n) {
+			if (Character.isWhitespace(query.charAt(i))) {
+				i++;
+				continue;
+			}
+			int start = i;
+			if (query.charAt(i) == '"') {
+				int close = query.indexOf('"', i + 1);
+				i = close < 0 ? n : close + 1;
+			} else {
+				while (i < n && !Character.isWhitespace(query.charAt(i)))
+					i++;
+			}
+			tokens.add(query.substring(start, i));
+		}
+		return tokens;
+	}
+
+	/**
+	 * @return The filter a token stands for, or null if it is free text
+	 */
+	private static Filter parseFilter(String token) {
+		boolean negated = token.length() > 1 && token.charAt(0) == '-';
+		String body = (negated ? token.substring(1) : token).toLowerCase(Locale.ROOT);
+
+		switch (body) {
+		case "answered":
+		case "is:answered":
+			return new Filter(Field.ANSWERED, negated, null, null, 0, 0);
+		case "unanswered":
+		case "is:unanswered":
+			return new Filter(Field.UNANSWERED, negated, null, null, 0, 0);
+		case "has:review":
+			return new Filter(Field.HAS_REVIEW, negated, null, null, 0, 0);
+		default:
+			break;
+		}
+
+		if (body.startsWith("rating"))
+			return parseRating(token, body.substring("rating".length()), negated);
+
+		int colon = body.indexOf(':');
+		if (colon <= 0 || colon == body.length() - 1)
+			return null;
+		String key = body.substring(0, colon);
+		// Keep the value's case for display; matching is case-insensitive anyway
+		String value = (negated ? token.substring(1) : token).substring(colon + 1);
+		switch (key) {
+		case "tag":
+			return new Filter(Field.TAG, negated, value, null, 0, 0);
+		case "author":
+		case "user":
+			return new Filter(Field.AUTHOR, negated, value, null, 0, 0);
+		case "after":
+			return new Filter(Field.AFTER, negated, null, parseDate(token, value), 0, 0);
+		case "before":
+			return new Filter(Field.BEFORE, negated, null, parseDate(token, value), 0, 0);
+		default:
+			// Not a filter we know, e.g. a URL; search for it as text
+			return null;
+		}
+	}
+
+	private static LocalDate parseDate(String token, String value) {
+		try {
+			return LocalDate.parse(value);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid date in \"" + token + "\"; use YYYY-MM-DD");
+		}
+	}
+
+	/**
+	 * Parses the part of a rating filter after the word "rating", e.g. ">=4" or
+	 * ":5".
+	 */
+	private static Filter parseRating(String token, String rest, boolean negated) {
+		String op;
+		if (rest.startsWith(">=") || rest.startsWith("<="))
+			op = rest.substring(0, 2);
+		else if (rest.startsWith(">") || rest.startsWith("<") || rest.startsWith("=") || rest.startsWith(":"))
+			op = rest.substring(0, 1);
+		else
+			return null; // A word like "ratings"
+
+		int value;
+		try {
+			value = Integer.parseInt(rest.substring(op.length()));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid rating in \"" + token + "\"; use a number from 1 to 5");
+		}
+		int min;
+		int max;
+		switch (op) {
+		case ">=":
+			min = value;
+			max = Integer.MAX_VALUE;
+			break;
+		case ">":
+			min = value + 1;
+			max = Integer.MAX_VALUE;
+			break;
+		case "<=":
+			min = Integer.MIN_VALUE;
+			max = value;
+			break;
+		case "<":
+			min = Integer.MIN_VALUE;
+			max = value - 1;
+			break;
+		default:
+			min = value;
+			max = value;
+			break;
+		}
+		return new Filter(Field.RATING, negated, null, null, min, max);
+	}
+}
@@ -0,0 +1,79 @@
+package application.search;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One ranked result of a full-text search, with a short snippet of the
+ * matching text and the ranges within it that matched the query.
+ */
+public class SearchHit {
+
+	private final SearchIndex.Kind kind;
+	private final int id;
+	private final double score;
+	private final String snippet;
+	private final List<int[]> highlights;
+
+	SearchHit(SearchIndex.Kind kind, int id, double score, String snippet, List<int[]> highlights) {
+		this.kind = kind;
+		this.id = id;
+		this.score = score;
+		this.snippet = snippet;
+		this.highlights = Collections.unmodifiableList(highlights);
+	}
+
+	/**
+	 * @return Kind of post that matched
+	 */
+	public SearchIndex.Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * @return ID of the post that matched
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * @return BM25 relevance score; higher is more relevant
+	 */
+	public double getScore() {
+		return this.score;
+	}
+
+	/**
+	 * @return Plain snippet text, without highlight markers
+	 */
+	public String getSnippet() {
+		return this.snippet;
+	}
+
+	/**
+	 * @return Sorted, non-overlapping {start, end} character ranges of the
+	 *         snippet that matched the query
+	 */
+	public List<int[]> getHighlights() {
+		return this.highlights;
+	}
+
+	/**
+	 * Gets the snippet with every highlighted range wrapped in markers.
+	 *
+	 * @param open  Text to insert before a match
+	 * @param close Text to insert after a match
+	 * @return Marked-up snippet
+	 */
+	public String getSnippet(String open, String close) {
+		StringBuilder sb = new StringBuilder();
+		int last = 0;
+		for (int[] range : this.highlights) {
+			sb.append(this.snippet, last, range[0]).append(open);
+			sb.append(this.snippet, range[0], range[1]).append(close);
+			last = range[1];
+		}
+		return sb.append(this.snippet.substring(last)).toString();
+	}
+}
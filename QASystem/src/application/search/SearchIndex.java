@@ -0,0 +1,800 @@
+package application.search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+import application.util.LogUtil;
+
+/**
+ * Full-text index over the text of questions, answers and reviews. Results are
+ * ranked with BM25.
+ *
+ * <p>
+ * The index is positional: for every term it stores, per document, the
+ * positions at which the term occurs. This allows quoted phrase queries such
+ * as {@code "null pointer"}, which only match documents containing the words
+ * next to each other. Unquoted words are optional and only affect ranking; a
+ * document must match at least one word or phrase to be returned.
+ *
+ * <p>
+ * Documents live in segments. New and changed posts go into an in-memory
+ * delta segment. Once the index has been {@link #open(Path) opened} on a
+ * directory, a background task regularly writes the delta to disk as a small
+ * immutable segment and merges small segments into larger ones. At the next
+ * launch the segments are memory-mapped, so search works immediately without
+ * re-tokenizing anything. Changing or removing a post marks its old copy as
+ * deleted; deleted copies are dropped when their segment is merged.
+ *
+ * <p>
+ * Only one index at a time may own a directory; it holds a lock on a file in
+ * it while open. An index opened on a directory that is already owned, for
+ * example by a second copy of the program, stays in memory only.
+ *
+ * <p>
+ * Managers keep the index current by calling {@link #put}, {@link #remove}
+ * and {@link #retainAll} wherever they change their caches. Public methods are
+ * synchronized, so searches may run on any thread.
+ */
+public class SearchIndex {
+
+	/**
+	 * Kind of post a document was built from.
+	 */
+	public enum Kind {
+		QUESTION, ANSWER, REVIEW
+	}
+
+	// Standard BM25 parameters
+	public static final double K1 = 1.2;
+	public static final double B = 0.75;
+
+	// Number of tokens shown in a snippet
+	public static final int SNIPPET_TOKENS = 24;
+
+	// How often the background task writes the delta segment and merges
+	public static final long MAINTENANCE_INTERVAL_MILLIS = 5_000;
+	// Two adjacent segments are merged while the older one is at most this many times the newer's size
+	public static final int MERGE_RATIO = 2;
+
+	private static final String MANIFEST = "segments";
+	private static final String LOCK_FILE = "lock";
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	/**
+	 * Location of a document within a segment.
+	 */
+	private static class DocRef {
+		final IndexSegment segment;
+		final int doc;
+
+		DocRef(IndexSegment segment, int doc) {
+			this.segment = segment;
+			this.doc = doc;
+		}
+	}
+
+	// Oldest first; the last segment is always the delta receiving new documents
+	private final List<IndexSegment> segments = new ArrayList<>();
+	private DeltaSegment delta = new DeltaSegment();
+	// Live copy of every indexed post, by kind and ID
+	private final Map<Long, DocRef> locations = new HashMap<>();
+	private long liveLength = 0;
+
+	// Persistence; null until open() is called
+	private Path directory;
+	private ScheduledExecutorService maintainer;
+	private int nextGeneration = 1;
+	private final Set<MappedSegment> dirtyDeletes = new HashSet<>();
+	// Frozen delta whose write failed; written again before a newer one is frozen
+	private DeltaSegment unsaved;
+	// Holds the lock on the directory's lock file while open
+	private FileChannel lockChannel;
+	// Held for a whole flush or merge so two never interleave
+	private final Object maintenanceLock = new Object();
+
+	public SearchIndex() {
+		this.segments.add(this.delta);
+	}
+
+	/**
+	 * Loads the segments saved in a directory and starts writing changes back to
+	 * it in the background. Posts indexed before this call are kept. If another
+	 * index already owns the directory, nothing is loaded and the index stays in
+	 * memory only.
+	 *
+	 * @param directory Directory holding the segment files; created if missing
+	 * @return true if the directory was opened, false if it is owned by another
+	 *         index
+	 * @throws IOException if the directory cannot be created or locked
+	 */
+	public synchronized boolean open(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		if (!this.lockDirectory(directory)) {
+			LogUtil.info("Search index in " + directory + " is in use by another instance; indexing in memory only");
+			return false;
+		}
+		this.directory = directory;
+
+		List<Integer> generations = new ArrayList<>();
+		Path manifest = directory.resolve(MANIFEST);
+		if (Files.exists(manifest)) {
+			for (String line : Files.readAllLines(manifest))
+				if (!line.isBlank())
+					generations.add(Integer.parseInt(line.trim()));
+		}
+
+		List<IndexSegment> loaded = new ArrayList<>();
+		for (int generation : generations) {
+			try {
+				loaded.add(MappedSegment.open(generation, this.segmentFile(generation)));
+			} catch (IOException e) {
+				// The managers re-add whatever was in it when they fetch
+				LogUtil.error("Skipping unreadable search segment " + generation + ": " + e.getMessage());
+			}
+			this.nextGeneration = Math.max(this.nextGeneration, generation + 1);
+		}
+		this.deleteUnlistedFiles(generations);
+
+		// Saved segments are older than anything indexed in this session
+		this.segments.addAll(0, loaded);
+		this.rebuildLocations();
+		LogUtil.info("Opened search index with " + loaded.size() + " segment(s) and " + this.size() + " posts");
+
+		this.maintainer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "SearchIndex-Maintainer");
+			t.setDaemon(true);
+			return t;
+		});
+		this.maintainer.scheduleWithFixedDelay(() -> {
+			try {
+				this.flush();
+			} catch (IOException e) {
+				LogUtil.error("Failed to save the search index: " + e.getMessage());
+				e.printStackTrace();
+			}
+		}, MAINTENANCE_INTERVAL_MILLIS, MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	/**
+	 * Takes the lock file of a directory for this index. The lock is held by the
+	 * process, so another index in the same program is refused as well.
+	 *
+	 * @return true if the lock was taken, false if it is already held
+	 */
+	private boolean lockDirectory(Path directory) throws IOException {
+		FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+		FileLock lock = null;
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			// Held by another index in this program
+		} finally {
+			if (lock == null)
+				channel.close();
+		}
+		if (lock == null)
+			return false;
+		this.lockChannel = channel;
+		return true;
+	}
+
+	/**
+	 * @return true if the index is saved to a directory, false if it is in memory
+	 *         only
+	 */
+	public synchronized boolean isPersistent() {
+		return this.directory != null;
+	}
+
+	/**
+	 * Saves pending changes and releases the segment files. Afterwards the index
+	 * is empty and in-memory only, as if newly constructed.
+	 *
+	 * @throws IOException if pending changes cannot be saved
+	 */
+	public void close() throws IOException {
+		ScheduledExecutorService m;
+		synchronized (this) {
+			m = this.maintainer;
+			this.maintainer = null;
+		}
+		if (m == null)
+			return;
+		m.shutdown();
+		try {
+			m.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			this.flush();
+		} finally {
+			this.release();
+		}
+	}
+
+	/**
+	 * Empties the index and gives up its directory and lock.
+	 */
+	private synchronized void release() throws IOException {
+		for (IndexSegment s : this.segments)
+			if (s instanceof MappedSegment)
+				((MappedSegment) s).close();
+		this.segments.clear();
+		this.locations.clear();
+		this.liveLength = 0;
+		this.delta = new DeltaSegment();
+		this.segments.add(this.delta);
+		this.unsaved = null;
+		this.directory = null;
+		FileChannel channel = this.lockChannel;
+		this.lockChannel = null;
+		channel.close(); // Releases the lock
+	}
+
+	/**
+	 * Indexes a post's text, replacing whatever was indexed for it before. If the
+	 * same text is already indexed, nothing is done, so reloading unchanged posts
+	 * at startup does not re-tokenize them.
+	 *
+	 * @param kind Kind of post
+	 * @param id   ID of the post
+	 * @param text Searchable text of the post
+	 */
+	public synchronized void put(Kind kind, int id, String text) {
+		if (text == null)
+			text = "";
+		long hash = hash(text);
+		DocRef existing = this.locations.get(key(kind, id));
+		if (existing != null && existing.segment.textHash(existing.doc) == hash)
+			return;
+
+		this.remove(kind, id);
+		int doc = this.delta.add(kind, id, text, hash);
+		this.locations.put(key(kind, id), new DocRef(this.delta, doc));
+		this.liveLength += this.delta.length(doc);
+	}
+
+	/**
+	 * Removes a post from the index.
+	 *
+	 * @param kind Kind of post
+	 * @param id   ID of the post
+	 */
+	public synchronized void remove(Kind kind, int id) {
+		DocRef ref = this.locations.remove(key(kind, id));
+		if (ref != null)
+			this.delete(ref);
+	}
+
+	/**
+	 * Removes every post of one kind except the given ones. Managers call this
+	 * after reloading their caches, to drop posts deleted while the program was
+	 * not running.
+	 *
+	 * @param kind Kind of post
+	 * @param ids  IDs of the posts to keep
+	 */
+	public synchronized void retainAll(Kind kind, Collection<Integer> ids) {
+		Set<Integer> keep = new HashSet<>(ids);
+		Iterator<Map.Entry<Long, DocRef>> it = this.locations.entrySet().iterator();
+		while (it.hasNext()) {
+			DocRef ref = it.next().getValue();
+			if (ref.segment.kind(ref.doc) == kind && !keep.contains(ref.segment.id(ref.doc))) {
+				it.remove();
+				this.delete(ref);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of indexed posts
+	 */
+	public synchronized int size() {
+		return this.locations.size();
+	}
+
+	/**
+	 * @return Number of segments, including the in-memory delta
+	 */
+	public synchronized int segmentCount() {
+		return this.segments.size();
+	}
+
+	/**
+	 * Searches every kind of post.
+	 *
+	 * @see #search(String, int, Set)
+	 */
+	public List<SearchHit> search(String query, int limit) {
+		return this.search(query, limit, EnumSet.allOf(Kind.class));
+	}
+
+	/**
+	 * Finds the posts most relevant to a query. Words in double quotes form a
+	 * phrase that must appear in the post; other words are optional and only
+	 * raise the score of posts that contain them.
+	 *
+	 * @param query Query text, e.g. {@code "hash map" collision}
+	 * @param limit Maximum number of hits to return
+	 * @param kinds Kinds of post to search
+	 * @return Hits ordered from most to least relevant
+	 */
+	public List<SearchHit> search(String query, int limit, Set<Kind> kinds) {
+		return this.search(query, limit, kinds, null);
+	}
+
+	/**
+	 * Finds the posts most relevant to a query among those accepted by a filter.
+	 * The filter is checked once per matching post, before it is scored, so
+	 * rejected posts cost no scoring and never take up a place in the results.
+	 *
+	 * @param query  Query text
+	 * @param limit  Maximum number of hits to return
+	 * @param kinds  Kinds of post to search
+	 * @param accept Filter given each scored post's kind and ID, or null to accept
+	 *               all
+	 * @return Hits ordered from most to least relevant
+	 * @see #search(String, int, Set)
+	 */
+	public synchronized List<SearchHit> search(String query, int limit, Set<Kind> kinds,
+			BiPredicate<Kind, Integer> accept) {
+		List<String> words = new ArrayList<>();
+		List<List<String>> phrases = new ArrayList<>();
+		parse(query, words, phrases);
+		if (limit <= 0 || (words.isEmpty() && phrases.isEmpty()))
+			return new ArrayList<>();
+
+		// Every phrase must match, so only documents containing all of them qualify
+		Set<Long> required = null;
+		for (List<String> phrase : phrases) {
+			Set<Long> matches = this.phraseMatches(phrase);
+			if (required == null)
+				required = matches;
+			else
+				required.retainAll(matches);
+		}
+
+		// Score each distinct query term once, whether it came from a word or a phrase
+		Set<String> scoredTerms = new LinkedHashSet<>(words);
+		for (List<String> phrase : phrases)
+			scoredTerms.addAll(phrase);
+
+		int docCount = this.locations.size();
+		double avgLength = docCount == 0 ? 1 : Math.max(1, (double) this.liveLength / docCount);
+		Map<Long, Double> scores = new HashMap<>();
+		Set<Long> rejected = new HashSet<>();
+		for (String term : scoredTerms) {
+			List<IndexSegment.Postings> lists = new ArrayList<>(this.segments.size());
+			int docFreq = 0;
+			for (IndexSegment s : this.segments) {
+				IndexSegment.Postings p = s.postings(term);
+				lists.add(p);
+				if (p != null)
+					docFreq += p.size();
+			}
+			if (docFreq == 0)
+				continue;
+			// Deleted copies are still counted until merged away, so clamp to the live count
+			docFreq = Math.min(docFreq, docCount);
+			double idf = Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+
+			for (int s = 0; s < this.segments.size(); s++) {
+				IndexSegment segment = this.segments.get(s);
+				IndexSegment.Postings p = lists.get(s);
+				if (p == null)
+					continue;
+				for (int i = 0; i < p.size(); i++) {
+					int doc = p.doc(i);
+					long ref = ref(s, doc);
+					if (segment.isDeleted(doc) || (required != null && !required.contains(ref)))
+						continue;
+					if (!kinds.contains(segment.kind(doc)))
+						continue;
+					// A post already scored for an earlier term has passed the filter
+					if (accept != null && !scores.containsKey(ref)
+							&& (rejected.contains(ref) || !accept.test(segment.kind(doc), segment.id(doc)))) {
+						rejected.add(ref);
+						continue;
+					}
+					int tf = p.freq(i);
+					double norm = K1 * (1 - B + B * segment.length(doc) / avgLength);
+					scores.merge(ref, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+				}
+			}
+		}
+
+		// Keep the top hits in a min-heap so only `limit` entries are ever sorted
+		PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+		for (Map.Entry<Long, Double> e : scores.entrySet()) {
+			if (top.size() < limit) {
+				top.add(e);
+			} else if (e.getValue() > top.peek().getValue()) {
+				top.poll();
+				top.add(e);
+			}
+		}
+
+		List<SearchHit> hits = new ArrayList<>(top.size());
+		while (!top.isEmpty()) {
+			Map.Entry<Long, Double> e = top.poll();
+			IndexSegment segment = this.segments.get((int) (e.getKey() >>> 32));
+			int doc = (int) (long) e.getKey();
+			hits.add(toHit(segment.kind(doc), segment.id(doc), segment.text(doc), e.getValue(), scoredTerms));
+		}
+		Collections.reverse(hits);
+		return hits;
+	}
+
+	/**
+	 * Writes the delta segment to disk, merges small segments, and saves
+	 * deletions. Runs in the background every
+	 * {@link #MAINTENANCE_INTERVAL_MILLIS} once the index is open; does nothing
+	 * before then.
+	 *
+	 * @throws IOException if the index cannot be saved
+	 */
+	public void flush() throws IOException {
+		synchronized (this.maintenanceLock) {
+			this.writeDelta();
+			while (this.mergeOnce())
+				;
+			this.saveDeletesAndManifest();
+		}
+	}
+
+	/**
+	 * Freezes the delta, writes it to disk outside the lock so searches and
+	 * updates continue meanwhile, then swaps in the mapped copy. If the write
+	 * fails, the frozen delta stays searchable and is written by the next flush,
+	 * before anything newer.
+	 */
+	private void writeDelta() throws IOException {
+		DeltaSegment frozen;
+		int generation;
+		boolean retry;
+		synchronized (this) {
+			if (this.directory == null)
+				return;
+			retry = this.unsaved != null;
+			if (!retry) {
+				if (this.delta.docCount() == 0)
+					return;
+				this.unsaved = this.delta;
+				this.delta = new DeltaSegment();
+				this.segments.add(this.delta);
+			}
+			frozen = this.unsaved;
+			generation = this.nextGeneration++;
+		}
+
+		Path file = this.segmentFile(generation);
+		MappedSegment mapped;
+		try {
+			SegmentWriter.writeDelta(frozen, file);
+			mapped = MappedSegment.open(generation, file);
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+
+		synchronized (this) {
+			this.unsaved = null;
+			// Same document numbers, so deletions made while writing carry straight over
+			mapped.deleted.or(frozen.deleted);
+			this.segments.set(this.segments.indexOf(frozen), mapped);
+			for (int doc = 0; doc < mapped.docCount(); doc++)
+				if (!mapped.isDeleted(doc))
+					this.locations.put(key(mapped.kind(doc), mapped.id(doc)), new DocRef(mapped, doc));
+			this.dirtyDeletes.add(mapped);
+		}
+		if (retry)
+			this.writeDelta(); // The live delta has been filling up meanwhile
+	}
+
+	/**
+	 * Merges the two newest saved segments if the older one is at most
+	 * {@link #MERGE_RATIO} times the size of the newer one. Merging only
+	 * similar-sized neighbours keeps the total merge work logarithmic.
+	 *
+	 * @return true if a merge was done
+	 */
+	private boolean mergeOnce() throws IOException {
+		List<MappedSegment> inputs = new ArrayList<>();
+		List<BitSet> deletedSnapshot = new ArrayList<>();
+		int generation;
+		synchronized (this) {
+			if (this.directory == null)
+				return false;
+			List<MappedSegment> mapped = new ArrayList<>();
+			for (IndexSegment s : this.segments)
+				if (s instanceof MappedSegment)
+					mapped.add((MappedSegment) s);
+			if (mapped.size() < 2)
+				return false;
+			MappedSegment older = mapped.get(mapped.size() - 2);
+			MappedSegment newer = mapped.get(mapped.size() - 1);
+			if (older.liveCount() > MERGE_RATIO * Math.max(1, newer.liveCount()))
+				return false;
+			inputs.add(older);
+			inputs.add(newer);
+			for (MappedSegment s : inputs)
+				deletedSnapshot.add((BitSet) s.deleted.clone());
+			generation = this.nextGeneration++;
+		}
+
+		Path file = this.segmentFile(generation);
+		int[][] docMap = SegmentWriter.merge(inputs, deletedSnapshot, file);
+		MappedSegment merged = MappedSegment.open(generation, file);
+
+		synchronized (this) {
+			for (int i = 0; i < inputs.size(); i++) {
+				MappedSegment in = inputs.get(i);
+				for (int doc = 0; doc < docMap[i].length; doc++) {
+					int newDoc = docMap[i][doc];
+					if (newDoc < 0)
+						continue;
+					if (in.isDeleted(doc))
+						merged.deleted.set(newDoc); // Deleted while the merge was running
+					else
+						this.locations.put(key(in.kind(doc), in.id(doc)), new DocRef(merged, newDoc));
+				}
+			}
+			int at = this.segments.indexOf(inputs.get(0));
+			this.segments.removeAll(inputs);
+			this.segments.add(at, merged);
+			this.dirtyDeletes.removeAll(inputs);
+			this.dirtyDeletes.add(merged);
+			this.writeManifest();
+			for (MappedSegment in : inputs) {
+				in.close();
+				Files.deleteIfExists(in.file());
+				Files.deleteIfExists(MappedSegment.deletesFile(in.file()));
+			}
+		}
+		LogUtil.debug("Merged search segments into segment " + generation + " with " + merged.liveCount()
+				+ " posts");
+		return true;
+	}
+
+	private synchronized void saveDeletesAndManifest() throws IOException {
+		if (this.directory == null)
+			return;
+		for (MappedSegment s : this.dirtyDeletes) {
+			long[] words = s.deleted.toLongArray();
+			Path file = MappedSegment.deletesFile(s.file());
+			Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+				out.writeInt(words.length);
+				for (long w : words)
+					out.writeLong(w);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		this.dirtyDeletes.clear();
+		this.writeManifest();
+	}
+
+	/**
+	 * Records which segment files make up the index. The manifest is replaced
+	 * atomically, so a crash leaves either the old or the new set of segments.
+	 */
+	private void writeManifest() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (IndexSegment s : this.segments)
+			if (s instanceof MappedSegment)
+				sb.append(((MappedSegment) s).generation()).append('\n');
+		Path manifest = this.directory.resolve(MANIFEST);
+		Path temp = this.directory.resolve(MANIFEST + ".tmp");
+		Files.writeString(temp, sb.toString());
+		Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Deletes segment files left behind by a merge or flush that did not finish.
+	 */
+	private void deleteUnlistedFiles(List<Integer> generations) throws IOException {
+		Set<Path> keep = new HashSet<>();
+		for (int generation : generations) {
+			keep.add(this.segmentFile(generation));
+			keep.add(MappedSegment.deletesFile(this.segmentFile(generation)));
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, SEGMENT_PREFIX + "*")) {
+			for (Path f : files)
+				if (!keep.contains(f))
+					Files.deleteIfExists(f);
+		}
+	}
+
+	/**
+	 * Rebuilds the location of every post from the segments. A post found in more
+	 * than one segment keeps its newest copy; older copies are marked deleted.
+	 */
+	private void rebuildLocations() {
+		this.locations.clear();
+		this.liveLength = 0;
+		for (IndexSegment s : this.segments) {
+			for (int doc = 0; doc < s.docCount(); doc++) {
+				if (s.isDeleted(doc))
+					continue;
+				this.liveLength += s.length(doc);
+				DocRef old = this.locations.put(key(s.kind(doc), s.id(doc)), new DocRef(s, doc));
+				if (old != null)
+					this.delete(old);
+			}
+		}
+	}
+
+	private void delete(DocRef ref) {
+		ref.segment.deleted.set(ref.doc);
+		this.liveLength -= ref.segment.length(ref.doc);
+		if (ref.segment instanceof MappedSegment)
+			this.dirtyDeletes.add((MappedSegment) ref.segment);
+	}
+
+	private Path segmentFile(int generation) {
+		return this.directory.resolve(SEGMENT_PREFIX + generation);
+	}
+
+	/**
+	 * Splits a query into loose words and quoted phrases. An unterminated quote
+	 * runs to the end of the query.
+	 */
+	static void parse(String query, List<String> words, List<List<String>> phrases) {
+		if (query == null)
+			return;
+		String[] parts = query.split("\"", -1);
+		for (int i = 0; i < parts.length; i++) {
+			List<String> terms = Tokenizer.terms(parts[i]);
+			if (i % 2 == 0)
+				words.addAll(terms);
+			else if (terms.size() > 1)
+				phrases.add(terms);
+			else
+				words.addAll(terms); // A quoted single word is just a word
+		}
+	}
+
+	/**
+	 * Finds the live documents, in every segment, where the phrase's terms occur
+	 * at consecutive positions.
+	 */
+	private Set<Long> phraseMatches(List<String> phrase) {
+		Set<Long> result = new HashSet<>();
+		segments: for (int s = 0; s < this.segments.size(); s++) {
+			IndexSegment segment = this.segments.get(s);
+			List<IndexSegment.Postings> lists = new ArrayList<>();
+			for (String term : phrase) {
+				IndexSegment.Postings p = segment.postings(term);
+				if (p == null)
+					continue segments;
+				lists.add(p);
+			}
+
+			// Walk the first term's documents, checking the others by position
+			IndexSegment.Postings first = lists.get(0);
+			docs: for (int i = 0; i < first.size(); i++) {
+				int doc = first.doc(i);
+				if (segment.isDeleted(doc))
+					continue;
+				int[][] positions = new int[lists.size()][];
+				positions[0] = first.positions(i);
+				for (int t = 1; t < lists.size(); t++) {
+					int index = lists.get(t).indexOf(doc);
+					if (index < 0)
+						continue docs;
+					positions[t] = lists.get(t).positions(index);
+				}
+				starts: for (int start : positions[0]) {
+					for (int t = 1; t < positions.length; t++)
+						if (Arrays.binarySearch(positions[t], start + t) < 0)
+							continue starts;
+					result.add(ref(s, doc));
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Builds a hit whose snippet is the window of {@link #SNIPPET_TOKENS} tokens
+	 * containing the most query terms.
+	 */
+	private static SearchHit toHit(Kind kind, int id, String text, double score, Set<String> queryTerms) {
+		List<Tokenizer.Token> tokens = Tokenizer.tokenize(text);
+		if (tokens.isEmpty())
+			return new SearchHit(kind, id, score, "", new ArrayList<>());
+
+		int window = Math.min(SNIPPET_TOKENS, tokens.size());
+		int matches = 0;
+		for (int i = 0; i < window; i++)
+			if (queryTerms.contains(tokens.get(i).term))
+				matches++;
+		int bestStart = 0;
+		int bestMatches = matches;
+		for (int start = 1; start + window <= tokens.size(); start++) {
+			if (queryTerms.contains(tokens.get(start - 1).term))
+				matches--;
+			if (queryTerms.contains(tokens.get(start + window - 1).term))
+				matches++;
+			if (matches > bestMatches) {
+				bestMatches = matches;
+				bestStart = start;
+			}
+		}
+
+		int from = tokens.get(bestStart).start;
+		boolean atEnd = bestStart + window == tokens.size();
+		// Keep trailing punctuation when the snippet runs to the end of the text
+		int to = atEnd ? text.stripTrailing().length() : tokens.get(bestStart + window - 1).end;
+		String prefix = bestStart > 0 ? "…" : "";
+		String suffix = atEnd ? "" : "…";
+		String snippet = prefix + text.substring(from, to).replaceAll("\\s+", " ") + suffix;
+
+		// Highlights are located in the snippet after whitespace was collapsed
+		List<int[]> highlights = new ArrayList<>();
+		for (Tokenizer.Token t : Tokenizer.tokenize(snippet)) {
+			if (queryTerms.contains(t.term))
+				highlights.add(new int[] { t.start, t.end });
+		}
+		return new SearchHit(kind, id, score, snippet, highlights);
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of a post's text, stored with each document to detect
+	 * unchanged posts.
+	 */
+	static long hash(String text) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			h ^= text.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	private static long key(Kind kind, int id) {
+		return ((long) kind.ordinal() << 32) | (id & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Packs a segment index and document number into one key for the duration of
+	 * a search.
+	 */
+	private static long ref(int segment, int doc) {
+		return ((long) segment << 32) | (doc & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,274 @@
+package application.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Writes segment files in the layout described by {@link MappedSegment}.
+ * Documents and postings are streamed to disk as they are added; only the
+ * per-document and per-term bookkeeping is kept in memory until
+ * {@link #finish()}.
+ *
+ * <p>
+ * Calls must come in this order: {@link #addDoc} for every document,
+ * {@link #endDocs()}, then {@link #startTerm}/{@link #addPosting}/
+ * {@link #endTerm()} for every term in increasing UTF-8 byte order, and
+ * finally {@link #finish()}.
+ */
+final class SegmentWriter implements Closeable {
+
+	private final Path file;
+	private final DataOutputStream out;
+
+	// Per-document bookkeeping, written out as the docs table
+	private final List<long[]> docEntries = new ArrayList<>();
+	private long textOffset;
+	private long docsOffset;
+	private long postingsOffset;
+
+	// Per-term bookkeeping, written out as the terms and dict sections
+	private final ByteArrayOutputStream termBytes = new ByteArrayOutputStream();
+	private final List<long[]> dictEntries = new ArrayList<>();
+	private byte[] currentTerm;
+	private long currentPostingsStart;
+	private int currentDocFreq;
+	private int lastPostingDoc;
+
+	SegmentWriter(Path file) throws IOException {
+		this.file = file;
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		this.out.write(new byte[MappedSegment.HEADER_SIZE]); // Filled in by finish()
+		this.textOffset = this.position();
+	}
+
+	/**
+	 * @return Bytes written so far; segments are limited to 2 GB
+	 */
+	private long position() throws IOException {
+		int size = this.out.size();
+		if (size == Integer.MAX_VALUE)
+			throw new IOException("Search segment too large: " + this.file);
+		return size;
+	}
+
+	void addDoc(SearchIndex.Kind kind, int id, int length, long hash, byte[] text) throws IOException {
+		long textStart = this.position() - this.textOffset;
+		this.out.write(text);
+		this.docEntries.add(new long[] { kind.ordinal(), id, length, text.length, textStart, hash });
+	}
+
+	void endDocs() throws IOException {
+		this.docsOffset = this.position();
+		for (long[] e : this.docEntries) {
+			this.out.writeInt((int) e[0]);
+			this.out.writeInt((int) e[1]);
+			this.out.writeInt((int) e[2]);
+			this.out.writeInt((int) e[3]);
+			this.out.writeLong(e[4]);
+			this.out.writeLong(e[5]);
+		}
+		this.postingsOffset = this.position();
+	}
+
+	void startTerm(byte[] term) throws IOException {
+		this.currentTerm = term;
+		this.currentPostingsStart = this.position();
+		this.currentDocFreq = 0;
+		this.lastPostingDoc = -1;
+	}
+
+	void addPosting(int doc, int[] positions) throws IOException {
+		if (doc <= this.lastPostingDoc)
+			throw new IllegalStateException("Postings must be added in increasing document order");
+		this.out.writeInt(doc);
+		this.out.writeInt(positions.length);
+		for (int p : positions)
+			this.out.writeInt(p);
+		this.currentDocFreq++;
+		this.lastPostingDoc = doc;
+	}
+
+	/**
+	 * Ends the current term. A term that received no postings is left out of the
+	 * dictionary.
+	 */
+	void endTerm() {
+		if (this.currentDocFreq > 0) {
+			long termStart = this.termBytes.size();
+			this.termBytes.writeBytes(this.currentTerm);
+			this.dictEntries.add(new long[] { termStart, this.currentTerm.length, this.currentDocFreq,
+					this.currentPostingsStart });
+		}
+		this.currentTerm = null;
+	}
+
+	/**
+	 * Writes the term dictionary and header, and forces the file to disk.
+	 */
+	void finish() throws IOException {
+		long termsOffset = this.position();
+		this.termBytes.writeTo(this.out);
+		long dictOffset = this.position();
+		for (long[] e : this.dictEntries) {
+			this.out.writeLong(e[0]);
+			this.out.writeInt((int) e[1]);
+			this.out.writeInt((int) e[2]);
+			this.out.writeLong(e[3]);
+		}
+		long fileLength = this.position();
+		this.out.close();
+
+		ByteBuffer header = ByteBuffer.allocate(MappedSegment.HEADER_SIZE);
+		header.putInt(MappedSegment.MAGIC).putInt(MappedSegment.VERSION);
+		header.putInt(this.docEntries.size()).putInt(this.dictEntries.size());
+		header.putLong(this.textOffset).putLong(this.docsOffset);
+		header.putLong(this.postingsOffset);
+		header.putLong(termsOffset).putLong(dictOffset).putLong(fileLength);
+		header.flip();
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+			while (header.hasRemaining())
+				channel.write(header, header.position());
+			channel.force(true);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.out.close();
+	}
+
+	/**
+	 * Writes a frozen delta segment to disk, keeping its document numbers so that
+	 * deletions made while writing carry over unchanged.
+	 *
+	 * @param delta Segment to write; must no longer receive documents
+	 * @param file  File to write
+	 * @throws IOException
+	 */
+	static void writeDelta(DeltaSegment delta, Path file) throws IOException {
+		try (SegmentWriter w = new SegmentWriter(file)) {
+			for (int doc = 0; doc < delta.docCount(); doc++)
+				w.addDoc(delta.kind(doc), delta.id(doc), delta.length(doc), delta.textHash(doc),
+						delta.text(doc).getBytes(StandardCharsets.UTF_8));
+			w.endDocs();
+			for (byte[] term : delta.sortedTerms()) {
+				IndexSegment.Postings p = delta.postings(new String(term, StandardCharsets.UTF_8));
+				w.startTerm(term);
+				for (int i = 0; i < p.size(); i++)
+					w.addPosting(p.doc(i), p.positions(i));
+				w.endTerm();
+			}
+			w.finish();
+		}
+	}
+
+	/**
+	 * Merges segments into one new segment, dropping deleted documents. Documents
+	 * keep their relative order, and terms are merged straight from the sorted
+	 * dictionaries, so nothing is re-tokenized.
+	 *
+	 * @param inputs  Segments to merge, oldest first
+	 * @param deleted Snapshot of each input's deletions taken when the merge
+	 *                started
+	 * @param file    File to write
+	 * @return For each input, the new number of each of its documents, or -1 for
+	 *         documents that were dropped
+	 * @throws IOException
+	 */
+	static int[][] merge(List<MappedSegment> inputs, List<BitSet> deleted, Path file) throws IOException {
+		int[][] docMap = new int[inputs.size()][];
+		try (SegmentWriter w = new SegmentWriter(file)) {
+			int next = 0;
+			for (int s = 0; s < inputs.size(); s++) {
+				MappedSegment in = inputs.get(s);
+				docMap[s] = new int[in.docCount()];
+				for (int doc = 0; doc < in.docCount(); doc++) {
+					if (deleted.get(s).get(doc)) {
+						docMap[s][doc] = -1;
+						continue;
+					}
+					docMap[s][doc] = next++;
+					w.addDoc(in.kind(doc), in.id(doc), in.length(doc), in.textHash(doc), in.textBytes(doc));
+				}
+			}
+			w.endDocs();
+
+			// K-way merge of the sorted dictionaries
+			PriorityQueue<TermCursor> queue = new PriorityQueue<>();
+			for (int s = 0; s < inputs.size(); s++) {
+				TermCursor c = new TermCursor(s, inputs.get(s));
+				if (c.advance())
+					queue.add(c);
+			}
+			List<TermCursor> same = new ArrayList<>();
+			while (!queue.isEmpty()) {
+				same.clear();
+				same.add(queue.poll());
+				while (!queue.isEmpty() && Arrays.equals(queue.peek().term, same.get(0).term))
+					same.add(queue.poll());
+				// Inputs are concatenated in order, so visiting them in order keeps postings sorted
+				same.sort((a, b) -> Integer.compare(a.input, b.input));
+
+				w.startTerm(same.get(0).term);
+				for (TermCursor c : same) {
+					IndexSegment.Postings p = inputs.get(c.input).postingsAt(c.index);
+					for (int i = 0; i < p.size(); i++) {
+						int newDoc = docMap[c.input][p.doc(i)];
+						if (newDoc >= 0)
+							w.addPosting(newDoc, p.positions(i));
+					}
+				}
+				w.endTerm();
+
+				for (TermCursor c : same)
+					if (c.advance())
+						queue.add(c);
+			}
+			w.finish();
+		}
+		return docMap;
+	}
+
+	/**
+	 * Position in one input's term dictionary during a merge.
+	 */
+	private static class TermCursor implements Comparable<TermCursor> {
+		final int input;
+		final MappedSegment segment;
+		int index = -1;
+		byte[] term;
+
+		TermCursor(int input, MappedSegment segment) {
+			this.input = input;
+			this.segment = segment;
+		}
+
+		boolean advance() {
+			this.index++;
+			if (this.index >= this.segment.termCount())
+				return false;
+			this.term = this.segment.termBytes(this.index);
+			return true;
+		}
+
+		@Override
+		public int compareTo(TermCursor other) {
+			int c = Arrays.compareUnsigned(this.term, other.term);
+			return c != 0 ? c : Integer.compare(this.input, other.input);
+		}
+	}
+}
@@ -0,0 +1,367 @@
+package application.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over question titles for finding similar titles while one is
+ * being typed. A title's trigrams are taken from its lower-case words padded
+ * with two spaces in front and one behind, so short words and word starts
+ * still count. Similarity is the Jaccard index of two titles' trigram sets.
+ *
+ * <p>
+ * Titles are numbered densely in the order they are indexed, and each
+ * trigram's postings list those numbers in increasing order. Re-indexing or
+ * removing a title leaves its old number behind as dead until enough dead
+ * numbers pile up to renumber everything. Sessions start over after a title is
+ * added; removals only hide the title from their results.
+ *
+ * <p>
+ * Lookups go through a {@link Session}, which keeps the match counts of its
+ * previous query and only applies the trigrams that were added or removed
+ * since, so each keystroke costs little more than the postings of the
+ * trigrams it changed.
+ *
+ * <p>
+ * This class is thread safe: the cache updates it on the JavaFX thread while
+ * sessions read it from a background thread.
+ */
+public class TitleIndex {
+
+	// Lowest similarity worth suggesting
+	public static final double MIN_SIMILARITY = 0.3;
+	// Renumber once at least this many dead numbers make up half of all numbers
+	private static final int MIN_DEAD_TO_COMPACT = 1024;
+
+	/**
+	 * An indexed title that matched a query.
+	 */
+	public static final class Match {
+		private final int id;
+		private final double similarity;
+
+		Match(int id, double similarity) {
+			this.id = id;
+			this.similarity = similarity;
+		}
+
+		public int getId() {
+			return this.id;
+		}
+
+		/**
+		 * @return Jaccard similarity of the trigram sets, from 0.00 to 1.00
+		 */
+		public double getSimilarity() {
+			return this.similarity;
+		}
+	}
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, int[]> postings = new HashMap<>();
+	private final Map<Long, Integer> postingCounts = new HashMap<>();
+	private final Map<Integer, Integer> docById = new HashMap<>();
+	private int[] docIds = new int[64];
+	private int[] docSizes = new int[64];
+	private final BitSet dead = new BitSet();
+	private int docCount = 0;
+	private int deadCount = 0;
+	// Bumped whenever titles are added or renumbered, so sessions know to start over
+	private long generation = 0;
+
+	/**
+	 * Indexes a title under an ID, replacing any title indexed under it before.
+	 *
+	 * @param id    ID of the question
+	 * @param title Title to index
+	 */
+	public void put(int id, String title) {
+		Set<Long> grams = trigrams(title);
+		this.lock.writeLock().lock();
+		try {
+			Integer old = this.docById.get(id);
+			if (old != null && this.indexedAs(old, grams))
+				return; // Unchanged, so sessions can keep their counts
+			this.removeLocked(id);
+			if (grams.isEmpty())
+				return;
+			int doc = this.docCount++;
+			if (doc == this.docIds.length) {
+				this.docIds = Arrays.copyOf(this.docIds, doc * 2);
+				this.docSizes = Arrays.copyOf(this.docSizes, doc * 2);
+			}
+			this.docIds[doc] = id;
+			this.docSizes[doc] = grams.size();
+			this.docById.put(id, doc);
+			for (long gram : grams)
+				this.append(gram, doc);
+			// Sessions never counted the new title's trigrams
+			this.generation++;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a title from the index.
+	 *
+	 * @param id ID of the question
+	 */
+	public void remove(int id) {
+		this.lock.writeLock().lock();
+		try {
+			this.removeLocked(id);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes every title from the index.
+	 */
+	public void clear() {
+		this.lock.writeLock().lock();
+		try {
+			if (this.docCount == 0)
+				return;
+			this.postings.clear();
+			this.postingCounts.clear();
+			this.docById.clear();
+			this.dead.clear();
+			this.docCount = 0;
+			this.deadCount = 0;
+			this.generation++;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		this.lock.readLock().lock();
+		try {
+			return this.docById.size();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Starts a new lookup session. A session must only be used by one thread at a
+	 * time.
+	 */
+	public Session newSession() {
+		return new Session();
+	}
+
+	private void removeLocked(int id) {
+		Integer doc = this.docById.remove(id);
+		if (doc == null)
+			return;
+		this.dead.set(doc);
+		this.deadCount++;
+		if (this.deadCount >= MIN_DEAD_TO_COMPACT && this.deadCount * 2 >= this.docCount)
+			this.compact();
+	}
+
+	/**
+	 * Checks whether a title is indexed with exactly the given trigrams. Postings
+	 * lists are sorted, so each check is a binary search.
+	 */
+	private boolean indexedAs(int doc, Set<Long> grams) {
+		if (this.docSizes[doc] != grams.size())
+			return false;
+		for (long gram : grams) {
+			int[] docs = this.postings.get(gram);
+			if (docs == null || Arrays.binarySearch(docs, 0, this.postingCounts.get(gram), doc) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	private void append(long gram, int doc) {
+		int[] docs = this.postings.get(gram);
+		int n = this.postingCounts.getOrDefault(gram, 0);
+		if (docs == null)
+			docs = new int[2];
+		else if (n == docs.length)
+			docs = Arrays.copyOf(docs, n * 2);
+		docs[n] = doc;
+		this.postings.put(gram, docs);
+		this.postingCounts.put(gram, n + 1);
+	}
+
+	/**
+	 * Renumbers the live titles densely and drops dead numbers from every
+	 * postings list. Relative order is kept, so lists stay sorted.
+	 */
+	private void compact() {
+		int[] renumber = new int[this.docCount];
+		int live = 0;
+		for (int doc = 0; doc < this.docCount; doc++) {
+			if (this.dead.get(doc)) {
+				renumber[doc] = -1;
+				continue;
+			}
+			renumber[doc] = live;
+			this.docIds[live] = this.docIds[doc];
+			this.docSizes[live] = this.docSizes[doc];
+			this.docById.put(this.docIds[live], live);
+			live++;
+		}
+		List<Long> emptied = new ArrayList<>();
+		for (Map.Entry<Long, int[]> e : this.postings.entrySet()) {
+			int[] docs = e.getValue();
+			int n = this.postingCounts.get(e.getKey());
+			int kept = 0;
+			for (int i = 0; i < n; i++) {
+				if (renumber[docs[i]] >= 0)
+					docs[kept++] = renumber[docs[i]];
+			}
+			if (kept == 0)
+				emptied.add(e.getKey());
+			else
+				this.postingCounts.put(e.getKey(), kept);
+		}
+		for (Long gram : emptied) {
+			this.postings.remove(gram);
+			this.postingCounts.remove(gram);
+		}
+		this.dead.clear();
+		this.docCount = live;
+		this.deadCount = 0;
+		this.generation++;
+	}
+
+	/**
+	 * Gets the distinct trigrams of a title, each packed into a long as three
+	 * 16-bit characters.
+	 */
+	static Set<Long> trigrams(String title) {
+		Set<Long> grams = new HashSet<>();
+		for (String word : Tokenizer.terms(title)) {
+			String padded = "  " + word + " ";
+			for (int i = 0; i + 3 <= padded.length(); i++)
+				grams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+		}
+		return grams;
+	}
+
+	/**
+	 * Incremental lookup state for one text box. Each call to
+	 * {@link #update(String, int)} adjusts the per-title counts of shared
+	 * trigrams by the difference from the previous text, rather than starting
+	 * over.
+	 */
+	public class Session {
+		private int[] counts = new int[0];
+		private int[] touched = new int[16];
+		private int touchedCount = 0;
+		// Titles currently in the touched list, so none is listed twice
+		private final BitSet listed = new BitSet();
+		private Set<Long> grams = new HashSet<>();
+		private long seenGeneration = -1;
+
+		/**
+		 * Finds the indexed titles most similar to a text.
+		 *
+		 * @param text  Text typed so far
+		 * @param limit Maximum number of matches
+		 * @return Matches at or above {@link TitleIndex#MIN_SIMILARITY}, most
+		 *         similar first
+		 */
+		public List<Match> update(String text, int limit) {
+			Set<Long> next = trigrams(text);
+			lock.readLock().lock();
+			try {
+				if (this.seenGeneration != generation) {
+					// Numbers have changed since the last call, so the counts mean nothing
+					this.reset();
+					this.seenGeneration = generation;
+				}
+				if (this.counts.length < docCount)
+					this.counts = Arrays.copyOf(this.counts, Math.max(docCount, this.counts.length * 2));
+
+				for (long gram : this.grams) {
+					if (!next.contains(gram))
+						this.adjust(gram, -1);
+				}
+				for (long gram : next) {
+					if (!this.grams.contains(gram))
+						this.adjust(gram, 1);
+				}
+				this.grams = next;
+				return this.top(limit);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private void reset() {
+			Arrays.fill(this.counts, 0);
+			this.touchedCount = 0;
+			this.listed.clear();
+			this.grams = new HashSet<>();
+		}
+
+		private void adjust(long gram, int delta) {
+			int[] docs = postings.get(gram);
+			if (docs == null)
+				return;
+			int n = postingCounts.get(gram);
+			for (int i = 0; i < n; i++) {
+				int doc = docs[i];
+				// A title can drop to zero and come back before top() prunes the list
+				if (this.counts[doc] == 0 && delta > 0 && !this.listed.get(doc)) {
+					this.listed.set(doc);
+					if (this.touchedCount == this.touched.length)
+						this.touched = Arrays.copyOf(this.touched, this.touchedCount * 2);
+					this.touched[this.touchedCount++] = doc;
+				}
+				this.counts[doc] += delta;
+			}
+		}
+
+		/**
+		 * Picks the best matches among titles sharing any trigram, dropping titles
+		 * that no longer share one from the touched list as it goes.
+		 */
+		private List<Match> top(int limit) {
+			PriorityQueue<Match> best = new PriorityQueue<>((a, b) -> Double.compare(a.similarity, b.similarity));
+			int size = this.grams.size();
+			int kept = 0;
+			for (int i = 0; i < this.touchedCount; i++) {
+				int doc = this.touched[i];
+				int common = this.counts[doc];
+				if (common == 0) {
+					this.listed.clear(doc);
+					continue;
+				}
+				this.touched[kept++] = doc;
+				if (dead.get(doc))
+					continue;
+				double similarity = (double) common / (size + docSizes[doc] - common);
+				if (similarity < MIN_SIMILARITY)
+					continue;
+				if (best.size() < limit) {
+					best.add(new Match(docIds[doc], similarity));
+				} else if (similarity > best.peek().similarity) {
+					best.poll();
+					best.add(new Match(docIds[doc], similarity));
+				}
+			}
+			this.touchedCount = kept;
+
+			List<Match> result = new ArrayList<>(best);
+			result.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+			return result;
+		}
+	}
+}
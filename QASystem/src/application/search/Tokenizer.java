@@ -0,0 +1,68 @@
+package application.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-case search terms. A term is a run of letters and
+ * digits; everything else separates terms. Each token remembers where it came
+ * from in the original text so that snippets can highlight it.
+ */
+public final class Tokenizer {
+
+	/**
+	 * A term together with its character range in the source text.
+	 */
+	public static final class Token {
+		public final String term;
+		public final int start;
+		public final int end;
+
+		Token(String term, int start, int end) {
+			this.term = term;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	private Tokenizer() {
+	}
+
+	/**
+	 * Tokenizes text, keeping character offsets.
+	 *
+	 * @param text Text to tokenize; null is treated as empty
+	 * @return Tokens in order of appearance
+	 */
+	public static List<Token> tokenize(String text) {
+		List<Token> tokens = new ArrayList<>();
+		if (text == null)
+			return tokens;
+		int i = 0;
+		int n = text.length();
+		while (i < n) {
+			while (i < n && !Character.isLetterOrDigit(text.charAt(i)))
+				i++;
+			int start = i;
+			while (i < n && Character.isLetterOrDigit(text.charAt(i)))
+				i++;
+			if (i > start)
+				tokens.add(new Token(text.substring(start, i).toLowerCase(Locale.ROOT), start, i));
+		}
+		return tokens;
+	}
+
+	/**
+	 * Tokenizes text into terms only.
+	 *
+	 * @param text Text to tokenize; null is treated as empty
+	 * @return Terms in order of appearance
+	 */
+	public static List<String> terms(String text) {
+		List<String> terms = new ArrayList<>();
+		for (Token t : tokenize(text))
+			terms.add(t.term);
+		return terms;
+	}
+}
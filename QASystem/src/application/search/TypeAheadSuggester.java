@@ -0,0 +1,91 @@
+package application.search;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Suggests similar existing questions while a title is being typed. Requests
+ * are debounced, so a burst of keystrokes triggers one lookup once typing
+ * pauses, and run on a background thread. A newer request cancels any older
+ * one that has not started, and results of an older one that has are
+ * discarded, so callers only ever see suggestions for the latest text.
+ *
+ * <p>
+ * Each suggester keeps one incremental {@link TitleIndex.Session}, so
+ * consecutive lookups only pay for the trigrams that changed.
+ */
+public class TypeAheadSuggester {
+
+	public static final long DEBOUNCE_MILLIS = 150;
+
+	// One worker for every suggester; lookups take milliseconds and run one at a time
+	private static final ScheduledExecutorService WORKER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "type-ahead-suggester");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final TitleIndex.Session session;
+	private final int limit;
+	private final Executor callbackExecutor;
+	private final long debounceMillis;
+	private final AtomicLong latest = new AtomicLong();
+	private ScheduledFuture<?> pending;
+
+	/**
+	 * @param index            Index to look titles up in
+	 * @param limit            Maximum number of suggestions
+	 * @param callbackExecutor Where to deliver results, e.g.
+	 *                         {@code Platform::runLater}
+	 * @param debounceMillis   How long typing must pause before a lookup runs
+	 */
+	public TypeAheadSuggester(TitleIndex index, int limit, Executor callbackExecutor, long debounceMillis) {
+		this.session = index.newSession();
+		this.limit = limit;
+		this.callbackExecutor = callbackExecutor;
+		this.debounceMillis = debounceMillis;
+	}
+
+	public TypeAheadSuggester(TitleIndex index, int limit, Executor callbackExecutor) {
+		this(index, limit, callbackExecutor, DEBOUNCE_MILLIS);
+	}
+
+	/**
+	 * Requests suggestions for the text typed so far, replacing any earlier
+	 * request that has not been delivered yet.
+	 *
+	 * @param text     Text typed so far
+	 * @param onResult Receives the matches, most similar first, on the callback
+	 *                 executor
+	 */
+	public synchronized void request(String text, Consumer<List<TitleIndex.Match>> onResult) {
+		long ticket = this.latest.incrementAndGet();
+		if (this.pending != null)
+			this.pending.cancel(false);
+		this.pending = WORKER.schedule(() -> {
+			if (ticket != this.latest.get())
+				return;
+			List<TitleIndex.Match> matches = this.session.update(text, this.limit);
+			this.callbackExecutor.execute(() -> {
+				// Typing may have continued while this lookup ran
+				if (ticket == this.latest.get())
+					onResult.accept(matches);
+			});
+		}, this.debounceMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Cancels any request that has not been delivered yet.
+	 */
+	public synchronized void cancel() {
+		this.latest.incrementAndGet();
+		if (this.pending != null)
+			this.pending.cancel(false);
+	}
+}
@@ -0,0 +1,143 @@
+package application.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of entity IDs sorted by date. Dates and IDs live in two parallel
+ * arrays kept in (date, ID) order, so a date range is found with two binary
+ * searches and its IDs copied out in one pass.
+ *
+ * <p>
+ * Posts are created in date order and mostly loaded in ID order, so nearly
+ * every insert lands at the end of the arrays. Out-of-order inserts and
+ * removals shift the tail.
+ *
+ * <p>
+ * This class is not thread safe; it is meant to be updated and queried on the
+ * same thread as the cache it indexes.
+ */
+public class DateIndex {
+
+	private long[] keys = new long[16];
+	private int[] ids = new int[16];
+	private int size = 0;
+	// ID -> its key, for finding the entry to remove
+	private final Map<Integer, Long> keyById = new HashMap<>();
+
+	/**
+	 * Indexes an entity under a date, replacing any date it was indexed under
+	 * before. Entities without a date are not indexed.
+	 *
+	 * @param id   Entity ID
+	 * @param date Date of the entity
+	 */
+	public void put(int id, LocalDateTime date) {
+		this.remove(id);
+		if (date == null)
+			return;
+		long key = key(date);
+		int at = this.insertionPoint(key, id);
+		if (this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, this.size * 2);
+			this.ids = Arrays.copyOf(this.ids, this.size * 2);
+		}
+		System.arraycopy(this.keys, at, this.keys, at + 1, this.size - at);
+		System.arraycopy(this.ids, at, this.ids, at + 1, this.size - at);
+		this.keys[at] = key;
+		this.ids[at] = id;
+		this.size++;
+		this.keyById.put(id, key);
+	}
+
+	/**
+	 * Removes an entity from the index.
+	 *
+	 * @param id Entity ID
+	 */
+	public void remove(int id) {
+		Long key = this.keyById.remove(id);
+		if (key == null)
+			return;
+		int at = this.insertionPoint(key, id);
+		System.arraycopy(this.keys, at + 1, this.keys, at, this.size - at - 1);
+		System.arraycopy(this.ids, at + 1, this.ids, at, this.size - at - 1);
+		this.size--;
+	}
+
+	/**
+	 * Removes every entity from the index.
+	 */
+	public void clear() {
+		this.size = 0;
+		this.keyById.clear();
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the IDs of entities dated within a range.
+	 *
+	 * @param from Start of the range, inclusive, or null for no start
+	 * @param to   End of the range, exclusive, or null for no end
+	 * @return New set of matching IDs
+	 */
+	public BitSet between(LocalDateTime from, LocalDateTime to) {
+		int start = from == null ? 0 : this.insertionPoint(key(from), Integer.MIN_VALUE);
+		int end = to == null ? this.size : this.insertionPoint(key(to), Integer.MIN_VALUE);
+		BitSet result = new BitSet();
+		for (int i = start; i < end; i++)
+			result.set(this.ids[i]);
+		return result;
+	}
+
+	/**
+	 * Gets the newest entities whose IDs are in a set, newest first.
+	 *
+	 * @param filter IDs to consider
+	 * @param limit  Maximum number of IDs to return
+	 * @return Matching IDs, newest first
+	 */
+	public int[] newestIn(BitSet filter, int limit) {
+		int[] result = new int[Math.min(limit, filter.cardinality())];
+		int found = 0;
+		for (int i = this.size - 1; i >= 0 && found < result.length; i--) {
+			if (filter.get(this.ids[i]))
+				result[found++] = this.ids[i];
+		}
+		return found == result.length ? result : Arrays.copyOf(result, found);
+	}
+
+	/**
+	 * Finds where a (key, ID) pair is or would be in the arrays.
+	 */
+	private int insertionPoint(long key, int id) {
+		int lo = 0;
+		int hi = this.size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = Long.compare(this.keys[mid], key);
+			if (c == 0)
+				c = Integer.compare(this.ids[mid], id);
+			if (c < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Encodes a date as nanoseconds since the epoch, which fits in a long until
+	 * the year 2262.
+	 */
+	private static long key(LocalDateTime date) {
+		return date.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + date.getNano();
+	}
+}
@@ -0,0 +1,86 @@
+package application.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps entity IDs to the single canonical object that represents that entity.
+ * Managers route every object they construct from the database through their
+ * IdentityMap, so that the same row is never represented by two different
+ * objects and lookups by ID are O(1).
+ *
+ * @param <T> Type of entity being mapped
+ */
+public class IdentityMap<T> {
+
+	private final Map<Integer, T> map = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the canonical object for an ID.
+	 *
+	 * @param id Entity ID
+	 * @return Canonical object, or null if the ID has not been mapped
+	 */
+	public T get(int id) {
+		return this.map.get(id);
+	}
+
+	/**
+	 * Returns the canonical object for an ID, mapping the given candidate if
+	 * there is none yet.
+	 *
+	 * @param id        Entity ID
+	 * @param candidate Freshly constructed object for the ID
+	 * @return The already-mapped object if one exists; the candidate otherwise
+	 */
+	public T canonicalize(int id, T candidate) {
+		T existing = this.map.putIfAbsent(id, candidate);
+		return existing == null ? candidate : existing;
+	}
+
+	/**
+	 * Maps an ID to an object, replacing any previous mapping.
+	 *
+	 * @param id    Entity ID
+	 * @param value Object to map
+	 */
+	public void put(int id, T value) {
+		this.map.put(id, value);
+	}
+
+	/**
+	 * Removes the mapping for an ID.
+	 *
+	 * @param id Entity ID
+	 * @return The previously mapped object, or null
+	 */
+	public T remove(int id) {
+		return this.map.remove(id);
+	}
+
+	/**
+	 * Keeps only the mappings whose IDs are in the given collection.
+	 *
+	 * @param ids IDs to keep
+	 */
+	public void retainAll(Collection<Integer> ids) {
+		this.map.keySet().retainAll(ids);
+	}
+
+	/**
+	 * @return Unmodifiable view of every mapped object
+	 */
+	public Collection<T> values() {
+		return Collections.unmodifiableCollection(this.map.values());
+	}
+
+	public int size() {
+		return this.map.size();
+	}
+
+	public void clear() {
+		this.map.clear();
+	}
+}
@@ -1,20 +1,494 @@
 package application.util;
 
-public class LogUtil {
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
-	public static final boolean DO_DEBUG_LOGS = true;
+/**
+ * Logging for the whole program. Calls only check the level and put the
+ * message in a fixed-size ring buffer; a background thread formats the
+ * messages and writes them, so logging never waits on console or file I/O. If
+ * the buffer is full, messages are dropped and the number dropped is logged
+ * once there is room again.
+ *
+ * <p>
+ * Levels can be set per package or class at runtime with
+ * {@link #setLevel(String, Level)}, or at startup with system properties:
+ * {@code -Dqasystem.log.level=INFO} sets the default and
+ * {@code -Dqasystem.log.level.databasePart1=DEBUG} sets one package. Use the
+ * {@link Supplier} overloads for messages that are costly to build, so they
+ * are only built when the level is enabled.
+ *
+ * <p>
+ * Each message is written as one line of key=value pairs, for example
+ * {@code ts=2024-10-18T12:00:00.123 level=INFO thread=main logger=application.StartCSE360 msg="Started"},
+ * to {@value #FILE_NAME} in {@link #LOG_DIR}. The file is rotated once it
+ * reaches {@value #DEFAULT_MAX_FILE_BYTES} bytes, keeping
+ * {@value #DEFAULT_MAX_FILES} old files. Messages are also echoed to the
+ * console unless {@code -Dqasystem.log.console=false} is set.
+ */
+public final class LogUtil {
+
+	public enum Level {
+		DEBUG, INFO, ERROR, OFF
+	}
+
+	public static final String PROPERTY_PREFIX = "qasystem.log.";
+	public static final Path LOG_DIR = Path.of(
+			System.getProperty(PROPERTY_PREFIX + "dir", System.getProperty("user.home") + "/FoundationLogs"));
+	public static final String FILE_NAME = "qasystem.log";
+	public static final long DEFAULT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+	public static final int DEFAULT_MAX_FILES = 5;
+
+	// Must be a power of two
+	private static final int CAPACITY = 8192;
+	private static final int MASK = CAPACITY - 1;
+	private static final long IDLE_PARK_NANOS = 5_000_000;
+
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+	private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+	/*
+	 * Bounded multi-producer queue: a producer claims a slot by advancing tail,
+	 * fills it, then publishes it by setting the slot's sequence. Only one thread
+	 * drains at a time (under drainLock), so head needs no atomics of its own.
+	 */
+	private static final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(CAPACITY);
+	private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+	private static final AtomicLong tail = new AtomicLong();
+	private static final AtomicLong dropped = new AtomicLong();
+	private static final Object drainLock = new Object();
+	private static long head;
+
+	// Levels set for package or class names, and what each logger resolved to
+	private static final Map<String, Level> levels = new ConcurrentHashMap<>();
+	private static final Map<String, Level> resolved = new ConcurrentHashMap<>();
+	private static volatile Level rootLevel = Level.DEBUG;
+	// Lowest level enabled anywhere, so most disabled calls return without a lookup
+	private static volatile int minLevel = Level.DEBUG.ordinal();
+
+	private static volatile boolean echoToConsole = !"false"
+			.equalsIgnoreCase(System.getProperty(PROPERTY_PREFIX + "console"));
+	private static RotatingFile file;
+
+	static {
+		for (int i = 0; i < CAPACITY; i++)
+			sequences.set(i, i);
+		for (String name : System.getProperties().stringPropertyNames()) {
+			String levelPrefix = PROPERTY_PREFIX + "level";
+			Level level;
+			if (name.equals(levelPrefix) && (level = levelProperty(name)) != null)
+				setRootLevel(level);
+			else if (name.startsWith(levelPrefix + ".") && (level = levelProperty(name)) != null)
+				setLevel(name.substring(levelPrefix.length() + 1), level);
+		}
+		setOutput(LOG_DIR, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+
+		Thread writer = new Thread(LogUtil::drainForever, "LogUtil-Writer");
+		writer.setDaemon(true);
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(LogUtil::flush, "LogUtil-Flush"));
+	}
+
+	private LogUtil() {
+	}
+
+	/**
+	 * Reads a level from a system property. A misspelled level must not stop the
+	 * program from starting, so it is reported and ignored.
+	 *
+	 * @return The level, or null if the value is not a level name
+	 */
+	private static Level levelProperty(String property) {
+		String value = System.getProperty(property).trim();
+		try {
+			return Level.valueOf(value.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			System.err.println("Ignoring -D" + property + "=" + value + ": expected one of "
+					+ Arrays.toString(Level.values()));
+			return null;
+		}
+	}
 
 	public static void info(String s) {
-		System.out.println("[INFO] " + s);
+		if (Level.INFO.ordinal() >= minLevel)
+			log(Level.INFO, WALKER.getCallerClass(), s, null);
+	}
+
+	public static void info(Supplier<String> s) {
+		if (Level.INFO.ordinal() >= minLevel)
+			log(Level.INFO, WALKER.getCallerClass(), null, s);
 	}
 
 	public static void debug(String s) {
-		if (!LogUtil.DO_DEBUG_LOGS)
-			return;
-		System.out.println("[DEBUG] " + s);
+		if (Level.DEBUG.ordinal() >= minLevel)
+			log(Level.DEBUG, WALKER.getCallerClass(), s, null);
+	}
+
+	public static void debug(Supplier<String> s) {
+		if (Level.DEBUG.ordinal() >= minLevel)
+			log(Level.DEBUG, WALKER.getCallerClass(), null, s);
 	}
 
 	public static void error(String s) {
-		System.err.println("[ERROR] " + s);
+		if (Level.ERROR.ordinal() >= minLevel)
+			log(Level.ERROR, WALKER.getCallerClass(), s, null);
+	}
+
+	public static void error(Supplier<String> s) {
+		if (Level.ERROR.ordinal() >= minLevel)
+			log(Level.ERROR, WALKER.getCallerClass(), null, s);
+	}
+
+	/**
+	 * Sets the level for a package or class and everything inside it. The most
+	 * specific name that matches a logger wins.
+	 *
+	 * @param name  Package or fully qualified class name, e.g. "databasePart1"
+	 * @param level Lowest level to write, or null to use the enclosing level
+	 */
+	public static void setLevel(String name, Level level) {
+		if (level == null)
+			levels.remove(name);
+		else
+			levels.put(name, level);
+		levelsChanged();
+	}
+
+	/**
+	 * Sets the level for loggers with no more specific level set.
+	 */
+	public static void setRootLevel(Level level) {
+		rootLevel = level;
+		levelsChanged();
+	}
+
+	/**
+	 * @param name Fully qualified class name of a logger
+	 * @return The lowest level that logger writes
+	 */
+	public static Level getLevel(String name) {
+		return resolved.computeIfAbsent(name, LogUtil::resolveLevel);
+	}
+
+	/**
+	 * @return Whether the calling class writes messages of a level
+	 */
+	public static boolean isEnabled(Level level) {
+		return level.ordinal() >= minLevel && level.ordinal() >= getLevel(WALKER.getCallerClass().getName()).ordinal();
+	}
+
+	private static void levelsChanged() {
+		resolved.clear();
+		int min = rootLevel.ordinal();
+		for (Level level : levels.values())
+			min = Math.min(min, level.ordinal());
+		minLevel = min;
+	}
+
+	private static Level resolveLevel(String name) {
+		String prefix = name;
+		while (true) {
+			Level level = levels.get(prefix);
+			if (level != null)
+				return level;
+			int dot = prefix.lastIndexOf('.');
+			if (dot < 0)
+				return rootLevel;
+			prefix = prefix.substring(0, dot);
+		}
+	}
+
+	/**
+	 * Sends the log to a different directory, for example in tests. Messages
+	 * already queued are written to the old file first.
+	 *
+	 * @param dir          Directory to write {@value #FILE_NAME} to
+	 * @param maxFileBytes Size at which the file is rotated
+	 * @param maxFiles     Number of rotated files to keep
+	 */
+	public static void setOutput(Path dir, long maxFileBytes, int maxFiles) {
+		synchronized (drainLock) {
+			drain();
+			if (file != null)
+				file.close();
+			file = new RotatingFile(dir, maxFileBytes, maxFiles);
+		}
+	}
+
+	/**
+	 * Sets whether messages are echoed to the console as well as the file.
+	 */
+	public static void setConsoleEcho(boolean echo) {
+		echoToConsole = echo;
+	}
+
+	/**
+	 * Writes every message logged so far before returning.
+	 */
+	public static void flush() {
+		synchronized (drainLock) {
+			drain();
+			if (file != null)
+				file.flush();
+		}
+	}
+
+	/**
+	 * Queues a message if its level is enabled for the class that logged it. The
+	 * public methods check {@link #minLevel} first, so a message disabled
+	 * everywhere costs one comparison.
+	 */
+	private static void log(Level level, Class<?> caller, String message, Supplier<String> supplier) {
+		String logger = caller.getName();
+		if (level.ordinal() < getLevel(logger).ordinal())
+			return;
+		if (message == null)
+			message = supplier.get();
+		offer(new Entry(System.currentTimeMillis(), level, Thread.currentThread().getName(), logger, message));
+	}
+
+	private static void offer(Entry entry) {
+		while (true) {
+			long pos = tail.get();
+			int index = (int) (pos & MASK);
+			long diff = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					slots.set(index, entry);
+					sequences.set(index, pos + 1);
+					return;
+				}
+			} else if (diff < 0) {
+				dropped.incrementAndGet(); // Full; the writer is too far behind
+				return;
+			}
+			// Otherwise another producer claimed the slot first; try the next one
+		}
+	}
+
+	private static void drainForever() {
+		while (true) {
+			int written;
+			synchronized (drainLock) {
+				written = drain();
+				if (written > 0 && file != null)
+					file.flush();
+			}
+			if (written == 0)
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+		}
+	}
+
+	/**
+	 * Writes every published message. Callers must hold drainLock.
+	 *
+	 * @return Number of messages written
+	 */
+	private static int drain() {
+		int written = 0;
+		while (true) {
+			int index = (int) (head & MASK);
+			if (sequences.get(index) != head + 1)
+				break;
+			Entry entry = slots.get(index);
+			slots.set(index, null);
+			sequences.set(index, head + CAPACITY);
+			head++;
+			write(entry);
+			written++;
+		}
+		long lost = dropped.getAndSet(0);
+		if (lost > 0)
+			write(new Entry(System.currentTimeMillis(), Level.ERROR, Thread.currentThread().getName(),
+					LogUtil.class.getName(), "Dropped " + lost + " message(s) because the log buffer was full"));
+		return written;
+	}
+
+	private static void write(Entry entry) {
+		String line = format(entry);
+		if (file != null)
+			file.write(line);
+		if (echoToConsole) {
+			PrintStream out = entry.level == Level.ERROR ? System.err : System.out;
+			out.println(line);
+		}
+	}
+
+	private static String format(Entry entry) {
+		StringBuilder sb = new StringBuilder(96 + entry.message.length());
+		sb.append("ts=");
+		TIME_FORMAT.formatTo(Instant.ofEpochMilli(entry.time), sb);
+		sb.append(" level=").append(entry.level.name());
+		sb.append(" thread=");
+		appendValue(sb, entry.thread);
+		sb.append(" logger=").append(entry.logger);
+		sb.append(" msg=");
+		appendValue(sb, entry.message);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends a value, quoting it if it contains spaces, quotes or line breaks so
+	 * that each message stays on one line.
+	 */
+	private static void appendValue(StringBuilder sb, String value) {
+		boolean quote = value.isEmpty();
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c <= ' ' || c == '"' || c == '=';
+		}
+		if (!quote) {
+			sb.append(value);
+			return;
+		}
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	private static final class Entry {
+		private final long time;
+		private final Level level;
+		private final String thread;
+		private final String logger;
+		private final String message;
+
+		private Entry(long time, Level level, String thread, String logger, String message) {
+			this.time = time;
+			this.level = level;
+			this.thread = thread;
+			this.logger = logger;
+			this.message = message == null ? "null" : message;
+		}
+	}
+
+	/**
+	 * The current log file. When it would grow past its limit, it is renamed to
+	 * {@value #FILE_NAME}.1, older files move up by one, and the oldest is
+	 * deleted. Only used while holding drainLock.
+	 */
+	private static final class RotatingFile {
+		private final Path dir;
+		private final long maxBytes;
+		private final int maxFiles;
+		private Writer writer;
+		private long size;
+
+		private RotatingFile(Path dir, long maxBytes, int maxFiles) {
+			this.dir = dir;
+			this.maxBytes = maxBytes;
+			this.maxFiles = maxFiles;
+			this.open();
+		}
+
+		private void open() {
+			try {
+				Files.createDirectories(this.dir);
+				Path path = this.dir.resolve(FILE_NAME);
+				this.size = Files.exists(path) ? Files.size(path) : 0;
+				this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND);
+			} catch (IOException e) {
+				System.err.println("Failed to open the log file in " + this.dir + ": " + e.getMessage());
+				this.writer = null;
+			}
+		}
+
+		private void write(String line) {
+			// Log lines are nearly always ASCII, so characters approximate bytes
+			if (this.size + line.length() + 1 > this.maxBytes && this.size > 0)
+				this.rotate();
+			if (this.writer == null)
+				return;
+			try {
+				this.writer.write(line);
+				this.writer.write('\n');
+				this.size += line.length() + 1;
+			} catch (IOException e) {
+				System.err.println("Failed to write to the log file: " + e.getMessage());
+			}
+		}
+
+		private void rotate() {
+			this.close();
+			try {
+				Files.deleteIfExists(this.dir.resolve(FILE_NAME + "." + this.maxFiles));
+				for (int i = this.maxFiles - 1; i >= 1; i--) {
+					Path from = this.dir.resolve(FILE_NAME + "." + i);
+					if (Files.exists(from))
+						Files.move(from, this.dir.resolve(FILE_NAME + "." + (i + 1)),
+								StandardCopyOption.REPLACE_EXISTING);
+				}
+				Path current = this.dir.resolve(FILE_NAME);
+				if (this.maxFiles > 0)
+					Files.move(current, this.dir.resolve(FILE_NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+				else
+					Files.deleteIfExists(current);
+			} catch (IOException e) {
+				System.err.println("Failed to rotate the log file: " + e.getMessage());
+			}
+			this.open();
+		}
+
+		private void flush() {
+			if (this.writer == null)
+				return;
+			try {
+				this.writer.flush();
+			} catch (IOException e) {
+				System.err.println("Failed to flush the log file: " + e.getMessage());
+			}
+		}
+
+		private void close() {
+			if (this.writer == null)
+				return;
+			try {
+				this.writer.close();
+			} catch (IOException e) {
+				System.err.println("Failed to close the log file: " + e.getMessage());
+			}
+			this.writer = null;
+		}
 	}
 }
@@ -0,0 +1,127 @@
+package application.util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * One page of rows returned by a manager's keyset-paginated {@code page}
+ * method. Rather than skipping a number of rows with OFFSET, each page starts
+ * after the ID of the last row on the previous page, so fetching any page
+ * costs the same indexed range scan no matter how deep into the table it is.
+ *
+ * <pre>
+ * Page&lt;Question&gt; page = questionManager.page(0, 25, Page.Sort.NEWEST_FIRST);
+ * ...
+ * page = questionManager.page(page.getNextAfterId(), 25, Page.Sort.NEWEST_FIRST);
+ * </pre>
+ *
+ * @param <T> Type of object on the page
+ */
+public class Page<T> {
+
+	/**
+	 * Order in which rows are paged through. IDs are assigned in creation order,
+	 * so ordering by ID is also ordering by age.
+	 */
+	public enum Sort {
+		OLDEST_FIRST, NEWEST_FIRST
+	}
+
+	private final List<T> items;
+	private final int nextAfterId;
+	private final boolean hasMore;
+
+	private Page(List<T> items, int nextAfterId, boolean hasMore) {
+		this.items = Collections.unmodifiableList(items);
+		this.nextAfterId = nextAfterId;
+		this.hasMore = hasMore;
+	}
+
+	/**
+	 * Builds a page from rows fetched with a limit of one more than the page
+	 * size. The extra row, if present, is dropped and only used to tell whether
+	 * another page follows.
+	 *
+	 * @param rows  Rows fetched with {@link #sql(String, int, Sort)}
+	 * @param limit Page size
+	 * @param idOf  Gets the ID of a row
+	 * @return Page holding at most {@code limit} rows
+	 */
+	public static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> idOf) {
+		boolean hasMore = rows.size() > limit;
+		List<T> items = hasMore ? rows.subList(0, limit) : rows;
+		int nextAfterId = items.isEmpty() ? 0 : idOf.applyAsInt(items.get(items.size() - 1));
+		return new Page<>(items, nextAfterId, hasMore);
+	}
+
+	/**
+	 * Creates a page with the same position as this one but different items. Use
+	 * it when rows are converted after reading, so that rows dropped during the
+	 * conversion do not affect where the next page starts.
+	 *
+	 * @param items Items for the new page
+	 * @return Page holding the given items
+	 */
+	public <R> Page<R> withItems(List<R> items) {
+		return new Page<>(items, this.nextAfterId, this.hasMore);
+	}
+
+	/**
+	 * Builds the SQL for a keyset page over a table's primary key. The statement
+	 * takes the after ID as its first parameter, unless {@code afterId} is 0 or
+	 * less, followed by the row limit.
+	 *
+	 * @param table   Table to page through
+	 * @param afterId ID of the last row on the previous page, or 0 for the first
+	 *                page
+	 * @param sort    Order to page in
+	 * @return SQL for the page query
+	 */
+	public static String sql(String table, int afterId, Sort sort) {
+		boolean ascending = sort == Sort.OLDEST_FIRST;
+		String where = afterId > 0 ? (ascending ? " WHERE id > ?" : " WHERE id < ?") : "";
+		return "SELECT * FROM " + table + where + " ORDER BY id " + (ascending ? "ASC" : "DESC") + " LIMIT ?";
+	}
+
+	/**
+	 * Binds the parameters of a statement prepared from
+	 * {@link #sql(String, int, Sort)}. One row more than the page size is
+	 * requested so that {@link #of(List, int, ToIntFunction)} can tell whether
+	 * another page follows.
+	 *
+	 * @param stmt    Statement to bind
+	 * @param afterId Same after ID the SQL was built with
+	 * @param limit   Page size
+	 * @throws SQLException
+	 */
+	public static void bind(PreparedStatement stmt, int afterId, int limit) throws SQLException {
+		int index = 1;
+		if (afterId > 0)
+			stmt.setInt(index++, afterId);
+		stmt.setInt(index, limit + 1);
+	}
+
+	/**
+	 * @return Rows on this page, in page order
+	 */
+	public List<T> getItems() {
+		return this.items;
+	}
+
+	/**
+	 * @return ID to pass as {@code afterId} to fetch the following page
+	 */
+	public int getNextAfterId() {
+		return this.nextAfterId;
+	}
+
+	/**
+	 * @return true if at least one more row follows this page
+	 */
+	public boolean hasMore() {
+		return this.hasMore;
+	}
+}
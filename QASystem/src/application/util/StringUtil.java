@@ -5,6 +5,41 @@ public class StringUtil {
 	private StringUtil() {
 	} // Prevent accidental construction
 
+	// Bits per block of the bit-parallel algorithm
+	private static final int WORD_SIZE = 64;
+	// The banded dynamic program is used when its band is narrower than this many
+	// cells per block the bit-parallel algorithm would need
+	private static final int BAND_CELLS_PER_BLOCK = 8;
+
+	// Per-thread scratch space, so distance checks in a loop do not allocate
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	private static class Scratch {
+		// Match masks of ASCII characters, one word per block: masks[c * blocks + block]
+		long[] masks = new long[128];
+		long[] pv = new long[1];
+		long[] mv = new long[1];
+		char[] folded = new char[0];
+		int[] prev = new int[0];
+		int[] cur = new int[0];
+
+		void ensureBlocks(int blocks) {
+			if (this.pv.length < blocks) {
+				this.masks = new long[128 * blocks];
+				this.pv = new long[blocks];
+				this.mv = new long[blocks];
+			}
+		}
+
+		void ensureColumns(int columns) {
+			if (this.folded.length < columns) {
+				this.folded = new char[columns];
+				this.prev = new int[columns + 1];
+				this.cur = new int[columns + 1];
+			}
+		}
+	}
+
 	/**
 	 * Measures the similarity between two Strings using the common Levenshtein
 	 * distance function.
@@ -14,54 +49,259 @@ public class StringUtil {
 	 * @return 0.00 if no similarities are found; 1.00 if parameters are identical
 	 */
 	public static double getSimilarity(String first, String second) {
-		String longString = first;
-		String shortString = second;
-		// Ensure that the longer String always has the greater length
-		if (longString.length() < second.length()) {
-			longString = second;
-			shortString = first;
-		}
+		return StringUtil.getSimilarity(first, second, 0.0);
+	}
 
-		int longLength = longString.length();
+	/**
+	 * Measures the similarity between two Strings like
+	 * {@link #getSimilarity(String, String)}, but gives up as soon as it is clear
+	 * the result would be below a threshold. Much cheaper when most pairs are
+	 * dissimilar.
+	 * 
+	 * @param first         Initial string
+	 * @param second        Second string to compare with
+	 * @param minSimilarity Lowest similarity of interest, from 0.00 to 1.00
+	 * @return Similarity of the strings, or 0.00 if it is below minSimilarity
+	 */
+	public static double getSimilarity(String first, String second, double minSimilarity) {
+		int longLength = Math.max(first.length(), second.length());
 		if (longLength == 0)
 			return 1.0; // Strings have identical length
-		return (longLength - StringUtil.getLevenshteinDistance(longString, shortString)) / (double) longLength;
+
+		// similarity >= min  <=>  distance <= longLength * (1 - min); the epsilon absorbs rounding
+		int maxDistance = minSimilarity <= 0 ? longLength : (int) (longLength * (1 - minSimilarity) + 1e-9);
+		int distance = StringUtil.getLevenshteinDistance(first, second, maxDistance);
+		if (distance < 0)
+			return 0.0;
+		return (longLength - distance) / (double) longLength;
 	}
 
 	/**
 	 * Gets the Levenshtein distance between two Strings. It tries to measure the
 	 * distance between two Strings by the amount of character changes required to
-	 * turn one String into another.
+	 * turn one String into another. Case is ignored.
+	 * 
+	 * @param s1 First string
+	 * @param s2 Second string
+	 * @return Number of single-character insertions, deletions and substitutions
+	 *         needed to turn one string into the other
+	 */
+	public static int getLevenshteinDistance(CharSequence s1, CharSequence s2) {
+		return StringUtil.getLevenshteinDistance(s1, s2, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the Levenshtein distance between two Strings, ignoring case, if it is
+	 * no more than a limit. The work stops as soon as the limit is known to be
+	 * exceeded.
 	 * 
-	 * @param s1
-	 * @param s2
-	 * @return
+	 * <p>
+	 * After trimming the common prefix and suffix, a shorter side of up to 64
+	 * characters is handled with Myers' bit-parallel algorithm, one machine word
+	 * per character of the longer side. Longer inputs use the classic dynamic
+	 * program restricted to the diagonal band the limit allows. Case is folded one
+	 * character at a time, so no lowercase copies are made.
+	 * 
+	 * @param s1          First string
+	 * @param s2          Second string
+	 * @param maxDistance Largest distance of interest
+	 * @return The distance, or -1 if it is greater than maxDistance
 	 */
-	public static int getLevenshteinDistance(String s1, String s2) {
-		s1 = s1.toLowerCase();
-		s2 = s2.toLowerCase();
-
-		int[] costs = new int[s2.length() + 1];
-
-		for (int i = 0; i <= s1.length(); i++) {
-			int lastValue = i;
-			for (int j = 0; j <= s2.length(); j++) {
-				if (i == 0) {
-					costs[j] = j;
-				} else {
-					if (j > 0) {
-						int newValue = costs[j - 1];
-						if (s1.charAt(i - 1) != s2.charAt(j - 1))
-							newValue = Math.min(Math.min(newValue, lastValue), costs[j]) + 1;
-						costs[j - 1] = lastValue;
-						lastValue = newValue;
+	public static int getLevenshteinDistance(CharSequence s1, CharSequence s2, int maxDistance) {
+		if (maxDistance < 0)
+			return -1;
+		// Let a be the shorter string
+		CharSequence a = s1;
+		CharSequence b = s2;
+		if (a.length() > b.length()) {
+			a = s2;
+			b = s1;
+		}
+		if (b.length() - a.length() > maxDistance)
+			return -1; // Every extra character costs at least one edit
+
+		// Matching ends never change the distance, so skip them
+		int start = 0;
+		int aEnd = a.length();
+		int bEnd = b.length();
+		while (start < aEnd && fold(a.charAt(start)) == fold(b.charAt(start)))
+			start++;
+		while (aEnd > start && fold(a.charAt(aEnd - 1)) == fold(b.charAt(bEnd - 1))) {
+			aEnd--;
+			bEnd--;
+		}
+
+		int m = aEnd - start;
+		int n = bEnd - start;
+		if (m == 0)
+			return n <= maxDistance ? n : -1;
+
+		int blocks = (m + WORD_SIZE - 1) / WORD_SIZE;
+		long band = 2L * Math.min(maxDistance, n) + 1;
+		int distance;
+		if (band < (long) blocks * BAND_CELLS_PER_BLOCK)
+			distance = bandedDistance(a, start, m, b, start, n, maxDistance);
+		else
+			distance = bitParallelDistance(a, start, m, b, start, n, maxDistance);
+		return distance <= maxDistance ? distance : -1;
+	}
+
+	/**
+	 * Myers' bit-parallel edit distance, in Hyyrö's block-based formulation. The
+	 * shorter string is split into blocks of 64 characters, and each bit of a
+	 * block's vertical delta vectors holds the difference between neighbouring
+	 * cells of one column of the dynamic program. A whole column is computed with
+	 * a handful of word operations per block, passing the horizontal delta at the
+	 * bottom of each block on to the next.
+	 * 
+	 * @return The distance, or a value greater than maxDistance if it is exceeded
+	 */
+	private static int bitParallelDistance(CharSequence a, int aOff, int m, CharSequence b, int bOff, int n,
+			int maxDistance) {
+		int blocks = (m + WORD_SIZE - 1) / WORD_SIZE;
+		Scratch scratch = SCRATCH.get();
+		scratch.ensureBlocks(blocks);
+		long[] masks = scratch.masks;
+		long[] pv = scratch.pv;
+		long[] mv = scratch.mv;
+		for (int i = 0; i < m; i++) {
+			char c = fold(a.charAt(aOff + i));
+			if (c < 128)
+				masks[c * blocks + i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+		}
+		for (int k = 0; k < blocks; k++) {
+			pv[k] = -1L;
+			mv[k] = 0L;
+		}
+
+		int lastBlock = blocks - 1;
+		long lastBit = 1L << ((m - 1) % WORD_SIZE);
+		int score = m;
+		try {
+			for (int j = 0; j < n; j++) {
+				char c = fold(b.charAt(bOff + j));
+				// The top row of the table counts up by one per column
+				int hin = 1;
+				for (int k = 0; k < blocks; k++) {
+					long eq = c < 128 ? masks[c * blocks + k] : matchMask(a, aOff, m, k, c);
+					long p = pv[k];
+					long mm = mv[k];
+					long xv = eq | mm;
+					if (hin < 0)
+						eq |= 1;
+					long xh = (((eq & p) + p) ^ p) | eq;
+					long ph = mm | ~(xh | p);
+					long mh = p & xh;
+					int hout;
+					if (k == lastBlock) {
+						// Bits past the end of the string are never read
+						hout = (ph & lastBit) != 0 ? 1 : (mh & lastBit) != 0 ? -1 : 0;
+						score += hout;
+					} else {
+						hout = (int) (ph >>> 63) - (int) (mh >>> 63);
 					}
+					ph <<= 1;
+					mh <<= 1;
+					if (hin < 0)
+						mh |= 1;
+					else if (hin > 0)
+						ph |= 1;
+					pv[k] = mh | ~(xv | ph);
+					mv[k] = ph & xv;
+					hin = hout;
 				}
+				// The score can drop by at most one per remaining character
+				if (score - (n - j - 1) > maxDistance)
+					return maxDistance + 1;
+			}
+			return score;
+		} finally {
+			for (int i = 0; i < m; i++) {
+				char c = fold(a.charAt(aOff + i));
+				if (c < 128)
+					masks[c * blocks + i / WORD_SIZE] = 0;
 			}
-			if (i > 0)
-				costs[s2.length()] = lastValue;
 		}
-		return costs[s2.length()];
+	}
+
+	/**
+	 * Builds the match mask of one block for a character outside the ASCII table
+	 * by scanning that block of the pattern.
+	 */
+	private static long matchMask(CharSequence a, int aOff, int m, int block, char c) {
+		long mask = 0;
+		int from = block * WORD_SIZE;
+		int to = Math.min(m, from + WORD_SIZE);
+		for (int i = from; i < to; i++) {
+			if (fold(a.charAt(aOff + i)) == c)
+				mask |= 1L << (i - from);
+		}
+		return mask;
+	}
+
+	/**
+	 * Classic two-row dynamic program, computing only the cells within
+	 * maxDistance of the diagonal and stopping once a whole row exceeds it. Cells
+	 * outside the band can never lead to a distance within the limit.
+	 * 
+	 * @return The distance, or a value greater than maxDistance if it is exceeded
+	 */
+	private static int bandedDistance(CharSequence a, int aOff, int m, CharSequence b, int bOff, int n,
+			int maxDistance) {
+		int band = Math.min(maxDistance, n);
+		int unreachable = band + 1;
+		Scratch scratch = SCRATCH.get();
+		scratch.ensureColumns(m);
+		char[] folded = scratch.folded;
+		int[] prev = scratch.prev;
+		int[] cur = scratch.cur;
+		for (int i = 0; i < m; i++)
+			folded[i] = fold(a.charAt(aOff + i));
+
+		for (int i = 0; i <= m; i++)
+			prev[i] = i <= band ? i : unreachable;
+
+		// Rows walk the longer string b; columns walk the shorter string a
+		for (int j = 1; j <= n; j++) {
+			char c = fold(b.charAt(bOff + j - 1));
+			int lo = Math.max(1, j - band);
+			int hi = Math.min(m, j + band);
+			cur[lo - 1] = lo == 1 && j <= band ? j : unreachable;
+			int left = cur[lo - 1];
+			int rowMin = left;
+			for (int i = lo; i <= hi; i++) {
+				int value = prev[i - 1] + (folded[i - 1] == c ? 0 : 1);
+				int up = prev[i] + 1;
+				if (up < value)
+					value = up;
+				if (left + 1 < value)
+					value = left + 1;
+				if (value > unreachable)
+					value = unreachable;
+				cur[i] = value;
+				left = value;
+				if (value < rowMin)
+					rowMin = value;
+			}
+			if (hi < m)
+				cur[hi + 1] = unreachable;
+			if (rowMin > band)
+				return unreachable;
+
+			int[] swap = prev;
+			prev = cur;
+			cur = swap;
+		}
+		return prev[m];
+	}
+
+	/**
+	 * Folds a character to lower case, with a shortcut for ASCII.
+	 */
+	private static char fold(char c) {
+		if (c < 128)
+			return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+		return Character.toLowerCase(c);
 	}
 
 	/**
@@ -0,0 +1,266 @@
+package application.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from tag to the IDs of the entities carrying it. Each tag's
+ * IDs are kept in a sorted int array, which costs four bytes per ID no matter
+ * how rare the tag is. Queries collect matching IDs into a {@link BitSet} so
+ * that AND, OR and NOT run a machine word at a time.
+ *
+ * <p>
+ * Substring lookups go through a second index from every n-gram (up to
+ * {@link #GRAM_LENGTH} characters) to the distinct tags containing it, so only
+ * the few tags sharing all of a fragment's n-grams have to be checked with
+ * {@link String#contains(CharSequence)}.
+ *
+ * <p>
+ * Tags are compared case-insensitively. This class is not thread safe; it is
+ * meant to be updated and queried on the same thread as the cache it indexes.
+ */
+public class TagIndex {
+
+	public static final int GRAM_LENGTH = 3;
+
+	private final Map<String, Postings> idsByTag = new HashMap<>();
+	private final Map<String, Set<String>> tagsByGram = new HashMap<>();
+	private final Map<Integer, Set<String>> tagsById = new HashMap<>();
+
+	/**
+	 * Indexes an entity under the given tags, replacing any tags it was indexed
+	 * under before.
+	 *
+	 * @param id   Entity ID
+	 * @param tags Tags of the entity
+	 */
+	public void put(int id, Collection<String> tags) {
+		this.remove(id);
+		Set<String> normalized = new HashSet<>();
+		for (String tag : tags) {
+			String t = normalize(tag);
+			if (!t.isEmpty())
+				normalized.add(t);
+		}
+		for (String t : normalized) {
+			Postings ids = this.idsByTag.get(t);
+			if (ids == null) {
+				ids = new Postings();
+				this.idsByTag.put(t, ids);
+				this.addGrams(t);
+			}
+			ids.add(id);
+		}
+		this.tagsById.put(id, normalized);
+	}
+
+	/**
+	 * Removes an entity from the index.
+	 *
+	 * @param id Entity ID
+	 */
+	public void remove(int id) {
+		Set<String> tags = this.tagsById.remove(id);
+		if (tags == null)
+			return;
+		for (String t : tags) {
+			Postings ids = this.idsByTag.get(t);
+			ids.remove(id);
+			if (ids.isEmpty()) {
+				this.idsByTag.remove(t);
+				this.removeGrams(t);
+			}
+		}
+	}
+
+	/**
+	 * Removes every entity from the index.
+	 */
+	public void clear() {
+		this.idsByTag.clear();
+		this.tagsByGram.clear();
+		this.tagsById.clear();
+	}
+
+	/**
+	 * Gets the IDs of entities with a tag equal to the given one.
+	 *
+	 * @param tag Tag to look up
+	 * @return New set of matching IDs
+	 */
+	public BitSet withTag(String tag) {
+		BitSet result = new BitSet();
+		Postings ids = this.idsByTag.get(normalize(tag));
+		if (ids != null)
+			ids.addTo(result);
+		return result;
+	}
+
+	/**
+	 * Gets the IDs of entities with at least one tag containing the given
+	 * fragment.
+	 *
+	 * @param fragment Substring to look for
+	 * @return New set of matching IDs
+	 */
+	public BitSet containing(String fragment) {
+		BitSet result = new BitSet();
+		String f = normalize(fragment);
+		if (f.isEmpty())
+			return result;
+		for (String tag : this.candidateTags(f)) {
+			if (tag.contains(f))
+				this.idsByTag.get(tag).addTo(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Evaluates a boolean tag query using substring matching for each term. An
+	 * entity matches if it matches every {@code allOf} term, at least one
+	 * {@code anyOf} term (when any are given), and no {@code noneOf} term.
+	 *
+	 * @param allOf  Terms that must all match; may be empty
+	 * @param anyOf  Terms of which one must match; may be empty
+	 * @param noneOf Terms that must not match; may be empty
+	 * @return New set of matching IDs
+	 */
+	public BitSet query(Collection<String> allOf, Collection<String> anyOf, Collection<String> noneOf) {
+		BitSet result = null;
+		for (String term : allOf) {
+			BitSet ids = this.containing(term);
+			if (result == null)
+				result = ids;
+			else
+				result.and(ids);
+		}
+		if (!anyOf.isEmpty()) {
+			BitSet union = new BitSet();
+			for (String term : anyOf)
+				union.or(this.containing(term));
+			if (result == null)
+				result = union;
+			else
+				result.and(union);
+		}
+		if (result == null) {
+			// Only exclusions were given, so start from every indexed entity
+			result = new BitSet();
+			for (int id : this.tagsById.keySet())
+				result.set(id);
+		}
+		for (String term : noneOf) {
+			if (result.isEmpty())
+				break;
+			result.andNot(this.containing(term));
+		}
+		return result;
+	}
+
+	/**
+	 * @return Number of distinct tags in the index
+	 */
+	public int tagCount() {
+		return this.idsByTag.size();
+	}
+
+	/**
+	 * Finds the tags that could contain a normalized fragment. Fragments no longer
+	 * than an n-gram are looked up directly; longer ones intersect the tags of
+	 * each of their n-grams.
+	 */
+	private Set<String> candidateTags(String f) {
+		if (f.length() <= GRAM_LENGTH)
+			return this.tagsByGram.getOrDefault(f, Set.of());
+
+		Set<String> candidates = null;
+		for (int i = 0; i + GRAM_LENGTH <= f.length(); i++) {
+			Set<String> tags = this.tagsByGram.get(f.substring(i, i + GRAM_LENGTH));
+			if (tags == null)
+				return Set.of();
+			if (candidates == null)
+				candidates = new HashSet<>(tags);
+			else
+				candidates.retainAll(tags);
+			if (candidates.isEmpty())
+				break;
+		}
+		return candidates;
+	}
+
+	private void addGrams(String tag) {
+		for (String gram : grams(tag))
+			this.tagsByGram.computeIfAbsent(gram, k -> new HashSet<>()).add(tag);
+	}
+
+	private void removeGrams(String tag) {
+		for (String gram : grams(tag)) {
+			Set<String> tags = this.tagsByGram.get(gram);
+			tags.remove(tag);
+			if (tags.isEmpty())
+				this.tagsByGram.remove(gram);
+		}
+	}
+
+	/**
+	 * Gets every distinct substring of a tag that is 1 to {@link #GRAM_LENGTH}
+	 * characters long.
+	 */
+	private static Set<String> grams(String tag) {
+		Set<String> grams = new HashSet<>();
+		for (int len = 1; len <= GRAM_LENGTH; len++)
+			for (int i = 0; i + len <= tag.length(); i++)
+				grams.add(tag.substring(i, i + len));
+		return grams;
+	}
+
+	private static String normalize(String tag) {
+		return tag.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Sorted, duplicate-free list of IDs. IDs are usually added in increasing
+	 * order, since new entities get the highest ID so far, which makes adding an
+	 * append.
+	 */
+	private static class Postings {
+		private int[] ids = new int[2];
+		private int size = 0;
+
+		void add(int id) {
+			int pos = this.size == 0 || this.ids[this.size - 1] < id ? this.size
+					: Arrays.binarySearch(this.ids, 0, this.size, id);
+			if (pos >= 0 && pos < this.size)
+				return; // Already present
+			int insertAt = pos >= 0 ? pos : -pos - 1;
+			if (this.size == this.ids.length)
+				this.ids = Arrays.copyOf(this.ids, this.size * 2);
+			System.arraycopy(this.ids, insertAt, this.ids, insertAt + 1, this.size - insertAt);
+			this.ids[insertAt] = id;
+			this.size++;
+		}
+
+		void remove(int id) {
+			int pos = Arrays.binarySearch(this.ids, 0, this.size, id);
+			if (pos < 0)
+				return;
+			System.arraycopy(this.ids, pos + 1, this.ids, pos, this.size - pos - 1);
+			this.size--;
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void addTo(BitSet target) {
+			for (int i = 0; i < this.size; i++)
+				target.set(this.ids[i]);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.h2.api.Trigger;
+
+/**
+ * H2 row trigger that appends every insert, update and delete on a cached
+ * table to the ChangeLog table. Other clients read the log to update their
+ * caches without reloading whole tables.
+ *
+ * <p>
+ * Entries name the changed row by its ID. Tables cached by another key
+ * (invitation codes by code, reviewer profiles by user name) also record that
+ * key in rowKey.
+ *
+ * <p>
+ * Each entry records the client ID of the session that made the change
+ * (the {@code @CLIENT_ID} session variable set when the connection was opened)
+ * so that clients can skip their own changes.
+ */
+public class ChangeLogTrigger implements Trigger {
+
+	// H2 passes table names in upper case; map them to the name logged
+	private static final Map<String, String> LOGGED_NAMES = Map.of("QUESTIONS", "Questions", "ANSWERS",
+			"Answers", "QUESTIONANSWERS", "Questions", "REVIEWS", "Reviews", "MESSAGES", "Messages", "COMMENTS",
+			"Comments", "REVIEWERPROFILES", "ReviewerProfiles", "CSE360USERS", "cse360users", "INVITATIONCODES",
+			"InvitationCodes");
+	// Column holding the key a table is cached by, where that is not its ID
+	private static final Map<String, String> KEY_COLUMNS = Map.of("INVITATIONCODES", "CODE", "REVIEWERPROFILES",
+			"USERNAME");
+
+	private String loggedName;
+	private boolean isLinkTable;
+	// Index of the key column in a row, or -1 if the table is cached by ID
+	private int keyIndex = -1;
+
+	@Override
+	public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+			int type) throws SQLException {
+		this.loggedName = LOGGED_NAMES.get(tableName.toUpperCase());
+		if (this.loggedName == null)
+			throw new SQLException("ChangeLogTrigger does not support table " + tableName);
+		// A change to a question's answer links is logged as an update of the question
+		this.isLinkTable = tableName.equalsIgnoreCase("QuestionAnswers");
+
+		String keyColumn = KEY_COLUMNS.get(tableName.toUpperCase());
+		if (keyColumn != null) {
+			String query = "SELECT ORDINAL_POSITION FROM INFORMATION_SCHEMA.COLUMNS "
+					+ "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+			try (PreparedStatement stmt = conn.prepareStatement(query)) {
+				stmt.setString(1, schemaName);
+				stmt.setString(2, tableName);
+				stmt.setString(3, keyColumn);
+				ResultSet rs = stmt.executeQuery();
+				if (!rs.next())
+					throw new SQLException("Table " + tableName + " has no column " + keyColumn);
+				this.keyIndex = rs.getInt(1) - 1;
+			}
+		}
+	}
+
+	@Override
+	public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+		char operation;
+		if (this.isLinkTable)
+			operation = 'U';
+		else if (oldRow == null)
+			operation = 'I';
+		else if (newRow == null)
+			operation = 'D';
+		else
+			operation = 'U';
+
+		// The first column is the row's ID (or, for QuestionAnswers, the question's);
+		// InvitationCodes has none, since its key is the code
+		Object[] row = newRow != null ? newRow : oldRow;
+		int rowId = row[0] instanceof Number ? ((Number) row[0]).intValue() : 0;
+
+		if (this.keyIndex < 0) {
+			String insert = "INSERT INTO ChangeLog (tableName, rowId, operation, origin) VALUES (?, ?, ?, @CLIENT_ID)";
+			try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+				stmt.setString(1, this.loggedName);
+				stmt.setInt(2, rowId);
+				stmt.setString(3, String.valueOf(operation));
+				stmt.executeUpdate();
+			}
+			return;
+		}
+		String insert = "INSERT INTO ChangeLog (tableName, rowId, rowKey, operation, origin) VALUES (?, ?, ?, ?, @CLIENT_ID)";
+		try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+			stmt.setString(1, this.loggedName);
+			stmt.setInt(2, rowId);
+			stmt.setString(3, String.valueOf(row[this.keyIndex]));
+			stmt.setString(4, String.valueOf(operation));
+			stmt.executeUpdate();
+		}
+	}
+}
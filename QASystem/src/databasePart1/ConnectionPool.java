@@ -0,0 +1,183 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import application.util.LogUtil;
+
+/**
+ * A bounded pool of JDBC connections. Connections are created lazily up to a
+ * maximum size, validated before they are handed out, and tracked while
+ * borrowed so that connections which are never returned get reported.
+ *
+ * <p>
+ * Callers should not use this class directly. Connections are handed out by
+ * {@link DatabaseHelper#borrowConnection()} as {@link PooledConnection}s, which
+ * return themselves to the pool when closed.
+ */
+public class ConnectionPool {
+
+	public static final int DEFAULT_MAX_SIZE = 8;
+	public static final long BORROW_TIMEOUT_MILLIS = 10_000;
+	public static final long LEAK_THRESHOLD_MILLIS = 30_000;
+	public static final long VALIDATE_AFTER_IDLE_MILLIS = 5_000;
+	public static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int maxSize;
+
+	private final Semaphore permits;
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	private final Map<PooledConnection, Throwable> borrowed = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService leakDetector;
+
+	private volatile boolean closed = false;
+
+	public ConnectionPool(String url, String user, String password, int maxSize) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+
+		this.leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ConnectionPool-LeakDetector");
+			t.setDaemon(true);
+			return t;
+		});
+		this.leakDetector.scheduleAtFixedRate(this::reportLeaks, LEAK_THRESHOLD_MILLIS, LEAK_THRESHOLD_MILLIS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Takes a connection out of the pool, opening a new one if the pool has not
+	 * reached its maximum size yet. Blocks for up to
+	 * {@link #BORROW_TIMEOUT_MILLIS} if every connection is in use.
+	 *
+	 * @return a validated connection that must be closed after use
+	 * @throws SQLException if the pool is closed, the wait times out, or a new
+	 *                      connection cannot be opened
+	 */
+	public PooledConnection borrow() throws SQLException {
+		if (this.closed)
+			throw new SQLException("Connection pool has been closed.");
+
+		try {
+			if (!this.permits.tryAcquire(BORROW_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+				throw new SQLException("Timed out waiting for a database connection (pool size " + this.maxSize + ").");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection.", e);
+		}
+
+		try {
+			PooledConnection conn = this.takeValidIdleConnection();
+			if (conn == null)
+				conn = new PooledConnection(this, DriverManager.getConnection(this.url, this.user, this.password));
+			conn.markBorrowed();
+			this.borrowed.put(conn, new Throwable("Connection borrowed by " + Thread.currentThread().getName()));
+			return conn;
+		} catch (SQLException | RuntimeException e) {
+			this.permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Pops idle connections until one passes validation. Connections that have
+	 * only been idle briefly are trusted without a round trip.
+	 */
+	private PooledConnection takeValidIdleConnection() {
+		PooledConnection conn;
+		while ((conn = this.idle.pollFirst()) != null) {
+			if (conn.getIdleMillis() < VALIDATE_AFTER_IDLE_MILLIS)
+				return conn;
+			try {
+				if (conn.getRawConnection().isValid(VALIDATION_TIMEOUT_SECONDS))
+					return conn;
+			} catch (SQLException e) {
+				// Fall through and discard the connection
+			}
+			LogUtil.debug("Discarding stale pooled connection.");
+			conn.closeQuietly();
+		}
+		return null;
+	}
+
+	/**
+	 * Called by {@link PooledConnection#close()} to hand a connection back.
+	 */
+	void release(PooledConnection conn) {
+		if (this.borrowed.remove(conn) == null)
+			return; // Already released
+
+		if (this.closed || !conn.resetForReuse()) {
+			conn.closeQuietly();
+		} else {
+			this.idle.offerFirst(conn);
+		}
+		this.permits.release();
+	}
+
+	private void reportLeaks() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<PooledConnection, Throwable> e : this.borrowed.entrySet()) {
+			long heldFor = now - e.getKey().getBorrowedAt();
+			if (heldFor >= LEAK_THRESHOLD_MILLIS) {
+				LogUtil.error("Possible connection leak: a pooled connection has been held for " + heldFor
+						+ "ms. Printing stacktrace of the borrow site.");
+				e.getValue().printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return number of connections currently borrowed
+	 */
+	public int getActiveCount() {
+		return this.borrowed.size();
+	}
+
+	/**
+	 * @return number of open connections waiting in the pool
+	 */
+	public int getIdleCount() {
+		return this.idle.size();
+	}
+
+	/**
+	 * @return the maximum number of connections this pool will open
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Opens a connection that is not managed by the pool.
+	 */
+	Connection openUnpooled() throws SQLException {
+		return DriverManager.getConnection(this.url, this.user, this.password);
+	}
+
+	/**
+	 * Closes every idle connection and stops the leak detector. Connections that
+	 * are still borrowed are closed as they are returned.
+	 */
+	public void close() {
+		this.closed = true;
+		this.leakDetector.shutdownNow();
+		PooledConnection conn;
+		while ((conn = this.idle.pollFirst()) != null)
+			conn.closeQuietly();
+	}
+}
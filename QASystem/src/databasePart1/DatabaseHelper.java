@@ -1,15 +1,19 @@
 package databasePart1;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 import application.User;
 import application.UserRole;
@@ -24,12 +28,20 @@ public class DatabaseHelper {
 
 	// JDBC driver name and database URL
 	static final String JDBC_DRIVER = "org.h2.Driver";
-	static final String DB_URL = "jdbc:h2:~/FoundationDatabase";
+	// AUTO_SERVER lets several clients share the database file
+	static final String DB_URL = "jdbc:h2:~/FoundationDatabase;AUTO_SERVER=TRUE";
+
+	// Identifies this client's sessions in the ChangeLog; see ChangeLogTrigger
+	private static final String CLIENT_ID = UUID.randomUUID().toString();
 
 	// Database credentials
 	static final String USER = "sa";
 	static final String PASS = "";
 
+	private ConnectionPool pool = null;
+	private WriteBehindQueue writeBehind = null;
+
+	// Legacy shared connection, kept for callers that still use getConnection()
 	private Connection connection = null;
 	private Statement statement = null;
 
@@ -37,74 +49,130 @@ public class DatabaseHelper {
 		try {
 			Class.forName(JDBC_DRIVER); // Load the JDBC driver
 			LogUtil.debug("Connecting to database...");
-			connection = DriverManager.getConnection(DB_URL, USER, PASS);
+			if (pool != null)
+				closeConnection(); // Reconnecting; drop the old pool first
+			String url = DB_URL + ";INIT=SET @CLIENT_ID='" + CLIENT_ID + "'";
+			pool = new ConnectionPool(url, USER, PASS, ConnectionPool.DEFAULT_MAX_SIZE);
+			connection = pool.openUnpooled();
 			statement = connection.createStatement();
 			// Just in case we need to start anew.
 			// statement.execute("DROP ALL OBJECTS");
 
-			createTables(); // Create tables if they don't exist
+			// Create or upgrade tables as needed, holding off other clients meanwhile
+			try (PooledConnection conn = pool.borrow(); Connection lockConn = pool.openUnpooled()) {
+				new SchemaMigrator().migrate(conn, lockConn);
+			}
 		} catch (ClassNotFoundException e) {
 			System.err.println("JDBC Driver not found: " + e.getMessage());
 		}
 	}
 
-	private void createTables() throws SQLException {
-		// Create the users table
-		String userTable = "CREATE TABLE IF NOT EXISTS cse360users (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "userName VARCHAR(255) UNIQUE, " + "password VARCHAR(255), " + "firstName VARCHAR(255), "
-				+ "lastName VARCHAR(255), " + "email VARCHAR(255), " + "role VARCHAR(20))";
-		statement.execute(userTable);
-
-		// Create the invitation codes table
-		String invitationCodesTable = "CREATE TABLE IF NOT EXISTS InvitationCodes (" + "code VARCHAR(10) PRIMARY KEY, "
-				+ "isUsed BOOLEAN DEFAULT FALSE)";
-		statement.execute(invitationCodesTable);
-
-		// Create the questions table
-		String questionsTable = "CREATE TABLE IF NOT EXISTS Questions (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "title VARCHAR(255), " + "content TEXT, "
-				+ "answers VARCHAR(255), " + "tags TEXT)";
-		statement.execute(questionsTable);
-
-		// Create the answers table
-		String answersTable = "CREATE TABLE IF NOT EXISTS Answers (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "content TEXT)";
-		statement.execute(answersTable);
-
-		// Create the comments table
-		String commentsTable = "CREATE TABLE IF NOT EXISTS Comments (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "content TEXT, " + "tags TEXT, "
-				+ "parentId INT)";
-		statement.execute(commentsTable);
-
-		// Create the reviews table
-		String reviewsTable = "CREATE TABLE IF NOT EXISTS Reviews (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "content TEXT, " + "rating INT, "
-				+ "questionId INT NULL, " + "answerId INT NULL)";
-		statement.execute(reviewsTable);
-
-		// Create the ReviewerProfiles table
-		String reviewerProfilesTable = "CREATE TABLE IF NOT EXISTS ReviewerProfiles ("
-				+ "id INT AUTO_INCREMENT PRIMARY KEY, " + "userName VARCHAR(255) UNIQUE, " + "bio TEXT, "
-				+ "expertise VARCHAR(255), " + "yearsExperience INT, " + "totalReviews INT DEFAULT 0, "
-				+ "averageRating DOUBLE DEFAULT 0.0)";
-		statement.execute(reviewerProfilesTable);
-
-		// Create the Messages table
-		String messagesTable = "CREATE TABLE IF NOT EXISTS Messages (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "senderName VARCHAR(255), " + "receiverName VARCHAR(255), " + "content TEXT, "
-				+ "sentTime TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " + "isRead BOOLEAN DEFAULT FALSE)";
-		statement.execute(messagesTable);
-
-		// Create the PendingReviewers table
-		String pendingReviewersTable = "CREATE TABLE IF NOT EXISTS PendingReviewers ("
-				+ "id INT AUTO_INCREMENT PRIMARY KEY," + "userName VARCHAR(255) UNIQUE)";
-		statement.execute(pendingReviewersTable);
+	/**
+	 * Borrows a connection from the connection pool. The returned connection must
+	 * be closed once the caller is finished with it, which hands it back to the
+	 * pool. Use it in a try-with-resources block:
+	 * 
+	 * <pre>
+	 * try (PooledConnection conn = database.borrowConnection();
+	 * 		PreparedStatement stmt = conn.prepareStatement(query)) {
+	 * 	...
+	 * }
+	 * </pre>
+	 * 
+	 * @return PooledConnection that is exclusively owned by the caller
+	 * @throws SQLException if not connected or no connection became available
+	 */
+	public PooledConnection borrowConnection() throws SQLException {
+		if (pool == null)
+			throw new SQLException("Connection to database not established.");
+		return pool.borrow();
+	}
+
+	/**
+	 * Waits until every write queued for the write-behind queue so far has been
+	 * made. Call it before reads that list rows, such as pages, so that rows this
+	 * client just created are included. Must not be called while holding a
+	 * borrowed connection. Returns at once if write-behind is off.
+	 */
+	public void awaitQueuedWrites() {
+		WriteBehindQueue queue = writeBehind;
+		if (queue != null)
+			queue.flush();
+	}
+
+	/**
+	 * Waits until the writes queued so far for one row have been made. Call it
+	 * before changing or deleting a row that may have been created through the
+	 * write-behind queue. Must not be called while holding a borrowed connection.
+	 *
+	 * @param table Table of the row
+	 * @param id    ID of the row
+	 */
+	public void awaitQueuedWrite(String table, Object id) {
+		WriteBehindQueue queue = writeBehind;
+		if (queue != null)
+			queue.flush(WriteBehindQueue.key(table, id));
+	}
+
+	/**
+	 * Switches managers to write-behind mode, in which new questions, answers,
+	 * reviews and messages are persisted in the background. See
+	 * {@link WriteBehindQueue}. The mode lasts until the connection is closed.
+	 * 
+	 * @throws SQLException if not connected
+	 */
+	public void enableWriteBehind() throws SQLException {
+		this.enableWriteBehind(Runnable::run);
+	}
+
+	/**
+	 * Switches managers to write-behind mode.
+	 * 
+	 * @param callbackExecutor Runs the managers' cleanup when a queued write
+	 *                         fails, e.g. on the JavaFX application thread
+	 * @throws SQLException if not connected
+	 * @see #enableWriteBehind()
+	 */
+	public void enableWriteBehind(Executor callbackExecutor) throws SQLException {
+		if (pool == null)
+			throw new SQLException("Connection to database not established.");
+		if (writeBehind == null)
+			writeBehind = new WriteBehindQueue(pool, callbackExecutor);
+	}
+
+	/**
+	 * Gets the queue that managers should hand their writes to.
+	 * 
+	 * @return WriteBehindQueue, or null if writes should be made synchronously
+	 */
+	public WriteBehindQueue getWriteBehindQueue() {
+		return writeBehind;
+	}
+
+	/**
+	 * Gets the ID this client's sessions record in the ChangeLog table, so that
+	 * the client can recognize its own changes.
+	 * 
+	 * @return Client ID, unique per running program
+	 */
+	public String getClientId() {
+		return CLIENT_ID;
+	}
+
+	/**
+	 * Checks whether {@link #connectToDatabase()} has been called successfully.
+	 * 
+	 * @return true if connections can be borrowed; false otherwise
+	 */
+	public boolean isConnected() {
+		return pool != null;
 	}
 
 	public boolean isDatabaseEmpty() {
 		String query = "SELECT COUNT(*) FROM cse360users";
-		try (PreparedStatement pstmt = connection.prepareStatement(query); ResultSet rs = pstmt.executeQuery()) {
+		try (PooledConnection conn = borrowConnection();
+				PreparedStatement pstmt = conn.prepareStatement(query);
+				ResultSet rs = pstmt.executeQuery()) {
 			if (rs.next()) {
 				return rs.getInt(1) == 0; // true if no users
 			}
@@ -114,10 +182,22 @@ public class DatabaseHelper {
 		return false;
 	}
 
+	/**
+	 * Gets a {@link Statement} on the legacy shared connection. It is not safe to
+	 * use from more than one thread; prefer {@link #borrowConnection()}.
+	 * 
+	 * @return Statement, or null if not connected
+	 */
 	public Statement getStatement() {
 		return this.statement;
 	}
 
+	/**
+	 * Gets the legacy shared connection. It is not safe to use from more than one
+	 * thread; prefer {@link #borrowConnection()}.
+	 * 
+	 * @return Connection, or null if not connected
+	 */
 	public Connection getConnection() {
 		return this.connection;
 	}
@@ -133,7 +213,7 @@ public class DatabaseHelper {
 
 		String query = "INSERT INTO cse360users (userName, password, firstName, lastName, email, role) "
 				+ "VALUES (?, ?, ?, ?, ?, ?)";
-		try (PreparedStatement stmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setString(1, userName);
 			stmt.setString(2, password);
 			stmt.setString(3, firstName);
@@ -156,7 +236,7 @@ public class DatabaseHelper {
 	public void registerUser(User user) {
 		String query = "INSERT INTO cse360users (userName, password, firstName, lastName, email, role) "
 				+ "VALUES (?, ?, ?, ?, ?, ?)";
-		try (PreparedStatement stmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setString(1, user.getUserName());
 			stmt.setString(2, user.getPassword());
 			stmt.setString(3, user.getFirstName());
@@ -170,9 +250,91 @@ public class DatabaseHelper {
 		}
 	}
 
+	/**
+	 * Inserts many users in one transaction using a JDBC batch. If the batch
+	 * fails, for example because one of the usernames has been taken since it was
+	 * checked, the transaction is rolled back and the users are inserted one at a
+	 * time instead, so only the offending users are left out.
+	 * 
+	 * @param users Users to insert
+	 * @return Index of each user that could not be inserted
+	 */
+	public BitSet insertUsers(List<User> users) {
+		BitSet failed = new BitSet();
+		if (users.isEmpty())
+			return failed;
+		String query = "INSERT INTO cse360users (userName, password, firstName, lastName, email, role) "
+				+ "VALUES (?, ?, ?, ?, ?, ?)";
+		try (PooledConnection conn = borrowConnection()) {
+			conn.setAutoCommit(false);
+			try (PreparedStatement stmt = conn.prepareStatement(query)) {
+				for (User user : users) {
+					bindUser(stmt, user);
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+				conn.commit();
+				return failed;
+			} catch (SQLException e) {
+				conn.rollback();
+				LogUtil.error("Batch insert of " + users.size() + " user(s) failed; retrying individually.");
+			}
+
+			conn.setAutoCommit(true);
+			try (PreparedStatement stmt = conn.prepareStatement(query)) {
+				for (int i = 0; i < users.size(); i++) {
+					try {
+						bindUser(stmt, users.get(i));
+						stmt.executeUpdate();
+					} catch (SQLException e) {
+						failed.set(i);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			System.err.println("Failed to register users into the database.");
+			e.printStackTrace();
+			failed.set(0, users.size());
+		}
+		return failed;
+	}
+
+	private static void bindUser(PreparedStatement stmt, User user) throws SQLException {
+		stmt.setString(1, user.getUserName());
+		stmt.setString(2, user.getPassword());
+		stmt.setString(3, user.getFirstName());
+		stmt.setString(4, user.getLastName());
+		stmt.setString(5, user.getEmail());
+		stmt.setString(6, user.getRole().toString());
+	}
+
+	/**
+	 * Finds which of the given usernames are already taken, in one query.
+	 * 
+	 * @param userNames Usernames to look up
+	 * @return The usernames among them that already exist
+	 */
+	public Set<String> findExistingUserNames(Collection<String> userNames) {
+		Set<String> result = new HashSet<>();
+		if (userNames.isEmpty())
+			return result;
+		String query = "SELECT userName FROM cse360users WHERE userName = ANY(?)";
+		try (PooledConnection conn = borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setObject(1, userNames.toArray(new String[0]));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next())
+					result.add(rs.getString(1));
+			}
+		} catch (SQLException e) {
+			LogUtil.error("Failed to look up " + userNames.size() + " username(s)");
+			e.printStackTrace();
+		}
+		return result;
+	}
+
 	public boolean login(User user) throws SQLException {
 		String query = "SELECT * FROM cse360users WHERE userName = ? AND password = ? AND role = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement pstmt = conn.prepareStatement(query)) {
 			pstmt.setString(1, user.getUserName());
 			pstmt.setString(2, user.getPassword());
 			pstmt.setString(3, user.getRole().toString());
@@ -185,7 +347,7 @@ public class DatabaseHelper {
 	public User fetchUser(String userName) {
 		String query = "SELECT * FROM cse360users WHERE userName = ?";
 		User user = null;
-		try (PreparedStatement stmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setString(1, userName);
 			ResultSet rs = stmt.executeQuery();
 			if (rs.next()) {
@@ -202,7 +364,7 @@ public class DatabaseHelper {
 
 	public boolean doesUserExist(String userName) {
 		String query = "SELECT COUNT(*) FROM cse360users WHERE userName = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement pstmt = conn.prepareStatement(query)) {
 			pstmt.setString(1, userName);
 			ResultSet rs = pstmt.executeQuery();
 			if (rs.next()) {
@@ -217,7 +379,7 @@ public class DatabaseHelper {
 
 	public UserRole getUserRole(String userName) {
 		String query = "SELECT role FROM cse360users WHERE userName = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement pstmt = conn.prepareStatement(query)) {
 			pstmt.setString(1, userName);
 			ResultSet rs = pstmt.executeQuery();
 			if (rs.next()) {
@@ -233,7 +395,7 @@ public class DatabaseHelper {
 	public void updateUserRole(String userName, UserRole newRole) {
 		String query = "UPDATE cse360users SET role = ? WHERE userName = ?";
 
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement pstmt = conn.prepareStatement(query)) {
 			pstmt.setString(1, newRole.toString());
 			pstmt.setString(2, userName);
 
@@ -241,7 +403,7 @@ public class DatabaseHelper {
 			if (rowsUpdated == 0) {
 				LogUtil.error("Failed to update the role of a user by the name of " + userName);
 			} else {
-				System.out.println("Updated role for user: " + userName + " to " + newRole);
+				LogUtil.info("Updated role for user: " + userName + " to " + newRole);
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
@@ -251,7 +413,9 @@ public class DatabaseHelper {
 	public Set<String> getPendingReviewerNames() {
 		Set<String> result = new HashSet<>();
 		String query = "SELECT * FROM PendingReviewers";
-		try (ResultSet rs = this.statement.executeQuery(query)) {
+		try (PooledConnection conn = borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(query);
+				ResultSet rs = stmt.executeQuery()) {
 			while (rs.next()) {
 				String name = rs.getString("userName");
 				result.add(name);
@@ -266,7 +430,7 @@ public class DatabaseHelper {
 
 	public void insertIntoPendingReviewers(String userName) {
 		// Check connection to database. Return if not established
-		if (connection == null) {
+		if (!isConnected()) {
 			System.err.println("Connection to database not established. Could not insert user " + userName
 					+ " into pending reviewers.");
 			return;
@@ -275,14 +439,14 @@ public class DatabaseHelper {
 		// Attempt to insert user into table. If user already exists,
 		// an SQL Exception will be thrown
 		String insertSql = "INSERT INTO PendingReviewers (userName) VALUES (?)";
-		try (PreparedStatement stmt = connection.prepareStatement(insertSql)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement stmt = conn.prepareStatement(insertSql)) {
 			stmt.setString(1, userName);
 			stmt.executeUpdate();
-			System.out.println("Pending reviewer request submitted for: " + userName);
+			LogUtil.info("Pending reviewer request submitted for: " + userName);
 		} catch (SQLException e) {
 			// If duplicate, SQL state 23000 or similar
 			if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
-				System.out.println("User already requested reviewer role.");
+				LogUtil.info("User already requested reviewer role.");
 			} else {
 				System.err.println("Database error while inserting into PendingReviewers.");
 				e.printStackTrace();
@@ -293,10 +457,10 @@ public class DatabaseHelper {
 	public boolean removeFromPendingReviewers(String userName) {
 		String query = "DELETE FROM PendingReviewers WHERE userName = ?";
 
-		try (PreparedStatement stmt = connection.prepareStatement(query)) {
+		try (PooledConnection conn = borrowConnection(); PreparedStatement stmt = conn.prepareStatement(query)) {
 			stmt.setString(1, userName);
 			int rowsDeleted = stmt.executeUpdate();
-			System.out.println("Deleted " + rowsDeleted + " row(s) from PendingReviewers.");
+			LogUtil.debug("Deleted " + rowsDeleted + " row(s) from PendingReviewers.");
 			return rowsDeleted > 0;
 		} catch (SQLException e) {
 			e.printStackTrace();
@@ -316,44 +480,38 @@ public class DatabaseHelper {
 		}
 	}
 
-	public String generateInvitationCode() {
-		String code = UUID.randomUUID().toString().substring(0, 4);
-		String query = "INSERT INTO InvitationCodes (code) VALUES (?)";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, code);
-			pstmt.executeUpdate();
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
-		return code;
-	}
-
-	public boolean validateInvitationCode(String code) {
-		String query = "SELECT * FROM InvitationCodes WHERE code = ? AND isUsed = FALSE";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, code);
-			ResultSet rs = pstmt.executeQuery();
-			if (rs.next()) {
-				markInvitationCodeAsUsed(code);
-				return true;
+	/**
+	 * Redeems an invitation code. The check and the update are one conditional
+	 * UPDATE, so a code can only ever be redeemed once, even by concurrent
+	 * signups, and never after it has expired.
+	 * 
+	 * @param code Code to redeem
+	 * @return Role the code grants, or null if the code does not exist, has been
+	 *         used or has expired
+	 */
+	public UserRole redeemInvitationCode(String code) {
+		String query = "SELECT role FROM FINAL TABLE (UPDATE InvitationCodes SET isUsed = TRUE, usedAt = ? "
+				+ "WHERE code = ? AND isUsed = FALSE AND expiresAt > ?)";
+		try (PooledConnection conn = borrowConnection(); PreparedStatement pstmt = conn.prepareStatement(query)) {
+			LocalDateTime now = LocalDateTime.now();
+			pstmt.setObject(1, now);
+			pstmt.setString(2, code);
+			pstmt.setObject(3, now);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (rs.next())
+					return UserRole.valueOf(rs.getString("role").toUpperCase());
 			}
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
-		return false;
-	}
-
-	private void markInvitationCodeAsUsed(String code) {
-		String query = "UPDATE InvitationCodes SET isUsed = TRUE WHERE code = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, code);
-			pstmt.executeUpdate();
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
+		return null;
 	}
 
 	public void closeConnection() {
+		if (writeBehind != null) {
+			writeBehind.close(); // Flushes queued writes before the pool goes away
+			writeBehind = null;
+		}
 		try {
 			if (statement != null)
 				statement.close();
@@ -366,6 +524,11 @@ public class DatabaseHelper {
 		} catch (SQLException se) {
 			se.printStackTrace();
 		}
+		if (pool != null)
+			pool.close();
+		statement = null;
+		connection = null;
+		pool = null;
 	}
 
 }
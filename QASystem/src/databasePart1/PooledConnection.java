@@ -0,0 +1,273 @@
+package databasePart1;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link Connection} borrowed from a {@link ConnectionPool}. Closing it
+ * returns the connection to the pool instead of closing the underlying JDBC
+ * connection, so it is meant to be used in a try-with-resources block.
+ *
+ * <p>
+ * Prepared statements are cached per connection by their SQL text. Closing a
+ * statement obtained from {@link #prepareStatement(String)} keeps the
+ * underlying statement open for the next caller that prepares the same SQL.
+ *
+ * <p>
+ * A PooledConnection must only be used by the thread that borrowed it.
+ */
+public class PooledConnection implements AutoCloseable {
+
+	public static final int STATEMENT_CACHE_SIZE = 32;
+
+	private final ConnectionPool pool;
+	private final Connection connection;
+	// In access order, so the least recently used statement comes first
+	private final Map<String, CachedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long borrowedAt;
+	private long returnedAt;
+
+	PooledConnection(ConnectionPool pool, Connection connection) {
+		this.pool = pool;
+		this.connection = connection;
+		this.returnedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Prepares a statement, reusing a cached one if this connection has already
+	 * prepared the same SQL.
+	 *
+	 * @param sql SQL to prepare
+	 * @return PreparedStatement that should be closed after use
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		return this.prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+	}
+
+	/**
+	 * Prepares a statement that may return generated keys, reusing a cached one
+	 * if this connection has already prepared the same SQL.
+	 *
+	 * @param sql               SQL to prepare
+	 * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or
+	 *                          {@link Statement#NO_GENERATED_KEYS}
+	 * @return PreparedStatement that should be closed after use
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		String key = autoGeneratedKeys + ":" + sql;
+		CachedStatement cached = this.statementCache.get(key);
+		if (cached != null && cached.inUse) {
+			// Same SQL prepared twice while the first is still open; don't share
+			return this.connection.prepareStatement(sql, autoGeneratedKeys);
+		}
+		if (cached == null) {
+			cached = new CachedStatement(this.connection.prepareStatement(sql, autoGeneratedKeys));
+			this.statementCache.put(key, cached);
+		}
+		cached.inUse = true;
+		this.trimStatementCache();
+		return cached.proxy;
+	}
+
+	/**
+	 * Closes least recently used statements that are not in use until the cache is
+	 * back to {@link #STATEMENT_CACHE_SIZE}. If too many are in use at once, the
+	 * rest are closed once the connection is returned.
+	 */
+	private void trimStatementCache() {
+		Iterator<CachedStatement> it = this.statementCache.values().iterator();
+		while (this.statementCache.size() > STATEMENT_CACHE_SIZE && it.hasNext()) {
+			CachedStatement cs = it.next();
+			if (!cs.inUse) {
+				cs.closeQuietly();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return Number of prepared statements cached on this connection
+	 */
+	public int getCachedStatementCount() {
+		return this.statementCache.size();
+	}
+
+	/**
+	 * Creates a plain, uncached {@link Statement}.
+	 */
+	public Statement createStatement() throws SQLException {
+		return this.connection.createStatement();
+	}
+
+	public boolean getAutoCommit() throws SQLException {
+		return this.connection.getAutoCommit();
+	}
+
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		this.connection.setAutoCommit(autoCommit);
+	}
+
+	public void commit() throws SQLException {
+		this.connection.commit();
+	}
+
+	public void rollback() throws SQLException {
+		this.connection.rollback();
+	}
+
+	/**
+	 * Gets the underlying JDBC connection. It must not be closed directly.
+	 */
+	public Connection getRawConnection() {
+		return this.connection;
+	}
+
+	/**
+	 * Returns this connection to its pool.
+	 */
+	@Override
+	public void close() {
+		this.pool.release(this);
+	}
+
+	void markBorrowed() {
+		this.borrowedAt = System.currentTimeMillis();
+	}
+
+	long getBorrowedAt() {
+		return this.borrowedAt;
+	}
+
+	long getIdleMillis() {
+		return System.currentTimeMillis() - this.returnedAt;
+	}
+
+	/**
+	 * Rolls back any unfinished transaction and restores auto-commit so the next
+	 * borrower gets a clean connection.
+	 *
+	 * @return false if the connection is no longer usable
+	 */
+	boolean resetForReuse() {
+		try {
+			if (this.connection.isClosed())
+				return false;
+			if (!this.connection.getAutoCommit()) {
+				this.connection.rollback();
+				this.connection.setAutoCommit(true);
+			}
+			for (CachedStatement cs : this.statementCache.values())
+				cs.release();
+			this.trimStatementCache();
+			this.returnedAt = System.currentTimeMillis();
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	void closeQuietly() {
+		Iterator<CachedStatement> it = this.statementCache.values().iterator();
+		while (it.hasNext()) {
+			it.next().closeQuietly();
+			it.remove();
+		}
+		try {
+			this.connection.close();
+		} catch (SQLException e) {
+			// Nothing more can be done with a broken connection
+		}
+	}
+
+	/**
+	 * A cached statement plus the proxy handed out to callers. The proxy turns
+	 * close() into "give back to the cache" and closes any result sets the
+	 * caller forgot about.
+	 */
+	private static class CachedStatement implements InvocationHandler {
+
+		private final PreparedStatement statement;
+		private final PreparedStatement proxy;
+		private final List<ResultSet> openResults = new ArrayList<>();
+		private boolean inUse = false;
+
+		CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				this.release();
+				return null;
+			case "isClosed":
+				return !this.inUse || this.statement.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				break;
+			}
+			if (!this.inUse)
+				throw new SQLException("Statement has already been closed.");
+
+			Object result;
+			try {
+				result = method.invoke(this.statement, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (result instanceof ResultSet rs)
+				this.openResults.add(rs);
+			return result;
+		}
+
+		void release() {
+			if (!this.inUse)
+				return;
+			this.inUse = false;
+			for (ResultSet rs : this.openResults) {
+				try {
+					rs.close();
+				} catch (SQLException e) {
+					// Ignore; the statement is reused regardless
+				}
+			}
+			this.openResults.clear();
+			try {
+				this.statement.clearParameters();
+				this.statement.clearBatch();
+			} catch (SQLException e) {
+				// Ignore; parameters are overwritten by the next caller anyway
+			}
+		}
+
+		void closeQuietly() {
+			this.release();
+			try {
+				this.statement.close();
+			} catch (SQLException e) {
+				// Ignore
+			}
+		}
+	}
+}
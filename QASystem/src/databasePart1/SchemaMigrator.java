@@ -0,0 +1,392 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import application.util.LogUtil;
+
+/**
+ * Brings the database schema up to date. Each schema change is a numbered
+ * {@link Migration}; the highest applied version is recorded in the
+ * SchemaVersion table so that every migration runs exactly once per database.
+ *
+ * <p>
+ * Migrations must only ever be appended to {@link #MIGRATIONS}. Changing or
+ * reordering one that has shipped would leave existing databases out of step.
+ * Every statement is written so it also succeeds against databases created
+ * before versioning existed (IF NOT EXISTS and the like).
+ */
+public class SchemaMigrator {
+
+	// How long a client waits for another client's migration to finish
+	public static final int LOCK_TIMEOUT_MILLIS = 120_000;
+
+	/**
+	 * A single schema change.
+	 */
+	@FunctionalInterface
+	interface Step {
+		void apply(PooledConnection conn) throws SQLException;
+	}
+
+	static class Migration {
+		final int version;
+		final String description;
+		final Step step;
+
+		Migration(int version, String description, Step step) {
+			this.version = version;
+			this.description = description;
+			this.step = step;
+		}
+	}
+
+	private static final List<Migration> MIGRATIONS = List.of(
+			new Migration(1, "Create base tables", SchemaMigrator::createBaseTables),
+			new Migration(2, "Move question answers into QuestionAnswers", SchemaMigrator::createQuestionAnswers),
+			new Migration(3, "Reconcile ReviewerProfiles and PendingReviewers", SchemaMigrator::reconcileReviewerTables),
+			new Migration(4, "Add lookup indexes", SchemaMigrator::addLookupIndexes),
+			new Migration(5, "Store creation dates as TIMESTAMP", SchemaMigrator::typeCreationDates),
+			new Migration(6, "Record row changes in ChangeLog", SchemaMigrator::createChangeLog),
+			new Migration(7, "Add expiry and roles to invitation codes", SchemaMigrator::scopeInvitationCodes),
+			new Migration(8, "Add IdBlockLock for reserving ID blocks", SchemaMigrator::createIdBlockLock),
+			new Migration(9, "Record changes to the remaining cached tables", SchemaMigrator::logRemainingTables));
+
+	/**
+	 * Applies every migration newer than the database's recorded version.
+	 *
+	 * <p>
+	 * H2 commits every DDL statement on its own, so a transaction on the migrating
+	 * connection cannot keep other clients out. Instead, the whole migration runs
+	 * while a second connection holds a row lock on SchemaLock; a client that
+	 * starts at the same time waits for the lock and then finds the schema
+	 * already up to date.
+	 *
+	 * @param conn     Connection to migrate through
+	 * @param lockConn Separate connection that holds the lock; it is left in
+	 *                 auto-commit mode afterwards
+	 * @return The schema version after migrating
+	 * @throws SQLException if the lock cannot be taken or a migration fails;
+	 *                      earlier migrations stay applied
+	 */
+	public int migrate(PooledConnection conn, Connection lockConn) throws SQLException {
+		try (Statement stmt = lockConn.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS SchemaLock (id INT PRIMARY KEY)");
+			stmt.execute("MERGE INTO SchemaLock (id) KEY (id) VALUES (1)");
+			stmt.execute("SET LOCK_TIMEOUT " + LOCK_TIMEOUT_MILLIS);
+		}
+
+		lockConn.setAutoCommit(false);
+		try {
+			try (Statement stmt = lockConn.createStatement()) {
+				stmt.executeQuery("SELECT id FROM SchemaLock WHERE id = 1 FOR UPDATE").close();
+			}
+			return this.migrateLocked(conn);
+		} finally {
+			lockConn.rollback(); // Releases the lock; nothing was written through lockConn
+			lockConn.setAutoCommit(true);
+		}
+	}
+
+	private int migrateLocked(PooledConnection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS SchemaVersion (" + "version INT PRIMARY KEY, "
+					+ "description VARCHAR(255), " + "appliedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+		}
+
+		// Read only now, so migrations another client applied while we waited count
+		int current = this.getVersion(conn);
+		for (Migration m : MIGRATIONS) {
+			if (m.version <= current)
+				continue;
+			LogUtil.info("Applying schema migration " + m.version + ": " + m.description);
+			m.step.apply(conn);
+			try (PreparedStatement stmt = conn
+					.prepareStatement("INSERT INTO SchemaVersion (version, description) VALUES (?, ?)")) {
+				stmt.setInt(1, m.version);
+				stmt.setString(2, m.description);
+				stmt.executeUpdate();
+			}
+			current = m.version;
+		}
+		return current;
+	}
+
+	/**
+	 * Gets the highest migration version recorded in the database.
+	 *
+	 * @param conn Connection to query with
+	 * @return Schema version, or 0 if no migrations have been applied
+	 * @throws SQLException
+	 */
+	public int getVersion(PooledConnection conn) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT MAX(version) FROM SchemaVersion");
+				ResultSet rs = stmt.executeQuery()) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * @return The version the schema will be at once every migration is applied
+	 */
+	public static int getLatestVersion() {
+		return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+	}
+
+	// VERSION 1
+
+	private static void createBaseTables(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			// Create the users table
+			String userTable = "CREATE TABLE IF NOT EXISTS cse360users (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255) UNIQUE, " + "password VARCHAR(255), " + "firstName VARCHAR(255), "
+					+ "lastName VARCHAR(255), " + "email VARCHAR(255), " + "role VARCHAR(20))";
+			statement.execute(userTable);
+
+			// Create the invitation codes table
+			String invitationCodesTable = "CREATE TABLE IF NOT EXISTS InvitationCodes ("
+					+ "code VARCHAR(10) PRIMARY KEY, " + "isUsed BOOLEAN DEFAULT FALSE)";
+			statement.execute(invitationCodesTable);
+
+			// Create the questions table
+			String questionsTable = "CREATE TABLE IF NOT EXISTS Questions (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "title VARCHAR(255), "
+					+ "content TEXT, " + "answers VARCHAR(255), " + "tags TEXT)";
+			statement.execute(questionsTable);
+
+			// Create the answers table
+			String answersTable = "CREATE TABLE IF NOT EXISTS Answers (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "content TEXT)";
+			statement.execute(answersTable);
+
+			// Create the comments table
+			String commentsTable = "CREATE TABLE IF NOT EXISTS Comments (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "content TEXT, " + "tags TEXT, "
+					+ "parentId INT)";
+			statement.execute(commentsTable);
+
+			// Create the reviews table
+			String reviewsTable = "CREATE TABLE IF NOT EXISTS Reviews (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255), " + "creationDate VARCHAR(255), " + "content TEXT, " + "rating INT, "
+					+ "questionId INT NULL, " + "answerId INT NULL)";
+			statement.execute(reviewsTable);
+
+			// Create the ReviewerProfiles table
+			String reviewerProfilesTable = "CREATE TABLE IF NOT EXISTS ReviewerProfiles ("
+					+ "id INT AUTO_INCREMENT PRIMARY KEY, " + "userName VARCHAR(255) UNIQUE, " + "bio TEXT, "
+					+ "expertise VARCHAR(255), " + "yearsExperience INT, " + "totalReviews INT DEFAULT 0, "
+					+ "averageRating DOUBLE DEFAULT 0.0)";
+			statement.execute(reviewerProfilesTable);
+
+			// Create the Messages table
+			String messagesTable = "CREATE TABLE IF NOT EXISTS Messages (" + "id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "senderName VARCHAR(255), " + "receiverName VARCHAR(255), " + "content TEXT, "
+					+ "sentTime TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " + "isRead BOOLEAN DEFAULT FALSE)";
+			statement.execute(messagesTable);
+
+			// Create the PendingReviewers table
+			String pendingReviewersTable = "CREATE TABLE IF NOT EXISTS PendingReviewers ("
+					+ "id INT AUTO_INCREMENT PRIMARY KEY," + "userName VARCHAR(255) UNIQUE)";
+			statement.execute(pendingReviewersTable);
+		}
+	}
+
+	// VERSION 2
+
+	/**
+	 * Creates the question-to-answer relation and moves answer IDs out of the
+	 * legacy comma-separated Questions.answers column. Each question is migrated
+	 * in its own transaction that also clears the CSV value, so the migration can
+	 * be interrupted and resumed.
+	 */
+	private static void createQuestionAnswers(PooledConnection conn) throws SQLException {
+		// The primary key starts with questionId, so loading a question's answers is
+		// an index range scan.
+		try (Statement statement = conn.createStatement()) {
+			String questionAnswersTable = "CREATE TABLE IF NOT EXISTS QuestionAnswers ("
+					+ "questionId INT NOT NULL, " + "answerId INT NOT NULL, " + "PRIMARY KEY (questionId, answerId), "
+					+ "FOREIGN KEY (questionId) REFERENCES Questions(id) ON DELETE CASCADE)";
+			statement.execute(questionAnswersTable);
+		}
+
+		String select = "SELECT id, answers FROM Questions WHERE answers IS NOT NULL AND answers <> ''";
+		String merge = "MERGE INTO QuestionAnswers (questionId, answerId) KEY (questionId, answerId) VALUES (?, ?)";
+		String clear = "UPDATE Questions SET answers = NULL WHERE id = ?";
+
+		List<Integer> questionIds = new ArrayList<>();
+		List<String> csvValues = new ArrayList<>();
+		try (PreparedStatement stmt = conn.prepareStatement(select); ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				questionIds.add(rs.getInt("id"));
+				csvValues.add(rs.getString("answers"));
+			}
+		}
+
+		conn.setAutoCommit(false);
+		try (PreparedStatement mergeStmt = conn.prepareStatement(merge);
+				PreparedStatement clearStmt = conn.prepareStatement(clear)) {
+			for (int i = 0; i < questionIds.size(); i++) {
+				int questionId = questionIds.get(i);
+				for (String s : csvValues.get(i).split(",")) {
+					s = s.trim();
+					if (s.isEmpty())
+						continue;
+					try {
+						mergeStmt.setInt(1, questionId);
+						mergeStmt.setInt(2, Integer.parseInt(s));
+						mergeStmt.addBatch();
+					} catch (NumberFormatException e) {
+						LogUtil.error("Skipping malformed answer ID \"" + s + "\" on question " + questionId);
+					}
+				}
+				mergeStmt.executeBatch();
+				clearStmt.setInt(1, questionId);
+				clearStmt.executeUpdate();
+				conn.commit();
+			}
+		} finally {
+			conn.setAutoCommit(true);
+		}
+		if (!questionIds.isEmpty())
+			LogUtil.info("Migrated answer lists of " + questionIds.size() + " question(s) into QuestionAnswers.");
+	}
+
+	// VERSION 3
+
+	/**
+	 * ReviewerProfileManager used to declare its own, different versions of the
+	 * ReviewerProfiles and PendingReviewers tables. The tables created in version
+	 * 1 are the ones that exist in practice, so this only adds the column the
+	 * manager's version had that those lack.
+	 */
+	private static void reconcileReviewerTables(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			statement.execute("ALTER TABLE PendingReviewers ADD COLUMN IF NOT EXISTS "
+					+ "requestDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP");
+		}
+	}
+
+	// VERSION 4
+
+	/**
+	 * Adds indexes for the columns that managers look rows up by.
+	 */
+	private static void addLookupIndexes(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_questions_user ON Questions(userName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_answers_user ON Answers(userName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_comments_parent ON Comments(parentId)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_reviews_question ON Reviews(questionId)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_reviews_answer ON Reviews(answerId)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_reviews_user ON Reviews(userName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_receiver ON Messages(receiverName)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_sender ON Messages(senderName)");
+		}
+	}
+
+	// VERSION 5
+
+	/**
+	 * Converts the creationDate columns, which held LocalDateTime.toString()
+	 * values, to TIMESTAMP. H2 parses the ISO form during the conversion, so the
+	 * data is migrated in place. Precision 9 keeps every value exactly as it was
+	 * stored. Indexes on the new columns let managers filter by time range in SQL.
+	 */
+	private static void typeCreationDates(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			for (String table : List.of("Questions", "Answers", "Comments", "Reviews"))
+				statement.execute("ALTER TABLE " + table + " ALTER COLUMN creationDate SET DATA TYPE TIMESTAMP(9)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_questions_created ON Questions(creationDate)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_answers_created ON Answers(creationDate)");
+		}
+	}
+
+	// VERSION 6
+
+	/**
+	 * Creates the append-only ChangeLog table and the triggers that fill it. See
+	 * {@link ChangeLogTrigger}.
+	 */
+	private static void createChangeLog(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			String changeLogTable = "CREATE TABLE IF NOT EXISTS ChangeLog (" + "seq BIGINT AUTO_INCREMENT PRIMARY KEY, "
+					+ "tableName VARCHAR(32) NOT NULL, " + "rowId INT NOT NULL, " + "operation CHAR(1) NOT NULL, "
+					+ "origin VARCHAR(36), " + "changedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+			statement.execute(changeLogTable);
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_changelog_time ON ChangeLog(changedAt)");
+
+			for (String table : List.of("Questions", "Answers", "QuestionAnswers", "Reviews", "Messages")) {
+				statement.execute("CREATE TRIGGER IF NOT EXISTS trg_" + table.toLowerCase() + "_changes "
+						+ "AFTER INSERT, UPDATE, DELETE ON " + table + " FOR EACH ROW CALL '"
+						+ ChangeLogTrigger.class.getName() + "'");
+			}
+		}
+	}
+
+	// VERSION 7
+
+	/**
+	 * Gives invitation codes the role they grant, an expiry time and the time they
+	 * were used, so that InviteCodeSweeper can remove expired and used codes.
+	 * Codes that already exist are given the default role and lifetime. Used codes
+	 * are moved to InvitationCodesArchive rather than deleted.
+	 */
+	private static void scopeInvitationCodes(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			statement.execute("ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS "
+					+ "role VARCHAR(20) DEFAULT 'student' NOT NULL");
+			statement.execute("ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS "
+					+ "createdAt TIMESTAMP DEFAULT LOCALTIMESTAMP");
+			statement.execute("ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS "
+					+ "expiresAt TIMESTAMP DEFAULT DATEADD('DAY', 14, LOCALTIMESTAMP)");
+			statement.execute("ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS usedAt TIMESTAMP");
+			statement.execute("UPDATE InvitationCodes SET usedAt = LOCALTIMESTAMP WHERE isUsed = TRUE AND usedAt IS NULL");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_invitationcodes_expires ON InvitationCodes(expiresAt)");
+			statement.execute("CREATE INDEX IF NOT EXISTS idx_invitationcodes_used ON InvitationCodes(usedAt)");
+
+			String archiveTable = "CREATE TABLE IF NOT EXISTS InvitationCodesArchive ("
+					+ "id INT AUTO_INCREMENT PRIMARY KEY, " + "code VARCHAR(10), " + "role VARCHAR(20), "
+					+ "createdAt TIMESTAMP, " + "expiresAt TIMESTAMP, " + "usedAt TIMESTAMP, "
+					+ "archivedAt TIMESTAMP DEFAULT LOCALTIMESTAMP)";
+			statement.execute(archiveTable);
+		}
+	}
+
+	// VERSION 8
+
+	/**
+	 * Adds one lock row per table that WriteBehindQueue reserves ID blocks from,
+	 * so that clients sharing the database take turns moving its identity
+	 * sequence.
+	 */
+	private static void createIdBlockLock(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS IdBlockLock (tableName VARCHAR(64) PRIMARY KEY)");
+			for (String table : new String[] { "Questions", "Answers", "Reviews", "Messages" })
+				statement.execute("MERGE INTO IdBlockLock (tableName) KEY (tableName) VALUES ('" + table + "')");
+		}
+	}
+
+	// VERSION 9
+
+	/**
+	 * Extends the ChangeLog to the other tables the managers cache. Invitation
+	 * codes and reviewer profiles are cached by code and user name rather than by
+	 * ID, so entries gain a rowKey column that holds that key.
+	 */
+	private static void logRemainingTables(PooledConnection conn) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			statement.execute("ALTER TABLE ChangeLog ADD COLUMN IF NOT EXISTS rowKey VARCHAR(255)");
+			for (String table : List.of("Comments", "ReviewerProfiles", "cse360users", "InvitationCodes")) {
+				statement.execute("CREATE TRIGGER IF NOT EXISTS trg_" + table.toLowerCase() + "_changes "
+						+ "AFTER INSERT, UPDATE, DELETE ON " + table + " FOR EACH ROW CALL '"
+						+ ChangeLogTrigger.class.getName() + "'");
+			}
+		}
+	}
+}
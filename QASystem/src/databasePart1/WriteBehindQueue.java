@@ -0,0 +1,444 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import application.util.LogUtil;
+
+/**
+ * Persists writes on a background thread so that callers do not wait for a
+ * database round trip. Managers apply a change to their local cache right away
+ * and hand the matching SQL to {@link #enqueue(String, Binder)}. A single
+ * writer thread collects whatever has been queued, runs consecutive writes of
+ * the same statement as one JDBC batch and commits them in one transaction.
+ *
+ * <p>
+ * Writes are applied in the order they were enqueued. New rows are given their
+ * ID up front by {@link #reserveId(String)}, which hands out IDs from blocks
+ * that have been cut out of the table's identity sequence. This means an
+ * object can be cached and referenced under its final ID before its row
+ * exists.
+ *
+ * <p>
+ * Reads do not wait for the queue. A write can be tagged with the row it
+ * touches (see {@link #key(String, Object)}), and code that must see its own
+ * write to that row first calls {@link #flush(String)}, which waits for that
+ * row's writes only. {@link #flush()} waits for everything. Neither may be
+ * called while holding a pooled connection, since the writer needs one to make
+ * progress.
+ *
+ * <p>
+ * A write that fails is retried up to {@link #WRITE_ATTEMPTS} times. If it still
+ * fails, the error is logged and the write's failure callback runs on the
+ * executor given to the constructor, so the manager that cached the change can
+ * drop it instead of disagreeing with the database.
+ */
+public class WriteBehindQueue {
+
+	public static final int MAX_BATCH_SIZE = 256;
+	public static final long GROUP_COMMIT_WINDOW_MILLIS = 10;
+	public static final int ID_BLOCK_SIZE = 32;
+	public static final int ID_LOCK_TIMEOUT_MILLIS = 10_000;
+	public static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+	public static final int WRITE_ATTEMPTS = 3;
+	public static final long RETRY_DELAY_MILLIS = 50;
+
+	// Only these tables may have IDs reserved, since the name ends up in SQL
+	private static final Set<String> ID_TABLES = Set.of("Questions", "Answers", "Reviews", "Messages");
+
+	/**
+	 * Binds the parameters of a queued write. Runs on the writer thread, so it
+	 * should only read values captured when the write was enqueued.
+	 */
+	@FunctionalInterface
+	public interface Binder {
+		void bind(PreparedStatement stmt) throws SQLException;
+	}
+
+	private static class Write {
+		final String key;
+		final String sql;
+		final Binder binder;
+		final Runnable onFailure;
+		final long sequence;
+
+		Write(String key, String sql, Binder binder, Runnable onFailure, long sequence) {
+			this.key = key;
+			this.sql = sql;
+			this.binder = binder;
+			this.onFailure = onFailure;
+			this.sequence = sequence;
+		}
+	}
+
+	private static final Write SHUTDOWN = new Write(null, null, null, null, -1);
+
+	private final ConnectionPool pool;
+	private final Executor callbackExecutor;
+	private final LinkedBlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+
+	// Next unused ID and end of the reserved block, per table
+	private final Map<String, int[]> idBlocks = new HashMap<>();
+
+	private final Object progress = new Object();
+	private long enqueued = 0; // Guarded by this
+	// Sequence of the latest queued write per row key; guarded by this
+	private final Map<String, Long> pendingKeys = new HashMap<>();
+	private volatile long completed = 0; // Written while holding progress
+	private volatile boolean closed = false;
+
+	private final AtomicLong commits = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * @param pool             Pool the writer borrows its connection from
+	 * @param callbackExecutor Runs failure callbacks, e.g. on the thread that owns
+	 *                         the caches
+	 */
+	WriteBehindQueue(ConnectionPool pool, Executor callbackExecutor) {
+		this.pool = pool;
+		this.callbackExecutor = callbackExecutor;
+		this.writer = new Thread(this::run, "WriteBehind-Writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Builds the key that identifies one row, for {@link #enqueue(String, String,
+	 * Binder, Runnable)} and {@link #flush(String)}.
+	 */
+	public static String key(String table, Object id) {
+		return table + ':' + id;
+	}
+
+	/**
+	 * Queues a write that is not tied to a row and has nothing to undo if it
+	 * fails.
+	 *
+	 * @see #enqueue(String, String, Binder, Runnable)
+	 */
+	public void enqueue(String sql, Binder binder) {
+		this.enqueue(null, sql, binder, null);
+	}
+
+	/**
+	 * Queues a write to be executed in the background.
+	 *
+	 * @param key       Row the write touches, from {@link #key(String, Object)},
+	 *                  or null
+	 * @param sql       SQL of the write
+	 * @param binder    Sets the statement's parameters
+	 * @param onFailure Undoes the cached change if the write cannot be made, or
+	 *                  null
+	 * @throws IllegalStateException if the queue has been closed
+	 */
+	public synchronized void enqueue(String key, String sql, Binder binder, Runnable onFailure) {
+		if (this.closed)
+			throw new IllegalStateException("Write-behind queue has been closed.");
+		long sequence = ++this.enqueued;
+		if (key != null)
+			this.pendingKeys.put(key, sequence);
+		this.queue.add(new Write(key, sql, binder, onFailure, sequence));
+	}
+
+	/**
+	 * Reserves an ID for a row that will be inserted through this queue.
+	 *
+	 * @param table Table the row belongs to
+	 * @return ID that no other row of the table will be given
+	 * @throws SQLException if a new block of IDs could not be reserved
+	 */
+	public synchronized int reserveId(String table) throws SQLException {
+		if (!ID_TABLES.contains(table))
+			throw new IllegalArgumentException("Cannot reserve IDs for table " + table);
+		int[] block = this.idBlocks.get(table);
+		if (block == null || block[0] >= block[1]) {
+			block = this.reserveBlock(table);
+			this.idBlocks.put(table, block);
+		}
+		return block[0]++;
+	}
+
+	/**
+	 * Moves a table's identity sequence forward by {@link #ID_BLOCK_SIZE} and
+	 * claims the skipped values.
+	 *
+	 * <p>
+	 * Reading the sequence and restarting it are separate statements, and H2
+	 * commits the restart on its own, so a transaction cannot make them atomic.
+	 * Instead a second connection holds the table's row lock in IdBlockLock
+	 * throughout, the same way SchemaMigrator serializes migrations; another
+	 * client reserving a block of the same table waits and then reads the moved
+	 * sequence.
+	 */
+	private int[] reserveBlock(String table) throws SQLException {
+		try (Connection lockConn = this.pool.openUnpooled(); PooledConnection conn = this.pool.borrow()) {
+			try (Statement stmt = lockConn.createStatement()) {
+				stmt.execute("SET LOCK_TIMEOUT " + ID_LOCK_TIMEOUT_MILLIS);
+			}
+			lockConn.setAutoCommit(false);
+			try {
+				try (PreparedStatement stmt = lockConn
+						.prepareStatement("SELECT tableName FROM IdBlockLock WHERE tableName = ? FOR UPDATE")) {
+					stmt.setString(1, table);
+					if (!stmt.executeQuery().next())
+						throw new SQLException("No IdBlockLock row for table " + table + ".");
+				}
+				return this.reserveBlockLocked(conn, table);
+			} finally {
+				lockConn.rollback(); // Releases the lock; nothing was written through lockConn
+			}
+		}
+	}
+
+	private int[] reserveBlockLocked(PooledConnection conn, String table) throws SQLException {
+		int base;
+		String query = "SELECT IDENTITY_BASE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = 'ID'";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setString(1, table.toUpperCase());
+			ResultSet rs = stmt.executeQuery();
+			if (!rs.next())
+				throw new SQLException("Table " + table + " has no identity column.");
+			base = rs.getInt(1);
+		}
+		int end = base + ID_BLOCK_SIZE;
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + end);
+		}
+
+		// A plain insert, which takes no lock, may have used the start of the block
+		// between reading the base and restarting the sequence, so begin after it
+		int start = base;
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT MAX(id) FROM " + table + " WHERE id >= ? AND id < ?")) {
+			stmt.setInt(1, base);
+			stmt.setInt(2, end);
+			ResultSet rs = stmt.executeQuery();
+			if (rs.next() && rs.getObject(1) != null)
+				start = rs.getInt(1) + 1;
+		}
+		return new int[] { start, end };
+	}
+
+	/**
+	 * Blocks until every write enqueued before this call has been committed, or
+	 * has failed. Must not be called while holding a pooled connection.
+	 */
+	public void flush() {
+		long target;
+		synchronized (this) {
+			target = this.enqueued;
+		}
+		this.awaitCompleted(target);
+	}
+
+	/**
+	 * Blocks until the writes queued so far for one row have been committed, or
+	 * have failed. Returns at once if the row has none pending. Must not be
+	 * called while holding a pooled connection.
+	 *
+	 * @param key Row key from {@link #key(String, Object)}
+	 */
+	public void flush(String key) {
+		Long target;
+		synchronized (this) {
+			target = this.pendingKeys.get(key);
+		}
+		if (target != null)
+			this.awaitCompleted(target);
+	}
+
+	private void awaitCompleted(long target) {
+		if (this.completed >= target || Thread.currentThread() == this.writer)
+			return;
+		synchronized (this.progress) {
+			while (this.completed < target && this.writer.isAlive()) {
+				try {
+					this.progress.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Number of writes that have been enqueued but not yet committed
+	 */
+	public synchronized long getPendingCount() {
+		return this.enqueued - this.completed;
+	}
+
+	/**
+	 * @return Number of transactions the writer has committed, each holding one
+	 *         or more writes
+	 */
+	public long getCommitCount() {
+		return this.commits.get();
+	}
+
+	/**
+	 * @return Number of writes given up on after {@link #WRITE_ATTEMPTS} tries
+	 */
+	public long getFailureCount() {
+		return this.failures.get();
+	}
+
+	/**
+	 * Stops accepting writes, commits everything that is still queued in order,
+	 * then stops the writer thread.
+	 */
+	public void close() {
+		synchronized (this) {
+			if (this.closed)
+				return;
+			this.closed = true;
+			this.queue.add(SHUTDOWN);
+		}
+		try {
+			this.writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (this.writer.isAlive())
+			LogUtil.error("Write-behind queue did not finish flushing within " + SHUTDOWN_TIMEOUT_MILLIS + "ms.");
+	}
+
+	private void run() {
+		List<Write> batch = new ArrayList<>();
+		boolean running = true;
+		while (running) {
+			try {
+				Write first = this.queue.take();
+				if (first == SHUTDOWN)
+					break;
+				batch.add(first);
+
+				// Give a burst of writes a moment to arrive so they share one commit
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GROUP_COMMIT_WINDOW_MILLIS);
+				while (batch.size() < MAX_BATCH_SIZE) {
+					long remaining = deadline - System.nanoTime();
+					Write w = remaining > 0 ? this.queue.poll(remaining, TimeUnit.NANOSECONDS) : this.queue.poll();
+					if (w == null)
+						break;
+					if (w == SHUTDOWN) {
+						running = false;
+						break;
+					}
+					batch.add(w);
+				}
+			} catch (InterruptedException e) {
+				// Only close() stops the writer; keep draining
+				continue;
+			}
+
+			this.commitBatch(batch);
+			long done = batch.get(batch.size() - 1).sequence;
+			synchronized (this) {
+				for (Write w : batch) {
+					// Keep keys that were queued again after this batch was taken
+					if (w.key != null && this.pendingKeys.getOrDefault(w.key, Long.MAX_VALUE) <= done)
+						this.pendingKeys.remove(w.key);
+				}
+			}
+			synchronized (this.progress) {
+				this.completed = done;
+				this.progress.notifyAll();
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Commits a batch of writes in one transaction. If that fails the writes are
+	 * retried one at a time, so a single bad write does not take the others with
+	 * it.
+	 */
+	private void commitBatch(List<Write> batch) {
+		try (PooledConnection conn = this.pool.borrow()) {
+			conn.setAutoCommit(false);
+			try {
+				this.execute(conn, batch);
+				conn.commit();
+				this.commits.incrementAndGet();
+				return;
+			} catch (SQLException e) {
+				conn.rollback();
+				LogUtil.error("Group commit of " + batch.size() + " write(s) failed; retrying individually.");
+			}
+			conn.setAutoCommit(true);
+		} catch (SQLException e) {
+			LogUtil.error("Failed to borrow a connection for " + batch.size() + " queued write(s): " + e.getMessage());
+		}
+
+		for (Write w : batch)
+			this.commitWithRetry(w);
+	}
+
+	/**
+	 * Tries a single write up to {@link #WRITE_ATTEMPTS} times, backing off
+	 * between attempts in case the failure was a lock timeout or a lost
+	 * connection. Constraint violations are not retried. Reports the write as
+	 * failed if every attempt fails.
+	 */
+	private void commitWithRetry(Write w) {
+		SQLException last = null;
+		for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+			try (PooledConnection conn = this.pool.borrow()) {
+				this.execute(conn, List.of(w));
+				this.commits.incrementAndGet();
+				return;
+			} catch (SQLException e) {
+				last = e;
+				// A constraint violation will fail the same way every time
+				if (e.getSQLState() != null && e.getSQLState().startsWith("23"))
+					break;
+			}
+			if (attempt < WRITE_ATTEMPTS) {
+				try {
+					Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+				} catch (InterruptedException e) {
+					// Only close() stops the writer; keep going
+				}
+			}
+		}
+
+		this.failures.incrementAndGet();
+		LogUtil.error("Gave up on a queued write: " + w.sql + " ("
+				+ last.getMessage() + ")");
+		if (w.onFailure != null)
+			this.callbackExecutor.execute(w.onFailure);
+	}
+
+	/**
+	 * Executes writes in order, sending each run of writes that share a
+	 * statement as one JDBC batch.
+	 */
+	private void execute(PooledConnection conn, List<Write> writes) throws SQLException {
+		int i = 0;
+		while (i < writes.size()) {
+			String sql = writes.get(i).sql;
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				for (; i < writes.size() && writes.get(i).sql.equals(sql); i++) {
+					writes.get(i).binder.bind(stmt);
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+			}
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.AnswerManager;
+import application.ChangeFeedConsumer;
+import application.CommentManager;
+import application.InviteCodeManager;
+import application.MessageManager;
+import application.QuestionManager;
+import application.ReviewManager;
+import application.ReviewerProfileManager;
+import application.UserManager;
+import application.obj.InviteCode;
+import application.obj.Message;
+import application.obj.ReviewerProfile;
+import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+
+/**
+ * Tests that {@link ChangeFeedConsumer} applies other clients' changes, skips
+ * this client's own, and does not lose a change whose transaction commits after
+ * a later one has been read.
+ */
+public class ChangeFeedConsumerTest {
+	private static DatabaseHelper dbHelper;
+	private static MessageManager messageManager;
+	private static ReviewerProfileManager profileManager;
+	private static InviteCodeManager inviteCodeManager;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		messageManager = new MessageManager(dbHelper);
+		messageManager.fetchMessages();
+		profileManager = new ReviewerProfileManager(dbHelper);
+		inviteCodeManager = new InviteCodeManager(dbHelper);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	private static ChangeFeedConsumer newFeed(List<Runnable> applied) throws SQLException {
+		return new ChangeFeedConsumer(dbHelper, new QuestionManager(dbHelper), new AnswerManager(dbHelper),
+				new ReviewManager(dbHelper), messageManager, new CommentManager(dbHelper), profileManager,
+				new UserManager(dbHelper), inviteCodeManager, applied::add);
+	}
+
+	private static ChangeFeedConsumer newFeed() throws SQLException {
+		return new ChangeFeedConsumer(dbHelper, new QuestionManager(dbHelper), new AnswerManager(dbHelper),
+				new ReviewManager(dbHelper), messageManager, new CommentManager(dbHelper), profileManager,
+				new UserManager(dbHelper), inviteCodeManager, Runnable::run);
+	}
+
+	/**
+	 * Borrows a connection whose changes are logged as another client's.
+	 */
+	private static PooledConnection otherClient() throws SQLException {
+		PooledConnection conn = dbHelper.borrowConnection();
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("SET @CLIENT_ID = 'other-client'");
+		}
+		return conn;
+	}
+
+	private static void release(PooledConnection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("SET @CLIENT_ID = '" + dbHelper.getClientId() + "'");
+		}
+		conn.close();
+	}
+
+	private static int insertMessage(PooledConnection conn, String sender, String receiver) throws SQLException {
+		String insert = "INSERT INTO Messages (senderName, receiverName, content, sentTime, isRead) VALUES (?, ?, ?, ?, FALSE)";
+		try (PreparedStatement stmt = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+			stmt.setString(1, sender);
+			stmt.setString(2, receiver);
+			stmt.setString(3, "Hello from " + sender);
+			stmt.setObject(4, LocalDateTime.now());
+			stmt.executeUpdate();
+			ResultSet keys = stmt.getGeneratedKeys();
+			keys.next();
+			return keys.getInt(1);
+		}
+	}
+
+	private static boolean cached(String receiver, int id) {
+		return messageManager.getMessagesFor(receiver).stream().anyMatch(m -> m.getId() == id);
+	}
+
+	@Test
+	void testAppliesOtherClientsChanges() throws SQLException {
+		ChangeFeedConsumer feed = newFeed();
+		String receiver = "cfReceiver" + System.nanoTime();
+		PooledConnection conn = otherClient();
+		int id;
+		try {
+			id = insertMessage(conn, "cfSender", receiver);
+		} finally {
+			release(conn);
+		}
+		feed.poll();
+		assertTrue(cached(receiver, id));
+		assertEquals(1, messageManager.getUnreadCountFor(receiver));
+
+		conn = otherClient();
+		try (PreparedStatement stmt = conn.prepareStatement("UPDATE Messages SET isRead = TRUE WHERE id = ?")) {
+			stmt.setInt(1, id);
+			stmt.executeUpdate();
+		} finally {
+			release(conn);
+		}
+		feed.poll();
+		assertEquals(0, messageManager.getUnreadCountFor(receiver));
+	}
+
+	/**
+	 * Invitation codes and reviewer profiles are cached by code and user name, so
+	 * their changes are found by the key logged with them rather than by ID.
+	 */
+	@Test
+	void testAppliesChangesToKeyedTables() throws SQLException {
+		ChangeFeedConsumer feed = newFeed();
+		String code = "cf" + System.nanoTime() % 100_000_000;
+		ReviewerProfile profile = profileManager.getOrCreateProfile("cfReviewer" + System.nanoTime());
+		PooledConnection conn = otherClient();
+		try (PreparedStatement insert = conn.prepareStatement(
+				"INSERT INTO InvitationCodes (code, isUsed, role) VALUES (?, FALSE, 'STUDENT')");
+				PreparedStatement update = conn
+						.prepareStatement("UPDATE ReviewerProfiles SET bio = ? WHERE userName = ?")) {
+			insert.setString(1, code);
+			insert.executeUpdate();
+			update.setString(1, "Updated elsewhere");
+			update.setString(2, profile.getUserName());
+			update.executeUpdate();
+		} finally {
+			release(conn);
+		}
+		feed.poll();
+		assertTrue(inviteCodeManager.getInviteCodes().stream().map(InviteCode::getCode).anyMatch(code::equals));
+		assertEquals("Updated elsewhere", profile.getBio(), "The cached profile is updated in place");
+
+		conn = otherClient();
+		try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM InvitationCodes WHERE code = ?")) {
+			stmt.setString(1, code);
+			stmt.executeUpdate();
+		} finally {
+			release(conn);
+		}
+		feed.poll();
+		assertFalse(inviteCodeManager.getInviteCodes().stream().map(InviteCode::getCode).anyMatch(code::equals));
+	}
+
+	@Test
+	void testSkipsOwnChanges() throws SQLException {
+		ChangeFeedConsumer feed = newFeed();
+		String receiver = "cfOwn" + System.nanoTime();
+		int id;
+		try (PooledConnection conn = dbHelper.borrowConnection()) {
+			id = insertMessage(conn, "cfSender", receiver);
+		}
+		feed.poll();
+		assertFalse(cached(receiver, id), "This client's changes are already in its cache");
+	}
+
+	/**
+	 * A change that takes a lower sequence number but commits after a higher one
+	 * has been read must still be applied.
+	 */
+	@Test
+	void testLateCommitNotMissed() throws SQLException {
+		ChangeFeedConsumer feed = newFeed();
+		String receiver = "cfLate" + System.nanoTime();
+		PooledConnection slow = otherClient();
+		PooledConnection fast = otherClient();
+		int early;
+		int late;
+		try {
+			slow.setAutoCommit(false);
+			early = insertMessage(slow, "cfSlow", receiver); // Takes the lower sequence number
+			late = insertMessage(fast, "cfFast", receiver);
+
+			feed.poll();
+			assertTrue(cached(receiver, late));
+			assertFalse(cached(receiver, early), "Not committed yet");
+
+			slow.commit();
+		} finally {
+			release(fast);
+			release(slow);
+		}
+		feed.poll();
+		assertTrue(cached(receiver, early), "Committed after a later change was read");
+		assertEquals(2, messageManager.getUnreadCountFor(receiver));
+	}
+
+	/**
+	 * Rows are read by the poll itself, so the applier only updates the cache.
+	 */
+	@Test
+	void testRowsLoadedBeforeApplying() throws SQLException {
+		List<Runnable> applied = new ArrayList<>();
+		ChangeFeedConsumer feed = newFeed(applied);
+		String receiver = "cfLoaded" + System.nanoTime();
+		PooledConnection conn = otherClient();
+		int id;
+		try {
+			id = insertMessage(conn, "cfSender", receiver);
+		} finally {
+			release(conn);
+		}
+		feed.poll();
+		assertEquals(1, applied.size());
+
+		// Deleted as this client, so only the copy the poll loaded can reach the cache
+		try (PooledConnection own = dbHelper.borrowConnection();
+				PreparedStatement stmt = own.prepareStatement("DELETE FROM Messages WHERE id = ?")) {
+			stmt.setInt(1, id);
+			stmt.executeUpdate();
+		}
+		applied.get(0).run();
+		Message m = messageManager.getMessagesFor(receiver).get(0);
+		assertEquals(id, m.getId());
+	}
+}
@@ -0,0 +1,115 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import databasePart1.ConnectionPool;
+import databasePart1.PooledConnection;
+
+/**
+ * Tests borrowing and returning connections with {@link ConnectionPool} and the
+ * statement cache of {@link PooledConnection}, against an in-memory database.
+ */
+public class ConnectionPoolTest {
+	private ConnectionPool pool;
+
+	@BeforeEach
+	void setup() {
+		this.pool = new ConnectionPool("jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1", "sa", "", 2);
+	}
+
+	@AfterEach
+	void cleanup() {
+		this.pool.close();
+	}
+
+	@Test
+	void testBorrowAndReturn() throws SQLException {
+		PooledConnection first = this.pool.borrow();
+		assertEquals(1, this.pool.getActiveCount());
+		first.setAutoCommit(false); // Left open on purpose; returning must reset it
+		first.close();
+		assertEquals(0, this.pool.getActiveCount());
+		assertEquals(1, this.pool.getIdleCount());
+
+		try (PooledConnection second = this.pool.borrow()) {
+			assertSame(first, second, "An idle connection is reused");
+			assertTrue(second.getAutoCommit());
+		}
+
+		PooledConnection a = this.pool.borrow();
+		PooledConnection b = this.pool.borrow();
+		assertNotSame(a, b);
+		assertEquals(2, this.pool.getActiveCount());
+		a.close();
+		a.close(); // Returning twice must not free a second permit
+		b.close();
+		assertEquals(0, this.pool.getActiveCount());
+	}
+
+	@Test
+	void testStatementCacheBound() throws SQLException {
+		try (PooledConnection conn = this.pool.borrow()) {
+			PreparedStatement first = conn.prepareStatement("SELECT 1");
+			first.close();
+			assertSame(first, conn.prepareStatement("SELECT 1"), "Closed statements are reused");
+			conn.prepareStatement("SELECT 1").close(); // Opened twice, so not shared
+
+			// More distinct statements than the cache holds, all left open
+			List<PreparedStatement> open = new ArrayList<>();
+			for (int i = 0; i < PooledConnection.STATEMENT_CACHE_SIZE + 10; i++)
+				open.add(conn.prepareStatement("SELECT " + (i + 2)));
+			assertTrue(conn.getCachedStatementCount() > PooledConnection.STATEMENT_CACHE_SIZE);
+			for (PreparedStatement stmt : open)
+				stmt.close();
+
+			// Once statements are free again, new ones push the oldest out
+			for (int i = 0; i < PooledConnection.STATEMENT_CACHE_SIZE * 2; i++) {
+				try (PreparedStatement stmt = conn.prepareStatement("SELECT " + (1000 + i));
+						ResultSet rs = stmt.executeQuery()) {
+					rs.next();
+					assertEquals(1000 + i, rs.getInt(1));
+				}
+				assertTrue(conn.getCachedStatementCount() <= PooledConnection.STATEMENT_CACHE_SIZE);
+			}
+		}
+	}
+
+	@Test
+	void testStatementCacheTrimmedOnReturn() throws SQLException {
+		PooledConnection conn = this.pool.borrow();
+		for (int i = 0; i < PooledConnection.STATEMENT_CACHE_SIZE + 5; i++)
+			conn.prepareStatement("SELECT " + i); // Never closed by the caller
+		conn.close();
+		assertEquals(PooledConnection.STATEMENT_CACHE_SIZE, conn.getCachedStatementCount());
+	}
+
+	@Test
+	void testBrokenConnectionReplaced() throws SQLException {
+		PooledConnection broken = this.pool.borrow();
+		broken.getRawConnection().close();
+		broken.close();
+		assertEquals(0, this.pool.getIdleCount(), "A closed connection is not put back in the pool");
+
+		try (PooledConnection conn = this.pool.borrow();
+				PreparedStatement stmt = conn.prepareStatement("SELECT 42");
+				ResultSet rs = stmt.executeQuery()) {
+			assertNotSame(broken, conn);
+			rs.next();
+			assertEquals(42, rs.getInt(1));
+		}
+		assertEquals(1, this.pool.getIdleCount());
+	}
+}
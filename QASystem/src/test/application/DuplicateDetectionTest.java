@@ -0,0 +1,119 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import application.search.DuplicateClusterer;
+import application.search.DuplicateIndex;
+
+/**
+ * Tests near-duplicate lookups with {@link DuplicateIndex} and batch clustering
+ * with {@link DuplicateClusterer}.
+ */
+public class DuplicateDetectionTest {
+
+	private static final String SORT = "How do I sort a list of records by their creation date in Java?";
+	private static final String SORT_COPY = "How can I sort a list of records by their creation date in java";
+	private static final String JOIN = "Why does my SQL join return every row twice when the table has an index?";
+	private static final String JOIN_COPY = "Why does my SQL join return every row twice when the table has indexes?";
+	private static final String LAYOUT = "What is the difference between an HBox and a VBox layout in JavaFX?";
+
+	@Test
+	void testCandidates() {
+		DuplicateIndex index = new DuplicateIndex();
+		index.put(1, SORT);
+		index.put(2, JOIN);
+		index.put(3, LAYOUT);
+
+		Set<Integer> candidates = index.candidates(SORT_COPY);
+		assertTrue(candidates.contains(1));
+		assertFalse(candidates.contains(2));
+		assertFalse(candidates.contains(3));
+		assertTrue(index.candidates("!!!").isEmpty());
+	}
+
+	/**
+	 * Removed and re-indexed texts must not be found under their old text, even
+	 * after pending entries have been merged.
+	 */
+	@Test
+	void testUpdatesAndMerges() {
+		DuplicateIndex index = new DuplicateIndex();
+		for (int id = 100; id < 300; id++)
+			index.put(id, "Filler question number " + id + " about " + (id * 7919 % 1000));
+		index.put(1, SORT);
+		index.put(2, JOIN);
+		assertTrue(index.candidates(SORT_COPY).contains(1));
+
+		index.put(1, LAYOUT);
+		index.remove(2);
+		assertFalse(index.candidates(SORT_COPY).contains(1));
+		assertTrue(index.candidates(LAYOUT).contains(1));
+		assertFalse(index.candidates(JOIN_COPY).contains(2));
+		assertEquals(201, index.size());
+	}
+
+	@Test
+	void testClusters() {
+		int[] ids = { 10, 11, 12, 13, 14, 15 };
+		String[] texts = { SORT, JOIN, LAYOUT, SORT_COPY, JOIN_COPY, SORT.toUpperCase() };
+		List<int[]> clusters = new DuplicateClusterer(0.8).cluster(ids, texts);
+		assertEquals(2, clusters.size());
+		assertArrayEquals(new int[] { 10, 13, 15 }, clusters.get(0));
+		assertArrayEquals(new int[] { 11, 14 }, clusters.get(1));
+	}
+
+	/**
+	 * Copies far outnumbering the bucket neighbour limit must still end up in one
+	 * cluster.
+	 */
+	@Test
+	void testLargeBucket() {
+		int copies = 2000;
+		int[] ids = new int[copies + 1];
+		String[] texts = new String[copies + 1];
+		for (int i = 0; i < copies; i++) {
+			ids[i] = i;
+			texts[i] = i % 2 == 0 ? SORT : SORT_COPY;
+		}
+		ids[copies] = copies;
+		texts[copies] = LAYOUT;
+		List<int[]> clusters = new DuplicateClusterer(0.8).cluster(ids, texts);
+		assertEquals(1, clusters.size());
+		assertEquals(copies, clusters.get(0).length);
+	}
+
+	/**
+	 * A pair whose first shared band puts it too far apart in a bucket of
+	 * non-duplicates must still be verified in a later band it shares. The
+	 * fillers repeat the first text with a different ending, so they crowd its
+	 * buckets without being similar enough to join it.
+	 */
+	@Test
+	void testMixedLargeBucket() {
+		String[] words = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet",
+				"kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango", "uniform",
+				"victor", "whiskey", "xray", "yankee", "zulu" };
+		int fillers = 100;
+		int[] ids = new int[fillers + 2];
+		String[] texts = new String[fillers + 2];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = i;
+		texts[0] = SORT;
+		for (int k = 0; k < fillers; k++)
+			texts[k + 1] = SORT + " " + words[k % 26] + " " + words[(k / 26) % 26] + " " + k;
+		texts[fillers + 1] = SORT_COPY;
+
+		List<int[]> clusters = new DuplicateClusterer(0.9).cluster(ids, texts);
+		assertTrue(clusters.stream().anyMatch(c -> Arrays.equals(c, new int[] { 0, fillers + 1 })),
+				"The copy is found despite the fillers between them");
+	}
+}
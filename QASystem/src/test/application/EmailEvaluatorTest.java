@@ -1,8 +1,12 @@
 package test.application;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import application.eval.EmailEvaluator;
@@ -70,4 +74,33 @@ public class EmailEvaluatorTest {
 		String r = EmailEvaluator.evaluateEmail("admin@mail.somewebsite.com");
 		assertTrue(r.isEmpty(), "Email is valid");
 	}
+
+	/**
+	 * This test checks that the domain must end in a dot and two to six letters,
+	 * and that only one @ symbol is allowed.
+	 */
+	@Test
+	void tryDomainFormat() {
+		assertFalse(EmailEvaluator.evaluateEmail("adam@.com").isEmpty(), "Domain name is empty");
+		assertFalse(EmailEvaluator.evaluateEmail("adam@gmail.c0m").isEmpty(), "Top-level domain has a digit");
+		assertFalse(EmailEvaluator.evaluateEmail("adam@gmail.company").isEmpty(), "Top-level domain is too long");
+		assertFalse(EmailEvaluator.evaluateEmail("adam@smith@gmail.com").isEmpty(), "Two @ symbols");
+		assertTrue(EmailEvaluator.evaluateEmail("Adam.Smith+qa@Mail-1.ASU.edu").isEmpty(), "Email is valid");
+		assertEquals(EmailEvaluator.ERR_TOO_LONG, EmailEvaluator.evaluateEmail("a".repeat(60) + "@asu.edu"));
+	}
+
+	/**
+	 * This test checks that bulk validation returns one result per email, in
+	 * order.
+	 */
+	@Test
+	void tryValidateAll() {
+		List<String> emails = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++)
+			emails.add(i % 2 == 0 ? "student" + i + "@asu.edu" : "student" + i + "@asu");
+		List<String> results = EmailEvaluator.INSTANCE.validateAll(emails);
+		assertEquals(emails.size(), results.size());
+		for (int i = 0; i < emails.size(); i++)
+			assertEquals(i % 2 == 0, results.get(i).isEmpty(), emails.get(i));
+	}
 }
@@ -0,0 +1,102 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.InviteCodeManager;
+import application.obj.InviteCode;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Tests generating and redeeming invitation codes with
+ * {@link InviteCodeManager}.
+ */
+public class InviteCodeManagerTest {
+	private static DatabaseHelper dbHelper;
+	private static InviteCodeManager inviteCodeManager;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		inviteCodeManager = new InviteCodeManager(dbHelper);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	@Test
+	void testGenerateBatch() {
+		List<InviteCode> codes = inviteCodeManager.generateBatch(2000, 8);
+		assertEquals(2000, codes.size());
+		Set<String> distinct = new HashSet<>();
+		for (InviteCode invCode : codes) {
+			assertEquals(8, invCode.getCode().length());
+			assertFalse(invCode.isUsed());
+			distinct.add(invCode.getCode());
+		}
+		assertEquals(2000, distinct.size(), "Codes must not repeat");
+		assertTrue(inviteCodeManager.getInviteCodes().containsAll(codes));
+
+		assertThrows(IllegalArgumentException.class, () -> inviteCodeManager.generateBatch(1, 11));
+		assertThrows(IllegalArgumentException.class, () -> inviteCodeManager.generateBatch(1, 3));
+		int tooMany = (int) InviteCodeManager.maxBatchSize(InviteCodeManager.MIN_CODE_LENGTH) + 1;
+		assertThrows(IllegalArgumentException.class,
+				() -> inviteCodeManager.generateBatch(tooMany, InviteCodeManager.MIN_CODE_LENGTH));
+	}
+
+	@Test
+	void testRedeemOnce() {
+		InviteCode invCode = inviteCodeManager.createInviteCode();
+		assertFalse(invCode.isUsed());
+		assertTrue(inviteCodeManager.redeemCode(invCode.getCode()));
+		assertTrue(invCode.isUsed());
+		assertFalse(inviteCodeManager.redeemCode(invCode.getCode()), "A code can only be used once");
+		assertNull(dbHelper.redeemInvitationCode(invCode.getCode()));
+		assertFalse(inviteCodeManager.redeemCode("nosuchcode"));
+	}
+
+	/**
+	 * Many signups racing for the same code must let exactly one of them through.
+	 */
+	@Test
+	void testConcurrentRedemption() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			for (InviteCode invCode : inviteCodeManager.generateBatch(20)) {
+				AtomicInteger redeemed = new AtomicInteger();
+				List<Future<?>> tasks = new ArrayList<>();
+				for (int i = 0; i < 8; i++) {
+					tasks.add(pool.submit(() -> {
+						if (dbHelper.redeemInvitationCode(invCode.getCode()) != null)
+							redeemed.incrementAndGet();
+					}));
+				}
+				for (Future<?> task : tasks)
+					task.get();
+				assertEquals(1, redeemed.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
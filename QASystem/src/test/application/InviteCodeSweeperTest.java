@@ -0,0 +1,160 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.InviteCodeManager;
+import application.InviteCodeSweeper;
+import application.UserRole;
+import application.obj.InviteCode;
+import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+
+/**
+ * Tests expiring, role-scoped invitation codes and removing them with
+ * {@link InviteCodeSweeper}.
+ */
+public class InviteCodeSweeperTest {
+	private static DatabaseHelper dbHelper;
+	private static InviteCodeManager inviteCodeManager;
+	private static InviteCodeSweeper sweeper;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		inviteCodeManager = new InviteCodeManager(dbHelper);
+		sweeper = new InviteCodeSweeper(dbHelper, inviteCodeManager);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	@Test
+	void testRedeemGivesRole() {
+		InviteCode invCode = inviteCodeManager.createInviteCode(UserRole.REVIEWER);
+		assertEquals(UserRole.REVIEWER, invCode.getRole());
+		assertFalse(invCode.isExpired());
+		assertEquals(UserRole.REVIEWER, inviteCodeManager.redeem(invCode.getCode()));
+		assertNull(inviteCodeManager.redeem(invCode.getCode()), "A code can only be used once");
+	}
+
+	@Test
+	void testExpiredCodeCannotBeRedeemed() {
+		InviteCode invCode = inviteCodeManager
+				.generateBatch(1, InviteCodeManager.DEFAULT_CODE_LENGTH, UserRole.STUDENT, Duration.ofDays(-1))
+				.get(0);
+		assertTrue(invCode.isExpired());
+		assertNull(inviteCodeManager.redeem(invCode.getCode()));
+	}
+
+	@Test
+	void testSweep() throws SQLException {
+		List<InviteCode> expired = inviteCodeManager.generateBatch(1200, 8, UserRole.STUDENT, Duration.ofDays(-1));
+		InviteCode used = inviteCodeManager.createInviteCode(UserRole.INSTRUCTOR);
+		InviteCode recentlyUsed = inviteCodeManager.createInviteCode();
+		InviteCode fresh = inviteCodeManager.createInviteCode();
+		assertTrue(inviteCodeManager.redeemCode(used.getCode()));
+		assertTrue(inviteCodeManager.redeemCode(recentlyUsed.getCode()));
+		try (PooledConnection conn = dbHelper.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement("UPDATE InvitationCodes SET usedAt = ? WHERE code = ?")) {
+			stmt.setObject(1, LocalDateTime.now().minusDays(2));
+			stmt.setString(2, used.getCode());
+			stmt.executeUpdate();
+		}
+
+		// Expired codes span several batches
+		assertTrue(sweeper.sweep() >= expired.size() + 1);
+		assertEquals(0, sweeper.sweep(), "Nothing is left to sweep");
+
+		assertFalse(exists("InvitationCodes", expired.get(0).getCode()));
+		assertFalse(exists("InvitationCodes", expired.get(expired.size() - 1).getCode()));
+		assertFalse(exists("InvitationCodesArchive", expired.get(0).getCode()), "Unused codes are not archived");
+		assertFalse(exists("InvitationCodes", used.getCode()));
+		assertTrue(exists("InvitationCodesArchive", used.getCode()));
+		assertTrue(exists("InvitationCodes", recentlyUsed.getCode()));
+		assertTrue(exists("InvitationCodes", fresh.getCode()));
+
+		assertFalse(inviteCodeManager.getInviteCodes().contains(expired.get(0)));
+		assertFalse(inviteCodeManager.getInviteCodes().contains(used));
+		assertTrue(inviteCodeManager.getInviteCodes().contains(fresh));
+	}
+
+	/**
+	 * Two clients sweeping the same used codes at once must archive each code
+	 * exactly once.
+	 */
+	@Test
+	void testConcurrentSweepsArchiveOnce() throws Exception {
+		List<InviteCode> codes = inviteCodeManager.generateBatch(300, 8, UserRole.STUDENT, Duration.ofDays(7));
+		String[] array = new String[codes.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = codes.get(i).getCode();
+			assertTrue(inviteCodeManager.redeemCode(array[i]));
+		}
+		try (PooledConnection conn = dbHelper.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement("UPDATE InvitationCodes SET usedAt = ? WHERE code = ANY(?)")) {
+			stmt.setObject(1, LocalDateTime.now().minusDays(2));
+			stmt.setObject(2, array);
+			stmt.executeUpdate();
+		}
+
+		InviteCodeSweeper other = new InviteCodeSweeper(dbHelper, inviteCodeManager);
+		CyclicBarrier start = new CyclicBarrier(2);
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> first = threads.submit(() -> {
+				start.await();
+				return sweeper.sweep();
+			});
+			Future<Integer> second = threads.submit(() -> {
+				start.await();
+				return other.sweep();
+			});
+			first.get();
+			second.get();
+		} finally {
+			threads.shutdown();
+		}
+
+		try (PooledConnection conn = dbHelper.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement(
+						"SELECT COUNT(*), COUNT(DISTINCT code) FROM InvitationCodesArchive WHERE code = ANY(?)")) {
+			stmt.setObject(1, array);
+			try (ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				assertEquals(array.length, rs.getInt(1), "Each code is archived once");
+				assertEquals(array.length, rs.getInt(2));
+			}
+		}
+	}
+
+	private static boolean exists(String table, String code) throws SQLException {
+		try (PooledConnection conn = dbHelper.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM " + table + " WHERE code = ?")) {
+			stmt.setString(1, code);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.util.LogUtil;
+import application.util.LogUtil.Level;
+
+/**
+ * Tests level filtering, formatting and file rotation of {@link LogUtil}.
+ */
+public class LogUtilTest {
+
+	@TempDir
+	Path dir;
+
+	// Tags this test's messages, so lines other threads log meanwhile are ignored
+	private final String marker = "run" + System.nanoTime();
+
+	@BeforeAll
+	static void setup() {
+		LogUtil.setConsoleEcho(false);
+	}
+
+	@AfterEach
+	void resetLevels() {
+		LogUtil.setLevel("test.application", null);
+		LogUtil.setLevel("databasePart1", null);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		LogUtil.setOutput(LogUtil.LOG_DIR, LogUtil.DEFAULT_MAX_FILE_BYTES, LogUtil.DEFAULT_MAX_FILES);
+		LogUtil.setConsoleEcho(true);
+	}
+
+	private List<String> lines() throws IOException {
+		LogUtil.flush();
+		return Files.readAllLines(this.dir.resolve(LogUtil.FILE_NAME)).stream().filter(l -> l.contains(this.marker))
+				.toList();
+	}
+
+	@Test
+	void testLevels() throws IOException {
+		LogUtil.setOutput(this.dir, LogUtil.DEFAULT_MAX_FILE_BYTES, 1);
+		LogUtil.setLevel("databasePart1", Level.ERROR);
+		assertEquals(Level.ERROR, LogUtil.getLevel("databasePart1.DatabaseHelper"));
+		assertEquals(LogUtil.getLevel("application"), LogUtil.getLevel("application.QuestionManager"));
+
+		AtomicInteger built = new AtomicInteger();
+		LogUtil.setLevel("test.application", Level.INFO);
+		LogUtil.debug(() -> this.marker + "-hidden-" + built.incrementAndGet());
+		LogUtil.info(this.marker + "-shown");
+		assertEquals(0, built.get(), "Disabled messages must not be built");
+
+		LogUtil.setLevel("test.application.LogUtilTest", Level.DEBUG);
+		LogUtil.debug(() -> this.marker + " debug " + built.incrementAndGet());
+		assertEquals(1, built.get());
+
+		List<String> lines = this.lines();
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).contains("level=INFO"));
+		assertTrue(lines.get(1).endsWith("msg=\"" + this.marker + " debug 1\""));
+	}
+
+	@Test
+	void testFormat() throws IOException {
+		LogUtil.setOutput(this.dir, LogUtil.DEFAULT_MAX_FILE_BYTES, 1);
+		LogUtil.error(this.marker + " said \"hi\"\nthen left");
+		LogUtil.info(this.marker + "-plain");
+
+		List<String> lines = this.lines();
+		assertEquals(2, lines.size(), "Line breaks in a message must not split the line");
+		String line = lines.get(0);
+		assertTrue(line.startsWith("ts="));
+		assertTrue(line.contains(" level=ERROR "));
+		assertTrue(line.contains(" thread="));
+		assertTrue(line.contains(" logger=test.application.LogUtilTest "));
+		assertTrue(line.endsWith(" msg=\"" + this.marker + " said \\\"hi\\\"\\nthen left\""));
+		assertTrue(lines.get(1).endsWith(" msg=" + this.marker + "-plain"));
+	}
+
+	@Test
+	void testRotation() throws IOException {
+		LogUtil.setOutput(this.dir, 2000, 2);
+		for (int i = 0; i < 200; i++)
+			LogUtil.info(this.marker + " message number " + i);
+		LogUtil.flush();
+
+		assertTrue(Files.exists(this.dir.resolve(LogUtil.FILE_NAME + ".1")));
+		assertTrue(Files.exists(this.dir.resolve(LogUtil.FILE_NAME + ".2")));
+		assertFalse(Files.exists(this.dir.resolve(LogUtil.FILE_NAME + ".3")), "Only two old files are kept");
+		assertTrue(Files.size(this.dir.resolve(LogUtil.FILE_NAME)) <= 2000);
+		List<String> lines = this.lines();
+		assertTrue(lines.get(lines.size() - 1).endsWith("msg=\"" + this.marker + " message number 199\""));
+	}
+
+	/**
+	 * Messages logged from many threads at once must all be written exactly once.
+	 */
+	@Test
+	void testConcurrentLogging() throws Exception {
+		LogUtil.setOutput(this.dir, LogUtil.DEFAULT_MAX_FILE_BYTES, 1);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			int id = t;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 500; i++)
+					LogUtil.info(this.marker + "-t" + id + "-" + i);
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		List<String> lines = this.lines();
+		assertEquals(4000, lines.size());
+		assertEquals(4000, lines.stream().map(l -> l.substring(l.indexOf(" msg=") + 5)).distinct().count());
+	}
+}
@@ -0,0 +1,101 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.MessageManager;
+import application.obj.Message;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Tests the inbox, outbox, conversation and unread count indexes kept by
+ * {@link MessageManager}, both for sent messages and after a fetch rebuilds
+ * them from the database.
+ */
+public class MessageManagerTest {
+	private static DatabaseHelper dbHelper;
+	private static MessageManager messageManager;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		messageManager = new MessageManager(dbHelper);
+		messageManager.fetchMessages();
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	@Test
+	void testIndexes() {
+		String alice = "mmAlice" + System.nanoTime();
+		String bob = "mmBob" + System.nanoTime();
+		String carol = "mmCarol" + System.nanoTime();
+		Message m1 = messageManager.sendMessage(alice, bob, "Hi Bob");
+		Message m2 = messageManager.sendMessage(bob, alice, "Hi Alice");
+		Message m3 = messageManager.sendMessage(carol, bob, "Hello");
+		Message m4 = messageManager.sendMessage(alice, alice, "Note to self");
+
+		assertEquals(List.of(m1, m2), messageManager.getConversation(alice, bob));
+		assertEquals(List.of(m1, m2), messageManager.getConversation(bob, alice), "Order of users must not matter");
+		assertEquals(List.of(m3), messageManager.getConversation(bob, carol));
+
+		List<Message> aliceMessages = messageManager.getMessagesFor(alice);
+		assertEquals(3, aliceMessages.size(), "A message to oneself is listed once");
+		assertTrue(aliceMessages.containsAll(List.of(m1, m2, m4)));
+
+		assertEquals(2, messageManager.getUnreadCountFor(bob));
+		assertEquals(List.of(m1, m3), messageManager.getUnreadMessagesFor(bob));
+		assertEquals(0, messageManager.getUnreadCountFor(carol));
+		assertTrue(messageManager.getUnreadMessagesFor(carol).isEmpty());
+	}
+
+	@Test
+	void testMarkAsRead() {
+		String dave = "mmDave" + System.nanoTime();
+		String erin = "mmErin" + System.nanoTime();
+		Message m1 = messageManager.sendMessage(dave, erin, "One");
+		Message m2 = messageManager.sendMessage(dave, erin, "Two");
+		assertEquals(2, messageManager.getUnreadCountFor(erin));
+
+		messageManager.markMessageAsRead(m1.getId());
+		assertTrue(m1.isRead());
+		assertEquals(1, messageManager.getUnreadCountFor(erin));
+		messageManager.markMessageAsRead(m1.getId());
+		assertEquals(1, messageManager.getUnreadCountFor(erin), "Marking twice must not count twice");
+		assertEquals(List.of(m2), messageManager.getUnreadMessagesFor(erin));
+
+		messageManager.markMessageAsRead(m2.getId());
+		assertEquals(0, messageManager.getUnreadCountFor(erin));
+	}
+
+	@Test
+	void testFetchRebuildsIndexes() {
+		String frank = "mmFrank" + System.nanoTime();
+		String grace = "mmGrace" + System.nanoTime();
+		Message m1 = messageManager.sendMessage(frank, grace, "First");
+		Message m2 = messageManager.sendMessage(grace, frank, "Second");
+		messageManager.sendMessage(frank, grace, "Third");
+		messageManager.markMessageAsRead(m1.getId());
+
+		MessageManager fresh = new MessageManager(dbHelper);
+		fresh.fetchMessages();
+		List<Message> conversation = fresh.getConversation(frank, grace);
+		assertEquals(3, conversation.size());
+		assertEquals(m1.getId(), conversation.get(0).getId());
+		assertEquals(m2.getId(), conversation.get(1).getId());
+		assertEquals(1, fresh.getUnreadCountFor(grace));
+		assertEquals(1, fresh.getUnreadCountFor(frank));
+		assertEquals(3, fresh.getMessagesFor(frank).size());
+	}
+}
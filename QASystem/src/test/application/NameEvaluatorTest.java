@@ -1,8 +1,11 @@
 package test.application;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import application.eval.NameEvaluator;
@@ -57,4 +60,16 @@ public class NameEvaluatorTest {
 		String r = NameEvaluator.evaluateName("Kyle");
 		assertTrue(r.isEmpty(), "Name is valid");
 	}
+
+	/**
+	 * This test checks that the first invalid character decides the message.
+	 */
+	@Test
+	void tryErrorMessages() {
+		assertEquals(NameEvaluator.ERR_SPACE, NameEvaluator.evaluateName("Mary Ann"));
+		assertEquals(NameEvaluator.ERR_NUM, NameEvaluator.evaluateName("5teven"));
+		assertEquals(NameEvaluator.ERR_CHAR, NameEvaluator.evaluateName("O'Neil"));
+		assertEquals(NameEvaluator.ERR_TOO_LONG, NameEvaluator.evaluateName("a".repeat(33)));
+		assertEquals(List.of("", NameEvaluator.ERR_NUM), NameEvaluator.INSTANCE.validateAll(List.of("Kyle", "K7le")));
+	}
 }
@@ -0,0 +1,123 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.AnswerManager;
+import application.QuestionManager;
+import application.ReviewManager;
+import application.obj.Answer;
+import application.obj.Question;
+import application.obj.Review;
+import application.util.Page;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Tests keyset pagination through {@link AnswerManager#page(int, int, Page.Sort)}
+ * and the other managers' page methods.
+ */
+public class PageTest {
+	private static DatabaseHelper dbHelper;
+	private static AnswerManager answerManager;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		answerManager = new AnswerManager(dbHelper);
+		for (int i = 0; i < 7; i++)
+			answerManager.createNewAnswer("pager", LocalDateTime.now(), "Paged answer " + i);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	@Test
+	void testPagesCoverEveryRowOnce() {
+		for (Page.Sort sort : Page.Sort.values()) {
+			List<Integer> seen = new ArrayList<>();
+			Page<Answer> page = answerManager.page(0, 3, sort);
+			while (true) {
+				assertTrue(page.getItems().size() <= 3, "A page must not exceed its limit");
+				for (Answer a : page.getItems())
+					seen.add(a.getId());
+				if (!page.hasMore())
+					break;
+				page = answerManager.page(page.getNextAfterId(), 3, sort);
+			}
+
+			for (int i = 1; i < seen.size(); i++) {
+				if (sort == Page.Sort.OLDEST_FIRST)
+					assertTrue(seen.get(i - 1) < seen.get(i), "IDs should ascend without repeats");
+				else
+					assertTrue(seen.get(i - 1) > seen.get(i), "IDs should descend without repeats");
+			}
+			assertEquals(countAnswers(), seen.size(), "Every answer should be reached exactly once");
+		}
+	}
+
+	private static int countAnswers() {
+		return answerManager.page(0, 10_000, Page.Sort.OLDEST_FIRST).getItems().size();
+	}
+
+	@Test
+	void testLastPageHasNoMore() {
+		Page<Answer> page = answerManager.page(0, 10_000, Page.Sort.OLDEST_FIRST);
+		assertFalse(page.hasMore());
+		Page<Answer> empty = answerManager.page(page.getNextAfterId(), 5, Page.Sort.OLDEST_FIRST);
+		assertTrue(empty.getItems().isEmpty());
+		assertFalse(empty.hasMore());
+	}
+
+	/**
+	 * Questions read by a page are the cached copies, so they appear in the
+	 * question set like questions loaded any other way.
+	 */
+	@Test
+	void testQuestionPageIsCached() {
+		new QuestionManager(dbHelper).createNewQuestion("pager", LocalDateTime.now(), "Paged question", "Body", null);
+		QuestionManager fresh = new QuestionManager(dbHelper);
+		Page<Question> page = fresh.page(0, 10_000, Page.Sort.OLDEST_FIRST);
+		assertFalse(page.getItems().isEmpty());
+		for (Question q : page.getItems()) {
+			assertTrue(fresh.getQuestionSet().contains(q));
+			assertSame(q, fresh.getQuestion(q.getId()));
+		}
+	}
+
+	/**
+	 * A review still waiting in the write-behind queue is on the page, as the
+	 * cached instance.
+	 */
+	@Test
+	void testReviewPageIsCached() throws SQLException {
+		DatabaseHelper writeBehindHelper = new DatabaseHelper();
+		writeBehindHelper.connectToDatabase();
+		writeBehindHelper.enableWriteBehind(Runnable::run);
+		try {
+			Question q = new QuestionManager(writeBehindHelper).createNewQuestion("pager", LocalDateTime.now(),
+					"Reviewed question", "Body", null);
+			ReviewManager reviewManager = new ReviewManager(writeBehindHelper);
+			Review review = reviewManager.createNewQuestionReview("pager", LocalDateTime.now(), "Paged review", 4, q);
+
+			Page<Review> page = reviewManager.page(review.getId() - 1, 1, Page.Sort.OLDEST_FIRST);
+			assertEquals(1, page.getItems().size());
+			assertSame(review, page.getItems().get(0));
+		} finally {
+			writeBehindHelper.closeConnection();
+		}
+	}
+}
@@ -1,8 +1,11 @@
 package test.application;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.stream.IntStream;
+
 import org.junit.jupiter.api.Test;
 
 import application.eval.PasswordEvaluator;
@@ -144,4 +147,41 @@ public class PasswordEvaluatorTest {
 		error = PasswordEvaluator.evaluatePassword(password);
 		assertFalse(error.contains(lengthError), "Passwords must have at least 8 characters.");
 	}
+
+	/**
+	 * This test checks the details reported by the result object.
+	 */
+	@Test
+	void testResult() {
+		PasswordEvaluator.Result result = PasswordEvaluator.evaluate("Passw0rd!");
+		assertTrue(result.isValid());
+		assertEquals("", result.getMessage());
+
+		result = PasswordEvaluator.evaluate("Pass word1!");
+		assertEquals(PasswordEvaluator.Error.INVALID_CHARACTER, result.getError());
+		assertEquals(4, result.getIndexOfError());
+
+		result = PasswordEvaluator.evaluate("password1");
+		assertEquals(PasswordEvaluator.Error.UNSATISFIED, result.getError());
+		assertEquals(9, result.getIndexOfError());
+		assertTrue(result.hasClass(PasswordEvaluator.LOWER_CASE | PasswordEvaluator.NUMERIC_DIGIT));
+		assertFalse(result.hasClass(PasswordEvaluator.UPPER_CASE));
+		assertEquals(upperCaseError + specialCharacterError + generalError, result.getMessage());
+
+		assertEquals(PasswordEvaluator.Error.EMPTY, PasswordEvaluator.evaluate("").getError());
+	}
+
+	/**
+	 * This test checks that passwords evaluated on many threads at once do not
+	 * affect each other.
+	 */
+	@Test
+	void testConcurrentEvaluation() {
+		long wrong = IntStream.range(0, 100_000).parallel().filter(i -> {
+			boolean valid = i % 2 == 0;
+			String password = valid ? "Val1d#pw" + i : "invalid" + i;
+			return PasswordEvaluator.evaluate(password).isValid() != valid;
+		}).count();
+		assertEquals(0, wrong);
+	}
 }
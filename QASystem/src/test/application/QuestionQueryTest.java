@@ -0,0 +1,96 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+
+import application.search.QuestionQuery;
+import application.search.QuestionQuery.Field;
+import application.search.QuestionQuery.Filter;
+import application.util.DateIndex;
+
+/**
+ * Tests parsing of structured question searches and the {@link DateIndex}
+ * behind date filters.
+ */
+public class QuestionQueryTest {
+
+	@Test
+	void testFiltersAndText() {
+		QuestionQuery q = QuestionQuery.parse(
+				"tag:java author:Alice after:2026-01-01 unanswered has:review rating>=4 \"exact phrase\" streams");
+		assertEquals(6, q.getFilters().size());
+		assertEquals("\"exact phrase\" streams", q.getText());
+
+		Filter tag = q.getFilters().get(0);
+		assertEquals(Field.TAG, tag.getField());
+		assertEquals("java", tag.getText());
+		assertEquals("Alice", q.getFilters().get(1).getText());
+		assertEquals(LocalDate.of(2026, 1, 1), q.getFilters().get(2).getDate());
+		assertEquals(Field.UNANSWERED, q.getFilters().get(3).getField());
+		assertEquals(Field.HAS_REVIEW, q.getFilters().get(4).getField());
+
+		Filter rating = q.getFilters().get(5);
+		assertEquals(4, rating.getMinRating());
+		assertEquals(Integer.MAX_VALUE, rating.getMaxRating());
+	}
+
+	@Test
+	void testNegationAndRatingOperators() {
+		QuestionQuery q = QuestionQuery.parse("-tag:sql rating<3 rating:5 -answered");
+		assertTrue(q.getFilters().get(0).isNegated());
+		assertEquals(2, q.getFilters().get(1).getMaxRating());
+		assertEquals(5, q.getFilters().get(2).getMinRating());
+		assertEquals(5, q.getFilters().get(2).getMaxRating());
+		assertTrue(q.getFilters().get(3).isNegated());
+		assertFalse(q.hasText());
+	}
+
+	/**
+	 * Words that only look like filters, and filters inside quotes, are searched
+	 * as text.
+	 */
+	@Test
+	void testTextThatIsNotAFilter() {
+		QuestionQuery q = QuestionQuery.parse("ratings http://example.com \"tag:java\" - tag:");
+		assertFalse(q.hasFilters());
+		assertEquals("ratings http://example.com \"tag:java\" - tag:", q.getText());
+	}
+
+	@Test
+	void testMalformedFilters() {
+		assertThrows(IllegalArgumentException.class, () -> QuestionQuery.parse("after:yesterday"));
+		assertThrows(IllegalArgumentException.class, () -> QuestionQuery.parse("rating>=good"));
+	}
+
+	@Test
+	void testDateIndexRanges() {
+		DateIndex index = new DateIndex();
+		LocalDateTime jan = LocalDateTime.of(2026, 1, 15, 12, 0);
+		index.put(1, jan.minusMonths(1));
+		index.put(2, jan);
+		index.put(3, jan.plusMonths(1));
+		// Out of order, and sharing a date with another entity
+		index.put(4, jan);
+
+		BitSet fromJan = index.between(LocalDate.of(2026, 1, 1).atStartOfDay(), null);
+		assertEquals(BitSet.valueOf(new long[] { 0b11100 }), fromJan);
+		BitSet beforeFeb = index.between(null, LocalDate.of(2026, 2, 1).atStartOfDay());
+		assertEquals(BitSet.valueOf(new long[] { 0b10110 }), beforeFeb);
+
+		index.put(3, jan.minusYears(1));
+		index.remove(2);
+		assertEquals(3, index.size());
+		BitSet all = index.between(null, null);
+		assertEquals(BitSet.valueOf(new long[] { 0b11010 }), all);
+		assertEquals(4, index.newestIn(all, 1)[0]);
+		assertEquals(3, index.newestIn(all, 5)[2]);
+	}
+}
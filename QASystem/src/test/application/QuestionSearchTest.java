@@ -0,0 +1,79 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.AnswerManager;
+import application.QuestionManager;
+import application.obj.Question;
+import application.search.SearchHit;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Tests that searches through {@link QuestionManager} return up to the limit
+ * in distinct questions, however many matching posts each question has.
+ */
+public class QuestionSearchTest {
+	private static DatabaseHelper dbHelper;
+	private static QuestionManager questionManager;
+	private static AnswerManager answerManager;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		questionManager = new QuestionManager(dbHelper);
+		answerManager = new AnswerManager(dbHelper);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	/**
+	 * Creates a question with many answers that all outrank a second question.
+	 *
+	 * @return The two questions, best match first
+	 */
+	private static Question[] createQuestions(String word, String author) {
+		Question busy = questionManager.createNewQuestion(author, LocalDateTime.now(), "Busy question",
+				word + " " + word, null);
+		for (int i = 0; i < 10; i++)
+			questionManager.addAnswerToQuestion(busy,
+					answerManager.createNewAnswer("qsAnswerer", LocalDateTime.now(), word + " " + word + " " + word));
+		Question quiet = questionManager.createNewQuestion(author, LocalDateTime.now(), "Quiet question",
+				"Mentions " + word + " once among many other words in a long body", null);
+		return new Question[] { busy, quiet };
+	}
+
+	@Test
+	void testLimitCountsQuestions() {
+		String word = "qsword" + System.nanoTime();
+		Question[] questions = createQuestions(word, "qsAuthor");
+		Map<Question, SearchHit> results = questionManager.searchFullText(word, 2);
+		assertEquals(2, results.size(), "Answers of one question must not use up the limit");
+		assertTrue(results.keySet().containsAll(List.of(questions)));
+		assertEquals(1, questionManager.searchFullText(word, 1).size());
+	}
+
+	@Test
+	void testFilteredLimitCountsQuestions() {
+		String word = "qsfiltered" + System.nanoTime();
+		String author = "qsFilterAuthor" + System.nanoTime();
+		Question[] questions = createQuestions(word, author);
+		createQuestions(word, "qsSomeoneElse");
+		Map<Question, SearchHit> results = questionManager.searchQuestions("author:" + author + " " + word, 2);
+		assertEquals(2, results.size());
+		assertTrue(results.keySet().containsAll(List.of(questions)));
+	}
+}
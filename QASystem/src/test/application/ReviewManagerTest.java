@@ -0,0 +1,66 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.ReviewManager;
+import application.obj.Answer;
+import application.obj.Question;
+import application.obj.Review;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Tests that the per-question, per-answer and per-user lookups of
+ * {@link ReviewManager} stay consistent as reviews are created and deleted.
+ */
+public class ReviewManagerTest {
+	private static DatabaseHelper dbHelper;
+	private static ReviewManager reviewManager;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		reviewManager = new ReviewManager(dbHelper);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	@Test
+	void testLookupsFollowCreateAndDelete() {
+		LocalDateTime now = LocalDateTime.now();
+		Question question = new Question(9001, "asker", now, "Indexed question", "Body", null, null);
+		Answer answer = new Answer(9002, "answerer", now, "Indexed answer", null);
+
+		int questionBefore = reviewManager.getReviewCountForQuestion(question.getId());
+		int userBefore = reviewManager.getReviewCountByUser("indexReviewer");
+
+		Review qReview = reviewManager.createNewQuestionReview("indexReviewer", now, "Clear question", 4, question);
+		Review aReview = reviewManager.createNewAnswerReview("indexReviewer", now, "Correct answer", 5, answer);
+		assertNotNull(qReview);
+		assertNotNull(aReview);
+
+		assertEquals(questionBefore + 1, reviewManager.getReviewCountForQuestion(question.getId()));
+		assertTrue(reviewManager.getReviewsForQuestion(question.getId()).contains(qReview));
+		assertTrue(reviewManager.getReviewsForAnswer(answer.getId()).contains(aReview));
+		assertEquals(userBefore + 2, reviewManager.getReviewsByUser("indexReviewer").size());
+
+		reviewManager.deleteReview(qReview);
+		reviewManager.deleteReview(aReview);
+
+		assertEquals(questionBefore, reviewManager.getReviewCountForQuestion(question.getId()));
+		assertEquals(0, reviewManager.getReviewCountForAnswer(answer.getId()));
+		assertEquals(userBefore, reviewManager.getReviewCountByUser("indexReviewer"));
+	}
+}
@@ -0,0 +1,111 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import application.RosterImporter;
+import application.User;
+import application.UserRole;
+import databasePart1.DatabaseHelper;
+
+/**
+ * Tests bulk account creation with {@link RosterImporter}.
+ */
+public class RosterImporterTest {
+	private static DatabaseHelper dbHelper;
+	private static RosterImporter importer;
+	// Keeps usernames from clashing with earlier runs against the same database
+	private static final String PREFIX = "r" + Integer.toString(new Random().nextInt(36 * 36 * 36 * 36), 36);
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		importer = new RosterImporter(dbHelper, UserRole.STUDENT);
+	}
+
+	@AfterAll
+	static void cleanup() {
+		dbHelper.closeConnection();
+	}
+
+	private static List<Integer> errorLines(RosterImporter.Report report) {
+		return report.getErrors().stream().map(RosterImporter.RowError::getLine).toList();
+	}
+
+	@Test
+	void testCsv() throws IOException {
+		dbHelper.createUser(PREFIX + "taken", "Passw0rd!", UserRole.STUDENT);
+		String csv = String.join("\n", "email,userName,password,firstName,lastName,role",
+				"ann@asu.edu," + PREFIX + "ann,Passw0rd!,Ann,Lee,",
+				"\"bo,b\"@asu.edu," + PREFIX + "bob,Passw0rd!,Bob,Ray,instructor",
+				"cy@asu.edu," + PREFIX + "cy,weak,Cy,Fox,",
+				"ann2@asu.edu," + PREFIX + "ann,Passw0rd!,Ann,Kim,",
+				"", "tk@asu.edu," + PREFIX + "taken,Passw0rd!,Tom,Kay,",
+				"di@asu.edu," + PREFIX + "di,Passw0rd!,Di,Lo,wizard",
+				"ed@asu.edu," + PREFIX + "ed,Passw0rd!,Ed,\"Ng");
+		RosterImporter.Report report = importer.importFrom(new StringReader(csv), RosterImporter.Format.CSV);
+
+		assertEquals(7, report.getRows());
+		assertEquals(1, report.getImported(), report.getErrors().toString());
+		assertEquals(List.of(3, 4, 5, 7, 8, 9), errorLines(report));
+		assertTrue(report.getErrors().get(1).getMessage().startsWith("password: "));
+		assertEquals(PREFIX + "ann", report.getErrors().get(2).getUserName());
+
+		User ann = dbHelper.fetchUser(PREFIX + "ann");
+		assertNotNull(ann);
+		assertEquals("Lee", ann.getLastName());
+		assertEquals(UserRole.STUDENT, ann.getRole());
+		assertNull(dbHelper.fetchUser(PREFIX + "bob"), "The quoted comma makes the email invalid");
+	}
+
+	@Test
+	void testNdjson() throws IOException {
+		String ndjson = String.join("\n",
+				"{\"userName\": \"" + PREFIX + "jo\", \"password\": \"Passw0rd!\", \"firstName\": \"Jo\", "
+						+ "\"lastName\": \"Ma\", \"email\": \"jo@asu.edu\", \"role\": \"reviewer\", \"id\": \"x\"}",
+				"{\"userName\": \"" + PREFIX + "\\u006Bay\", \"password\": \"Passw0rd!\", \"firstName\": \"Kay\", "
+						+ "\"lastName\": \"Ma\", \"email\": \"kay@asu.edu\", \"role\": null}",
+				"{\"userName\": \"" + PREFIX + "lu\", \"password\": \"Passw0rd!\"}",
+				"{\"userName\": \"" + PREFIX + "mo\", \"password\": 5}", "not json");
+		RosterImporter.Report report = importer.importFrom(new StringReader(ndjson), RosterImporter.Format.NDJSON);
+
+		assertEquals(2, report.getImported(), report.getErrors().toString());
+		assertEquals(List.of(3, 4, 5), errorLines(report));
+		assertEquals("Missing firstName", report.getErrors().get(0).getMessage());
+		assertEquals(UserRole.REVIEWER, dbHelper.fetchUser(PREFIX + "jo").getRole());
+		assertEquals(UserRole.STUDENT, dbHelper.fetchUser(PREFIX + "kay").getRole());
+	}
+
+	/**
+	 * Rows beyond one chunk are all imported, and a header without a required
+	 * column is rejected.
+	 */
+	@Test
+	void testChunksAndHeader() throws IOException {
+		StringBuilder csv = new StringBuilder("userName,password,firstName,lastName,email\n");
+		int rows = RosterImporter.CHUNK_SIZE + 10;
+		for (int i = 0; i < rows; i++)
+			csv.append(PREFIX).append("c").append(i).append(",Passw0rd!,Chunk,Test,c").append(i).append("@asu.edu\n");
+		RosterImporter.Report report = importer.importFrom(new StringReader(csv.toString()),
+				RosterImporter.Format.CSV);
+		assertEquals(rows, report.getImported(), report.getErrors().toString());
+		assertNotNull(dbHelper.fetchUser(PREFIX + "c" + (rows - 1)));
+
+		assertThrows(IllegalArgumentException.class, () -> importer
+				.importFrom(new StringReader("userName,password\n"), RosterImporter.Format.CSV));
+	}
+}
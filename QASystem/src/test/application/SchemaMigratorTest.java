@@ -0,0 +1,77 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import databasePart1.ConnectionPool;
+import databasePart1.PooledConnection;
+import databasePart1.SchemaMigrator;
+
+/**
+ * Tests that {@link SchemaMigrator} applies each migration exactly once, even
+ * when several clients start against a new database at the same time.
+ */
+public class SchemaMigratorTest {
+
+	private static final String URL = "jdbc:h2:mem:migratortest;DB_CLOSE_DELAY=-1";
+
+	@Test
+	void testConcurrentMigration() throws Exception {
+		ConnectionPool pool = new ConnectionPool(URL, "sa", "", 8);
+		int clients = 4;
+		CyclicBarrier start = new CyclicBarrier(clients);
+		ExecutorService threads = Executors.newFixedThreadPool(clients);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < clients; i++) {
+				results.add(threads.submit(() -> {
+					try (PooledConnection conn = pool.borrow();
+							Connection lockConn = DriverManager.getConnection(URL, "sa", "")) {
+						start.await();
+						return new SchemaMigrator().migrate(conn, lockConn);
+					}
+				}));
+			}
+			for (Future<Integer> result : results)
+				assertEquals(SchemaMigrator.getLatestVersion(), result.get());
+
+			try (PooledConnection conn = pool.borrow();
+					PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*), COUNT(DISTINCT version) FROM SchemaVersion");
+					ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				assertEquals(SchemaMigrator.getLatestVersion(), rs.getInt(1), "Each migration is recorded once");
+				assertEquals(rs.getInt(1), rs.getInt(2));
+			}
+		} finally {
+			threads.shutdown();
+			pool.close();
+		}
+	}
+
+	@Test
+	void testMigrateIsIdempotent() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(URL.replace("migratortest", "migratortest2"), "sa", "", 2);
+		try (PooledConnection conn = pool.borrow();
+				Connection lockConn = DriverManager.getConnection(URL.replace("migratortest", "migratortest2"), "sa", "")) {
+			SchemaMigrator migrator = new SchemaMigrator();
+			assertEquals(SchemaMigrator.getLatestVersion(), migrator.migrate(conn, lockConn));
+			assertEquals(SchemaMigrator.getLatestVersion(), migrator.migrate(conn, lockConn));
+			assertEquals(SchemaMigrator.getLatestVersion(), migrator.getVersion(conn));
+		} finally {
+			pool.close();
+		}
+	}
+}
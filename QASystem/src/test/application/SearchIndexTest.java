@@ -0,0 +1,97 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.search.SearchHit;
+import application.search.SearchIndex;
+import application.search.SearchIndex.Kind;
+import application.search.Tokenizer;
+
+/**
+ * Tests ranking, phrase matching and snippets in {@link SearchIndex}.
+ */
+public class SearchIndexTest {
+
+	private SearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new SearchIndex();
+		index.put(Kind.QUESTION, 1, "Why does my HashMap throw a null pointer exception?");
+		index.put(Kind.ANSWER, 2, "A pointer to null is not the problem; the map key is null.");
+		index.put(Kind.ANSWER, 3, "Use a TreeMap if you need keys in sorted order.");
+		index.put(Kind.REVIEW, 4, "Clear answer about hashmap null keys, null values and null pointer bugs.");
+	}
+
+	/**
+	 * Documents mentioning the query terms more often should rank first, and
+	 * documents without any query term should not be returned.
+	 */
+	@Test
+	void testRanking() {
+		List<SearchHit> hits = index.search("null keys", 10);
+		assertEquals(4, hits.size());
+		assertEquals(4, hits.get(0).getId(), "The review mentions both terms most often");
+		assertEquals(1, index.search("sorted order", 10).size(), "Only answer 3 mentions either term");
+		for (int i = 1; i < hits.size(); i++)
+			assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+	}
+
+	@Test
+	void testPhraseRequiresAdjacentTerms() {
+		List<SearchHit> hits = index.search("\"null pointer\"", 10);
+		assertEquals(Set.of(1, 4), Set.of(hits.get(0).getId(), hits.get(1).getId()));
+		assertEquals(2, hits.size(), "Answer 2 has both words, but not next to each other");
+	}
+
+	@Test
+	void testTopKAndKinds() {
+		assertEquals(1, index.search("null", 1).size());
+		List<SearchHit> answers = index.search("null", 10, Set.of(Kind.ANSWER));
+		assertEquals(1, answers.size());
+		assertEquals(Kind.ANSWER, answers.get(0).getKind());
+	}
+
+	@Test
+	void testSnippetHighlights() {
+		SearchHit hit = index.search("treemap", 10).get(0);
+		assertEquals("Use a [TreeMap] if you need keys in sorted order.", hit.getSnippet("[", "]"));
+	}
+
+	/**
+	 * Updated and removed posts should no longer match their old text.
+	 */
+	@Test
+	void testUpdatesAndRemoval() {
+		index.put(Kind.ANSWER, 3, "Use a LinkedHashMap instead.");
+		assertTrue(index.search("treemap", 10).isEmpty());
+		assertEquals(3, index.search("linkedhashmap", 10).get(0).getId());
+
+		index.remove(Kind.QUESTION, 1);
+		assertTrue(index.search("exception", 10).isEmpty());
+		assertEquals(3, index.size());
+	}
+
+	/**
+	 * Case folding must not depend on the default locale; in Turkish, "I"
+	 * lowercases to a dotless i.
+	 */
+	@Test
+	void testCaseFoldingIgnoresLocale() {
+		Locale saved = Locale.getDefault();
+		try {
+			Locale.setDefault(Locale.forLanguageTag("tr"));
+			assertEquals(List.of("title", "index"), Tokenizer.terms("TITLE INDEX"));
+		} finally {
+			Locale.setDefault(saved);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.search.SearchHit;
+import application.search.SearchIndex;
+import application.search.SearchIndex.Kind;
+
+/**
+ * Tests that {@link SearchIndex} saves its segments, maps them again on the
+ * next open, and merges them.
+ */
+public class SearchSegmentTest {
+
+	@TempDir
+	Path dir;
+
+	private SearchIndex index;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		index = new SearchIndex();
+		index.open(dir);
+		index.put(Kind.QUESTION, 1, "How do I sort a list of records by date?");
+		index.put(Kind.ANSWER, 2, "Use a comparator on the date field and call sort.");
+		index.put(Kind.REVIEW, 3, "This answer about sorting by date was helpful.");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		index.close();
+	}
+
+	private SearchIndex reopen() throws IOException {
+		index.close();
+		index = new SearchIndex();
+		index.open(dir);
+		return index;
+	}
+
+	/**
+	 * Saved posts should be searchable right after opening, before anything is
+	 * put again.
+	 */
+	@Test
+	void testSearchAfterReopen() throws IOException {
+		reopen();
+		assertEquals(3, index.size());
+		List<SearchHit> hits = index.search("\"date field\"", 10);
+		assertEquals(1, hits.size());
+		assertEquals(2, hits.get(0).getId());
+		assertEquals(Kind.ANSWER, hits.get(0).getKind());
+	}
+
+	/**
+	 * Putting unchanged text again should not add a new copy, while changed and
+	 * removed posts should stay that way after reopening.
+	 */
+	@Test
+	void testChangesSurviveReopen() throws IOException {
+		index.flush();
+		int segments = index.segmentCount();
+		index.put(Kind.QUESTION, 1, "How do I sort a list of records by date?");
+		index.flush();
+		assertEquals(segments, index.segmentCount(), "Unchanged text should not be written again");
+
+		index.put(Kind.ANSWER, 2, "Implement Comparable instead.");
+		index.remove(Kind.REVIEW, 3);
+		reopen();
+
+		assertEquals(2, index.size());
+		assertTrue(index.search("helpful", 10).isEmpty());
+		assertTrue(index.search("field", 10).isEmpty());
+		assertEquals(2, index.search("comparable", 10).get(0).getId());
+	}
+
+	@Test
+	void testRetainAllDropsMissingPosts() throws IOException {
+		index.flush();
+		index.retainAll(Kind.QUESTION, Set.of());
+		reopen();
+		assertTrue(index.search("records", 10).isEmpty());
+		assertEquals(2, index.size());
+	}
+
+	/**
+	 * Many small flushes should be merged into a few segments without losing or
+	 * duplicating posts.
+	 */
+	@Test
+	void testFlushesAreMerged() throws IOException {
+		for (int i = 10; i < 40; i++) {
+			index.put(Kind.ANSWER, i, "Merged answer number " + i + " about dates");
+			if (i % 3 == 0)
+				index.remove(Kind.ANSWER, i - 1);
+			index.flush();
+		}
+		assertTrue(index.segmentCount() <= 8, "Expected small segments to be merged");
+
+		reopen();
+		List<SearchHit> hits = index.search("merged", 100);
+		assertEquals(20, hits.size());
+		assertEquals(23, index.size());
+	}
+
+	/**
+	 * A second index on the same directory must not touch its files, and should
+	 * work from memory instead.
+	 */
+	@Test
+	void testDirectoryOwnedByOneIndex() throws IOException {
+		index.flush();
+		SearchIndex second = new SearchIndex();
+		assertFalse(second.open(dir));
+		assertFalse(second.isPersistent());
+		second.put(Kind.QUESTION, 7, "Only kept in memory");
+		assertEquals(1, second.search("memory", 10).size());
+		second.close();
+		assertTrue(index.isPersistent());
+
+		reopen();
+		assertTrue(index.isPersistent(), "The lock is released on close");
+		assertEquals(3, index.size());
+	}
+
+	/**
+	 * Posts in a delta whose write failed must stay searchable and be saved by a
+	 * later flush.
+	 */
+	@Test
+	void testFailedWriteIsRetried() throws IOException {
+		// A non-empty directory where the first segment file should go
+		Path blocker = Files.createDirectories(dir.resolve("segment-1"));
+		Files.writeString(blocker.resolve("file"), "x");
+		assertThrows(IOException.class, () -> index.flush());
+		assertEquals(3, index.size());
+		assertEquals(1, index.search("comparator", 10).size());
+
+		index.put(Kind.ANSWER, 4, "Streams can sort by date with Comparator.comparing.");
+		Files.delete(blocker.resolve("file"));
+		Files.delete(blocker);
+		index.flush();
+
+		reopen();
+		assertEquals(4, index.size());
+		assertEquals(2, index.search("comparator", 10).size());
+	}
+}
@@ -0,0 +1,78 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import application.util.StringUtil;
+
+/**
+ * Tests the Levenshtein distance and similarity functions of
+ * {@link StringUtil} against a plain dynamic program.
+ */
+public class StringUtilTest {
+
+	private static int referenceDistance(String s1, String s2) {
+		s1 = s1.toLowerCase();
+		s2 = s2.toLowerCase();
+		int[][] d = new int[s1.length() + 1][s2.length() + 1];
+		for (int i = 0; i <= s1.length(); i++)
+			d[i][0] = i;
+		for (int j = 0; j <= s2.length(); j++)
+			d[0][j] = j;
+		for (int i = 1; i <= s1.length(); i++) {
+			for (int j = 1; j <= s2.length(); j++) {
+				int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]) + 1, d[i - 1][j - 1] + cost);
+			}
+		}
+		return d[s1.length()][s2.length()];
+	}
+
+	private static String randomString(Random random, int length, String alphabet) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return sb.toString();
+	}
+
+	@Test
+	void testKnownDistances() {
+		assertEquals(3, StringUtil.getLevenshteinDistance("kitten", "sitting"));
+		assertEquals(0, StringUtil.getLevenshteinDistance("Hello", "hELLO"));
+		assertEquals(5, StringUtil.getLevenshteinDistance("", "abcde"));
+		assertEquals(1, StringUtil.getLevenshteinDistance("Ärger", "ärgern"));
+	}
+
+	/**
+	 * Short strings take the bit-parallel path and long ones the banded path;
+	 * both must agree with the reference, with and without a limit.
+	 */
+	@Test
+	void testMatchesReference() {
+		Random random = new Random(42);
+		String alphabet = "abcAB éÉ";
+		for (int round = 0; round < 2000; round++) {
+			int maxLength = round % 2 == 0 ? 70 : 160;
+			String s1 = randomString(random, random.nextInt(maxLength), alphabet);
+			String s2 = randomString(random, random.nextInt(maxLength), alphabet);
+			int expected = referenceDistance(s1, s2);
+			assertEquals(expected, StringUtil.getLevenshteinDistance(s1, s2), s1 + " / " + s2);
+
+			int limit = random.nextInt(maxLength);
+			assertEquals(expected <= limit ? expected : -1, StringUtil.getLevenshteinDistance(s1, s2, limit),
+					s1 + " / " + s2 + " within " + limit);
+		}
+	}
+
+	@Test
+	void testSimilarityThreshold() {
+		assertEquals(1.0, StringUtil.getSimilarity("", ""));
+		assertEquals(4 / 7.0, StringUtil.getSimilarity("kitten", "sitting"), 1e-9);
+		assertEquals(4 / 7.0, StringUtil.getSimilarity("kitten", "sitting", 4 / 7.0), 1e-9);
+		assertEquals(0.0, StringUtil.getSimilarity("kitten", "sitting", 0.6));
+		assertEquals(0.0, StringUtil.getSimilarity("a", "abcdefghij", 0.5));
+	}
+}
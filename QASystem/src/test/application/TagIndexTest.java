@@ -0,0 +1,72 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.util.TagIndex;
+
+/**
+ * Tests tag lookups and boolean queries on {@link TagIndex}.
+ */
+public class TagIndexTest {
+
+	private TagIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new TagIndex();
+		index.put(1, List.of("java", "Streams"));
+		index.put(2, List.of("javafx", "layout"));
+		index.put(3, List.of("sql", "h2"));
+		index.put(4, List.of("java", "sql"));
+	}
+
+	private static BitSet ids(int... ids) {
+		BitSet result = new BitSet();
+		for (int id : ids)
+			result.set(id);
+		return result;
+	}
+
+	/**
+	 * Substring matches should agree with the old linear scan, including
+	 * fragments shorter and longer than an n-gram.
+	 */
+	@Test
+	void testSubstringMatches() {
+		assertEquals(ids(1, 2, 4), index.containing("jav"));
+		assertEquals(ids(2), index.containing("AFX"));
+		assertEquals(ids(1), index.containing("stream"));
+		assertEquals(ids(3), index.containing("2"));
+		assertEquals(ids(), index.containing("javas"));
+		assertEquals(ids(1, 4), index.withTag("JAVA"));
+	}
+
+	@Test
+	void testBooleanQuery() {
+		assertEquals(ids(4), index.query(List.of("java", "sql"), List.of(), List.of()));
+		assertEquals(ids(1, 2, 3, 4), index.query(List.of(), List.of("java", "sql"), List.of()));
+		assertEquals(ids(1, 2), index.query(List.of(), List.of("java"), List.of("sql")));
+		assertEquals(ids(3), index.query(List.of(), List.of(), List.of("stream", "java ")));
+	}
+
+	/**
+	 * Re-tagging and removing an entity should leave no stale postings behind.
+	 */
+	@Test
+	void testUpdatesReplaceOldTags() {
+		index.put(2, List.of("css"));
+		assertTrue(index.containing("afx").isEmpty());
+		assertEquals(ids(2), index.containing("ss"));
+
+		index.remove(3);
+		assertEquals(ids(4), index.containing("sql"));
+		assertTrue(index.containing("h2").isEmpty());
+	}
+}
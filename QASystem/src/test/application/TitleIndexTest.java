@@ -0,0 +1,137 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import application.search.TitleIndex;
+import application.search.TypeAheadSuggester;
+
+/**
+ * Tests title suggestions with {@link TitleIndex} and
+ * {@link TypeAheadSuggester}.
+ */
+public class TitleIndexTest {
+
+	private static List<Integer> ids(List<TitleIndex.Match> matches) {
+		List<Integer> ids = new ArrayList<>();
+		for (TitleIndex.Match m : matches)
+			ids.add(m.getId());
+		return ids;
+	}
+
+	private static TitleIndex sampleIndex() {
+		TitleIndex index = new TitleIndex();
+		index.put(1, "How do I sort a list in Java?");
+		index.put(2, "How do I sort a map by value in Java?");
+		index.put(3, "Difference between HBox and VBox");
+		index.put(4, "Why does my SQL join return duplicates?");
+		return index;
+	}
+
+	/**
+	 * Typing a title one character at a time must give the same results as
+	 * looking the final text up from scratch.
+	 */
+	@Test
+	void testIncrementalMatchesFresh() {
+		TitleIndex index = sampleIndex();
+		for (int id = 100; id < 400; id++)
+			index.put(id, "Question " + id + " about topic " + (id * 7919 % 97));
+		TitleIndex.Session session = index.newSession();
+		String title = "How do I sort a list in Java";
+		for (int i = 1; i <= title.length(); i++) {
+			String typed = title.substring(0, i);
+			assertEquals(ids(index.newSession().update(typed, 5)), ids(session.update(typed, 5)), typed);
+		}
+		// Backspacing works the same way
+		String shorter = "How do I sort";
+		assertEquals(ids(index.newSession().update(shorter, 5)), ids(session.update(shorter, 5)));
+		assertEquals(1, session.update(title, 5).get(0).getId());
+	}
+
+	@Test
+	void testRanking() {
+		TitleIndex index = sampleIndex();
+		List<TitleIndex.Match> matches = index.newSession().update("how to sort a list in java", 5);
+		assertEquals(List.of(1, 2), ids(matches));
+		assertTrue(matches.get(0).getSimilarity() > matches.get(1).getSimilarity());
+		assertTrue(index.newSession().update("completely unrelated words", 5).isEmpty());
+		assertTrue(index.newSession().update("", 5).isEmpty());
+	}
+
+	@Test
+	void testUpdatesDuringSession() {
+		TitleIndex index = sampleIndex();
+		TitleIndex.Session session = index.newSession();
+		assertEquals(List.of(4), ids(session.update("SQL join returns duplicates", 5)));
+
+		index.remove(4);
+		assertTrue(session.update("SQL join returns duplicates", 5).isEmpty());
+		index.put(5, "SQL join returns duplicate rows");
+		assertEquals(List.of(5), ids(session.update("SQL join returns duplicates", 5)));
+		index.put(5, "Difference between HBox and VBox layouts");
+		assertTrue(session.update("SQL join returns duplicates", 5).isEmpty());
+		assertEquals(4, index.size());
+	}
+
+	/**
+	 * A title whose count drops to zero and comes back within one session must
+	 * only be returned once.
+	 */
+	@Test
+	void testNoDuplicateMatches() {
+		TitleIndex index = new TitleIndex();
+		index.put(1, "abc def");
+		TitleIndex.Session session = index.newSession();
+		assertEquals(List.of(1), ids(session.update("abc", 5)));
+		assertEquals(List.of(1), ids(session.update("def", 5)));
+		assertEquals(List.of(1), ids(session.update("abc", 5)));
+
+		index.put(1, "abc def"); // Unchanged, so the session keeps its counts
+		assertEquals(List.of(1), ids(session.update("abc def", 5)));
+	}
+
+	/**
+	 * Enough removals to renumber the index must not change what is found.
+	 */
+	@Test
+	void testCompaction() {
+		TitleIndex index = sampleIndex();
+		TitleIndex.Session session = index.newSession();
+		for (int id = 1000; id < 4000; id++)
+			index.put(id, "Filler " + id);
+		session.update("sort a list in Java", 5);
+		for (int id = 1000; id < 4000; id++)
+			index.remove(id);
+		assertEquals(4, index.size());
+		assertEquals(ids(index.newSession().update("sort a list in Java", 5)),
+				ids(session.update("sort a list in Java", 5)));
+	}
+
+	/**
+	 * Only the latest of a burst of requests is delivered.
+	 */
+	@Test
+	void testSuggesterDropsStaleRequests() throws InterruptedException {
+		TitleIndex index = sampleIndex();
+		TypeAheadSuggester suggester = new TypeAheadSuggester(index, 5, Runnable::run, 50);
+		List<String> delivered = new ArrayList<>();
+		CountDownLatch done = new CountDownLatch(1);
+		suggester.request("How do I", matches -> delivered.add("first"));
+		suggester.request("How do I sort a map", matches -> delivered.add("second"));
+		suggester.request("How do I sort a map by value", matches -> {
+			delivered.add("third " + ids(matches));
+			done.countDown();
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(List.of("third [2, 1]"), delivered);
+	}
+}
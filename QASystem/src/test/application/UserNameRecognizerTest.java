@@ -1,8 +1,12 @@
 package test.application;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import application.eval.UserNameRecognizer;
@@ -128,4 +132,41 @@ public class UserNameRecognizerTest {
 		error = UserNameRecognizer.checkForValidUserName(userName);
 		assertFalse(error.contains(invalidCharacterError), invalidCharacterError);
 	}
+
+	/**
+	 * This test checks the error kind and position reported by the result object.
+	 */
+	@Test
+	void testResult() {
+		UserNameRecognizer.Result result = UserNameRecognizer.recognize("Jane.Doe");
+		assertTrue(result.isValid());
+		assertEquals(-1, result.getIndexOfError());
+
+		result = UserNameRecognizer.recognize("Jane$Doe");
+		assertEquals(UserNameRecognizer.Error.INVALID_CHARACTER, result.getError());
+		assertEquals(4, result.getIndexOfError());
+
+		result = UserNameRecognizer.recognize("abcdefghijklmnopq");
+		assertEquals(UserNameRecognizer.Error.TOO_LONG, result.getError());
+		assertTrue(result.getMessage().contains(maxCharacterError));
+
+		assertEquals(UserNameRecognizer.Error.AFTER_SEPARATOR, UserNameRecognizer.recognize("Jane.").getError());
+		assertEquals(UserNameRecognizer.Error.START, UserNameRecognizer.recognize("_Jane").getError());
+	}
+
+	/**
+	 * This test checks that batch results match one-at-a-time results, in order.
+	 */
+	@Test
+	void testRecognizeAll() {
+		List<String> userNames = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++)
+			userNames.add(i % 2 == 0 ? "student" + i : i + "student");
+		List<UserNameRecognizer.Result> results = UserNameRecognizer.recognizeAll(userNames);
+		assertEquals(userNames.size(), results.size());
+		for (int i = 0; i < userNames.size(); i++)
+			assertEquals(UserNameRecognizer.checkForValidUserName(userNames.get(i)), results.get(i).getMessage());
+		assertTrue(results.get(0).isValid());
+		assertFalse(results.get(1).isValid());
+	}
 }
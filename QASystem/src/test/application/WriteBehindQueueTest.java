@@ -0,0 +1,162 @@
+package test.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import databasePart1.WriteBehindQueue;
+
+/**
+ * Tests that {@link WriteBehindQueue} groups writes into few commits, applies
+ * them in order and reports writes that cannot be made.
+ */
+public class WriteBehindQueueTest {
+	private static DatabaseHelper dbHelper;
+	private static WriteBehindQueue queue;
+
+	@BeforeAll
+	static void setup() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		dbHelper.connectToDatabase();
+		dbHelper.enableWriteBehind(Runnable::run);
+		queue = dbHelper.getWriteBehindQueue();
+		try (PooledConnection conn = dbHelper.borrowConnection(); Statement stmt = conn.createStatement()) {
+			stmt.execute("DROP TABLE IF EXISTS WriteBehindTest");
+			stmt.execute("CREATE TABLE WriteBehindTest (k VARCHAR(64) PRIMARY KEY, v INT)");
+		}
+	}
+
+	@AfterAll
+	static void cleanup() throws SQLException {
+		try (PooledConnection conn = dbHelper.borrowConnection(); Statement stmt = conn.createStatement()) {
+			stmt.execute("DROP TABLE IF EXISTS WriteBehindTest");
+		}
+		dbHelper.closeConnection();
+	}
+
+	private static void insert(String k, int v, Runnable onFailure) {
+		queue.enqueue(WriteBehindQueue.key("WriteBehindTest", k), "INSERT INTO WriteBehindTest (k, v) VALUES (?, ?)",
+				stmt -> {
+					stmt.setString(1, k);
+					stmt.setInt(2, v);
+				}, onFailure);
+	}
+
+	private static Integer value(String k) throws SQLException {
+		try (PooledConnection conn = dbHelper.borrowConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT v FROM WriteBehindTest WHERE k = ?")) {
+			stmt.setString(1, k);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? rs.getInt(1) : null;
+		}
+	}
+
+	@Test
+	void testCoalescing() throws SQLException {
+		long commitsBefore = queue.getCommitCount();
+		for (int i = 0; i < 200; i++)
+			insert("coalesce" + i, i, null);
+		queue.flush();
+
+		assertEquals(0, queue.getPendingCount());
+		long commits = queue.getCommitCount() - commitsBefore;
+		assertTrue(commits >= 1 && commits < 20, "200 writes took " + commits + " commits");
+		try (PooledConnection conn = dbHelper.borrowConnection();
+				PreparedStatement stmt = conn
+						.prepareStatement("SELECT COUNT(*) FROM WriteBehindTest WHERE k LIKE 'coalesce%'")) {
+			ResultSet rs = stmt.executeQuery();
+			rs.next();
+			assertEquals(200, rs.getInt(1));
+		}
+	}
+
+	@Test
+	void testFlushOrdering() throws SQLException {
+		String key = WriteBehindQueue.key("WriteBehindTest", "ordered");
+		insert("ordered", 0, null);
+		for (int i = 1; i <= 50; i++) {
+			int v = i;
+			queue.enqueue(key, "UPDATE WriteBehindTest SET v = ? WHERE k = ?", stmt -> {
+				stmt.setInt(1, v);
+				stmt.setString(2, "ordered");
+			}, null);
+		}
+		queue.flush(key);
+		assertEquals(50, value("ordered"), "Writes to a row are applied in the order they were queued");
+
+		queue.flush(WriteBehindQueue.key("WriteBehindTest", "nothing queued")); // Must return at once
+	}
+
+	@Test
+	void testFailurePath() throws SQLException {
+		AtomicInteger failed = new AtomicInteger();
+		long failuresBefore = queue.getFailureCount();
+		insert("failing", 1, null);
+		insert("failing", 2, failed::incrementAndGet); // Duplicate key, can never succeed
+		insert("afterFailure", 3, failed::incrementAndGet);
+		queue.flush();
+
+		assertEquals(1, failed.get(), "Only the write that failed reports it");
+		assertEquals(failuresBefore + 1, queue.getFailureCount());
+		assertEquals(1, value("failing"));
+		assertEquals(3, value("afterFailure"), "Writes queued with a bad one are still made");
+
+		insert("laterWrite", 4, failed::incrementAndGet);
+		queue.flush(WriteBehindQueue.key("WriteBehindTest", "laterWrite"));
+		assertEquals(4, value("laterWrite"), "The writer keeps going after a failure");
+		assertEquals(1, failed.get());
+	}
+
+	/**
+	 * Two clients sharing the database must never be handed the same ID, or one
+	 * client's insert would fail on the other's row.
+	 */
+	@Test
+	void testConcurrentClientsReserveDistinctIds() throws Exception {
+		DatabaseHelper otherHelper = new DatabaseHelper();
+		otherHelper.connectToDatabase();
+		otherHelper.enableWriteBehind(Runnable::run);
+		WriteBehindQueue[] queues = { queue, otherHelper.getWriteBehindQueue() };
+		int perClient = WriteBehindQueue.ID_BLOCK_SIZE * 10;
+		CyclicBarrier start = new CyclicBarrier(queues.length);
+		ExecutorService threads = Executors.newFixedThreadPool(queues.length);
+		try {
+			List<Future<List<Integer>>> results = new ArrayList<>();
+			for (WriteBehindQueue q : queues) {
+				results.add(threads.submit(() -> {
+					start.await();
+					List<Integer> ids = new ArrayList<>();
+					for (int i = 0; i < perClient; i++)
+						ids.add(q.reserveId("Answers"));
+					return ids;
+				}));
+			}
+			Set<Integer> seen = new HashSet<>();
+			for (Future<List<Integer>> result : results)
+				seen.addAll(result.get());
+			assertEquals(perClient * queues.length, seen.size(), "Each reserved ID goes to one client only");
+		} finally {
+			threads.shutdown();
+			otherHelper.closeConnection();
+		}
+	}
+}